@@ -0,0 +1,164 @@
+package AplikacjePrzemyslowe.DatApp.benchmark;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Syntetyczna baza H2 (tryb MySQL) dla benchmarków ścieżek JDBC.
+ * Tabele odpowiadają schema.sql w zakresie kolumn używanych przez matching.
+ */
+final class BenchmarkDatabase {
+
+    static final long SEARCHER_ID = 1L;
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Tworzy bazę z {@code users} użytkownikami (płeć naprzemiennie, wiek 18-60,
+     * 95% aktywnych, każdy z preferencjami, lokalizacją w Polsce i 3-8 z 100 zainteresowań) oraz {@code swipes}
+     * ocenami wykonanymi przez SEARCHER_ID.
+     */
+    static NamedParameterJdbcTemplate create(String name, int users, int swipes, long seed) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(dataSource);
+
+        jdbc.getJdbcTemplate().execute("DROP TABLE IF EXISTS profile_interests");
+        jdbc.getJdbcTemplate().execute("DROP TABLE IF EXISTS swipes");
+        jdbc.getJdbcTemplate().execute("DROP TABLE IF EXISTS preferences");
+        jdbc.getJdbcTemplate().execute("DROP TABLE IF EXISTS profiles");
+        jdbc.getJdbcTemplate().execute("DROP TABLE IF EXISTS users");
+        jdbc.getJdbcTemplate().execute("""
+            CREATE TABLE users (
+                user_id BIGINT PRIMARY KEY,
+                username VARCHAR(50) NOT NULL,
+                email VARCHAR(100) NOT NULL,
+                password VARCHAR(255) NOT NULL,
+                gender VARCHAR(20) NOT NULL,
+                birth_date DATE NOT NULL,
+                city VARCHAR(100) NOT NULL,
+                is_active BOOLEAN NOT NULL,
+                created_at TIMESTAMP NOT NULL,
+                updated_at TIMESTAMP NOT NULL
+            )
+            """);
+        jdbc.getJdbcTemplate().execute("""
+            CREATE TABLE swipes (
+                swipe_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                swiper_id BIGINT NOT NULL,
+                swiped_user_id BIGINT NOT NULL,
+                swipe_type VARCHAR(20) NOT NULL,
+                swiped_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+            )
+            """);
+        jdbc.getJdbcTemplate().execute("""
+            CREATE TABLE profiles (
+                profile_id BIGINT PRIMARY KEY,
+                user_id BIGINT NOT NULL UNIQUE,
+                latitude DECIMAL(10, 8),
+                longitude DECIMAL(11, 8),
+                updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+            )
+            """);
+        jdbc.getJdbcTemplate().execute("""
+            CREATE TABLE preferences (
+                user_id BIGINT NOT NULL UNIQUE,
+                preferred_gender VARCHAR(20) NOT NULL,
+                min_age INT NOT NULL,
+                max_age INT NOT NULL,
+                max_distance_km INT NOT NULL,
+                updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+            )
+            """);
+        jdbc.getJdbcTemplate().execute("""
+            CREATE TABLE profile_interests (
+                profile_id BIGINT NOT NULL,
+                interest_id BIGINT NOT NULL,
+                PRIMARY KEY (profile_id, interest_id)
+            )
+            """);
+        jdbc.getJdbcTemplate().execute("CREATE INDEX idx_users_gender_active ON users(gender, is_active)");
+        jdbc.getJdbcTemplate().execute("CREATE INDEX idx_swiper_id ON swipes(swiper_id)");
+        jdbc.getJdbcTemplate().execute("CREATE INDEX idx_users_updated_at ON users(updated_at)");
+        jdbc.getJdbcTemplate().execute("CREATE INDEX idx_profiles_updated_at ON profiles(updated_at)");
+        jdbc.getJdbcTemplate().execute("CREATE INDEX idx_preferences_updated_at ON preferences(updated_at)");
+
+        Random random = new Random(seed);
+        LocalDate today = LocalDate.now();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String[] genders = {"MALE", "FEMALE"};
+
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> profileRows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> preferenceRows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> interestRows = new ArrayList<>(BATCH_SIZE * 8);
+        for (long id = 1; id <= users; id++) {
+            LocalDate birthDate = today.minusYears(18).minusDays(random.nextInt(42 * 365));
+            rows.add(new Object[]{
+                    id, "user" + id, "user" + id + "@bench.pl", "$2a$10$benchmarkhash",
+                    genders[(int) (id % 2)], Date.valueOf(birthDate), "City" + (id % 50),
+                    random.nextInt(100) < 95, now, now
+            });
+            profileRows.add(new Object[]{id, id, 49.0 + random.nextDouble() * 6.0, 14.0 + random.nextDouble() * 10.0});
+            int minAge = 18 + random.nextInt(20);
+            preferenceRows.add(new Object[]{
+                    id, genders[(int) ((id + 1) % 2)], minAge, minAge + 5 + random.nextInt(20), 20 + random.nextInt(300)
+            });
+            int firstInterest = 1 + random.nextInt(100);
+            int interestCount = 3 + random.nextInt(6);
+            for (int i = 0; i < interestCount; i++) {
+                interestRows.add(new Object[]{id, 1 + (firstInterest + i * 7) % 100});
+            }
+            if (rows.size() == BATCH_SIZE) {
+                insertUsers(jdbc, rows, profileRows, preferenceRows, interestRows);
+                rows.clear();
+                profileRows.clear();
+                preferenceRows.clear();
+                interestRows.clear();
+            }
+        }
+        insertUsers(jdbc, rows, profileRows, preferenceRows, interestRows);
+
+        List<Object[]> swipeRows = new ArrayList<>(swipes);
+        for (int i = 0; i < swipes; i++) {
+            long swipedId = 2 + random.nextInt(users - 1);
+            swipeRows.add(new Object[]{SEARCHER_ID, swipedId, "DISLIKE"});
+        }
+        jdbc.getJdbcTemplate().batchUpdate(
+                "INSERT INTO swipes (swiper_id, swiped_user_id, swipe_type) VALUES (?, ?, ?)", swipeRows);
+
+        return jdbc;
+    }
+
+    private static void insertUsers(NamedParameterJdbcTemplate jdbc, List<Object[]> rows,
+                                    List<Object[]> profileRows, List<Object[]> preferenceRows,
+                                    List<Object[]> interestRows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbc.getJdbcTemplate().batchUpdate("""
+            INSERT INTO users (user_id, username, email, password, gender, birth_date,
+                               city, is_active, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """, rows);
+        jdbc.getJdbcTemplate().batchUpdate(
+                "INSERT INTO profiles (profile_id, user_id, latitude, longitude) VALUES (?, ?, ?, ?)", profileRows);
+        jdbc.getJdbcTemplate().batchUpdate("""
+            INSERT INTO preferences (user_id, preferred_gender, min_age, max_age, max_distance_km)
+            VALUES (?, ?, ?, ?, ?)
+            """, preferenceRows);
+        jdbc.getJdbcTemplate().batchUpdate(
+                "INSERT INTO profile_interests (profile_id, interest_id) VALUES (?, ?)", interestRows);
+    }
+}
@@ -0,0 +1,85 @@
+package AplikacjePrzemyslowe.DatApp.benchmark;
+
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.mapper.CandidateRowMapper;
+import AplikacjePrzemyslowe.DatApp.dao.mapper.UserRowMapper;
+import AplikacjePrzemyslowe.DatApp.entity.Gender;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Porównanie rozwiązywania preferencji: CandidateIndex w pamięci
+ * vs dotychczasowe zapytanie UserJdbcDao.findCandidatesByPreference (NOT IN swipes),
+ * oraz koszt filtra wzajemności w indeksie (indexPathReciprocal).
+ *
+ * Uruchomienie: ./gradlew jmh -PjmhIncludes=CandidateIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CandidateIndexBenchmark {
+
+    private static final CandidateIndex.Searcher SEARCHER = new CandidateIndex.Searcher(
+            Gender.MALE, LocalDate.now().minusYears(30), 52.2297, 21.0122);
+
+    @Param({"100000", "1000000"})
+    public int users;
+
+    private NamedParameterJdbcTemplate jdbc;
+    private UserJdbcDao userJdbcDao;
+    private CandidateIndex candidateIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jdbc = BenchmarkDatabase.create("candidate_index_" + users, users, 2_000, 42L);
+        userJdbcDao = new UserJdbcDao(jdbc, new UserRowMapper(), new CandidateRowMapper());
+        candidateIndex = new CandidateIndex(userJdbcDao);
+        candidateIndex.rebuild();
+    }
+
+    @Benchmark
+    public int jdbcPath() {
+        return userJdbcDao.findCandidatesByPreference(
+                BenchmarkDatabase.SEARCHER_ID, Gender.FEMALE, 25, 35, Pageable.unpaged()
+        ).getNumberOfElements();
+    }
+
+    @Benchmark
+    public int indexPath() {
+        return countFromIndex(null);
+    }
+
+    @Benchmark
+    public int indexPathReciprocal() {
+        return countFromIndex(SEARCHER);
+    }
+
+    private int countFromIndex(CandidateIndex.Searcher searcher) {
+        // Jak w MatchingEngineService: jedno zapytanie o ocenionych + slice'y indeksu
+        Set<Long> swipedIds = new HashSet<>(jdbc.queryForList(
+                "SELECT swiped_user_id FROM swipes WHERE swiper_id = :userId",
+                new MapSqlParameterSource("userId", BenchmarkDatabase.SEARCHER_ID),
+                Long.class));
+
+        int[] count = new int[1];
+        for (CandidateIndex.Slice slice : candidateIndex.findSlices(Gender.FEMALE, 25, 35, LocalDate.now(), searcher)) {
+            slice.forEach(id -> {
+                if (id != BenchmarkDatabase.SEARCHER_ID && !swipedIds.contains(id)) {
+                    count[0]++;
+                }
+            });
+        }
+        return count[0];
+    }
+}
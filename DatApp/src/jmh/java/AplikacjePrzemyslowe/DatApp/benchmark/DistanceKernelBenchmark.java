@@ -0,0 +1,100 @@
+package AplikacjePrzemyslowe.DatApp.benchmark;
+
+import AplikacjePrzemyslowe.DatApp.matching.DistanceKernel;
+import AplikacjePrzemyslowe.DatApp.matching.GeoDistance;
+import AplikacjePrzemyslowe.DatApp.matching.GeoPoints;
+import AplikacjePrzemyslowe.DatApp.matching.VectorDistanceKernel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dystans do puli kandydatów: GeoDistance.haversineKm para po parze na współrzędnych
+ * Double z profili (dotychczasowe calculateDistance) vs DistanceKernel (skalarny i Vector API).
+ *
+ * withinRadius* to filtr maxDistanceKm: pre-filtr + dokładny Haversine tylko dla punktów blisko promienia.
+ * Kandydaci rozrzuceni po prostokącie Polski, szukający w Warszawie.
+ *
+ * Uruchomienie: ./gradlew jmh -PjmhIncludes=DistanceKernelBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "--add-modules", "jdk.incubator.vector"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DistanceKernelBenchmark {
+
+    private static final double LAT = 52.2297;
+    private static final double LON = 21.0122;
+
+    @Param({"1000", "100000"})
+    public int candidates;
+
+    @Param({"50"})
+    public double radiusKm;
+
+    private Double[] latitudes;
+    private Double[] longitudes;
+    private GeoPoints points;
+    private double[] distances;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        latitudes = new Double[candidates];
+        longitudes = new Double[candidates];
+        double[] lat = new double[candidates];
+        double[] lon = new double[candidates];
+        for (int i = 0; i < candidates; i++) {
+            lat[i] = 49.0 + random.nextDouble() * 6.0;
+            lon[i] = 14.0 + random.nextDouble() * 10.0;
+            latitudes[i] = lat[i];
+            longitudes[i] = lon[i];
+        }
+        points = GeoPoints.ofDegrees(lat, lon, candidates);
+        distances = new double[candidates];
+    }
+
+    @Benchmark
+    public double[] perPairHaversine() {
+        for (int i = 0; i < candidates; i++) {
+            distances[i] = GeoDistance.haversineKm(LAT, LON, latitudes[i], longitudes[i]);
+        }
+        return distances;
+    }
+
+    @Benchmark
+    public double[] kernelScalar() {
+        DistanceKernel.haversineKmScalar(LAT, LON, points, distances);
+        return distances;
+    }
+
+    @Benchmark
+    public double[] kernelVector() {
+        VectorDistanceKernel.haversineKm(LAT, LON, points, distances);
+        return distances;
+    }
+
+    @Benchmark
+    public int perPairWithinRadius() {
+        int count = 0;
+        for (int i = 0; i < candidates; i++) {
+            if (GeoDistance.haversineKm(LAT, LON, latitudes[i], longitudes[i]) <= radiusKm) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int withinRadiusScalar() {
+        return DistanceKernel.withinRadiusKmScalar(LAT, LON, points, radiusKm, distances);
+    }
+
+    @Benchmark
+    public int withinRadiusVector() {
+        return VectorDistanceKernel.withinRadiusKm(LAT, LON, points, radiusKm, distances);
+    }
+}
@@ -0,0 +1,108 @@
+package AplikacjePrzemyslowe.DatApp.benchmark;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.mapper.CandidateRowMapper;
+import AplikacjePrzemyslowe.DatApp.dao.mapper.UserRowMapper;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateIndex;
+import AplikacjePrzemyslowe.DatApp.matching.GeoGridIndex;
+import AplikacjePrzemyslowe.DatApp.matching.IndexSnapshotStore;
+import AplikacjePrzemyslowe.DatApp.matching.InterestBitsetIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Czas startu indeksów silnika dopasowań: pełna przebudowa z bazy (CandidateIndex,
+ * GeoGridIndex, InterestBitsetIndex) vs odtworzenie z pliku IndexSnapshotStore
+ * z doczytaniem {@code changedPercent}% użytkowników zmienionych po zapisie snapshotu.
+ *
+ * Uruchomienie: ./gradlew jmh -PjmhIncludes=IndexStartupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class IndexStartupBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int users;
+
+    @Param({"1"})
+    public int changedPercent;
+
+    private UserJdbcDao userJdbcDao;
+    private MatchingProperties properties;
+    private Path snapshotPath;
+
+    private CandidateIndex candidateIndex;
+    private GeoGridIndex geoGridIndex;
+    private InterestBitsetIndex interestBitsetIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        NamedParameterJdbcTemplate jdbc = BenchmarkDatabase.create("index_startup_" + users, users, 0, 42L);
+        userJdbcDao = new UserJdbcDao(jdbc, new UserRowMapper(), new CandidateRowMapper());
+
+        // Stan sprzed zapisu snapshotu - godzinę temu
+        for (String table : new String[]{"users", "profiles", "preferences"}) {
+            jdbc.getJdbcTemplate().update(
+                    "UPDATE " + table + " SET updated_at = DATEADD('HOUR', -1, CURRENT_TIMESTAMP)");
+        }
+
+        snapshotPath = Files.createTempFile("matching-index", ".snapshot");
+        properties = new MatchingProperties();
+        properties.getIndexSnapshot().setPath(snapshotPath.toString());
+
+        newIndexes();
+        candidateIndex.rebuild();
+        geoGridIndex.rebuild();
+        interestBitsetIndex.load();
+        if (!newStore().write()) {
+            throw new IllegalStateException("Index snapshot not written");
+        }
+
+        // Zmiany po zapisie, doczytywane przy starcie z pliku
+        jdbc.update("UPDATE profiles SET updated_at = CURRENT_TIMESTAMP WHERE MOD(user_id, 100) < :percent",
+                new MapSqlParameterSource("percent", changedPercent));
+    }
+
+    @Setup(Level.Invocation)
+    public void newIndexes() {
+        candidateIndex = new CandidateIndex(userJdbcDao);
+        geoGridIndex = new GeoGridIndex(userJdbcDao);
+        interestBitsetIndex = new InterestBitsetIndex(userJdbcDao);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotPath);
+    }
+
+    @Benchmark
+    public int coldRebuild() {
+        candidateIndex.rebuild();
+        geoGridIndex.rebuild();
+        interestBitsetIndex.load();
+        return candidateIndex.size();
+    }
+
+    @Benchmark
+    public int warmRestore() throws IOException {
+        if (!newStore().restore()) {
+            throw new IllegalStateException("Index snapshot not restored");
+        }
+        return candidateIndex.size();
+    }
+
+    private IndexSnapshotStore newStore() {
+        return new IndexSnapshotStore(properties, userJdbcDao, candidateIndex, geoGridIndex, interestBitsetIndex);
+    }
+}
@@ -0,0 +1,380 @@
+package AplikacjePrzemyslowe.DatApp.benchmark;
+
+import AplikacjePrzemyslowe.DatApp.config.JacksonConfig;
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.config.ModelMapperConfig;
+import AplikacjePrzemyslowe.DatApp.dao.CandidateRow;
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.entity.*;
+import AplikacjePrzemyslowe.DatApp.matching.*;
+import AplikacjePrzemyslowe.DatApp.repository.PreferenceRepository;
+import AplikacjePrzemyslowe.DatApp.repository.ProfileRepository;
+import AplikacjePrzemyslowe.DatApp.repository.SwipeRepository;
+import AplikacjePrzemyslowe.DatApp.repository.UserRepository;
+import AplikacjePrzemyslowe.DatApp.service.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Syntetyczna populacja w pamięci i prawdziwy MatchingEngineService do benchmarków pipeline'u.
+ *
+ * Serwisy, indeksy i mapery są produkcyjne; repozytoria Spring Data i strumienie
+ * UserJdbcDao zastąpione są mapami w pamięci, więc czas bazy nie wchodzi do pomiaru.
+ * Szukający (SEARCHER_ID): MALE, 30 lat, Warszawa, szuka FEMALE 25-35 w promieniu 100 km.
+ */
+final class MatchingFixture {
+
+    static final long SEARCHER_ID = 1L;
+
+    private static final int INTERESTS = 60;
+
+    final Map<Long, User> users = new HashMap<>();
+    final Map<Long, Profile> profiles = new HashMap<>();
+    final Map<Long, Preference> preferences = new HashMap<>();
+    final List<Long> swipedBySearcher = new ArrayList<>();
+
+    final ModelMapper modelMapper = new ModelMapperConfig().modelMapper();
+    final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+    final ParallelRanker parallelRanker;
+    final CandidateGenerator generator;
+    final CandidatePreScorer preScorer;
+    final CandidateScorer scorer;
+    final MatchingEngineService engine;
+
+    private MatchingFixture(int population, long seed) {
+        generate(population, new Random(seed));
+
+        MatchingProperties properties = new MatchingProperties();
+        // Bez PairScoreCache - kolejne iteracje mierzą scoring, a nie trafienia w cache
+        properties.getPairCache().setMaxEntries(0);
+        // Bez budżetu czasu - benchmarki mierzą pełny ranking, a nie fallback
+        properties.getPipeline().setTimeBudget(Duration.ZERO);
+        // Bez nocnych rankingów - zimny start zawsze liczy pipeline
+        properties.getTopPicks().setEnabled(false);
+        UserJdbcDao userJdbcDao = new InMemoryUserJdbcDao();
+
+        CandidateIndex candidateIndex = new CandidateIndex(userJdbcDao);
+        candidateIndex.rebuild();
+        GeoGridIndex geoGridIndex = new GeoGridIndex(userJdbcDao);
+        geoGridIndex.rebuild();
+        InterestBitsetIndex interestBitsetIndex = new InterestBitsetIndex(userJdbcDao);
+        interestBitsetIndex.load();
+
+        UserRepository userRepository = repository(UserRepository.class, Map.of(
+                "findById", args -> Optional.ofNullable(users.get((Long) args[0])),
+                "findAllById", args -> {
+                    List<User> found = new ArrayList<>();
+                    for (Object id : (Iterable<?>) args[0]) {
+                        User user = users.get((Long) id);
+                        if (user != null) {
+                            found.add(user);
+                        }
+                    }
+                    return found;
+                }));
+        ProfileRepository profileRepository = repository(ProfileRepository.class, Map.of(
+                "findByUserId", args -> Optional.ofNullable(profiles.get((Long) args[0]))));
+        PreferenceRepository preferenceRepository = repository(PreferenceRepository.class, Map.of(
+                "findByUserId", args -> Optional.ofNullable(preferences.get((Long) args[0]))));
+        SwipeRepository swipeRepository = repository(SwipeRepository.class, Map.of(
+                "findSwipedUserIds", args -> (Long) args[0] == SEARCHER_ID ? swipedBySearcher : List.of()));
+
+        CandidateDeckStore candidateDeckStore = new CandidateDeckStore(properties);
+        // Benchmark tylko czyta - zdarzenia zmian nie mają odbiorcy
+        ApplicationEventPublisher noEvents = event -> { };
+        UserService userService = new UserService(userRepository, null, noEvents, modelMapper);
+        ProfileService profileService = new ProfileService(profileRepository, null, null, userService,
+                noEvents, modelMapper);
+        PreferenceService preferenceService = new PreferenceService(preferenceRepository, userRepository,
+                noEvents, modelMapper);
+
+        parallelRanker = new ParallelRanker(properties);
+        PairScoreCache pairScoreCache = new PairScoreCache(properties, new SimpleMeterRegistry());
+        SwipedUserCache swipedUserCache = new SwipedUserCache(swipeRepository, properties);
+        properties.getSwipeIngestion().setEnabled(false);
+        SwipeWriter swipeWriter = new SwipeWriter(null, properties, new SimpleMeterRegistry());
+        ScoringContextLoader scoringContextLoader =
+                new ScoringContextLoader(userJdbcDao, interestBitsetIndex, pairScoreCache);
+        generator = new CandidateGenerator(profileService, swipeRepository, userJdbcDao,
+                candidateIndex, geoGridIndex, swipedUserCache, scoringContextLoader,
+                new PopularNearbyIndex(userJdbcDao, properties), swipeWriter);
+        preScorer = new CandidatePreScorer(properties, interestBitsetIndex);
+        scorer = new CandidateScorer(scoringContextLoader, parallelRanker, pairScoreCache);
+        engine = new MatchingEngineService(
+                userService,
+                preferenceService,
+                profileService,
+                generator,
+                candidateDeckStore,
+                noEvents,
+                new CandidateSnapshotStore(properties),
+                new MatchingPipeline(properties, generator, preScorer, scorer,
+                        new DatabaseCandidateScorer(userJdbcDao, swipeWriter), new SimpleMeterRegistry()),
+                scorer,
+                new TopPicksStore(null, properties, null),
+                modelMapper
+        );
+    }
+
+    /**
+     * Tworzy populację {@code population} użytkowników (płeć naprzemiennie, wiek 18-60,
+     * 95% aktywnych, 95% z lokalizacją w Polsce) i ocenę 2% z nich przez SEARCHER_ID.
+     */
+    static MatchingFixture create(int population, long seed) {
+        return new MatchingFixture(population, seed);
+    }
+
+    User searcher() {
+        return users.get(SEARCHER_ID);
+    }
+
+    Preference searcherPreference() {
+        return preferences.get(SEARCHER_ID);
+    }
+
+    void close() {
+        parallelRanker.shutdown();
+    }
+
+    // ========== DATA ==========
+
+    private void generate(int population, Random random) {
+        LocalDate today = LocalDate.now();
+
+        List<Interest> interests = new ArrayList<>(INTERESTS);
+        for (long id = 1; id <= INTERESTS; id++) {
+            interests.add(Interest.builder()
+                    .id(id)
+                    .name("Interest " + id)
+                    .category("Category " + (id % 6))
+                    .icon("icon-" + id)
+                    .build());
+        }
+
+        for (long id = 1; id <= population; id++) {
+            boolean searcher = id == SEARCHER_ID;
+            User user = User.builder()
+                    .id(id)
+                    .username("user" + id)
+                    .email("user" + id + "@bench.pl")
+                    .password("$2a$10$benchmarkhash")
+                    .gender(searcher || id % 2 == 1 ? Gender.MALE : Gender.FEMALE)
+                    .birthDate(searcher ? today.minusYears(30) : today.minusYears(18).minusDays(random.nextInt(42 * 365)))
+                    .city("City" + (id % 50))
+                    .isActive(searcher || random.nextInt(100) < 95)
+                    .build();
+
+            boolean located = searcher || random.nextInt(100) < 95;
+            Profile profile = Profile.builder()
+                    .id(id)
+                    .user(user)
+                    .bio(random.nextInt(100) < 80 ? "Bio użytkownika " + id : null)
+                    .heightCm(150 + random.nextInt(50))
+                    .occupation("Occupation " + (id % 30))
+                    .education("Education " + (id % 5))
+                    .latitude(searcher ? 52.2297 : located ? 49.0 + random.nextDouble() * 6.0 : null)
+                    .longitude(searcher ? 21.0122 : located ? 14.0 + random.nextDouble() * 10.0 : null)
+                    .photos(new HashSet<>())
+                    .interests(new HashSet<>())
+                    .build();
+
+            int photos = random.nextInt(4);
+            for (int i = 0; i < photos; i++) {
+                profile.getPhotos().add(Photo.builder()
+                        .id(id * 4 + i)
+                        .profile(profile)
+                        .photoUrl("https://cdn.bench.pl/" + id + "/" + i + ".jpg")
+                        .isPrimary(i == 0)
+                        .displayOrder(i)
+                        .build());
+            }
+            int interestCount = 3 + random.nextInt(6);
+            for (int i = 0; i < interestCount; i++) {
+                profile.getInterests().add(interests.get(random.nextInt(INTERESTS)));
+            }
+
+            users.put(id, user);
+            profiles.put(id, profile);
+        }
+
+        preferences.put(SEARCHER_ID, Preference.builder()
+                .id(SEARCHER_ID)
+                .user(searcher())
+                .preferredGender(Gender.FEMALE)
+                .minAge(25)
+                .maxAge(35)
+                .maxDistanceKm(100)
+                .build());
+
+        for (int i = 0; i < population / 50; i++) {
+            swipedBySearcher.add(2L + random.nextInt(Math.max(1, population - 1)));
+        }
+    }
+
+    // ========== IN-MEMORY STUBS ==========
+
+    /**
+     * Repozytorium Spring Data obsługujące tylko metody używane przez matching.
+     */
+    private static <R> R repository(Class<R> type, Map<String, Function<Object[], Object>> handlers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> handler = handlers.get(method.getName());
+            if (handler != null) {
+                return handler.apply(args);
+            }
+            return switch (method.getName()) {
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "toString" -> type.getSimpleName() + " (in-memory)";
+                default -> throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            };
+        }));
+    }
+
+    /**
+     * UserJdbcDao zasilający indeksy z map w pamięci (wiersze podawane przez ResultSet-proxy)
+     * i zwracający projekcje CandidateRow kandydatów.
+     */
+    private final class InMemoryUserJdbcDao extends UserJdbcDao {
+
+        private InMemoryUserJdbcDao() {
+            super(null, null, null);
+        }
+
+        @Override
+        public void streamActiveUsersForIndex(RowCallbackHandler handler) {
+            Map<String, Object> row = new HashMap<>();
+            ResultSet rs = resultSet(row);
+            for (User user : users.values()) {
+                if (user.getIsActive()) {
+                    Preference preference = preferences.get(user.getId());
+                    Profile profile = profiles.get(user.getId());
+                    row.put("user_id", user.getId());
+                    row.put("gender", user.getGender().name());
+                    row.put("birth_date", user.getBirthDate());
+                    row.put("preferred_gender", preference != null ? preference.getPreferredGender().name() : null);
+                    row.put("min_age", preference != null ? preference.getMinAge() : 0);
+                    row.put("max_age", preference != null ? preference.getMaxAge() : 0);
+                    row.put("max_distance_km", preference != null ? preference.getMaxDistanceKm() : 0);
+                    row.put("latitude", profile != null ? profile.getLatitude() : null);
+                    row.put("longitude", profile != null ? profile.getLongitude() : null);
+                    processRow(handler, rs);
+                }
+            }
+        }
+
+        @Override
+        public void streamUserInterests(RowCallbackHandler handler) {
+            Map<String, Object> row = new HashMap<>();
+            ResultSet rs = resultSet(row);
+            for (Profile profile : profiles.values()) {
+                for (Interest interest : profile.getInterests()) {
+                    row.put("user_id", profile.getUser().getId());
+                    row.put("interest_id", interest.getId());
+                    processRow(handler, rs);
+                }
+            }
+        }
+
+        @Override
+        public void streamProfileLocationsForIndex(RowCallbackHandler handler) {
+            Map<String, Object> row = new HashMap<>();
+            ResultSet rs = resultSet(row);
+            for (Profile profile : profiles.values()) {
+                if (profile.getUser().getIsActive()) {
+                    row.put("user_id", profile.getUser().getId());
+                    row.put("latitude", profile.getLatitude());
+                    row.put("longitude", profile.getLongitude());
+                    processRow(handler, rs);
+                }
+            }
+        }
+
+        @Override
+        public void streamScoringFeatures(Collection<Long> userIds, RowCallbackHandler handler) {
+            Map<String, Object> row = new HashMap<>();
+            ResultSet rs = resultSet(row);
+            for (Long userId : userIds) {
+                Profile profile = profiles.get(userId);
+                if (profile != null) {
+                    row.put("user_id", userId);
+                    row.put("latitude", profile.getLatitude());
+                    row.put("longitude", profile.getLongitude());
+                    row.put("profile_complete", profile.getBio() != null && !profile.getBio().isBlank()
+                            && !profile.getPhotos().isEmpty() && !profile.getInterests().isEmpty());
+                    row.put("profile_version", 0L);
+                    row.put("preference_version", preferences.containsKey(userId) ? 0L : null);
+                    processRow(handler, rs);
+                }
+            }
+        }
+
+        @Override
+        public List<CandidateRow> findCandidateRows(Collection<Long> userIds) {
+            List<CandidateRow> rows = new ArrayList<>(userIds.size());
+            for (Long userId : userIds) {
+                User user = users.get(userId);
+                if (user != null) {
+                    rows.add(candidateRow(user));
+                }
+            }
+            return rows;
+        }
+
+        @Override
+        public List<CandidateRow> findCandidateRowsByPreference(Long currentUserId, Gender preferredGender,
+                                                                int minAge, int maxAge) {
+            Set<Long> swiped = new HashSet<>(swipedBySearcher);
+            int year = LocalDate.now().getYear();
+            List<CandidateRow> rows = new ArrayList<>();
+            for (User user : users.values()) {
+                int age = year - user.getBirthDate().getYear();
+                if (!user.getId().equals(currentUserId) && user.getIsActive() && user.getGender() == preferredGender
+                        && age >= minAge && age <= maxAge
+                        && (currentUserId != SEARCHER_ID || !swiped.contains(user.getId()))) {
+                    rows.add(candidateRow(user));
+                }
+            }
+            return rows;
+        }
+
+        private CandidateRow candidateRow(User user) {
+            Profile profile = profiles.get(user.getId());
+            boolean located = profile != null && profile.getLatitude() != null && profile.getLongitude() != null;
+            return new CandidateRow(user.getId(), user.getGender(), user.getBirthDate(), user.getCity(),
+                    located ? profile.getLatitude() : Double.NaN, located ? profile.getLongitude() : Double.NaN,
+                    user.getIsActive());
+        }
+
+        private static void processRow(RowCallbackHandler handler, ResultSet rs) {
+            try {
+                handler.processRow(rs);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static ResultSet resultSet(Map<String, Object> row) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getLong" -> ((Number) row.get((String) args[0])).longValue();
+                        case "getInt" -> ((Number) row.get((String) args[0])).intValue();
+                        case "getString" -> row.get((String) args[0]) != null ? String.valueOf(row.get((String) args[0])) : null;
+                        case "getObject" -> row.get((String) args[0]);
+                        case "getBoolean" -> (Boolean) row.get((String) args[0]);
+                        default -> throw new UnsupportedOperationException("ResultSet." + method.getName());
+                    });
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package AplikacjePrzemyslowe.DatApp.benchmark;
+
+import AplikacjePrzemyslowe.DatApp.dao.CandidateRow;
+import AplikacjePrzemyslowe.DatApp.dto.response.CandidateResponse;
+import AplikacjePrzemyslowe.DatApp.entity.Preference;
+import AplikacjePrzemyslowe.DatApp.entity.Profile;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import AplikacjePrzemyslowe.DatApp.matching.DistanceKernel;
+import AplikacjePrzemyslowe.DatApp.matching.GeoDistance;
+import AplikacjePrzemyslowe.DatApp.matching.GeoPoints;
+import AplikacjePrzemyslowe.DatApp.service.CandidateGenerator;
+import AplikacjePrzemyslowe.DatApp.service.CandidatePreScorer;
+import AplikacjePrzemyslowe.DatApp.service.CandidateScorer;
+import AplikacjePrzemyslowe.DatApp.service.MatchingEngineService;
+import AplikacjePrzemyslowe.DatApp.service.ScoredCandidate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Etapy MatchingPipeline na syntetycznej populacji w pamięci (MatchingFixture):
+ * generowanie kandydatów, pre-scoring, scoreCandidate, dystans (Haversine), mapowanie na CandidateResponse
+ * (ModelMapper), serializacja Jackson i całe getCandidates.
+ *
+ * Metody prywatne CandidateScorer i silnika wywoływane są przez MethodHandle - mierzony jest
+ * produkcyjny kod, nie jego kopia. Populacje 1k/10k/100k; szukający ma w promieniu ok. 1% populacji.
+ *
+ * Uruchomienie: ./gradlew jmh -PjmhIncludes=MatchingPipelineBenchmark
+ * Wyniki (JSON) w build/results/jmh/results-{wersja}.json - do porównywania między wydaniami.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "--add-modules", "jdk.incubator.vector"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MatchingPipelineBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final MethodHandle LOAD_FEATURES;
+    private static final MethodHandle SCORE_CANDIDATE;
+    private static final MethodHandle MAP_TO_CANDIDATE_RESPONSE;
+
+    static {
+        try {
+            MethodHandles.Lookup scorerLookup = MethodHandles.privateLookupIn(CandidateScorer.class, MethodHandles.lookup());
+            MethodHandles.Lookup engineLookup = MethodHandles.privateLookupIn(MatchingEngineService.class, MethodHandles.lookup());
+            Class<?> features = scorerLookup.findClass(CandidateScorer.class.getName() + "$CandidateFeatures");
+
+            LOAD_FEATURES = scorerLookup.findVirtual(CandidateScorer.class, "loadFeatures",
+                    MethodType.methodType(List.class, User.class, List.class));
+            SCORE_CANDIDATE = scorerLookup.findVirtual(CandidateScorer.class, "scoreCandidate",
+                    MethodType.methodType(ScoredCandidate.class, User.class, features))
+                    .asType(MethodType.methodType(Object.class, CandidateScorer.class, User.class, Object.class));
+            MAP_TO_CANDIDATE_RESPONSE = engineLookup.findVirtual(MatchingEngineService.class, "mapToCandidateResponse",
+                    MethodType.methodType(CandidateResponse.class, ScoredCandidate.class, User.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({"1000", "10000", "100000"})
+    public int population;
+
+    private MatchingFixture fixture;
+    private CandidateGenerator generator;
+    private CandidatePreScorer preScorer;
+    private CandidateScorer scorer;
+    private MatchingEngineService engine;
+    private User searcher;
+    private Preference preference;
+
+    private List<CandidateRow> eligible;
+    private List<?> features;
+    private List<ScoredCandidate> topCandidates;
+    private List<CandidateResponse> responses;
+    private Double[] latitudes;
+    private Double[] longitudes;
+    private GeoPoints points;
+    private double[] distances;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        fixture = MatchingFixture.create(population, 42L);
+        generator = fixture.generator;
+        preScorer = fixture.preScorer;
+        scorer = fixture.scorer;
+        engine = fixture.engine;
+        searcher = fixture.searcher();
+        preference = fixture.searcherPreference();
+
+        eligible = generator.generate(searcher, preference);
+        features = (List<?>) LOAD_FEATURES.invoke(scorer, searcher, eligible);
+        topCandidates = scorer.rank(searcher, eligible, PAGE_SIZE).drainDescending();
+        responses = mapTopCandidates();
+
+        latitudes = new Double[eligible.size()];
+        longitudes = new Double[eligible.size()];
+        double[] lat = new double[eligible.size()];
+        double[] lon = new double[eligible.size()];
+        int located = 0;
+        for (CandidateRow candidate : eligible) {
+            Profile profile = fixture.profiles.get(candidate.userId());
+            if (profile.getLatitude() != null) {
+                latitudes[located] = profile.getLatitude();
+                longitudes[located] = profile.getLongitude();
+                lat[located] = profile.getLatitude();
+                lon[located] = profile.getLongitude();
+                located++;
+            }
+        }
+        latitudes = Arrays.copyOf(latitudes, located);
+        longitudes = Arrays.copyOf(longitudes, located);
+        points = GeoPoints.ofDegrees(lat, lon, located);
+        distances = new double[located];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    /**
+     * CandidateGenerator: preferencje (CandidateIndex), wykluczenie ocenionych, promień (GeoGridIndex),
+     * wiek i aktywność.
+     */
+    @Benchmark
+    public List<CandidateRow> filterCandidates() {
+        return generator.generate(searcher, preference);
+    }
+
+    /**
+     * CandidatePreScorer: lekki score z InterestBitsetIndex i przycięcie do pre-score-limit.
+     */
+    @Benchmark
+    public List<CandidateRow> preScoreCandidates() {
+        return preScorer.preScore(searcher, eligible);
+    }
+
+    /**
+     * Sam scoreCandidate dla każdego kandydata (ScoringContext już wczytany).
+     */
+    @Benchmark
+    public void scoreCandidate(Blackhole blackhole) throws Throwable {
+        for (Object candidate : features) {
+            blackhole.consume(SCORE_CANDIDATE.invokeExact(scorer, searcher, candidate));
+        }
+    }
+
+    /**
+     * loadFeatures (ScoringContext: zbiorczy odczyt + dystanse) + scoring + TopKSelector.
+     */
+    @Benchmark
+    public List<ScoredCandidate> rankCandidates() {
+        return scorer.rank(searcher, eligible, PAGE_SIZE).drainDescending();
+    }
+
+    @Benchmark
+    public double[] haversinePerPair() {
+        for (int i = 0; i < latitudes.length; i++) {
+            distances[i] = GeoDistance.haversineKm(52.2297, 21.0122, latitudes[i], longitudes[i]);
+        }
+        return distances;
+    }
+
+    @Benchmark
+    public double[] haversineKernel() {
+        DistanceKernel.haversineKm(52.2297, 21.0122, points, distances);
+        return distances;
+    }
+
+    /**
+     * mapToCandidateResponse (ModelMapper dla zdjęcia i zainteresowań) dla jednej strony.
+     */
+    @Benchmark
+    public List<CandidateResponse> mapToCandidateResponse() throws Throwable {
+        return mapTopCandidates();
+    }
+
+    @Benchmark
+    public byte[] serializeCandidateResponses() throws JsonProcessingException {
+        return fixture.objectMapper.writeValueAsBytes(responses);
+    }
+
+    /**
+     * Całe getCandidates - pierwsza strona.
+     */
+    @Benchmark
+    public Page<CandidateResponse> getCandidates() {
+        return engine.getCandidates(MatchingFixture.SEARCHER_ID, PageRequest.of(0, PAGE_SIZE));
+    }
+
+    private List<CandidateResponse> mapTopCandidates() throws Throwable {
+        List<CandidateResponse> mapped = new ArrayList<>(topCandidates.size());
+        for (ScoredCandidate scored : topCandidates) {
+            mapped.add((CandidateResponse) MAP_TO_CANDIDATE_RESPONSE.invokeExact(engine, scored,
+                    fixture.users.get(scored.getCandidateId())));
+        }
+        return mapped;
+    }
+}
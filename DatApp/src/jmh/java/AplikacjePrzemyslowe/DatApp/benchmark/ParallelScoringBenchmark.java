@@ -0,0 +1,99 @@
+package AplikacjePrzemyslowe.DatApp.benchmark;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.matching.GeoDistance;
+import AplikacjePrzemyslowe.DatApp.matching.InterestBitsetIndex;
+import AplikacjePrzemyslowe.DatApp.matching.ParallelRanker;
+import AplikacjePrzemyslowe.DatApp.matching.TopKSelector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Skalowanie scoringu ParallelRanker względem liczby wątków dedykowanej ForkJoinPool.
+ *
+ * Score liczony jak w MatchingEngineService (bitsety zainteresowań, Haversine,
+ * kompletność profilu, różnica wieku) na danych syntetycznych w pamięci.
+ * parallelism = 1 to tryb sekwencyjny (punkt odniesienia).
+ *
+ * Raport skalowania (1/2/4/8 wątków):
+ * ./gradlew jmh -PjmhIncludes=ParallelScoringBenchmark
+ * Wynik ma sens tylko na maszynie z co najmniej 8 rdzeniami - przy mniejszej liczbie
+ * rdzeni wyższe parallelism mierzą jedynie narzut przełączania wątków.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParallelScoringBenchmark {
+
+    record Candidate(long userId, long[] interestBits, double latitude, double longitude,
+                     boolean profileComplete, int birthYear) {
+    }
+
+    record Scored(long userId, int score) {
+    }
+
+    @Param({"10000", "100000"})
+    public int candidates;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private List<Candidate> pool;
+    private long[] currentBits;
+    private ParallelRanker ranker;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        pool = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            List<Long> interests = new ArrayList<>();
+            for (int j = 0; j < 8; j++) {
+                interests.add((long) random.nextInt(200));
+            }
+            pool.add(new Candidate(
+                    i + 1,
+                    InterestBitsetIndex.toBits(interests),
+                    49.0 + random.nextDouble() * 6.0,
+                    14.0 + random.nextDouble() * 10.0,
+                    random.nextBoolean(),
+                    1970 + random.nextInt(35)
+            ));
+        }
+        currentBits = InterestBitsetIndex.toBits(List.of(1L, 5L, 17L, 42L, 99L, 150L));
+
+        MatchingProperties properties = new MatchingProperties();
+        properties.getScoring().setParallelism(parallelism);
+        properties.getScoring().setParallelThreshold(1);
+        ranker = new ParallelRanker(properties);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ranker.shutdown();
+    }
+
+    @Benchmark
+    public List<Scored> rank() {
+        TopKSelector<Scored> selector = ranker.rank(pool, 50, this::score, Scored::score);
+        return selector.drainDescending();
+    }
+
+    private Scored score(Candidate candidate) {
+        int score = InterestBitsetIndex.countCommon(currentBits, candidate.interestBits()) * 10;
+        double distance = GeoDistance.haversineKm(52.2297, 21.0122, candidate.latitude(), candidate.longitude());
+        score -= (int) (distance / 10);
+        if (candidate.profileComplete()) {
+            score += 20;
+        }
+        score -= Math.min(Math.abs(1995 - candidate.birthYear()) * 2, 20);
+        return new Scored(candidate.userId(), Math.max(score, 0));
+    }
+}
@@ -0,0 +1,76 @@
+package AplikacjePrzemyslowe.DatApp.benchmark;
+
+import AplikacjePrzemyslowe.DatApp.matching.TopKSelector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Ranking kandydatów: pełne sortowanie Comparator.comparingInt(...).reversed()
+ * (dotychczasowe MatchingEngineService) vs ograniczony kopiec TopKSelector.
+ *
+ * Uruchomienie (czas + alokacje): ./gradlew jmh -PjmhIncludes=TopKBenchmark -PjmhProfilers=gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TopKBenchmark {
+
+    /**
+     * Odpowiednik service.ScoredCandidate.
+     */
+    record Scored(long userId, int score) {
+    }
+
+    @Param({"10000", "100000"})
+    public int candidates;
+
+    /**
+     * 1 = getNextCandidate, 20 = pierwsza strona getCandidates.
+     */
+    @Param({"1", "20"})
+    public int k;
+
+    private long[] userIds;
+    private int[] scores;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        userIds = new long[candidates];
+        scores = new int[candidates];
+        for (int i = 0; i < candidates; i++) {
+            userIds[i] = i + 1;
+            scores[i] = random.nextInt(120);
+        }
+    }
+
+    @Benchmark
+    public List<Scored> fullSort() {
+        List<Scored> scored = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            scored.add(new Scored(userIds[i], scores[i]));
+        }
+        List<Scored> sorted = scored.stream()
+                .sorted(Comparator.comparingInt(Scored::score).reversed())
+                .collect(Collectors.toList());
+        return sorted.subList(0, Math.min(k, sorted.size()));
+    }
+
+    @Benchmark
+    public List<Scored> topKSelector() {
+        TopKSelector<Scored> selector = new TopKSelector<>(k);
+        for (int i = 0; i < candidates; i++) {
+            selector.offer(scores[i], new Scored(userIds[i], scores[i]));
+        }
+        return selector.drainDescending();
+    }
+}
@@ -0,0 +1,16 @@
+package AplikacjePrzemyslowe.DatApp.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Konfiguracja silnika dopasowań.
+ * Włącza zadania cykliczne (odświeżanie indeksów kandydatów w pamięci)
+ * i rejestruje ustawienia {@link MatchingProperties}.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(MatchingProperties.class)
+public class MatchingConfig {
+}
@@ -0,0 +1,404 @@
+package AplikacjePrzemyslowe.DatApp.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Ustawienia silnika dopasowań (sekcja {@code matching} w application.yml).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "matching")
+public class MatchingProperties {
+
+    private final Index index = new Index();
+    private final Deck deck = new Deck();
+    private final Scoring scoring = new Scoring();
+    private final Swiped swiped = new Swiped();
+    private final Snapshot snapshot = new Snapshot();
+    private final PairCache pairCache = new PairCache();
+    private final Pipeline pipeline = new Pipeline();
+    private final Fallback fallback = new Fallback();
+    private final TopPicks topPicks = new TopPicks();
+    private final IndexSnapshot indexSnapshot = new IndexSnapshot();
+    private final SwipeIngestion swipeIngestion = new SwipeIngestion();
+    private final SwipeArchive swipeArchive = new SwipeArchive();
+
+    /**
+     * Indeksy kandydatów w pamięci.
+     */
+    @Getter
+    @Setter
+    public static class Index {
+
+        /**
+         * Co ile przebudowywane są indeksy (CandidateIndex, GeoGridIndex).
+         */
+        private Duration refreshInterval = Duration.ofMinutes(5);
+    }
+
+    /**
+     * Talie (decki) wstępnie posortowanych kandydatów per użytkownik.
+     */
+    @Getter
+    @Setter
+    public static class Deck {
+
+        /**
+         * Maksymalna liczba kandydatów w talii (0 wyłącza talie).
+         */
+        private int capacity = 50;
+
+        /**
+         * Poniżej tej liczby kandydatów talia jest uzupełniana w tle.
+         */
+        private int lowWaterMark = 10;
+
+        /**
+         * Maksymalna liczba talii trzymanych w pamięci.
+         */
+        private int maxDecks = 100_000;
+
+        /**
+         * Po tym czasie bez odczytu talia jest usuwana.
+         */
+        private Duration idleTtl = Duration.ofMinutes(30);
+
+        /**
+         * Liczba wątków uzupełniających talie.
+         */
+        private int refillThreads = 2;
+
+        /**
+         * Maksymalna liczba oczekujących zadań uzupełnienia.
+         */
+        private int refillQueueCapacity = 1_000;
+    }
+
+    /**
+     * Scoring kandydatów.
+     */
+    @Getter
+    @Setter
+    public static class Scoring {
+
+        /**
+         * Gdzie liczony jest compatibility score: w JVM (MatchingPipeline) albo w bazie
+         * (UserJdbcDao.findTopScoredCandidates - z bazy wraca tylko top-K).
+         */
+        private Mode mode = Mode.JVM;
+
+        /**
+         * Czy duże pule kandydatów mogą być liczone równolegle.
+         */
+        private boolean parallelEnabled = true;
+
+        /**
+         * Poniżej tej liczby kandydatów scoring zostaje w wątku żądania.
+         */
+        private int parallelThreshold = 5_000;
+
+        /**
+         * Liczba wątków dedykowanej ForkJoinPool (0 = liczba procesorów).
+         */
+        private int parallelism = 0;
+
+        /**
+         * Rozmiar fragmentu liczonego przez jedno zadanie fork-join.
+         */
+        private int chunkSize = 1_024;
+
+        public enum Mode {
+            JVM,
+            DATABASE
+        }
+    }
+
+    /**
+     * Zbiory już ocenionych użytkowników (SwipedUserCache).
+     */
+    @Getter
+    @Setter
+    public static class Swiped {
+
+        /**
+         * Limit pamięci na wszystkie zbiory (LRU ponad limit, 0 wyłącza cache).
+         */
+        private DataSize memoryBudget = DataSize.ofMegabytes(64);
+    }
+
+    /**
+     * Snapshoty rankingu dla stronicowania kursorem (CandidateSnapshotStore).
+     */
+    @Getter
+    @Setter
+    public static class Snapshot {
+
+        /**
+         * Czas życia snapshotu (i kursorów do niego).
+         */
+        private Duration ttl = Duration.ofMinutes(5);
+
+        /**
+         * Maksymalna liczba kandydatów w jednym snapshocie.
+         */
+        private int maxCandidates = 500;
+
+        /**
+         * Limit pamięci na wszystkie snapshoty (ponad limit usuwane są najstarsze).
+         */
+        private DataSize memoryBudget = DataSize.ofMegabytes(32);
+    }
+
+    /**
+     * Cache wyników scoringu par (PairScoreCache).
+     */
+    @Getter
+    @Setter
+    public static class PairCache {
+
+        /**
+         * Maksymalna liczba par w cache (LRU ponad limit, 0 wyłącza cache).
+         */
+        private int maxEntries = 200_000;
+    }
+
+    /**
+     * Etapy pipeline'u dopasowań (MatchingPipeline).
+     */
+    @Getter
+    @Setter
+    public static class Pipeline {
+
+        /**
+         * Ilu kandydatów po pre-scoringu trafia do pełnego scoringu (0 wyłącza przycinanie).
+         */
+        private int preScoreLimit = 500;
+
+        /**
+         * Budżet czasu na ranking w żądaniu (0 wyłącza limit). Po terminie zwracani są
+         * najlepsi spośród policzonych albo lista popularnych w okolicy (PopularNearbyIndex).
+         */
+        private Duration timeBudget = Duration.ofMillis(250);
+
+        /**
+         * Ilu kandydatów najwyżej wczytuje pełny scoring w żądaniu z budżetem czasu (0 wyłącza limit).
+         * Ogranicza zbiorcze wczytanie danych, gdy pre-scoring nie przyciął puli (indeks nie jest gotowy).
+         */
+        private int budgetScoreLimit = 1000;
+    }
+
+    /**
+     * Lista popularnych w okolicy zwracana, gdy w budżecie czasu nic nie zostało policzone.
+     */
+    @Getter
+    @Setter
+    public static class Fallback {
+
+        /**
+         * Ilu najpopularniejszych użytkowników trzymanych jest per miasto i płeć.
+         */
+        private int popularPerCity = 50;
+
+        /**
+         * Z jakiego okresu liczone są polubienia.
+         */
+        private Duration likesWindow = Duration.ofDays(30);
+
+        /**
+         * Co ile przeliczana jest lista.
+         */
+        private Duration refreshInterval = Duration.ofMinutes(15);
+    }
+
+    /**
+     * Nocne przeliczanie rankingów wszystkich aktywnych użytkowników (TopPicksJob, tabela top_picks).
+     */
+    @Getter
+    @Setter
+    public static class TopPicks {
+
+        /**
+         * Czy zadanie działa i czy zimny start korzysta z zapisanych rankingów.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Kiedy uruchamiane jest zadanie (poza godzinami szczytu).
+         */
+        private String cron = "0 0 3 * * *";
+
+        /**
+         * Ilu kandydatów zapisywanych jest per użytkownik.
+         */
+        private int size = 50;
+
+        /**
+         * Liczba wątków liczących rankingi.
+         */
+        private int workers = 4;
+
+        /**
+         * Ilu użytkowników przetwarza jeden wątek w jednej porcji (jeden batch zapisu).
+         */
+        private int chunkSize = 200;
+
+        /**
+         * Przez jaki czas od startu przebiegu zapisany ranking jest serwowany.
+         */
+        private Duration maxAge = Duration.ofHours(24);
+
+        /**
+         * Przerwany przebieg młodszy niż ten czas jest wznawiany od checkpointu (przy starcie aplikacji
+         * albo z crona), starszy - liczony od nowa.
+         */
+        private Duration resumeWindow = Duration.ofHours(12);
+    }
+
+    /**
+     * Plik ze snapshotem indeksów (CandidateIndex, GeoGridIndex, InterestBitsetIndex) do szybkiego restartu.
+     */
+    @Getter
+    @Setter
+    public static class IndexSnapshot {
+
+        /**
+         * Czy snapshot jest zapisywany i odczytywany przy starcie.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Ścieżka pliku snapshotu (zapis przez plik tymczasowy i atomowe przeniesienie).
+         */
+        private String path = "data/matching-index.snapshot";
+
+        /**
+         * Co ile zapisywany jest snapshot.
+         */
+        private Duration writeInterval = Duration.ofMinutes(15);
+
+        /**
+         * Starszy snapshot jest pomijany - indeksy budowane są od zera.
+         */
+        private Duration maxAge = Duration.ofHours(24);
+
+        /**
+         * Zapas odejmowany od znacznika snapshotu przy odtwarzaniu zmian
+         * (transakcje zatwierdzone po zapisie, ze wcześniejszym updated_at).
+         */
+        private Duration replayMargin = Duration.ofMinutes(1);
+    }
+
+    /**
+     * Zapis swipe'ów w tle (SwipeWriter): kolejka w pamięci i wielowierszowe INSERT-y.
+     */
+    @Getter
+    @Setter
+    public static class SwipeIngestion {
+
+        /**
+         * Czy swipe'y są kolejkowane (false - każdy swipe zapisywany synchronicznie).
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maksymalna liczba swipe'ów czekających na zapis.
+         */
+        private int queueCapacity = 10_000;
+
+        /**
+         * Maksymalna liczba wierszy w jednym INSERT.
+         */
+        private int batchSize = 500;
+
+        /**
+         * Jak długo writer dobiera swipe'y do niepełnej paczki przed zapisem.
+         */
+        private Duration flushInterval = Duration.ofMillis(20);
+
+        /**
+         * Jak długo żądanie czeka na miejsce w pełnej kolejce, zanim zapisze swipe samo.
+         */
+        private Duration enqueueTimeout = Duration.ofMillis(50);
+
+        /**
+         * Ponowienia zapisu paczki po błędzie bazy (potem zapis wiersz po wierszu).
+         */
+        private int maxRetries = 3;
+
+        /**
+         * Odstęp między ponowieniami (rośnie liniowo z numerem próby).
+         */
+        private Duration retryBackoff = Duration.ofMillis(100);
+
+        /**
+         * Maksymalny czas opróżniania kolejki przy zamykaniu aplikacji.
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Plik swipe'ów, których nie udało się zapisać do bazy (odtwarzany cyklicznie).
+         */
+        private String deadLetterPath = "data/swipe-dead-letters.csv";
+
+        /**
+         * Co ile odtwarzany jest plik dead-letter.
+         */
+        private Duration deadLetterReplayInterval = Duration.ofMinutes(1);
+
+        /**
+         * Liczba ID swipe'ów rezerwowanych naraz z swipe_id_sequence (SwipeIdAllocator).
+         */
+        private int idBlockSize = 100;
+    }
+
+    /**
+     * Partycje miesięczne tabeli swipes i archiwizacja starych odrzuceń (SwipeArchiveJob).
+     */
+    @Getter
+    @Setter
+    public static class SwipeArchive {
+
+        /**
+         * Czy zadanie działa (false - swipe'y nie są archiwizowane ani partycje dokładane).
+         */
+        private boolean enabled = true;
+
+        /**
+         * Kiedy uruchamiane jest zadanie (poza godzinami szczytu).
+         */
+        private String cron = "0 30 4 * * *";
+
+        /**
+         * Na ile miesięcy naprzód zakładane są partycje (poza bieżącym).
+         */
+        private int partitionsAhead = 3;
+
+        /**
+         * Ile swipe'ów przenoszonych jest jednym INSERT ... SELECT i DELETE.
+         */
+        private int chunkSize = 1_000;
+
+        /**
+         * Po jakim czasie DISLIKE i PASS przenoszone są z swipes do swipes_archive (para zostaje zajęta,
+         * kandydat dalej wykluczony). Krótsze okno drugiej szansy przyspiesza archiwizację danego typu;
+         * puste - archiwizacja dopiero z końcem okna drugiej szansy.
+         */
+        private Duration archiveAfter = Duration.ofDays(30);
+
+        /**
+         * Po jakim czasie odrzucony przez DISLIKE kandydat dostaje drugą szansę - para zarchiwizowanego
+         * swipe'a jest zwalniana (puste - nigdy).
+         */
+        private Duration dislikeSecondChance = Duration.ofDays(180);
+
+        /**
+         * Jak wyżej dla PASS (puste - nigdy).
+         */
+        private Duration passSecondChance = Duration.ofDays(30);
+    }
+}
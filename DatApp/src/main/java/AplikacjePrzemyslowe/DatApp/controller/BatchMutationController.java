@@ -0,0 +1,31 @@
+package AplikacjePrzemyslowe.DatApp.controller;
+
+import AplikacjePrzemyslowe.DatApp.dto.request.BatchMutationRequest;
+import AplikacjePrzemyslowe.DatApp.dto.response.BatchMutationResponse;
+import AplikacjePrzemyslowe.DatApp.service.BatchMutationService;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Kontroler dla paczek operacji zakolejkowanych offline (swipe'y, wiadomości, odczyty).
+ */
+@RestController
+@RequestMapping("/api/v1/batch")
+@RequiredArgsConstructor
+public class BatchMutationController {
+
+    private final BatchMutationService batchMutationService;
+
+    @Operation(summary = "Execute batch of queued operations (per-operation results, no rollback of successful items)")
+    @PostMapping("/{userId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<BatchMutationResponse> executeBatch(@PathVariable Long userId,
+                                                              @Validated @RequestBody BatchMutationRequest request) {
+        BatchMutationResponse response = batchMutationService.execute(userId, request);
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,5 +1,6 @@
 package AplikacjePrzemyslowe.DatApp.controller;
 
+import AplikacjePrzemyslowe.DatApp.dto.response.CandidatePageResponse;
 import AplikacjePrzemyslowe.DatApp.dto.response.CandidateResponse;
 import AplikacjePrzemyslowe.DatApp.service.MatchingEngineService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -30,5 +31,17 @@ public class CandidateController {
 
         return ResponseEntity.ok(candidate);
     }
+
+    @Operation(summary = "Get ranked candidates page (cursor pagination)",
+               description = "Pages through one ranking snapshot of at most matching.snapshot.max-candidates "
+                       + "best candidates. totalElements is the snapshot size; truncated = true when more "
+                       + "candidates matched the filters.")
+    @GetMapping("/{userId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<CandidatePageResponse> getCandidates(@PathVariable Long userId,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(matchingEngineService.getCandidatePage(userId, cursor, size));
+    }
 }
 
@@ -0,0 +1,20 @@
+package AplikacjePrzemyslowe.DatApp.dao;
+
+import AplikacjePrzemyslowe.DatApp.entity.Gender;
+
+import java.time.LocalDate;
+
+/**
+ * Lekka, niemutowalna projekcja kandydata dla ścieżki dopasowań (zamiast encji User).
+ * Bez hasła, emaila i relacji JPA - encje ładowane są dopiero dla renderowanej strony.
+ *
+ * @param latitude  Szerokość geograficzna albo NaN, gdy profil nie ma współrzędnych
+ * @param longitude Długość geograficzna albo NaN, gdy profil nie ma współrzędnych
+ */
+public record CandidateRow(long userId, Gender gender, LocalDate birthDate, String city,
+                           double latitude, double longitude, boolean active) {
+
+    public boolean hasCoordinates() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+}
@@ -238,6 +238,44 @@ public class MatchJdbcDao {
         return jdbcTemplate.update(sql, params);
     }
 
+    /**
+     * Upsert: Tworzenie matcha odporne na wyścig - gdy para ma już match (uk_user1_user2),
+     * INSERT nie rzuca wyjątku i nie zmienia istniejącego wiersza. Zapisany wiersz czytany jest
+     * odczytem blokującym - widzi też match zatwierdzony przez inną transakcję po starcie bieżącej.
+     * user1Id musi być mniejszym ID pary.
+     *
+     * @return Stan zapisanego matcha - nowego albo istniejącego (np. nieaktywnego)
+     */
+    public StoredMatch upsertMatch(long user1Id, long user2Id, LocalDateTime matchedAt) {
+
+        log.debug("Upserting match between users {} and {}", user1Id, user2Id);
+
+        String sql = """
+            INSERT INTO matches (user1_id, user2_id, is_active, matched_at)
+            VALUES (:user1Id, :user2Id, TRUE, :matchedAt)
+            ON DUPLICATE KEY UPDATE match_id = match_id
+            """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("user1Id", user1Id)
+                .addValue("user2Id", user2Id)
+                .addValue("matchedAt", matchedAt);
+
+        jdbcTemplate.update(sql, params);
+
+        String selectSql = """
+            SELECT match_id, is_active, matched_at, unmatched_at
+            FROM matches
+            WHERE user1_id = :user1Id AND user2_id = :user2Id
+            FOR UPDATE
+            """;
+        return jdbcTemplate.queryForObject(selectSql, params, (rs, rowNum) -> new StoredMatch(
+                rs.getLong("match_id"),
+                rs.getBoolean("is_active"),
+                rs.getObject("matched_at", LocalDateTime.class),
+                rs.getObject("unmatched_at", LocalDateTime.class)));
+    }
+
     /**
      * Delete: Usunięcie matcha (wraz z wiadomościami przez kaskadowe FK).
      */
@@ -312,5 +350,12 @@ public class MatchJdbcDao {
         Integer count = jdbcTemplate.queryForObject(sql, params, Integer.class);
         return count != null ? count : 0;
     }
-}
 
+    // ========== INNER TYPES ==========
+
+    /**
+     * Stan matcha odczytany po upsercie.
+     */
+    public record StoredMatch(long matchId, boolean active, LocalDateTime matchedAt, LocalDateTime unmatchedAt) {
+    }
+}
@@ -2,16 +2,24 @@ package AplikacjePrzemyslowe.DatApp.dao;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO class dla Message.
  * Używa JdbcTemplate dla złożonych chat analytics i bulk operations.
+ * Wielowierszowy zapis paczek wiadomości - encja Message ma ID typu IDENTITY,
+ * więc Hibernate nie łączy jej INSERT-ów w batche.
  * Standardowe CRUD operacje pozostają w MessageRepository (JPA).
  */
 @Slf4j
@@ -21,6 +29,58 @@ public class MessageJdbcDao {
 
     private final NamedParameterJdbcTemplate jdbcTemplate;
 
+    // ========== WRITE OPERATIONS ==========
+
+    /**
+     * Zapisuje wiadomości jednym wielowierszowym INSERT-em.
+     * ID nadaje baza (AUTO_INCREMENT) - sterownik zwraca wygenerowane klucze wszystkich wierszy.
+     *
+     * @return ID zapisanych wiadomości w kolejności wierszy
+     */
+    public List<Long> insertMessages(List<MessageRow> messages) {
+
+        log.debug("Inserting {} messages", messages.size());
+
+        if (messages.isEmpty()) {
+            return List.of();
+        }
+
+        StringBuilder sql = new StringBuilder("""
+            INSERT INTO messages (match_id, sender_id, receiver_id, content, is_read, sent_at)
+            VALUES\s""");
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        for (int i = 0; i < messages.size(); i++) {
+            MessageRow message = messages.get(i);
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(:matchId").append(i)
+                    .append(", :senderId").append(i)
+                    .append(", :receiverId").append(i)
+                    .append(", :content").append(i)
+                    .append(", FALSE")
+                    .append(", :sentAt").append(i).append(')');
+            params.addValue("matchId" + i, message.matchId())
+                    .addValue("senderId" + i, message.senderId())
+                    .addValue("receiverId" + i, message.receiverId())
+                    .addValue("content" + i, message.content())
+                    .addValue("sentAt" + i, message.sentAt());
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(sql.toString(), params, keyHolder, new String[]{"message_id"});
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != messages.size()) {
+            throw new IncorrectResultSizeDataAccessException(messages.size(), keys.size());
+        }
+        List<Long> messageIds = new ArrayList<>(keys.size());
+        for (Map<String, Object> key : keys) {
+            // Nazwa kolumny klucza zależy od sterownika (GENERATED_KEY w MySQL, MESSAGE_ID w H2)
+            messageIds.add(((Number) key.values().iterator().next()).longValue());
+        }
+        return messageIds;
+    }
+
     // ========== MESSAGE ANALYTICS QUERIES ==========
 
     /**
@@ -97,6 +157,36 @@ public class MessageJdbcDao {
         return rowsAffected;
     }
 
+    /**
+     * Bulk operation: Oznaczenie wybranych wiadomości jako przeczytane (jednym UPDATE-em).
+     * Pomijane są wiadomości, których użytkownik nie jest odbiorcą, i już przeczytane.
+     */
+    public int markMessagesAsRead(Collection<Long> messageIds, Long userId) {
+
+        log.info("Marking {} messages as read for user {}", messageIds.size(), userId);
+
+        if (messageIds.isEmpty()) {
+            return 0;
+        }
+
+        String sql = """
+            UPDATE messages
+            SET is_read = TRUE, read_at = NOW()
+            WHERE message_id IN (:messageIds)
+            AND receiver_id = :userId
+            AND is_read = FALSE
+            """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("messageIds", messageIds)
+                .addValue("userId", userId);
+
+        int rowsAffected = jdbcTemplate.update(sql, params);
+        log.debug("Marked {} messages as read", rowsAffected);
+
+        return rowsAffected;
+    }
+
     /**
      * Bulk operation: Usunięcie całej konwersacji (wszystkie wiadomości w matchu).
      */
@@ -313,5 +403,13 @@ public class MessageJdbcDao {
 
         return rowsAffected;
     }
-}
 
+    // ========== INNER TYPES ==========
+
+    /**
+     * Nowa (nieprzeczytana) wiadomość czekająca na zapis.
+     */
+    public record MessageRow(long matchId, long senderId, long receiverId, String content,
+                             LocalDateTime sentAt) {
+    }
+}
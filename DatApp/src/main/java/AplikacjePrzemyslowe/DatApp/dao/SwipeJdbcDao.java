@@ -0,0 +1,396 @@
+package AplikacjePrzemyslowe.DatApp.dao;
+
+import AplikacjePrzemyslowe.DatApp.entity.SwipeType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DAO class dla Swipe.
+ * Wielowierszowy zapis swipe'ów z kolejki SwipeWriter - encja Swipe ma ID typu IDENTITY,
+ * więc Hibernate nie łączy jej INSERT-ów w batche. ID swipe'ów nadawane są z góry,
+ * pulami z tabeli swipe_id_sequence (SwipeIdAllocator). Strumieniowy odczyt polubień dla PendingLikeIndex,
+ * partycje i archiwizacja dla SwipeArchiveJob; pozostałe odczyty pozostają w SwipeRepository (JPA).
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class SwipeJdbcDao {
+
+    private static final DateTimeFormatter PARTITION_BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // ========== WRITE OPERATIONS ==========
+
+    /**
+     * Rezerwuje parę swipe'a w swipe_pairs (w transakcji wywołującego - rollback zwalnia parę).
+     * Klucz pary jest globalny, więc równoległe swipe'y tej samej pary z różnych instancji
+     * aplikacji kończą się jednym wierszem; drugi INSERT czeka na blokadę pierwszego.
+     *
+     * @return false jeśli para ma już swipe
+     */
+    public boolean reservePair(SwipeRow swipe) {
+
+        log.debug("Reserving swipe pair {} -> {}", swipe.swiperId(), swipe.swipedUserId());
+
+        String sql = """
+            INSERT IGNORE INTO swipe_pairs (swiper_id, swiped_user_id, swipe_id, swipe_type)
+            VALUES (:swiperId, :swipedUserId, :swipeId, :swipeType)
+            """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("swiperId", swipe.swiperId())
+                .addValue("swipedUserId", swipe.swipedUserId())
+                .addValue("swipeId", swipe.swipeId())
+                .addValue("swipeType", swipe.swipeType().name());
+
+        return jdbcTemplate.update(sql, params) > 0;
+    }
+
+    /**
+     * Typ swipe'a pary z swipe_pairs, czytany odczytem blokującym (FOR UPDATE) w transakcji
+     * wywołującego. Odczyt widzi parę zatwierdzoną przez inną transakcję i czeka na parę
+     * wstawioną, ale jeszcze niezatwierdzoną - także przez inną instancję aplikacji.
+     * Przy braku pary InnoDB (REPEATABLE READ) blokuje lukę, więc równoległe wstawienie pary
+     * czeka do końca transakcji wywołującego.
+     *
+     * @return Typ swipe'a {@code swiperId -> swipedUserId} (pusty, gdy para nie ma swipe'a)
+     */
+    public Optional<SwipeType> lockPairType(long swiperId, long swipedUserId) {
+
+        log.debug("Locking swipe pair {} -> {}", swiperId, swipedUserId);
+
+        String sql = """
+            SELECT swipe_type
+            FROM swipe_pairs
+            WHERE swiper_id = :swiperId AND swiped_user_id = :swipedUserId
+            FOR UPDATE
+            """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("swiperId", swiperId)
+                .addValue("swipedUserId", swipedUserId);
+
+        return jdbcTemplate.queryForList(sql, params, String.class).stream()
+                .findFirst()
+                .map(SwipeType::valueOf);
+    }
+
+    /**
+     * Zwalnia pary porzuconych swipe'ów (nie trafią do swipes) - para znów może zostać oceniona
+     * i nie jest liczona w statystykach swipe_pairs. Usuwane są tylko wiersze tych swipe'ów
+     * (po swipe_id), nie późniejsze swipe'y tej samej pary.
+     *
+     * @return Liczba usuniętych par
+     */
+    public int releasePairs(Collection<SwipeRow> swipes) {
+
+        log.debug("Releasing {} swipe pairs", swipes.size());
+
+        if (swipes.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> swipeIds = swipes.stream().map(SwipeRow::swipeId).toList();
+
+        return jdbcTemplate.update(
+                "DELETE FROM swipe_pairs WHERE swipe_id IN (:swipeIds)",
+                new MapSqlParameterSource("swipeIds", swipeIds));
+    }
+
+    /**
+     * Zapisuje swipe'y jednym wielowierszowym INSERT-em.
+     * Wiersze już zapisane (ten sam swipe_id i swiped_at - ponowiona paczka, odtworzony
+     * dead-letter) są pomijane (INSERT IGNORE); jeden swipe na parę pilnuje swipe_pairs.
+     *
+     * @return Liczba faktycznie wstawionych wierszy
+     */
+    public int insertSwipes(List<SwipeRow> swipes) {
+
+        log.debug("Inserting {} swipes", swipes.size());
+
+        if (swipes.isEmpty()) {
+            return 0;
+        }
+
+        StringBuilder sql = new StringBuilder("""
+            INSERT IGNORE INTO swipes (swipe_id, swiper_id, swiped_user_id, swipe_type, swiped_at)
+            VALUES\s""");
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        for (int i = 0; i < swipes.size(); i++) {
+            SwipeRow swipe = swipes.get(i);
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(:swipeId").append(i)
+                    .append(", :swiperId").append(i)
+                    .append(", :swipedUserId").append(i)
+                    .append(", :swipeType").append(i)
+                    .append(", :swipedAt").append(i).append(')');
+            params.addValue("swipeId" + i, swipe.swipeId())
+                    .addValue("swiperId" + i, swipe.swiperId())
+                    .addValue("swipedUserId" + i, swipe.swipedUserId())
+                    .addValue("swipeType" + i, swipe.swipeType().name())
+                    .addValue("swipedAt" + i, swipe.swipedAt());
+        }
+
+        return jdbcTemplate.update(sql.toString(), params);
+    }
+
+    /**
+     * Rezerwuje pulę {@code count} kolejnych ID swipe'ów we własnej, krótkiej transakcji
+     * (blokada wiersza sekwencji nie czeka na transakcję żądania). Pula zaczyna się
+     * nie niżej niż za największym swipe_id w tabeli - wiersze z data.sql albo wstawione
+     * z AUTO_INCREMENT nie kolidują z nadawanymi ID.
+     *
+     * @return Pierwsze ID puli (pula: [wynik, wynik + count))
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long allocateSwipeIds(int count) {
+
+        log.debug("Allocating {} swipe ids", count);
+
+        String selectSql = """
+            SELECT GREATEST(q.next_id, (SELECT COALESCE(MAX(s.swipe_id), 0) + 1 FROM swipes s))
+            FROM swipe_id_sequence q
+            WHERE q.sequence_id = 1
+            FOR UPDATE
+            """;
+        Long first = jdbcTemplate.queryForObject(selectSql, new MapSqlParameterSource(), Long.class);
+
+        String updateSql = """
+            UPDATE swipe_id_sequence
+            SET next_id = :nextId
+            WHERE sequence_id = 1
+            """;
+        jdbcTemplate.update(updateSql, new MapSqlParameterSource("nextId", first + count));
+
+        return first;
+    }
+
+    /**
+     * Przenosi wskazane swipe'y do swipes_archive: INSERT IGNORE ... SELECT, potem DELETE z swipes,
+     * w jednej transakcji porcji. Pary zostają w swipe_pairs - zarchiwizowany swipe dalej wyklucza
+     * kandydata, dopóki releaseArchivedPairs nie zwolni pary (koniec okna drugiej szansy).
+     * Ten sam warunek typu i wieku w obu krokach - swipe zmieniony w międzyczasie zostaje na miejscu.
+     *
+     * @return Liczba swipe'ów usuniętych z swipes
+     */
+    @Transactional
+    public int archiveSwipes(Collection<Long> swipeIds, SwipeType swipeType, LocalDateTime cutoff) {
+
+        log.debug("Archiving {} {} swipes older than {}", swipeIds.size(), swipeType, cutoff);
+
+        if (swipeIds.isEmpty()) {
+            return 0;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("swipeIds", swipeIds)
+                .addValue("swipeType", swipeType.name())
+                .addValue("cutoff", cutoff);
+
+        jdbcTemplate.update("""
+            INSERT IGNORE INTO swipes_archive (swipe_id, swiper_id, swiped_user_id, swipe_type, swiped_at)
+            SELECT swipe_id, swiper_id, swiped_user_id, swipe_type, swiped_at
+            FROM swipes
+            WHERE swipe_id IN (:swipeIds)
+            AND swipe_type = :swipeType
+            AND swiped_at < :cutoff
+            """, params);
+
+        return jdbcTemplate.update("""
+            DELETE FROM swipes
+            WHERE swipe_id IN (:swipeIds)
+            AND swipe_type = :swipeType
+            AND swiped_at < :cutoff
+            """, params);
+    }
+
+    /**
+     * Zwalnia pary zarchiwizowanych swipe'ów po oknie drugiej szansy - kandydat wraca do talii
+     * i może zostać oceniony ponownie. Para zarchiwizowanego swipe'a nie może się w międzyczasie
+     * zmienić (swipe_pairs odrzuca nowy swipe tej pary), więc wystarcza warunek na swipe_id.
+     *
+     * @return Liczba zwolnionych par
+     */
+    public int releaseArchivedPairs(Collection<Long> swipeIds) {
+
+        log.debug("Releasing {} archived swipe pairs", swipeIds.size());
+
+        if (swipeIds.isEmpty()) {
+            return 0;
+        }
+
+        return jdbcTemplate.update(
+                "DELETE FROM swipe_pairs WHERE swipe_id IN (:swipeIds)",
+                new MapSqlParameterSource("swipeIds", swipeIds));
+    }
+
+    /**
+     * Dzieli partycję p_future na nowe partycje miesięczne (rosnąco) i pustą p_future.
+     * Granice to literały w DDL - ALTER TABLE nie przyjmuje parametrów.
+     */
+    public void addPartitions(List<PartitionBound> partitions) {
+
+        log.info("Adding swipes partitions: {}", partitions);
+
+        if (partitions.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder("ALTER TABLE swipes REORGANIZE PARTITION p_future INTO (");
+        for (PartitionBound partition : partitions) {
+            sql.append("PARTITION ").append(partition.name())
+                    .append(" VALUES LESS THAN (UNIX_TIMESTAMP('")
+                    .append(partition.lessThan().format(PARTITION_BOUND_FORMAT))
+                    .append("')), ");
+        }
+        sql.append("PARTITION p_future VALUES LESS THAN MAXVALUE)");
+
+        jdbcTemplate.getJdbcTemplate().execute(sql.toString());
+    }
+
+    // ========== READ OPERATIONS ==========
+
+    /**
+     * Liczba profili ocenionych przez użytkownika (pary z swipe_pairs - także swipe'y
+     * czekające na zapis i zarchiwizowane przed końcem okna drugiej szansy).
+     */
+    public long countSwipedBy(long swiperId) {
+
+        log.debug("Counting swipe pairs of user {}", swiperId);
+
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM swipe_pairs WHERE swiper_id = :swiperId",
+                new MapSqlParameterSource("swiperId", swiperId), Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Najstarsze swipe'y danego typu sprzed cutoff (partycje nowsze są pomijane przez pruning).
+     */
+    public List<ArchivableSwipe> findArchivableSwipes(SwipeType swipeType, LocalDateTime cutoff, int limit) {
+
+        log.debug("Finding {} swipes older than {} (limit {})", swipeType, cutoff, limit);
+
+        String sql = """
+            SELECT swipe_id, swiper_id
+            FROM swipes
+            WHERE swipe_type = :swipeType
+            AND swiped_at < :cutoff
+            ORDER BY swiped_at
+            LIMIT :limit
+            """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("swipeType", swipeType.name())
+                .addValue("cutoff", cutoff)
+                .addValue("limit", limit);
+
+        return jdbcTemplate.query(sql, params, (rs, rowNum) ->
+                new ArchivableSwipe(rs.getLong("swipe_id"), rs.getLong("swiper_id")));
+    }
+
+    /**
+     * Najstarsze zarchiwizowane swipe'y danego typu sprzed cutoff, których para jest jeszcze
+     * zajęta w swipe_pairs (kandydat nadal wykluczony).
+     */
+    public List<ArchivableSwipe> findReleasableSwipes(SwipeType swipeType, LocalDateTime cutoff, int limit) {
+
+        log.debug("Finding archived {} swipes older than {} with held pairs (limit {})", swipeType, cutoff, limit);
+
+        String sql = """
+            SELECT a.swipe_id, a.swiper_id
+            FROM swipes_archive a
+            JOIN swipe_pairs sp ON sp.swiper_id = a.swiper_id
+                AND sp.swiped_user_id = a.swiped_user_id
+                AND sp.swipe_id = a.swipe_id
+            WHERE a.swipe_type = :swipeType
+            AND a.swiped_at < :cutoff
+            ORDER BY a.swiped_at
+            LIMIT :limit
+            """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("swipeType", swipeType.name())
+                .addValue("cutoff", cutoff)
+                .addValue("limit", limit);
+
+        return jdbcTemplate.query(sql, params, (rs, rowNum) ->
+                new ArchivableSwipe(rs.getLong("swipe_id"), rs.getLong("swiper_id")));
+    }
+
+    /**
+     * Nazwy partycji tabeli swipes (pusta lista - tabela niepartycjonowana).
+     */
+    public List<String> findPartitionNames() {
+
+        log.debug("Reading swipes partitions");
+
+        String sql = """
+            SELECT partition_name
+            FROM information_schema.partitions
+            WHERE table_schema = DATABASE()
+            AND table_name = 'swipes'
+            AND partition_name IS NOT NULL
+            ORDER BY partition_ordinal_position
+            """;
+
+        return jdbcTemplate.queryForList(sql, new MapSqlParameterSource(), String.class);
+    }
+
+    /**
+     * Strumieniowo odczytuje polubienia (LIKE, SUPER_LIKE), dla których para nie ma matcha
+     * - do budowy PendingLikeIndex. Match trzyma mniejsze ID w user1_id.
+     */
+    public void streamOutstandingLikes(RowCallbackHandler handler) {
+
+        log.debug("Streaming outstanding likes for pending-likes index");
+
+        String sql = """
+            SELECT s.swiper_id, s.swiped_user_id
+            FROM swipes s
+            WHERE s.swipe_type IN ('LIKE', 'SUPER_LIKE')
+            AND NOT EXISTS (
+                SELECT 1 FROM matches m
+                WHERE m.user1_id = LEAST(s.swiper_id, s.swiped_user_id)
+                AND m.user2_id = GREATEST(s.swiper_id, s.swiped_user_id)
+            )
+            """;
+
+        jdbcTemplate.query(sql, new MapSqlParameterSource(), handler);
+    }
+
+    // ========== INNER TYPES ==========
+
+    /**
+     * Swipe czekający na zapis.
+     */
+    public record SwipeRow(long swipeId, long swiperId, long swipedUserId, SwipeType swipeType,
+                           LocalDateTime swipedAt) {
+    }
+
+    /**
+     * Swipe kwalifikujący się do archiwum.
+     */
+    public record ArchivableSwipe(long swipeId, long swiperId) {
+    }
+
+    /**
+     * Partycja miesięczna: wiersze ze swiped_at przed lessThan.
+     */
+    public record PartitionBound(String name, LocalDateTime lessThan) {
+    }
+}
@@ -0,0 +1,240 @@
+package AplikacjePrzemyslowe.DatApp.dao;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DAO class dla tabel top_picks i batch_checkpoints.
+ * Zapis rankingów z TopPicksJob (batchUpdate) i postęp zadań wsadowych.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class TopPicksJdbcDao {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // ========== TOP PICKS ==========
+
+    /**
+     * Zastępuje zapisane rankingi podanych użytkowników: jeden DELETE dla całej grupy
+     * i INSERT-y wysyłane jednym batchem JDBC.
+     *
+     * @param userIds    Użytkownicy, których rankingi są przeliczane (także ci bez kandydatów)
+     * @param picks      Nowe pozycje rankingów
+     * @param computedAt Znacznik przebiegu zadania
+     */
+    public void replaceTopPicks(Collection<Long> userIds, List<TopPickRow> picks, LocalDateTime computedAt) {
+
+        log.debug("Replacing top picks of {} users ({} rows)", userIds.size(), picks.size());
+
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        String deleteSql = """
+            DELETE FROM top_picks
+            WHERE user_id IN (:userIds)
+            """;
+
+        jdbcTemplate.update(deleteSql, new MapSqlParameterSource("userIds", userIds));
+
+        if (picks.isEmpty()) {
+            return;
+        }
+
+        String insertSql = """
+            INSERT INTO top_picks (user_id, position, candidate_id, score, computed_at)
+            VALUES (:userId, :position, :candidateId, :score, :computedAt)
+            """;
+
+        SqlParameterSource[] batch = new SqlParameterSource[picks.size()];
+        for (int i = 0; i < batch.length; i++) {
+            TopPickRow pick = picks.get(i);
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("userId", pick.userId())
+                    .addValue("position", pick.position())
+                    .addValue("candidateId", pick.candidateId())
+                    .addValue("score", pick.score())
+                    .addValue("computedAt", computedAt);
+        }
+        jdbcTemplate.batchUpdate(insertSql, batch);
+    }
+
+    /**
+     * Zwraca ID kandydatów z zapisanego rankingu użytkownika (w kolejności pozycji),
+     * o ile ranking policzono nie wcześniej niż {@code notBefore}.
+     */
+    public List<Long> findTopPicks(Long userId, LocalDateTime notBefore) {
+
+        log.debug("Finding top picks of user {} computed after {}", userId, notBefore);
+
+        String sql = """
+            SELECT candidate_id
+            FROM top_picks
+            WHERE user_id = :userId
+            AND computed_at >= :notBefore
+            ORDER BY position
+            """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("notBefore", notBefore);
+
+        return jdbcTemplate.queryForList(sql, params, Long.class);
+    }
+
+    /**
+     * Usuwa zapisany ranking użytkownika (policzony według nieaktualnych już preferencji lub lokalizacji).
+     */
+    public int deleteTopPicks(Long userId) {
+
+        log.debug("Deleting top picks of user {}", userId);
+
+        String sql = """
+            DELETE FROM top_picks
+            WHERE user_id = :userId
+            """;
+
+        return jdbcTemplate.update(sql, new MapSqlParameterSource("userId", userId));
+    }
+
+    /**
+     * Usuwa rankingi policzone przed {@code computedAt} (użytkownicy pominięci
+     * przez ostatni pełny przebieg - zdezaktywowani lub usunięci).
+     */
+    public int deleteTopPicksBefore(LocalDateTime computedAt) {
+
+        log.debug("Deleting top picks computed before {}", computedAt);
+
+        String sql = """
+            DELETE FROM top_picks
+            WHERE computed_at < :computedAt
+            """;
+
+        return jdbcTemplate.update(sql, new MapSqlParameterSource("computedAt", computedAt));
+    }
+
+    // ========== CHECKPOINTS ==========
+
+    /**
+     * Zwraca stan ostatniego przebiegu zadania (pusty, gdy zadanie jeszcze nie działało).
+     */
+    public Optional<Checkpoint> findCheckpoint(String jobName) {
+
+        String sql = """
+            SELECT run_id, last_user_id, processed_users, started_at, completed_at
+            FROM batch_checkpoints
+            WHERE job_name = :jobName
+            """;
+
+        List<Checkpoint> checkpoints = jdbcTemplate.query(sql, new MapSqlParameterSource("jobName", jobName),
+                (rs, rowNum) -> new Checkpoint(
+                        rs.getString("run_id"),
+                        rs.getLong("last_user_id"),
+                        rs.getLong("processed_users"),
+                        rs.getObject("started_at", LocalDateTime.class),
+                        rs.getObject("completed_at", LocalDateTime.class)
+                ));
+        return checkpoints.stream().findFirst();
+    }
+
+    /**
+     * Rozpoczyna nowy przebieg zadania (postęp od zera).
+     */
+    public void startRun(String jobName, String runId, LocalDateTime startedAt) {
+
+        log.debug("Starting batch run {} of job {}", runId, jobName);
+
+        String sql = """
+            INSERT INTO batch_checkpoints
+                (job_name, run_id, last_user_id, processed_users, started_at, updated_at, completed_at)
+            VALUES (:jobName, :runId, 0, 0, :startedAt, :startedAt, NULL)
+            ON DUPLICATE KEY UPDATE
+                run_id = VALUES(run_id),
+                last_user_id = 0,
+                processed_users = 0,
+                started_at = VALUES(started_at),
+                updated_at = VALUES(updated_at),
+                completed_at = NULL
+            """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("jobName", jobName)
+                .addValue("runId", runId)
+                .addValue("startedAt", startedAt);
+
+        jdbcTemplate.update(sql, params);
+    }
+
+    /**
+     * Zapisuje postęp przebiegu: wszyscy użytkownicy do {@code lastUserId} włącznie są przetworzeni.
+     */
+    public void saveCheckpoint(String jobName, String runId, long lastUserId, long processedUsers) {
+
+        String sql = """
+            UPDATE batch_checkpoints
+            SET last_user_id = :lastUserId, processed_users = :processedUsers, updated_at = :updatedAt
+            WHERE job_name = :jobName AND run_id = :runId
+            """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("jobName", jobName)
+                .addValue("runId", runId)
+                .addValue("lastUserId", lastUserId)
+                .addValue("processedUsers", processedUsers)
+                .addValue("updatedAt", LocalDateTime.now());
+
+        jdbcTemplate.update(sql, params);
+    }
+
+    /**
+     * Oznacza przebieg jako zakończony (kolejny start zaczyna od nowa).
+     */
+    public void completeRun(String jobName, String runId, LocalDateTime completedAt) {
+
+        String sql = """
+            UPDATE batch_checkpoints
+            SET completed_at = :completedAt, updated_at = :completedAt
+            WHERE job_name = :jobName AND run_id = :runId
+            """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("jobName", jobName)
+                .addValue("runId", runId)
+                .addValue("completedAt", completedAt);
+
+        jdbcTemplate.update(sql, params);
+    }
+
+    // ========== INNER TYPES ==========
+
+    /**
+     * Jedna pozycja zapisanego rankingu.
+     */
+    public record TopPickRow(long userId, int position, long candidateId, int score) {
+    }
+
+    /**
+     * Stan przebiegu zadania wsadowego.
+     *
+     * @param lastUserId  Ostatni user_id, do którego włącznie wszyscy są przetworzeni
+     * @param completedAt Koniec przebiegu (null - przebieg przerwany lub w toku)
+     */
+    public record Checkpoint(String runId, long lastUserId, long processedUsers,
+                             LocalDateTime startedAt, LocalDateTime completedAt) {
+
+        public boolean isCompleted() {
+            return completedAt != null;
+        }
+    }
+}
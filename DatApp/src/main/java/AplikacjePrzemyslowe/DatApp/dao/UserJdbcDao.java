@@ -1,5 +1,6 @@
 package AplikacjePrzemyslowe.DatApp.dao;
 
+import AplikacjePrzemyslowe.DatApp.dao.mapper.CandidateRowMapper;
 import AplikacjePrzemyslowe.DatApp.dao.mapper.UserRowMapper;
 import AplikacjePrzemyslowe.DatApp.entity.Gender;
 import AplikacjePrzemyslowe.DatApp.entity.User;
@@ -8,11 +9,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -25,8 +29,39 @@ import java.util.List;
 @RequiredArgsConstructor
 public class UserJdbcDao {
 
+    /**
+     * Składnik a wzoru Haversine'a między profilem kandydata (p) i szukającego (sp).
+     * Dystans to 2R * atan2(sqrt(a), sqrt(1 - a)), więc dystans <= D wtedy, gdy a <= sin^2(D / 2R).
+     */
+    private static final String HAVERSINE_A = """
+            POWER(SIN(RADIANS(p.latitude - sp.latitude) / 2), 2)
+                                     + COS(RADIANS(sp.latitude)) * COS(RADIANS(p.latitude))
+                                     * POWER(SIN(RADIANS(p.longitude - sp.longitude) / 2), 2)""";
+
+    /**
+     * Wiek szukającego (su) w pełnych latach mieści się w [cp.min_age, cp.max_age] kandydata.
+     * Liczony w miesiącach jak Period.between w CandidateIndex (parametry z addToday).
+     */
+    private static final String SEARCHER_AGE_IN_CANDIDATE_RANGE = """
+            (:todayMonths - (EXTRACT(YEAR FROM su.birth_date) * 12 + EXTRACT(MONTH FROM su.birth_date))
+                     - CASE WHEN EXTRACT(DAY FROM su.birth_date) > :todayDay THEN 1 ELSE 0 END
+                     BETWEEN cp.min_age * 12 AND cp.max_age * 12 + 11)""";
+
+    /**
+     * Użytkownicy ocenieni przez :currentUserId - swipes oraz zarchiwizowane odrzucenia, których para
+     * w swipe_pairs nie została jeszcze zwolniona (okno drugiej szansy trwa, SwipeArchiveJob).
+     */
+    private static final String SWIPED_BY_CURRENT_USER = """
+            SELECT s.swiped_user_id FROM swipes s WHERE s.swiper_id = :currentUserId
+                UNION
+                SELECT a.swiped_user_id FROM swipes_archive a
+                JOIN swipe_pairs held ON held.swiper_id = a.swiper_id
+                    AND held.swiped_user_id = a.swiped_user_id AND held.swipe_id = a.swipe_id
+                WHERE a.swiper_id = :currentUserId""";
+
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final UserRowMapper userRowMapper;
+    private final CandidateRowMapper candidateRowMapper;
 
     // ========== MATCHING ALGORITHM QUERIES ==========
 
@@ -56,12 +91,8 @@ public class UserJdbcDao {
             AND u.is_active = TRUE
             AND u.gender = :gender
             AND YEAR(CURDATE()) - YEAR(u.birth_date) BETWEEN :minAge AND :maxAge
-            AND u.user_id NOT IN (
-                SELECT DISTINCT s.swiped_user_id 
-                FROM swipes s 
-                WHERE s.swiper_id = :currentUserId
-            )
-            """;
+            AND u.user_id NOT IN (%s)
+            """.formatted(SWIPED_BY_CURRENT_USER);
 
         // Query do pobrania danych z paginacją
         String selectSql = """
@@ -72,32 +103,109 @@ public class UserJdbcDao {
             AND u.is_active = TRUE
             AND u.gender = :gender
             AND YEAR(CURDATE()) - YEAR(u.birth_date) BETWEEN :minAge AND :maxAge
-            AND u.user_id NOT IN (
-                SELECT DISTINCT s.swiped_user_id 
-                FROM swipes s 
-                WHERE s.swiper_id = :currentUserId
-            )
+            AND u.user_id NOT IN (%s)
             ORDER BY u.created_at DESC
-            LIMIT :limit OFFSET :offset
-            """;
+            """.formatted(SWIPED_BY_CURRENT_USER);
 
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("currentUserId", currentUserId)
                 .addValue("gender", preferredGender.name())
                 .addValue("minAge", minAge)
-                .addValue("maxAge", maxAge)
-                .addValue("limit", pageable.getPageSize())
-                .addValue("offset", pageable.getOffset());
+                .addValue("maxAge", maxAge);
+
+        // Pageable.unpaged() nie ma rozmiaru strony - wtedy pobieramy wszystkie wiersze,
+        // a total to po prostu ich liczba (bez osobnego COUNT)
+        if (pageable.isPaged()) {
+            selectSql += "LIMIT :limit OFFSET :offset";
+            params.addValue("limit", pageable.getPageSize())
+                    .addValue("offset", pageable.getOffset());
+        }
 
-        long total = jdbcTemplate.queryForObject(countSql, params, Long.class);
         List<User> content = jdbcTemplate.query(selectSql, params, userRowMapper);
+        long total = pageable.isPaged()
+                ? jdbcTemplate.queryForObject(countSql, params, Long.class)
+                : content.size();
 
-        log.debug("Found {} candidates for user {} (page {}/{})",
-                content.size(), currentUserId, pageable.getPageNumber(), pageable.getPageSize());
+        log.debug("Found {} candidates for user {} (paged: {})",
+                content.size(), currentUserId, pageable.isPaged());
 
         return new PageImpl<>(content, pageable, total);
     }
 
+    /**
+     * Kandydaci spełniający preferencje jako lekka projekcja CandidateRow (ścieżka dopasowań).
+     * Te same filtry co findCandidatesByPreference, ale bez hasła, emaila i mapowania na encje;
+     * współrzędne z profilu (NaN gdy brak profilu lub współrzędnych).
+     *
+     * Jak filtr wzajemności CandidateIndex odrzuca kandydatów, w których preferencjach szukający
+     * się nie mieści (płeć, wiek, max_distance_km - dystans tylko gdy obie strony mają współrzędne).
+     */
+    public List<CandidateRow> findCandidateRowsByPreference(
+            Long currentUserId,
+            Gender preferredGender,
+            int minAge,
+            int maxAge) {
+
+        log.debug("Finding candidate rows for user {} with preferences: gender={}, age={}-{}",
+                currentUserId, preferredGender, minAge, maxAge);
+
+        String sql = """
+            SELECT u.user_id, u.gender, u.birth_date, u.city, u.is_active, p.latitude, p.longitude
+            FROM users u
+            LEFT JOIN profiles p ON p.user_id = u.user_id
+            JOIN users su ON su.user_id = :currentUserId
+            LEFT JOIN profiles sp ON sp.user_id = su.user_id
+            LEFT JOIN preferences cp ON cp.user_id = u.user_id
+            WHERE u.user_id != :currentUserId
+            AND u.is_active = TRUE
+            AND u.gender = :gender
+            AND YEAR(CURDATE()) - YEAR(u.birth_date) BETWEEN :minAge AND :maxAge
+            AND u.user_id NOT IN (%s)
+            AND (cp.user_id IS NULL OR (
+                cp.preferred_gender = su.gender
+                AND %s
+                AND (sp.latitude IS NULL OR sp.longitude IS NULL OR p.latitude IS NULL OR p.longitude IS NULL
+                     OR %s <= POWER(SIN(cp.max_distance_km / (2 * 6371.0)), 2))
+            ))
+            ORDER BY u.created_at DESC
+            """.formatted(SWIPED_BY_CURRENT_USER, SEARCHER_AGE_IN_CANDIDATE_RANGE, HAVERSINE_A);
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("currentUserId", currentUserId)
+                .addValue("gender", preferredGender.name())
+                .addValue("minAge", minAge)
+                .addValue("maxAge", maxAge);
+        addToday(params, LocalDate.now());
+
+        List<CandidateRow> candidates = jdbcTemplate.query(sql, params, candidateRowMapper);
+
+        log.debug("Found {} candidate rows for user {}", candidates.size(), currentUserId);
+
+        return candidates;
+    }
+
+    /**
+     * Projekcja CandidateRow dla podanych ID (kandydaci rozwiązani przez CandidateIndex).
+     * Kolejność wierszy nie jest gwarantowana; nieistniejące ID są pomijane.
+     */
+    public List<CandidateRow> findCandidateRows(Collection<Long> userIds) {
+
+        log.debug("Loading {} candidate rows", userIds.size());
+
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+
+        String sql = """
+            SELECT u.user_id, u.gender, u.birth_date, u.city, u.is_active, p.latitude, p.longitude
+            FROM users u
+            LEFT JOIN profiles p ON p.user_id = u.user_id
+            WHERE u.user_id IN (:userIds)
+            """;
+
+        return jdbcTemplate.query(sql, new MapSqlParameterSource("userIds", userIds), candidateRowMapper);
+    }
+
     /**
      * Znajduje kandydatów z wspólnymi zainteresowaniami.
      * Sortuje po liczbie wspólnych zainteresowań (malejąco).
@@ -118,11 +226,7 @@ public class UserJdbcDao {
             AND u.is_active = TRUE
             AND u.gender = :gender
             AND YEAR(CURDATE()) - YEAR(u.birth_date) BETWEEN :minAge AND :maxAge
-            AND u.user_id NOT IN (
-                SELECT DISTINCT s.swiped_user_id 
-                FROM swipes s 
-                WHERE s.swiper_id = :currentUserId
-            )
+            AND u.user_id NOT IN (%s)
             AND u.user_id IN (
                 SELECT DISTINCT p.user_id
                 FROM profiles p
@@ -138,7 +242,7 @@ public class UserJdbcDao {
                     )
                 )
             )
-            """;
+            """.formatted(SWIPED_BY_CURRENT_USER);
 
         String selectSql = """
             SELECT u.user_id, u.username, u.email, u.password, u.gender, 
@@ -151,11 +255,7 @@ public class UserJdbcDao {
             AND u.is_active = TRUE
             AND u.gender = :gender
             AND YEAR(CURDATE()) - YEAR(u.birth_date) BETWEEN :minAge AND :maxAge
-            AND u.user_id NOT IN (
-                SELECT DISTINCT s.swiped_user_id 
-                FROM swipes s 
-                WHERE s.swiper_id = :currentUserId
-            )
+            AND u.user_id NOT IN (%s)
             AND pi.interest_id IN (
                 SELECT pi2.interest_id
                 FROM profile_interests pi2
@@ -166,7 +266,7 @@ public class UserJdbcDao {
             GROUP BY u.user_id
             ORDER BY common_interests_count DESC, u.created_at DESC
             LIMIT :limit OFFSET :offset
-            """;
+            """.formatted(SWIPED_BY_CURRENT_USER);
 
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("currentUserId", currentUserId)
@@ -209,15 +309,11 @@ public class UserJdbcDao {
                     SELECT p2.profile_id FROM profiles p2 WHERE p2.user_id = :currentUserId
                 )
             )
-            AND u.user_id NOT IN (
-                SELECT DISTINCT s.swiped_user_id 
-                FROM swipes s 
-                WHERE s.swiper_id = :currentUserId
-            )
+            AND u.user_id NOT IN (%s)
             GROUP BY u.user_id
             ORDER BY common_count DESC
             LIMIT :limit
-            """;
+            """.formatted(SWIPED_BY_CURRENT_USER);
 
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("currentUserId", currentUserId)
@@ -230,6 +326,391 @@ public class UserJdbcDao {
         });
     }
 
+    /**
+     * Zwraca do {@code limit} ID aktywnych użytkowników większych niż {@code afterUserId}, rosnąco
+     * (stronicowanie po kluczu - stały koszt strony niezależnie od pozycji, punkt wznowienia zadań wsadowych).
+     */
+    public List<Long> findActiveUserIdsAfter(long afterUserId, int limit) {
+
+        log.debug("Finding {} active user ids after {}", limit, afterUserId);
+
+        String sql = """
+            SELECT u.user_id
+            FROM users u
+            WHERE u.is_active = TRUE
+            AND u.user_id > :afterUserId
+            ORDER BY u.user_id
+            LIMIT :limit
+            """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterUserId", afterUserId)
+                .addValue("limit", limit);
+
+        return jdbcTemplate.queryForList(sql, params, Long.class);
+    }
+
+    /**
+     * Zwraca ID użytkowników, których konto, profil lub preferencje zmieniono od {@code since}
+     * (updated_at) - odtwarzanie zmian po starcie indeksów z pliku. Nie wykrywa usunięć wierszy.
+     */
+    public List<Long> findUserIdsChangedSince(LocalDateTime since) {
+
+        log.debug("Finding users changed since {}", since);
+
+        String sql = """
+            SELECT u.user_id FROM users u WHERE u.updated_at >= :since
+            UNION
+            SELECT p.user_id FROM profiles p WHERE p.updated_at >= :since
+            UNION
+            SELECT pr.user_id FROM preferences pr WHERE pr.updated_at >= :since
+            """;
+
+        return jdbcTemplate.queryForList(sql, new MapSqlParameterSource("since", since), Long.class);
+    }
+
+    /**
+     * Liczba aktywnych użytkowników.
+     */
+    public int countActiveUsers() {
+
+        String sql = """
+            SELECT COUNT(*)
+            FROM users
+            WHERE is_active = TRUE
+            """;
+
+        Integer count = jdbcTemplate.queryForObject(sql, new MapSqlParameterSource(), Integer.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Najwcześniejszy created_at w tabeli users (null dla pustej tabeli). Zmienia się po ponownej
+     * inicjalizacji schematu, więc odróżnia bazę, z której zapisano snapshot indeksów, od nowej.
+     */
+    public LocalDateTime findUsersEpoch() {
+
+        String sql = """
+            SELECT MIN(created_at)
+            FROM users
+            """;
+
+        return jdbcTemplate.queryForObject(sql, new MapSqlParameterSource(), LocalDateTime.class);
+    }
+
+    /**
+     * Strumieniowo odczytuje aktywnych użytkowników do budowy indeksu kandydatów.
+     * Pobiera tylko kolumny potrzebne indeksowi (id, płeć, data urodzenia oraz preferencje
+     * i współrzędne do filtra wzajemności - NULL gdy brak), wiersze przekazywane są
+     * do handlera bez materializowania listy.
+     */
+    public void streamActiveUsersForIndex(RowCallbackHandler handler) {
+
+        log.debug("Streaming active users for candidate index");
+
+        String sql = """
+            SELECT u.user_id, u.gender, u.birth_date,
+                   pr.preferred_gender, pr.min_age, pr.max_age, pr.max_distance_km,
+                   p.latitude, p.longitude
+            FROM users u
+            LEFT JOIN preferences pr ON pr.user_id = u.user_id
+            LEFT JOIN profiles p ON p.user_id = u.user_id
+            WHERE u.is_active = TRUE
+            """;
+
+        jdbcTemplate.query(sql, new MapSqlParameterSource(), handler);
+    }
+
+    /**
+     * Jak {@link #streamActiveUsersForIndex(RowCallbackHandler)}, ale tylko dla podanych użytkowników
+     * - przyrostowa aktualizacja indeksu kandydatów. Nieaktywni i nieistniejący nie zwracają wiersza.
+     */
+    public void streamActiveUsersForIndex(Collection<Long> userIds, RowCallbackHandler handler) {
+
+        log.debug("Streaming {} users for candidate index update", userIds.size());
+
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+            SELECT u.user_id, u.gender, u.birth_date,
+                   pr.preferred_gender, pr.min_age, pr.max_age, pr.max_distance_km,
+                   p.latitude, p.longitude
+            FROM users u
+            LEFT JOIN preferences pr ON pr.user_id = u.user_id
+            LEFT JOIN profiles p ON p.user_id = u.user_id
+            WHERE u.is_active = TRUE
+            AND u.user_id IN (:userIds)
+            """;
+
+        jdbcTemplate.query(sql, new MapSqlParameterSource("userIds", userIds), handler);
+    }
+
+    /**
+     * Strumieniowo odczytuje najpopularniejszych aktywnych użytkowników per (miasto, płeć):
+     * do {@code perCity} osób z największą liczbą polubień (LIKE, SUPER_LIKE) od {@code since}.
+     * Wiersze posortowane po mieście, płci i pozycji - źródło listy popularnych w okolicy
+     * (PopularNearbyIndex), zwracanej gdy ranking nie zmieści się w budżecie czasu.
+     */
+    public void streamPopularUsersByCity(int perCity, LocalDateTime since, RowCallbackHandler handler) {
+
+        log.debug("Streaming top {} popular users per city since {}", perCity, since);
+
+        String sql = """
+            SELECT ranked.user_id, ranked.city, ranked.gender
+            FROM (
+                SELECT liked.user_id, liked.city, liked.gender,
+                       ROW_NUMBER() OVER (PARTITION BY liked.city, liked.gender
+                                          ORDER BY liked.likes_count DESC, liked.user_id) AS position
+                FROM (
+                    SELECT u.user_id, u.city, u.gender, COUNT(s.swipe_id) AS likes_count
+                    FROM users u
+                    LEFT JOIN swipes s ON s.swiped_user_id = u.user_id
+                        AND s.swipe_type IN ('LIKE', 'SUPER_LIKE')
+                        AND s.swiped_at >= :since
+                    WHERE u.is_active = TRUE
+                    GROUP BY u.user_id, u.city, u.gender
+                ) liked
+            ) ranked
+            WHERE ranked.position <= :perCity
+            ORDER BY ranked.city, ranked.gender, ranked.position
+            """;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("perCity", perCity)
+                .addValue("since", since);
+
+        jdbcTemplate.query(sql, params, handler);
+    }
+
+    /**
+     * Strumieniowo odczytuje pary (user_id, interest_id) wszystkich profili
+     * do budowy indeksu bitsetów zainteresowań - jedno zapytanie zamiast N.
+     */
+    public void streamUserInterests(RowCallbackHandler handler) {
+
+        log.debug("Streaming user interests for interest bitset index");
+
+        String sql = """
+            SELECT p.user_id, pi.interest_id
+            FROM profile_interests pi
+            JOIN profiles p ON p.profile_id = pi.profile_id
+            """;
+
+        jdbcTemplate.query(sql, new MapSqlParameterSource(), handler);
+    }
+
+    /**
+     * Strumieniowo odczytuje lokalizacje profili aktywnych użytkowników
+     * do budowy indeksu przestrzennego (współrzędne mogą być NULL).
+     */
+    public void streamProfileLocationsForIndex(RowCallbackHandler handler) {
+
+        log.debug("Streaming profile locations for geo grid index");
+
+        String sql = """
+            SELECT p.user_id, p.latitude, p.longitude
+            FROM profiles p
+            JOIN users u ON u.user_id = p.user_id
+            WHERE u.is_active = TRUE
+            """;
+
+        jdbcTemplate.query(sql, new MapSqlParameterSource(), handler);
+    }
+
+    /**
+     * Jak {@link #streamProfileLocationsForIndex(RowCallbackHandler)}, ale tylko dla podanych użytkowników
+     * - przyrostowa aktualizacja indeksu przestrzennego. Nieaktywni i bez profilu nie zwracają wiersza.
+     */
+    public void streamProfileLocationsForIndex(Collection<Long> userIds, RowCallbackHandler handler) {
+
+        log.debug("Streaming {} profile locations for geo grid index update", userIds.size());
+
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+            SELECT p.user_id, p.latitude, p.longitude
+            FROM profiles p
+            JOIN users u ON u.user_id = p.user_id
+            WHERE u.is_active = TRUE
+            AND p.user_id IN (:userIds)
+            """;
+
+        jdbcTemplate.query(sql, new MapSqlParameterSource("userIds", userIds), handler);
+    }
+
+    /**
+     * Strumieniowo odczytuje dane do scoringu dla podanych użytkowników jednym zapytaniem:
+     * współrzędne (mogą być NULL), flagę kompletności profilu (bio, zdjęcie, zainteresowanie)
+     * oraz wersje profilu i preferencji (preference_version NULL, gdy brak preferencji).
+     * Użytkownicy bez profilu nie zwracają wiersza.
+     */
+    public void streamScoringFeatures(Collection<Long> userIds, RowCallbackHandler handler) {
+
+        log.debug("Streaming scoring features for {} users", userIds.size());
+
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+            SELECT p.user_id, p.latitude, p.longitude,
+                   CASE WHEN p.bio IS NOT NULL AND TRIM(p.bio) <> ''
+                         AND EXISTS (SELECT 1 FROM photos ph WHERE ph.profile_id = p.profile_id)
+                         AND EXISTS (SELECT 1 FROM profile_interests pi WHERE pi.profile_id = p.profile_id)
+                        THEN 1 ELSE 0 END AS profile_complete,
+                   p.version AS profile_version, pr.version AS preference_version
+            FROM profiles p
+            LEFT JOIN preferences pr ON pr.user_id = p.user_id
+            WHERE p.user_id IN (:userIds)
+            """;
+
+        jdbcTemplate.query(sql, new MapSqlParameterSource("userIds", userIds), handler);
+    }
+
+    /**
+     * Strumieniowo odczytuje pary (user_id, interest_id) dla podanych użytkowników
+     * - zastępuje countCommonInterests per kandydat, gdy InterestBitsetIndex nie jest załadowany.
+     */
+    public void streamUserInterests(Collection<Long> userIds, RowCallbackHandler handler) {
+
+        log.debug("Streaming interests for {} users", userIds.size());
+
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+            SELECT p.user_id, pi.interest_id
+            FROM profile_interests pi
+            JOIN profiles p ON p.profile_id = pi.profile_id
+            WHERE p.user_id IN (:userIds)
+            """;
+
+        jdbcTemplate.query(sql, new MapSqlParameterSource("userIds", userIds), handler);
+    }
+
+    /**
+     * Scoring w bazie (matching.scoring.mode = DATABASE): liczy compatibility score
+     * wszystkich kandydatów spełniających preferencje i zwraca tylko {@code limit} najlepszych
+     * - do aplikacji nie trafiają wiersze całej puli.
+     *
+     * Filtry jak w CandidateGenerator: płeć, dokładny wiek (bez ocenionych i nieaktywnych),
+     * maxDistanceKm dla kandydatów ze współrzędnymi oraz wzajemność (szukający w preferencjach
+     * kandydata, jak w CandidateIndex). Score jak w CandidateScorer:
+     * - wspólne zainteresowania (self-join profile_interests): +10 za każde
+     * - dystans (Haversine na profiles, domyślny bez współrzędnych): -1 za każde 10km
+     * - kompletny profil (bio, zdjęcie, zainteresowanie): +20
+     * - różnica wieku w pełnych latach: -2 za rok, max -20
+     * Zgodność z CandidateScorer pilnuje test parity - zmiana wag wymaga zmiany w obu miejscach.
+     *
+     * @param defaultDistanceKm Dystans przyjmowany, gdy szukający lub kandydat nie ma współrzędnych
+     * @param excludedUserIds   Dodatkowo wykluczeni (np. swipe'y czekające na zapis w SwipeWriter)
+     * @return Najlepsi kandydaci malejąco po score (przy równym score rosnąco po ID)
+     */
+    public List<ScoredCandidateRow> findTopScoredCandidates(
+            Long currentUserId,
+            Gender preferredGender,
+            int minAge,
+            int maxAge,
+            int maxDistanceKm,
+            double defaultDistanceKm,
+            Collection<Long> excludedUserIds,
+            int limit) {
+
+        log.debug("Scoring candidates in database for user {}: gender={}, age={}-{}, maxDistance={}km, limit={}",
+                currentUserId, preferredGender, minAge, maxAge, maxDistanceKm, limit);
+
+        // f: filtry, wspólne zainteresowania, składnik Haversine; c: dystans i różnica wieku; zewnętrzne: score
+        String sql = """
+            SELECT c.user_id, c.common_interests, c.distance_km,
+                   GREATEST(0, c.common_interests * 10 - FLOOR(c.distance_km / 10)
+                               + c.completeness_bonus - LEAST(2 * c.age_gap, 20)) AS score,
+                   COUNT(*) OVER () AS total_candidates
+            FROM (
+                SELECT f.user_id, f.common_interests, f.completeness_bonus, f.haversine_a, f.candidate_max_distance_km,
+                       CASE WHEN f.haversine_a IS NULL THEN CAST(:defaultDistanceKm AS DECIMAL(9, 3))
+                            ELSE 2 * 6371.0 * ATAN2(SQRT(f.haversine_a), SQRT(1 - f.haversine_a))
+                       END AS distance_km,
+                       FLOOR(((EXTRACT(YEAR FROM f.younger_birth_date) * 12 + EXTRACT(MONTH FROM f.younger_birth_date))
+                              - (EXTRACT(YEAR FROM f.older_birth_date) * 12 + EXTRACT(MONTH FROM f.older_birth_date))
+                              - CASE WHEN EXTRACT(DAY FROM f.younger_birth_date) < EXTRACT(DAY FROM f.older_birth_date)
+                                     THEN 1 ELSE 0 END) / 12) AS age_gap
+                FROM (
+                    SELECT u.user_id,
+                           COALESCE(common.common_count, 0) AS common_interests,
+                           CASE WHEN p.bio IS NOT NULL AND TRIM(p.bio) <> ''
+                                 AND EXISTS (SELECT 1 FROM photos ph WHERE ph.profile_id = p.profile_id)
+                                 AND EXISTS (SELECT 1 FROM profile_interests pi WHERE pi.profile_id = p.profile_id)
+                                THEN 20 ELSE 0 END AS completeness_bonus,
+                           CASE WHEN sp.latitude IS NOT NULL AND sp.longitude IS NOT NULL
+                                 AND p.latitude IS NOT NULL AND p.longitude IS NOT NULL
+                                THEN %s
+                           END AS haversine_a,
+                           cp.max_distance_km AS candidate_max_distance_km,
+                           LEAST(u.birth_date, su.birth_date) AS older_birth_date,
+                           GREATEST(u.birth_date, su.birth_date) AS younger_birth_date
+                    FROM users u
+                    JOIN profiles p ON p.user_id = u.user_id
+                    JOIN users su ON su.user_id = :currentUserId
+                    LEFT JOIN profiles sp ON sp.user_id = su.user_id
+                    LEFT JOIN preferences cp ON cp.user_id = u.user_id
+                    LEFT JOIN (
+                        SELECT ci.profile_id, COUNT(*) AS common_count
+                        FROM profile_interests ci
+                        JOIN profile_interests si ON si.interest_id = ci.interest_id
+                        JOIN profiles sip ON sip.profile_id = si.profile_id
+                        WHERE sip.user_id = :currentUserId
+                        GROUP BY ci.profile_id
+                    ) common ON common.profile_id = p.profile_id
+                    WHERE u.user_id != :currentUserId
+                    AND u.is_active = TRUE
+                    AND u.gender = :gender
+                    AND u.birth_date > :minBirthDate
+                    AND u.birth_date <= :maxBirthDate
+                    AND u.user_id NOT IN (%s)
+                    %s
+                    AND (cp.user_id IS NULL OR (cp.preferred_gender = su.gender AND %s))
+                ) f
+            ) c
+            WHERE c.haversine_a IS NULL
+            OR (c.distance_km <= :maxDistanceKm
+                AND (c.candidate_max_distance_km IS NULL OR c.distance_km <= c.candidate_max_distance_km))
+            ORDER BY score DESC, c.user_id
+            LIMIT :limit
+            """.formatted(HAVERSINE_A, SWIPED_BY_CURRENT_USER,
+                excludedUserIds.isEmpty() ? "" : "AND u.user_id NOT IN (:excludedUserIds)",
+                SEARCHER_AGE_IN_CANDIDATE_RANGE);
+
+        // Wiek w pełnych latach w [minAge, maxAge] <=> data urodzenia w (today - (maxAge + 1) lat, today - minAge lat]
+        LocalDate today = LocalDate.now();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("currentUserId", currentUserId)
+                .addValue("gender", preferredGender.name())
+                .addValue("minBirthDate", today.minusYears(maxAge + 1L))
+                .addValue("maxBirthDate", today.minusYears(minAge))
+                .addValue("maxDistanceKm", maxDistanceKm)
+                .addValue("defaultDistanceKm", defaultDistanceKm)
+                .addValue("excludedUserIds", excludedUserIds)
+                .addValue("limit", limit);
+        addToday(params, today);
+
+        List<ScoredCandidateRow> rows = jdbcTemplate.query(sql, params, (rs, rowNum) -> new ScoredCandidateRow(
+                rs.getLong("user_id"),
+                rs.getInt("score"),
+                rs.getInt("common_interests"),
+                rs.getDouble("distance_km"),
+                rs.getLong("total_candidates")
+        ));
+
+        log.debug("Database scoring for user {} returned {} candidates", currentUserId, rows.size());
+
+        return rows;
+    }
+
     /**
      * Statystyka: Średnia liczba aktywnych użytkowników w danym mieście.
      */
@@ -252,6 +733,7 @@ public class UserJdbcDao {
 
     /**
      * Ranking: Użytkownicy z największą liczbą polubień (likes received).
+     * Liczone z swipe_pairs - jedno polubienie na parę.
      */
     public List<Object[]> getMostLikedUsers(int limit) {
 
@@ -261,9 +743,9 @@ public class UserJdbcDao {
             SELECT 
                 u.user_id,
                 u.username,
-                COUNT(s.swipe_id) as likes_count
+                COUNT(sp.swiper_id) as likes_count
             FROM users u
-            LEFT JOIN swipes s ON s.swiped_user_id = u.user_id AND s.swipe_type = 'LIKE'
+            LEFT JOIN swipe_pairs sp ON sp.swiped_user_id = u.user_id AND sp.swipe_type = 'LIKE'
             WHERE u.is_active = TRUE
             GROUP BY u.user_id
             ORDER BY likes_count DESC
@@ -349,17 +831,40 @@ public class UserJdbcDao {
 
     /**
      * Delete: Usunięcie użytkownika (kaskadowe przez FK constraints).
+     * Partycjonowana tabela swipes nie ma kluczy obcych - jej wiersze usuwane są jawnie.
      */
     public int deleteUser(Long userId) {
 
         log.warn("Deleting user: {}", userId);
 
-        String sql = "DELETE FROM users WHERE user_id = :userId";
-
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("userId", userId);
 
+        jdbcTemplate.update("DELETE FROM swipes WHERE swiper_id = :userId OR swiped_user_id = :userId", params);
+
+        String sql = "DELETE FROM users WHERE user_id = :userId";
+
         return jdbcTemplate.update(sql, params);
     }
-}
 
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Dzisiejsza data dla SEARCHER_AGE_IN_CANDIDATE_RANGE: miesiące od początku ery i dzień miesiąca.
+     */
+    private static void addToday(MapSqlParameterSource params, LocalDate today) {
+        params.addValue("todayMonths", today.getYear() * 12 + today.getMonthValue())
+                .addValue("todayDay", today.getDayOfMonth());
+    }
+
+    // ========== INNER CLASS ==========
+
+    /**
+     * Kandydat z compatibility score policzonym w bazie.
+     *
+     * @param totalCandidates Liczba kandydatów spełniających filtry (przed LIMIT)
+     */
+    public record ScoredCandidateRow(long userId, int score, int commonInterests, double distanceKm,
+                                     long totalCandidates) {
+    }
+}
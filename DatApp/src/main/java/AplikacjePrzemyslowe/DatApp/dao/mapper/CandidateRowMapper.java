@@ -0,0 +1,36 @@
+package AplikacjePrzemyslowe.DatApp.dao.mapper;
+
+import AplikacjePrzemyslowe.DatApp.dao.CandidateRow;
+import AplikacjePrzemyslowe.DatApp.entity.Gender;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * RowMapper dla projekcji CandidateRow.
+ * Współrzędne czytane jako double (NaN dla NULL) - bez BigDecimal i boxingu per wiersz.
+ */
+@Component
+public class CandidateRowMapper implements RowMapper<CandidateRow> {
+
+    @Override
+    public CandidateRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new CandidateRow(
+                rs.getLong("user_id"),
+                Gender.valueOf(rs.getString("gender")),
+                rs.getObject("birth_date", LocalDate.class),
+                rs.getString("city"),
+                getCoordinate(rs, "latitude"),
+                getCoordinate(rs, "longitude"),
+                rs.getBoolean("is_active")
+        );
+    }
+
+    private static double getCoordinate(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+}
@@ -0,0 +1,27 @@
+package AplikacjePrzemyslowe.DatApp.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO dla paczki operacji zakolejkowanych offline (swipe'y, wiadomości, odczyty).
+ * Poszczególne operacje walidowane są osobno - błędna operacja nie odrzuca całej paczki.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchMutationRequest {
+
+    public static final int MAX_OPERATIONS = 200;
+
+    @NotEmpty(message = "Lista operacji jest wymagana")
+    @Size(max = MAX_OPERATIONS, message = "Paczka może zawierać najwyżej 200 operacji")
+    private List<BatchOperationRequest> operations;
+}
@@ -0,0 +1,43 @@
+package AplikacjePrzemyslowe.DatApp.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO dla jednej operacji w paczce.
+ * Wypełnione jest pole odpowiadające typowi: swipe (SWIPE), message (MESSAGE)
+ * albo messageId (MARK_READ).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperationRequest {
+
+    @NotNull(message = "Typ operacji jest wymagany")
+    @Pattern(
+        regexp = "^(SWIPE|MESSAGE|MARK_READ)$",
+        message = "Typ operacji musi być SWIPE, MESSAGE lub MARK_READ"
+    )
+    private String type;
+
+    // Identyfikator nadany przez klienta - zwracany w wyniku operacji
+    @Size(max = 64, message = "Identyfikator klienta może mieć najwyżej 64 znaki")
+    private String clientId;
+
+    @Valid
+    private SwipeRequest swipe;
+
+    @Valid
+    private MessageRequest message;
+
+    @Positive(message = "ID wiadomości musi być liczbą dodatnią")
+    private Long messageId;
+}
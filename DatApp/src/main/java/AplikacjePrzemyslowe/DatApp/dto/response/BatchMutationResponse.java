@@ -0,0 +1,23 @@
+package AplikacjePrzemyslowe.DatApp.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO dla odpowiedzi z wynikami paczki operacji.
+ * Wyniki w kolejności operacji z żądania.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchMutationResponse {
+
+    private List<BatchOperationResponse> results;
+    private Integer succeeded;
+    private Integer failed;
+}
@@ -0,0 +1,28 @@
+package AplikacjePrzemyslowe.DatApp.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO dla wyniku jednej operacji z paczki.
+ * status to kod HTTP, który zwróciłby odpowiadający operacji pojedynczy endpoint.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperationResponse {
+
+    private Integer index;
+    private String clientId;
+    private String type;
+    private Boolean success;
+    private Integer status;
+    private String error;
+
+    // Wynik operacji (zależnie od typu)
+    private SwipeResponse swipe;
+    private MessageResponse message;
+}
@@ -0,0 +1,42 @@
+package AplikacjePrzemyslowe.DatApp.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO dla strony kandydatów stronicowanej kursorem.
+ * Kolejne strony czytane są z tego samego rankingu (snapshot), więc nie przesuwają się
+ * w trakcie swipe'owania. Snapshot obejmuje najwyżej matching.snapshot.max-candidates najlepszych.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CandidatePageResponse {
+
+    private List<CandidateResponse> content;
+
+    /**
+     * Kursor następnej strony (null jeśli to ostatnia strona).
+     */
+    private String nextCursor;
+
+    /**
+     * Liczba kandydatów w snapshocie - ranking obejmuje najwyżej matching.snapshot.max-candidates
+     * najlepszych, więc po ostatniej stronie (hasNext = false) nie ma kolejnych.
+     */
+    private Long totalElements;
+
+    /**
+     * Czy ranking przycięto do matching.snapshot.max-candidates (filtry spełniało więcej kandydatów,
+     * niż obejmuje totalElements).
+     */
+    private Boolean truncated;
+
+    private Integer pageSize;
+    private Boolean hasNext;
+}
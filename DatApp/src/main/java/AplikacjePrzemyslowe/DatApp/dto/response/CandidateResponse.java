@@ -37,5 +37,8 @@ public class CandidateResponse {
     private Integer commonInterestsCount;
     private Double distanceKm;
     private Integer compatibilityScore; // 0-100
+
+    // Ranking przekroczył budżet czasu (wynik częściowy albo popularni w okolicy)
+    private boolean degraded;
 }
 
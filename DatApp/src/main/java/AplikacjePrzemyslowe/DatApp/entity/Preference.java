@@ -66,6 +66,14 @@ public class Preference {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Wersja (optimistic locking) - rośnie przy każdej zmianie preferencji.
+     * Unieważnia wpisy PairScoreCache policzone dla starszej wersji.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // ========== BUSINESS METHODS ==========
 
     /**
@@ -67,6 +67,14 @@ public class Profile {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Wersja (optimistic locking) - rośnie przy każdej zmianie profilu (także przy zmianie zdjęć i zainteresowań).
+     * Unieważnia wpisy PairScoreCache policzone dla starszej wersji.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // ========== RELACJE ==========
 
     /**
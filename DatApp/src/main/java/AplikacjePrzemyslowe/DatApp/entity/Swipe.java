@@ -11,6 +11,8 @@ import java.util.Objects;
 /**
  * Encja reprezentująca akcję "swipe" (przesunięcie) użytkownika.
  * Rejestruje decyzję użytkownika: LIKE (akceptacja) lub DISLIKE (odrzucenie).
+ * W MySQL (schema.sql) tabela jest partycjonowana po swiped_at - tam uk_swiper_swiped
+ * zawiera też swiped_at, a stare DISLIKE/PASS przenoszone są do swipes_archive (SwipeArchiveJob).
  */
 @Entity
 @Table(name = "swipes",
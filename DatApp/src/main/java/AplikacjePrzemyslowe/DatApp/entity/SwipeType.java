@@ -6,6 +6,13 @@ package AplikacjePrzemyslowe.DatApp.entity;
 public enum SwipeType {
     LIKE,        // Polubienie
     DISLIKE,     // Odrzucenie
-    PASS, SUPER_LIKE   // Super polubienie (opcjonalne, premium feature)
+    PASS, SUPER_LIKE;   // Super polubienie (opcjonalne, premium feature)
+
+    /**
+     * Czy swipe to polubienie (LIKE lub SUPER_LIKE) - dwa wzajemne polubienia dają match.
+     */
+    public boolean isPositive() {
+        return this == LIKE || this == SUPER_LIKE;
+    }
 }
 
@@ -0,0 +1,12 @@
+package AplikacjePrzemyslowe.DatApp.exception;
+
+/**
+ * Wyjątek rzucany gdy kursor stronicowania wygasł lub jest nieznany (410 Gone).
+ * Klient powinien pobrać listę od pierwszej strony.
+ */
+public class CursorExpiredException extends RuntimeException {
+
+    public CursorExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,46 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Kursor stronicowania kandydatów: snapshot rankingu + pozycja w nim.
+ * Dla klienta to nieprzezroczysty token (Base64 URL-safe).
+ *
+ * @param snapshotId ID snapshotu w CandidateSnapshotStore
+ * @param offset     Pozycja pierwszego kandydata następnej strony
+ */
+public record CandidateCursor(long snapshotId, int offset) {
+
+    private static final int ENCODED_BYTES = Long.BYTES + Integer.BYTES;
+
+    public CandidateCursor {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Cursor offset must not be negative: " + offset);
+        }
+    }
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES)
+                .putLong(snapshotId)
+                .putInt(offset);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException gdy token nie jest poprawnym kursorem
+     */
+    public static CandidateCursor decode(String token) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        if (bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new CandidateCursor(buffer.getLong(), buffer.getInt());
+    }
+}
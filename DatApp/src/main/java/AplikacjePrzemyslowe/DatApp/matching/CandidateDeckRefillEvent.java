@@ -0,0 +1,10 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+/**
+ * Zlecenie uzupełnienia talii kandydatów użytkownika w tle.
+ *
+ * @param userId ID użytkownika
+ * @param ticket Numer generacji z CandidateDeckStore.startRefill
+ */
+public record CandidateDeckRefillEvent(long userId, long ticket) {
+}
@@ -0,0 +1,258 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Talie (decki) wstępnie posortowanych kandydatów per użytkownik.
+ *
+ * Talia to ograniczona kolejka ID kandydatów w kolejności score. Odczyt następnego
+ * kandydata to O(1) peek, a swipe usuwa kandydata z talii. Gdy w talii zostaje mniej
+ * niż low-water mark kandydatów, silnik zleca uzupełnienie w tle (startRefill/install).
+ * Zmiana preferencji lub profilu unieważnia talię (invalidate) - uzupełnienie
+ * policzone dla starych danych jest wtedy odrzucane (numer generacji).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CandidateDeckStore {
+
+    /**
+     * Wartość startRefill gdy uzupełnienie jest już w toku.
+     */
+    public static final long NO_TICKET = -1L;
+
+    private final MatchingProperties properties;
+
+    private final Map<Long, Deck> decks = new ConcurrentHashMap<>();
+
+    // Numery generacji są globalne - talia utworzona po invalidate nie przyjmie starego uzupełnienia
+    private final AtomicLong generations = new AtomicLong();
+
+    // ========== QUERY ==========
+
+    /**
+     * Maksymalna liczba kandydatów w talii.
+     */
+    public int capacity() {
+        return properties.getDeck().getCapacity();
+    }
+
+    /**
+     * Zwraca następnego kandydata z talii bez usuwania go.
+     */
+    public OptionalLong peek(long userId) {
+        Deck deck = decks.get(userId);
+        if (deck == null) {
+            return OptionalLong.empty();
+        }
+        synchronized (deck) {
+            deck.lastAccessNanos = System.nanoTime();
+            return deck.head < deck.ids.length ? OptionalLong.of(deck.ids[deck.head]) : OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Liczba kandydatów pozostałych w talii.
+     */
+    public int remaining(long userId) {
+        Deck deck = decks.get(userId);
+        if (deck == null) {
+            return 0;
+        }
+        synchronized (deck) {
+            return deck.ids.length - deck.head;
+        }
+    }
+
+    /**
+     * Liczba talii w pamięci.
+     */
+    public int size() {
+        return decks.size();
+    }
+
+    // ========== UPDATE ==========
+
+    /**
+     * Usuwa kandydata z talii (po swipe). Zwykle to głowa talii - O(1).
+     */
+    public void remove(long userId, long candidateId) {
+        Deck deck = decks.get(userId);
+        if (deck == null) {
+            return;
+        }
+        synchronized (deck) {
+            if (deck.refilling) {
+                deck.consumedDuringRefill.add(candidateId);
+            }
+            if (deck.head < deck.ids.length && deck.ids[deck.head] == candidateId) {
+                deck.head++;
+                return;
+            }
+            for (int i = deck.head + 1; i < deck.ids.length; i++) {
+                if (deck.ids[i] == candidateId) {
+                    // Przesuń wcześniejsze elementy o jeden w prawo, zachowując kolejność
+                    System.arraycopy(deck.ids, deck.head, deck.ids, deck.head + 1, i - deck.head);
+                    deck.head++;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sprawdza czy talia spadła poniżej low-water mark i rozpoczyna uzupełnianie.
+     *
+     * @return Numer generacji do przekazania do install() albo {@link #NO_TICKET}
+     *         gdy uzupełnianie nie jest potrzebne lub już trwa
+     */
+    public long startRefillIfLow(long userId) {
+        Deck deck = decks.get(userId);
+        if (deck == null) {
+            return NO_TICKET;
+        }
+        synchronized (deck) {
+            if (deck.refilling || deck.ids.length - deck.head >= properties.getDeck().getLowWaterMark()) {
+                return NO_TICKET;
+            }
+            return beginRefill(deck);
+        }
+    }
+
+    /**
+     * Rozpoczyna budowę talii od zera (cold start). Tworzy pustą talię jeśli trzeba.
+     *
+     * @return Numer generacji albo {@link #NO_TICKET} gdy talie są wyłączone,
+     *         limit talii jest osiągnięty lub uzupełnianie już trwa
+     */
+    public long startRefill(long userId) {
+        if (capacity() <= 0) {
+            return NO_TICKET;
+        }
+        Deck deck = decks.get(userId);
+        if (deck == null) {
+            if (decks.size() >= properties.getDeck().getMaxDecks()) {
+                return NO_TICKET;
+            }
+            deck = decks.computeIfAbsent(userId, id -> new Deck());
+        }
+        synchronized (deck) {
+            return deck.refilling ? NO_TICKET : beginRefill(deck);
+        }
+    }
+
+    /**
+     * Instaluje nową zawartość talii policzoną dla danej generacji.
+     * Kandydaci usunięci (swipe) w trakcie liczenia są pomijani.
+     *
+     * @return false jeśli talia została w międzyczasie unieważniona
+     */
+    public boolean install(long userId, long ticket, long[] rankedIds) {
+        Deck deck = decks.get(userId);
+        if (deck == null) {
+            return false;
+        }
+        synchronized (deck) {
+            if (!deck.refilling || deck.generation != ticket) {
+                return false;
+            }
+            int limit = Math.min(rankedIds.length, capacity());
+            long[] ids = new long[limit];
+            int size = 0;
+            for (int i = 0; i < limit; i++) {
+                if (!deck.consumedDuringRefill.contains(rankedIds[i])) {
+                    ids[size++] = rankedIds[i];
+                }
+            }
+            deck.ids = size == limit ? ids : Arrays.copyOf(ids, size);
+            deck.head = 0;
+            deck.refilling = false;
+            deck.consumedDuringRefill.clear();
+            deck.lastAccessNanos = System.nanoTime();
+            return true;
+        }
+    }
+
+    /**
+     * Przerywa uzupełnianie (błąd, odrzucenie zadania) - kolejne wywołanie spróbuje ponownie.
+     */
+    public void abortRefill(long userId, long ticket) {
+        Deck deck = decks.get(userId);
+        if (deck == null) {
+            return;
+        }
+        synchronized (deck) {
+            if (deck.generation == ticket) {
+                deck.refilling = false;
+                deck.consumedDuringRefill.clear();
+            }
+        }
+    }
+
+    /**
+     * Unieważnia talię użytkownika (zmiana preferencji lub profilu).
+     */
+    public void invalidate(long userId) {
+        Deck deck = decks.remove(userId);
+        if (deck != null) {
+            synchronized (deck) {
+                // Trwające uzupełnienie nie zainstaluje się w usuniętej talii
+                deck.generation = NO_TICKET;
+                deck.refilling = false;
+            }
+            log.debug("Candidate deck invalidated for user {}", userId);
+        }
+    }
+
+    /**
+     * Usuwa talie nieużywane dłużej niż idle-ttl.
+     */
+    @Scheduled(fixedDelayString = "${matching.deck.idle-ttl:PT30M}")
+    public void evictIdle() {
+        long ttlNanos = properties.getDeck().getIdleTtl().toNanos();
+        long now = System.nanoTime();
+        int before = decks.size();
+        decks.entrySet().removeIf(entry -> {
+            Deck deck = entry.getValue();
+            synchronized (deck) {
+                return !deck.refilling && now - deck.lastAccessNanos > ttlNanos;
+            }
+        });
+        int evicted = before - decks.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle candidate decks", evicted);
+        }
+    }
+
+    private long beginRefill(Deck deck) {
+        deck.refilling = true;
+        deck.consumedDuringRefill.clear();
+        deck.generation = generations.incrementAndGet();
+        return deck.generation;
+    }
+
+    /**
+     * Stan jednej talii - dostęp tylko pod synchronizacją na obiekcie.
+     */
+    private static final class Deck {
+
+        private long[] ids = new long[0];
+        private int head;
+        private long generation;
+        private boolean refilling;
+        private final Set<Long> consumedDuringRefill = new HashSet<>();
+        private long lastAccessNanos = System.nanoTime();
+    }
+}
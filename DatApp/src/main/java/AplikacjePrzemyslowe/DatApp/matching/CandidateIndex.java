@@ -0,0 +1,803 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.entity.Gender;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Rezydentny indeks kandydatów dla silnika dopasowań.
+ *
+ * Aktywni użytkownicy są podzieleni na kubełki po płci, a w każdym kubełku
+ * posortowani po dniu urodzenia (epoch day). Dane trzymane są w tablicach
+ * prymitywnych (int[] dni, long[] ID), więc zapytanie o preferencje
+ * (płeć + zakres wieku) sprowadza się do dwóch wyszukiwań binarnych
+ * i zwraca zakresy (slice'y) tablic - bez zapytania do MySQL.
+ *
+ * Obok ID indeks trzyma preferencje każdego użytkownika spakowane w int (płeć, wiek, dystans)
+ * i jego współrzędne (float), więc filtr wzajemności - czy szukający mieści się w preferencjach
+ * kandydata - liczony jest w pamięci, bez odczytu Preference per kandydat.
+ *
+ * Indeks jest niemutowalnym snapshotem podmienianym atomowo przy przebudowie.
+ * Między przebudowami zmiany zatwierdzonych danych (MatchingIndexUpdater) podmieniają
+ * snapshot na kopię z odświeżonymi wpisami pojedynczych użytkowników. Pozycje wpisów
+ * znajduje prymitywna mapa userId -> (płeć, pozycja) snapshotu (Positions), bez skanu kubełków.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CandidateIndex {
+
+    /**
+     * Użytkownik bez zapisanych preferencji - akceptuje każdego szukającego.
+     */
+    public static final int NO_PREFERENCE = -1;
+
+    private static final int GENDER_BITS = 3;
+    private static final int AGE_BITS = 7;
+    private static final int DISTANCE_BITS = 10;
+    private static final int MIN_AGE_SHIFT = GENDER_BITS;
+    private static final int MAX_AGE_SHIFT = MIN_AGE_SHIFT + AGE_BITS;
+    private static final int DISTANCE_SHIFT = MAX_AGE_SHIFT + AGE_BITS;
+
+    private final UserJdbcDao userJdbcDao;
+    private final Object updateLock = new Object();
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Stan bazy, który odzwierciedla snapshot: start ostatniej przebudowy albo znacznik pliku,
+     * z którego snapshot odtworzono (zmiany późniejsze docierają przyrostowo).
+     */
+    private volatile LocalDateTime builtAt;
+
+    /**
+     * Liczba instalacji snapshotu - refreshUsers wykrywa nią instalację w trakcie swojego odczytu.
+     * Chroniony przez updateLock.
+     */
+    private long installs;
+
+    /**
+     * Użytkownicy odświeżeni w trakcie trwającej przebudowy (null - przebudowa nie trwa).
+     * Chroniony przez updateLock.
+     */
+    private Set<Long> changedDuringRebuild;
+
+    // ========== QUERY ==========
+
+    /**
+     * Sprawdza czy indeks został już zbudowany.
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Liczba zaindeksowanych użytkowników.
+     */
+    public int size() {
+        Snapshot current = snapshot;
+        return current != null ? current.size() : 0;
+    }
+
+    /**
+     * Zwraca zakresy tablic z ID kandydatów spełniających preferencje płci i wieku.
+     * Wiek liczony jest dokładnie (jak Period.between), tzn. kandydat ma
+     * ukończone minAge lat i nie ukończył maxAge + 1 lat w dniu {@code today}.
+     *
+     * @param preferredGender Poszukiwana płeć
+     * @param minAge Minimalny wiek
+     * @param maxAge Maksymalny wiek
+     * @param today Dzień odniesienia dla obliczenia wieku
+     * @return Lista slice'ów (pusta jeśli brak kandydatów)
+     */
+    public List<Slice> findSlices(Gender preferredGender, int minAge, int maxAge, LocalDate today) {
+        return findSlices(preferredGender, minAge, maxAge, today, null);
+    }
+
+    /**
+     * Jak {@link #findSlices(Gender, int, int, LocalDate)}, ale slice'y pomijają kandydatów,
+     * w których preferencjach szukający się nie mieści (płeć, wiek, maxDistanceKm kandydata).
+     *
+     * @param searcher Szukający (null wyłącza filtr wzajemności)
+     */
+    public List<Slice> findSlices(Gender preferredGender, int minAge, int maxAge, LocalDate today, Searcher searcher) {
+        Snapshot current = snapshot;
+        if (current == null || minAge > maxAge) {
+            return List.of();
+        }
+
+        int fromDay = (int) today.minusYears(maxAge + 1L).toEpochDay() + 1;
+        int toDay = (int) today.minusYears(minAge).toEpochDay();
+
+        List<Slice> slices = new ArrayList<>(1);
+        Bucket bucket = current.buckets().get(preferredGender);
+        if (bucket != null) {
+            Slice slice = bucket.slice(fromDay, toDay,
+                    searcher != null ? bucket.reciprocalFilter(searcher, today) : null);
+            if (slice.size() > 0) {
+                slices.add(slice);
+            }
+        }
+        return slices;
+    }
+
+    /**
+     * Filtr pojedynczych kandydatów spoza findSlices (np. listy popularnych w okolicy): szukający
+     * mieści się w preferencjach kandydata (jak filtr wzajemności findSlices), a kandydat w
+     * {@code maxDistanceKm} szukającego. Dystans sprawdzany tylko gdy obie strony mają współrzędne.
+     * Kandydat spoza indeksu (nieaktywny albo jeszcze niezaindeksowany) i każdy kandydat przed
+     * zbudowaniem indeksu są odrzucani.
+     */
+    public LongPredicate candidateFilter(Searcher searcher, int maxDistanceKm, LocalDate today) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return candidateId -> false;
+        }
+
+        Gender[] genders = Gender.values();
+        return candidateId -> {
+            int entry = current.positions().get(candidateId);
+            if (entry == Positions.ABSENT) {
+                return false;
+            }
+            Bucket bucket = current.buckets().get(genders[Positions.genderOrdinal(entry)]);
+            int position = Positions.position(entry);
+            if (!bucket.reciprocalFilter(searcher, today).test(position)) {
+                return false;
+            }
+            if (!searcher.hasCoordinates() || Float.isNaN(bucket.latitudes()[position])) {
+                return true;
+            }
+            return GeoDistance.haversineKm(searcher.latitude(), searcher.longitude(),
+                    bucket.latitudes()[position], bucket.longitudes()[position]) <= maxDistanceKm;
+        };
+    }
+
+    /**
+     * Pakuje preferencje użytkownika w int przechowywany w indeksie.
+     * Dystans powyżej 1023 km jest przycinany (walidacja Preference dopuszcza max 500).
+     */
+    public static int preference(Gender preferredGender, int minAge, int maxAge, int maxDistanceKm) {
+        if (minAge < 0 || maxAge >= 1 << AGE_BITS || minAge > maxAge) {
+            throw new IllegalArgumentException("Age range out of index range: " + minAge + "-" + maxAge);
+        }
+        int distance = Math.max(0, Math.min(maxDistanceKm, (1 << DISTANCE_BITS) - 1));
+        return preferredGender.ordinal()
+                | minAge << MIN_AGE_SHIFT
+                | maxAge << MAX_AGE_SHIFT
+                | distance << DISTANCE_SHIFT;
+    }
+
+    private static int preferredGenderOrdinal(int preference) {
+        return preference & ((1 << GENDER_BITS) - 1);
+    }
+
+    private static int minAge(int preference) {
+        return (preference >>> MIN_AGE_SHIFT) & ((1 << AGE_BITS) - 1);
+    }
+
+    private static int maxAge(int preference) {
+        return (preference >>> MAX_AGE_SHIFT) & ((1 << AGE_BITS) - 1);
+    }
+
+    private static int maxDistanceKm(int preference) {
+        return (preference >>> DISTANCE_SHIFT) & ((1 << DISTANCE_BITS) - 1);
+    }
+
+    // ========== INCREMENTAL UPDATES ==========
+
+    /**
+     * Odświeża wpisy podanych użytkowników z aktualnego stanu bazy: usuwa je ze snapshotu
+     * i dodaje ponownie (nieaktywni i usunięci nie wracają). Wywoływane po zatwierdzeniu
+     * zmiany konta, preferencji lub lokalizacji - zamiast czekać na pełną przebudowę.
+     *
+     * Odczyt z bazy odbywa się poza updateLock; gdy w jego trakcie zainstalowano inny snapshot,
+     * odczyt jest powtarzany (mógł być starszy niż dane tamtego snapshotu). Zmiana zatwierdzona
+     * w trakcie przebudowy jest powtarzana na nowym snapshocie, więc przebudowa jej nie cofa.
+     */
+    public void refreshUsers(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        while (true) {
+            long seenInstalls;
+            synchronized (updateLock) {
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.addAll(userIds);
+                }
+                if (snapshot == null) {
+                    return;
+                }
+                seenInstalls = installs;
+            }
+
+            Snapshot read = read(userIds);
+            synchronized (updateLock) {
+                if (installs == seenInstalls) {
+                    install(snapshot.replace(userIds, read));
+                    return;
+                }
+            }
+        }
+    }
+
+    private Snapshot read(Collection<Long> userIds) {
+        Builder builder = new Builder();
+        userJdbcDao.streamActiveUsersForIndex(userIds, rs -> addRow(builder, rs));
+        return builder.build();
+    }
+
+    // ========== BUILD ==========
+
+    /**
+     * Buduje indeks przy starcie aplikacji, o ile nie został już odtworzony z pliku (IndexSnapshotStore).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!isReady()) {
+            refresh();
+        }
+    }
+
+    /**
+     * Cyklicznie przebudowuje indeks (nowe rejestracje, deaktywacje).
+     */
+    @Scheduled(fixedDelayString = "${matching.index.refresh-interval:PT5M}",
+               initialDelayString = "${matching.index.refresh-interval:PT5M}")
+    public void refresh() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Brak indeksu nie blokuje matchingu - silnik wraca do ścieżki JDBC
+            log.warn("Candidate index rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Przebudowuje indeks z tabeli users i podmienia snapshot.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        synchronized (updateLock) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        try {
+            Builder builder = new Builder();
+            userJdbcDao.streamActiveUsersForIndex(rs -> addRow(builder, rs));
+            Snapshot built = builder.build();
+            while (true) {
+                Set<Long> changed;
+                synchronized (updateLock) {
+                    if (changedDuringRebuild.isEmpty()) {
+                        install(built);
+                        builtAt = startedAt;
+                        break;
+                    }
+                    changed = changedDuringRebuild;
+                    changedDuringRebuild = new HashSet<>();
+                }
+                // Zmiany zatwierdzone w trakcie odczytu mogły się w nim nie znaleźć - doczytywane poza blokadą
+                built = built.replace(changed, read(changed));
+            }
+        } finally {
+            synchronized (updateLock) {
+                changedDuringRebuild = null;
+            }
+        }
+
+        log.info("Candidate index rebuilt: {} users in {} ms",
+                snapshot.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void addRow(Builder builder, ResultSet rs) throws SQLException {
+        String preferredGender = rs.getString("preferred_gender");
+        builder.add(
+                rs.getLong("user_id"),
+                Gender.valueOf(rs.getString("gender")),
+                rs.getObject("birth_date", LocalDate.class),
+                preferredGender != null
+                        ? preference(Gender.valueOf(preferredGender), rs.getInt("min_age"),
+                                rs.getInt("max_age"), rs.getInt("max_distance_km"))
+                        : NO_PREFERENCE,
+                rs.getObject("latitude", Double.class),
+                rs.getObject("longitude", Double.class)
+        );
+    }
+
+    /**
+     * Podmienia aktualny snapshot indeksu.
+     */
+    void install(Snapshot newSnapshot) {
+        this.snapshot = newSnapshot;
+        installs++;
+    }
+
+    /**
+     * Instaluje snapshot odczytany z pliku, o ile indeks nie został jeszcze zbudowany.
+     *
+     * @param asOf Stan bazy zapisany w pliku
+     * @return true jeśli snapshot został zainstalowany
+     */
+    boolean restore(Snapshot restored, LocalDateTime asOf) {
+        synchronized (updateLock) {
+            if (snapshot != null) {
+                return false;
+            }
+            install(restored);
+            builtAt = asOf;
+            return true;
+        }
+    }
+
+    /**
+     * Aktualny snapshot (null przed zbudowaniem).
+     */
+    Snapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Stan bazy odzwierciedlany przez snapshot (null przed zbudowaniem).
+     */
+    LocalDateTime builtAt() {
+        return builtAt;
+    }
+
+    // ========== DATA STRUCTURES ==========
+
+    /**
+     * Szukający widziany przez filtr wzajemności.
+     *
+     * @param latitude  Szerokość geograficzna albo NaN, gdy szukający nie ma współrzędnych
+     * @param longitude Długość geograficzna albo NaN, gdy szukający nie ma współrzędnych
+     */
+    public record Searcher(Gender gender, LocalDate birthDate, double latitude, double longitude) {
+
+        public boolean hasCoordinates() {
+            return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+        }
+    }
+
+    /**
+     * Zakres [from, to) w posortowanej tablicy ID użytkowników.
+     * Z filtrem wzajemności size() jest górnym ograniczeniem - forEach pomija odrzuconych.
+     *
+     * @param filter Filtr pozycji w tablicy (null - wszystkie)
+     */
+    public record Slice(long[] userIds, int from, int to, IntPredicate filter) {
+
+        public Slice(long[] userIds, int from, int to) {
+            this(userIds, from, to, null);
+        }
+
+        public int size() {
+            return to - from;
+        }
+
+        public void forEach(LongConsumer consumer) {
+            for (int i = from; i < to; i++) {
+                if (filter == null || filter.test(i)) {
+                    consumer.accept(userIds[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Kubełek jednej płci: równoległe tablice posortowane rosnąco po dniu urodzenia.
+     * preferences - spakowane preferencje (NO_PREFERENCE gdy brak), współrzędne NaN gdy brak.
+     */
+    record Bucket(int[] birthDays, long[] userIds, int[] preferences, float[] latitudes, float[] longitudes) {
+
+        Slice slice(int fromDay, int toDay, IntPredicate filter) {
+            int from = lowerBound(birthDays, fromDay);
+            int to = toDay >= fromDay ? lowerBound(birthDays, toDay + 1) : from;
+            return new Slice(userIds, from, to, filter);
+        }
+
+        /**
+         * Czy szukający mieści się w preferencjach kandydata na pozycji i.
+         * Wiek szukającego liczony raz na zapytanie; dystans tylko gdy obie strony mają współrzędne
+         * (jak w generatorze - brak współrzędnych nie wyklucza).
+         */
+        IntPredicate reciprocalFilter(Searcher searcher, LocalDate today) {
+            int searcherGender = searcher.gender() != null ? searcher.gender().ordinal() : -1;
+            int searcherAge = Period.between(searcher.birthDate(), today).getYears();
+            boolean located = searcher.hasCoordinates();
+            return i -> {
+                int preference = preferences[i];
+                if (preference == NO_PREFERENCE) {
+                    return true;
+                }
+                if (preferredGenderOrdinal(preference) != searcherGender
+                        || searcherAge < minAge(preference)
+                        || searcherAge > maxAge(preference)) {
+                    return false;
+                }
+                if (!located || Float.isNaN(latitudes[i])) {
+                    return true;
+                }
+                return GeoDistance.haversineKm(searcher.latitude(), searcher.longitude(),
+                        latitudes[i], longitudes[i]) <= maxDistanceKm(preference);
+            };
+        }
+
+        /**
+         * Kopia bez wpisów na podanych pozycjach (tablica jest sortowana, powtórzenia pomijane).
+         * Ciągłe zakresy między usuwanymi pozycjami kopiowane są przez System.arraycopy.
+         */
+        Bucket without(int[] positions, int count) {
+            Arrays.sort(positions, 0, count);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || positions[i] != positions[i - 1]) {
+                    positions[distinct++] = positions[i];
+                }
+            }
+
+            int size = userIds.length - distinct;
+            Bucket result = new Bucket(new int[size], new long[size], new int[size], new float[size], new float[size]);
+            int from = 0;
+            int to = 0;
+            for (int i = 0; i < distinct; i++) {
+                int length = positions[i] - from;
+                result.copyRange(this, from, to, length);
+                to += length;
+                from = positions[i] + 1;
+            }
+            result.copyRange(this, from, to, userIds.length - from);
+            return result;
+        }
+
+        /**
+         * Kopia z własnymi tablicami preferencji i współrzędnych; dni i ID (układ kubełka) są współdzielone.
+         */
+        Bucket withCopiedAttributes() {
+            return new Bucket(birthDays, userIds, preferences.clone(), latitudes.clone(), longitudes.clone());
+        }
+
+        /**
+         * Scala dwa kubełki posortowane po dniu urodzenia (przy równym dniu najpierw wpisy tego kubełka).
+         */
+        Bucket merge(Bucket other) {
+            int size = userIds.length + other.userIds.length;
+            Bucket result = new Bucket(new int[size], new long[size], new int[size], new float[size], new float[size]);
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < size; k++) {
+                if (j == other.userIds.length || (i < userIds.length && birthDays[i] <= other.birthDays[j])) {
+                    result.copyFrom(this, i++, k);
+                } else {
+                    result.copyFrom(other, j++, k);
+                }
+            }
+            return result;
+        }
+
+        private void copyRange(Bucket source, int from, int to, int length) {
+            System.arraycopy(source.birthDays, from, birthDays, to, length);
+            System.arraycopy(source.userIds, from, userIds, to, length);
+            System.arraycopy(source.preferences, from, preferences, to, length);
+            System.arraycopy(source.latitudes, from, latitudes, to, length);
+            System.arraycopy(source.longitudes, from, longitudes, to, length);
+        }
+
+        private void copyAttributes(Bucket source, int from, int to) {
+            preferences[to] = source.preferences[from];
+            latitudes[to] = source.latitudes[from];
+            longitudes[to] = source.longitudes[from];
+        }
+
+        private void copyFrom(Bucket source, int from, int to) {
+            birthDays[to] = source.birthDays[from];
+            userIds[to] = source.userIds[from];
+            preferences[to] = source.preferences[from];
+            latitudes[to] = source.latitudes[from];
+            longitudes[to] = source.longitudes[from];
+        }
+
+        /**
+         * Pierwszy indeks i taki, że values[i] >= key.
+         */
+        private static int lowerBound(int[] values, int key) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Niemutowalny stan indeksu.
+     *
+     * @param positions Pozycje wszystkich wpisów w kubełkach
+     */
+    record Snapshot(Map<Gender, Bucket> buckets, int size, Positions positions) {
+
+        Snapshot(Map<Gender, Bucket> buckets, int size) {
+            this(buckets, size, Positions.of(buckets));
+        }
+
+        /**
+         * Kopia, w której wpisy {@code userIds} zastąpiono wpisami z {@code read}
+         * (użytkownik nieobecny w {@code read} znika z indeksu).
+         *
+         * Wpis z niezmienioną płcią i dniem urodzenia (zmiana preferencji lub lokalizacji) nadpisywany
+         * jest na swojej pozycji: kopiowane są tylko tablice preferencji i współrzędnych kubełka,
+         * a układ tablic i Positions pozostają współdzielone. Pozostałe wpisy są usuwane z pozycji
+         * wskazanych przez Positions i scalane na nowych miejscach.
+         */
+        Snapshot replace(Collection<Long> userIds, Snapshot read) {
+            Gender[] genders = Gender.values();
+            EnumMap<Gender, Bucket> result = new EnumMap<>(Gender.class);
+            result.putAll(buckets);
+            int[][] removed = new int[genders.length][];
+            int[] removedCount = new int[genders.length];
+            Builder moved = new Builder();
+            boolean structural = false;
+
+            for (long userId : new HashSet<>(userIds)) {
+                int current = positions.get(userId);
+                int replacement = read.positions().get(userId);
+                Bucket source = replacement != Positions.ABSENT
+                        ? read.buckets().get(genders[Positions.genderOrdinal(replacement)])
+                        : null;
+                int from = Positions.position(replacement);
+
+                if (current != Positions.ABSENT && replacement != Positions.ABSENT
+                        && Positions.genderOrdinal(current) == Positions.genderOrdinal(replacement)) {
+                    Gender gender = genders[Positions.genderOrdinal(current)];
+                    int position = Positions.position(current);
+                    Bucket bucket = result.get(gender);
+                    if (bucket.birthDays()[position] == source.birthDays()[from]) {
+                        if (bucket == buckets.get(gender)) {
+                            bucket = bucket.withCopiedAttributes();
+                            result.put(gender, bucket);
+                        }
+                        bucket.copyAttributes(source, from, position);
+                        continue;
+                    }
+                }
+
+                if (current != Positions.ABSENT) {
+                    int gender = Positions.genderOrdinal(current);
+                    if (removed[gender] == null) {
+                        removed[gender] = new int[userIds.size()];
+                    }
+                    removed[gender][removedCount[gender]++] = Positions.position(current);
+                    structural = true;
+                }
+                if (replacement != Positions.ABSENT) {
+                    moved.add(userId, genders[Positions.genderOrdinal(replacement)], source.birthDays()[from],
+                            source.preferences()[from], source.latitudes()[from], source.longitudes()[from]);
+                    structural = true;
+                }
+            }
+
+            if (!structural) {
+                return new Snapshot(result, size, positions);
+            }
+            for (Gender gender : genders) {
+                if (removedCount[gender.ordinal()] > 0) {
+                    result.put(gender, result.get(gender).without(removed[gender.ordinal()], removedCount[gender.ordinal()]));
+                }
+            }
+            moved.build().buckets().forEach((gender, bucket) -> result.merge(gender, bucket, Bucket::merge));
+
+            int total = 0;
+            for (Bucket bucket : result.values()) {
+                total += bucket.userIds().length;
+            }
+            return new Snapshot(result, total);
+        }
+    }
+
+    /**
+     * Pozycje wpisów snapshotu: userId -> spakowana płeć i pozycja w kubełku.
+     * Otwarte adresowanie na tablicach prymitywnych (long[] klucze, int[] wartości) - bez boxingu;
+     * współdzielone przez snapshoty o tym samym układzie kubełków.
+     */
+    static final class Positions {
+
+        static final int ABSENT = -1;
+
+        /**
+         * Pusty slot - ID w indeksie są nieujemne (Builder.add).
+         */
+        private static final long EMPTY = -1L;
+
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        private Positions(int size) {
+            int target = Math.max(2, size + (size >>> 1));
+            int capacity = Integer.highestOneBit(target - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(keys, EMPTY);
+        }
+
+        static Positions of(Map<Gender, Bucket> buckets) {
+            int size = 0;
+            for (Bucket bucket : buckets.values()) {
+                size += bucket.userIds().length;
+            }
+            Positions positions = new Positions(size);
+            for (Map.Entry<Gender, Bucket> entry : buckets.entrySet()) {
+                long[] userIds = entry.getValue().userIds();
+                int gender = entry.getKey().ordinal();
+                for (int i = 0; i < userIds.length; i++) {
+                    positions.put(userIds[i], i << GENDER_BITS | gender);
+                }
+            }
+            return positions;
+        }
+
+        /**
+         * Spakowana płeć i pozycja użytkownika albo ABSENT.
+         */
+        int get(long userId) {
+            int slot = slot(userId);
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == userId) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return ABSENT;
+        }
+
+        static int genderOrdinal(int value) {
+            return value & ((1 << GENDER_BITS) - 1);
+        }
+
+        static int position(int value) {
+            return value >>> GENDER_BITS;
+        }
+
+        private void put(long userId, int value) {
+            int slot = slot(userId);
+            while (keys[slot] != EMPTY && keys[slot] != userId) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = userId;
+            values[slot] = value;
+        }
+
+        private int slot(long userId) {
+            return (int) ((userId * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+
+    /**
+     * Builder indeksu. Pary (dzień urodzenia, pozycja wstawienia) pakowane są w jeden long,
+     * dzięki czemu sortowanie odbywa się na tablicy prymitywów; ID, preferencje
+     * i współrzędne przestawiane są po sortowaniu według pozycji.
+     */
+    public static final class Builder {
+
+        private static final int POSITION_BITS = 40;
+        private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+        private static final long MAX_USER_ID = (1L << 40) - 1;
+        private static final int DAY_OFFSET = 1 << 20;
+
+        private final EnumMap<Gender, BucketBuilder> buckets = new EnumMap<>(Gender.class);
+
+        public Builder add(long userId, Gender gender, LocalDate birthDate) {
+            return add(userId, gender, (int) birthDate.toEpochDay());
+        }
+
+        public Builder add(long userId, Gender gender, int birthEpochDay) {
+            return add(userId, gender, birthEpochDay, NO_PREFERENCE, Float.NaN, Float.NaN);
+        }
+
+        public Builder add(long userId, Gender gender, LocalDate birthDate, int preference,
+                           Double latitude, Double longitude) {
+            boolean located = latitude != null && longitude != null;
+            return add(userId, gender, (int) birthDate.toEpochDay(), preference,
+                    located ? latitude.floatValue() : Float.NaN, located ? longitude.floatValue() : Float.NaN);
+        }
+
+        public Builder add(long userId, Gender gender, int birthEpochDay, int preference,
+                           float latitude, float longitude) {
+            if (userId < 0 || userId > MAX_USER_ID) {
+                throw new IllegalArgumentException("User id out of index range: " + userId);
+            }
+            buckets.computeIfAbsent(gender, g -> new BucketBuilder())
+                    .add(userId, birthEpochDay, preference, latitude, longitude);
+            return this;
+        }
+
+        Snapshot build() {
+            EnumMap<Gender, Bucket> built = new EnumMap<>(Gender.class);
+            int total = 0;
+            for (Map.Entry<Gender, BucketBuilder> entry : buckets.entrySet()) {
+                Bucket bucket = entry.getValue().build();
+                built.put(entry.getKey(), bucket);
+                total += bucket.userIds().length;
+            }
+            return new Snapshot(built, total);
+        }
+
+        /**
+         * Rosnące tablice jednego kubełka w kolejności wstawiania.
+         */
+        private static final class BucketBuilder {
+
+            private long[] keys = new long[1024];
+            private long[] userIds = new long[1024];
+            private int[] preferences = new int[1024];
+            private float[] latitudes = new float[1024];
+            private float[] longitudes = new float[1024];
+            private int size;
+
+            private void add(long userId, int birthEpochDay, int preference, float latitude, float longitude) {
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size * 2);
+                    userIds = Arrays.copyOf(userIds, size * 2);
+                    preferences = Arrays.copyOf(preferences, size * 2);
+                    latitudes = Arrays.copyOf(latitudes, size * 2);
+                    longitudes = Arrays.copyOf(longitudes, size * 2);
+                }
+                keys[size] = ((long) (birthEpochDay + DAY_OFFSET) << POSITION_BITS) | size;
+                userIds[size] = userId;
+                preferences[size] = preference;
+                latitudes[size] = latitude;
+                longitudes[size] = longitude;
+                size++;
+            }
+
+            private Bucket build() {
+                Arrays.sort(keys, 0, size);
+
+                int[] sortedDays = new int[size];
+                long[] sortedIds = new long[size];
+                int[] sortedPreferences = new int[size];
+                float[] sortedLatitudes = new float[size];
+                float[] sortedLongitudes = new float[size];
+                for (int i = 0; i < size; i++) {
+                    int position = (int) (keys[i] & POSITION_MASK);
+                    sortedDays[i] = (int) (keys[i] >>> POSITION_BITS) - DAY_OFFSET;
+                    sortedIds[i] = userIds[position];
+                    sortedPreferences[i] = preferences[position];
+                    sortedLatitudes[i] = latitudes[position];
+                    sortedLongitudes[i] = longitudes[position];
+                }
+                return new Bucket(sortedDays, sortedIds, sortedPreferences, sortedLatitudes, sortedLongitudes);
+            }
+        }
+    }
+}
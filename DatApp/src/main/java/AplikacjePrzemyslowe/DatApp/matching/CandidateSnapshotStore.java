@@ -0,0 +1,142 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Krótkotrwałe snapshoty rankingu kandydatów dla stronicowania kursorem.
+ *
+ * Pierwsza strona tworzy snapshot (ID kandydatów + score w kolejności rankingu),
+ * kolejne strony czytają go bez ponownego filtrowania i scoringu. Snapshot żyje
+ * przez ttl; suma rozmiarów ograniczona jest przez memory-budget - ponad limit
+ * usuwane są najstarsze snapshoty.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CandidateSnapshotStore {
+
+    private final MatchingProperties properties;
+
+    private final SecureRandom random = new SecureRandom();
+
+    // Kolejność utworzenia - dostęp tylko pod synchronized (snapshots)
+    private final LinkedHashMap<Long, Snapshot> snapshots = new LinkedHashMap<>();
+    private long usedBytes;
+
+    /**
+     * Maksymalna liczba kandydatów w jednym snapshocie.
+     */
+    public int maxCandidates() {
+        return properties.getSnapshot().getMaxCandidates();
+    }
+
+    /**
+     * Zapisuje nowy snapshot rankingu.
+     *
+     * @param totalCandidates Liczba wszystkich kandydatów (także spoza snapshotu)
+     * @return Snapshot z nadanym ID
+     */
+    public Snapshot create(long userId, long totalCandidates, long[] candidateIds,
+                           int[] scores, int[] commonInterests, double[] distances) {
+        long budget = properties.getSnapshot().getMemoryBudget().toBytes();
+        int evicted = 0;
+        synchronized (snapshots) {
+            long id;
+            do {
+                id = random.nextLong();
+            } while (snapshots.containsKey(id));
+
+            Snapshot snapshot = new Snapshot(id, userId, System.nanoTime(), totalCandidates,
+                    candidateIds, scores, commonInterests, distances);
+            snapshots.put(id, snapshot);
+            usedBytes += snapshot.memoryBytes();
+
+            Iterator<Snapshot> oldest = snapshots.values().iterator();
+            while (usedBytes > budget && oldest.hasNext()) {
+                Snapshot candidate = oldest.next();
+                if (candidate == snapshot) {
+                    break;
+                }
+                usedBytes -= candidate.memoryBytes();
+                oldest.remove();
+                evicted++;
+            }
+            if (evicted > 0) {
+                log.debug("Evicted {} candidate snapshots (memory budget {} bytes)", evicted, budget);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Zwraca snapshot należący do użytkownika albo null (nieznany, wygasły, cudzy).
+     */
+    public Snapshot get(long snapshotId, long userId) {
+        synchronized (snapshots) {
+            Snapshot snapshot = snapshots.get(snapshotId);
+            if (snapshot == null || snapshot.userId() != userId) {
+                return null;
+            }
+            if (isExpired(snapshot, System.nanoTime())) {
+                snapshots.remove(snapshotId);
+                usedBytes -= snapshot.memoryBytes();
+                return null;
+            }
+            return snapshot;
+        }
+    }
+
+    public int size() {
+        synchronized (snapshots) {
+            return snapshots.size();
+        }
+    }
+
+    /**
+     * Usuwa wygasłe snapshoty.
+     */
+    @Scheduled(fixedDelayString = "${matching.snapshot.ttl:PT5M}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        synchronized (snapshots) {
+            // Kolejność utworzenia - wygasłe są na początku
+            Iterator<Snapshot> oldest = snapshots.values().iterator();
+            while (oldest.hasNext()) {
+                Snapshot snapshot = oldest.next();
+                if (!isExpired(snapshot, now)) {
+                    break;
+                }
+                usedBytes -= snapshot.memoryBytes();
+                oldest.remove();
+            }
+        }
+    }
+
+    private boolean isExpired(Snapshot snapshot, long now) {
+        return now - snapshot.createdNanos() > properties.getSnapshot().getTtl().toNanos();
+    }
+
+    /**
+     * Ranking w tablicach prymitywów - pozycja i to ID kandydata, jego score,
+     * liczba wspólnych zainteresowań i dystans. Tablice nie mogą być modyfikowane.
+     */
+    public record Snapshot(long id, long userId, long createdNanos, long totalCandidates,
+                           long[] candidateIds, int[] scores, int[] commonInterests, double[] distances) {
+
+        public int size() {
+            return candidateIds.length;
+        }
+
+        long memoryBytes() {
+            return 96L + (long) candidateIds.length * (Long.BYTES + Integer.BYTES * 2 + Double.BYTES);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import java.time.Duration;
+
+/**
+ * Budżet czasu jednego żądania dopasowań (matching.pipeline.time-budget).
+ *
+ * Etapy pipeline'u sprawdzają isExpired() między etapami i co CHECK_INTERVAL kandydatów
+ * w scoringu; pierwsze sprawdzenie po terminie zapamiętuje przekroczenie (wasExceeded),
+ * więc po rankingu wiadomo, czy część pracy została pominięta.
+ *
+ * Thread-safe - sprawdzany także z wątków ParallelRanker. Jedna instancja na jedno żądanie.
+ */
+public final class Deadline {
+
+    /**
+     * Co ilu kandydatów pętla scoringu sprawdza termin (System.nanoTime nie per kandydat).
+     */
+    public static final int CHECK_INTERVAL = 64;
+
+    /**
+     * Brak limitu czasu (zadania w tle, stronicowanie).
+     */
+    public static final Deadline NONE = new Deadline(0L, false);
+
+    private final long deadlineNanos;
+    private final boolean bounded;
+    private volatile boolean exceeded;
+
+    private Deadline(long deadlineNanos, boolean bounded) {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+    }
+
+    /**
+     * Termin {@code budget} od teraz; budżet zerowy lub ujemny oznacza brak limitu.
+     */
+    public static Deadline after(Duration budget) {
+        if (budget == null || budget.isZero() || budget.isNegative()) {
+            return NONE;
+        }
+        return new Deadline(System.nanoTime() + budget.toNanos(), true);
+    }
+
+    /**
+     * Czy termin minął. Pierwszy wynik true jest zapamiętywany.
+     */
+    public boolean isExpired() {
+        if (!bounded) {
+            return false;
+        }
+        if (!exceeded && System.nanoTime() - deadlineNanos >= 0) {
+            exceeded = true;
+        }
+        return exceeded;
+    }
+
+    /**
+     * Czy termin w ogóle obowiązuje (false dla NONE).
+     */
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    /**
+     * Czy któreś sprawdzenie trafiło po terminie (część pracy mogła zostać pominięta).
+     */
+    public boolean wasExceeded() {
+        return exceeded;
+    }
+}
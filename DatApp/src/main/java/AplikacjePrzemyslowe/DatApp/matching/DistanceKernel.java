@@ -0,0 +1,177 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Wsadowe liczenie dystansu (Haversine) od jednego punktu do wielu punktów GeoPoints.
+ *
+ * Jeśli JVM uruchomiono z {@code --add-modules jdk.incubator.vector}, a procesor ma
+ * rejestry SIMD na co najmniej 2 double, obliczenia idą przez VectorDistanceKernel
+ * (Vector API). W przeciwnym razie używana jest pętla skalarna z tym samym wzorem.
+ *
+ * withinRadiusKm przed dokładnym Haversine sprawdza tani pre-filtr: przybliżenie
+ * równoodległościowe (małe kąty, bez sin/asin) obniżone do ścisłego dolnego
+ * ograniczenia dystansu. Punkt odrzucony przez pre-filtr na pewno leży poza promieniem.
+ */
+@Slf4j
+public final class DistanceKernel {
+
+    /**
+     * Wartość w tablicy wynikowej dla punktów poza promieniem.
+     */
+    public static final double OUTSIDE = Double.POSITIVE_INFINITY;
+
+    private static final double TWO_PI = 2 * Math.PI;
+    private static final double ONE_SIXTH = 1.0 / 6.0;
+
+    private static final boolean VECTORIZED = detectVectorApi();
+
+    private DistanceKernel() {
+    }
+
+    /**
+     * Czy obliczenia idą przez Vector API.
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Dystans w km od punktu (stopnie) do każdego z punktów.
+     *
+     * @param out Tablica wynikowa, co najmniej points.size() elementów
+     */
+    public static void haversineKm(double latitudeDeg, double longitudeDeg, GeoPoints points, double[] out) {
+        if (VECTORIZED) {
+            VectorDistanceKernel.haversineKm(latitudeDeg, longitudeDeg, points, out);
+        } else {
+            haversineKmScalar(latitudeDeg, longitudeDeg, points, out);
+        }
+    }
+
+    /**
+     * Dystans w km do punktów w promieniu; dla pozostałych wpisuje {@link #OUTSIDE}.
+     *
+     * @param out Tablica wynikowa, co najmniej points.size() elementów
+     * @return Liczba punktów w promieniu
+     */
+    public static int withinRadiusKm(double latitudeDeg, double longitudeDeg, GeoPoints points,
+                                     double radiusKm, double[] out) {
+        if (VECTORIZED) {
+            return VectorDistanceKernel.withinRadiusKm(latitudeDeg, longitudeDeg, points, radiusKm, out);
+        }
+        return withinRadiusKmScalar(latitudeDeg, longitudeDeg, points, radiusKm, out);
+    }
+
+    // ========== SCALAR ==========
+
+    public static void haversineKmScalar(double latitudeDeg, double longitudeDeg, GeoPoints points, double[] out) {
+        double lat0 = Math.toRadians(latitudeDeg);
+        double lon0 = Math.toRadians(longitudeDeg);
+        double cos0 = Math.cos(lat0);
+        haversineKmScalar(lat0, lon0, cos0, points, 0, points.size(), out);
+    }
+
+    public static int withinRadiusKmScalar(double latitudeDeg, double longitudeDeg, GeoPoints points,
+                                           double radiusKm, double[] out) {
+        double lat0 = Math.toRadians(latitudeDeg);
+        double lon0 = Math.toRadians(longitudeDeg);
+        double cos0 = Math.cos(lat0);
+        return withinRadiusKmScalar(lat0, lon0, cos0, points, radiusKm, maxHaversineA(radiusKm), 0, points.size(), out);
+    }
+
+    /**
+     * Pętla skalarna na zakresie [from, to) - także ogon tablicy w VectorDistanceKernel.
+     */
+    static void haversineKmScalar(double lat0, double lon0, double cos0, GeoPoints points,
+                                  int from, int to, double[] out) {
+        double[] latitudes = points.latitudes();
+        double[] longitudes = points.longitudes();
+        double[] cosLatitudes = points.cosLatitudes();
+        for (int i = from; i < to; i++) {
+            double sinLat = Math.sin((latitudes[i] - lat0) * 0.5);
+            double sinLon = Math.sin((longitudes[i] - lon0) * 0.5);
+            out[i] = toKm(sinLat * sinLat + cos0 * cosLatitudes[i] * sinLon * sinLon);
+        }
+    }
+
+    static int withinRadiusKmScalar(double lat0, double lon0, double cos0, GeoPoints points, double radiusKm,
+                                    double maxA, int from, int to, double[] out) {
+        double[] latitudes = points.latitudes();
+        double[] longitudes = points.longitudes();
+        double[] cosLatitudes = points.cosLatitudes();
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            double dLat = Math.abs(latitudes[i] - lat0);
+            double dLon = wrapLongitudeDelta(Math.abs(longitudes[i] - lon0));
+            double cosProduct = cos0 * cosLatitudes[i];
+
+            // Pre-filtr: sin(y) >= y - y^3/6 dla y w [0, pi/2]
+            double lowLat = sinLowerBound(dLat * 0.5);
+            double lowLon = sinLowerBound(dLon * 0.5);
+            if (lowLat * lowLat + cosProduct * lowLon * lowLon > maxA) {
+                out[i] = OUTSIDE;
+                continue;
+            }
+
+            double sinLat = Math.sin(dLat * 0.5);
+            double sinLon = Math.sin(dLon * 0.5);
+            double distance = toKm(sinLat * sinLat + cosProduct * sinLon * sinLon);
+            if (distance <= radiusKm) {
+                out[i] = distance;
+                count++;
+            } else {
+                out[i] = OUTSIDE;
+            }
+        }
+        return count;
+    }
+
+    // ========== HELPERS ==========
+
+    /**
+     * Próg pre-filtra: wartość "a" Haversine odpowiadająca promieniowi
+     * (z marginesem na błędy zaokrągleń, żeby nie odrzucić punktu na granicy).
+     */
+    static double maxHaversineA(double radiusKm) {
+        double halfAngle = radiusKm / (2 * GeoDistance.EARTH_RADIUS_KM);
+        if (halfAngle >= Math.PI / 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double sin = Math.sin(halfAngle);
+        return sin * sin * (1 + 1e-9) + 1e-18;
+    }
+
+    /**
+     * Różnica długości |dLon| w [0, 2pi] sprowadzona do [0, pi] (krótsza droga).
+     */
+    static double wrapLongitudeDelta(double absDelta) {
+        return Math.min(absDelta, TWO_PI - absDelta);
+    }
+
+    /**
+     * Dolne ograniczenie sin(y) dla y w [0, pi/2].
+     */
+    static double sinLowerBound(double y) {
+        return y * (1 - y * y * ONE_SIXTH);
+    }
+
+    static double toKm(double haversineA) {
+        return 2 * GeoDistance.EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1.0, haversineA)));
+    }
+
+    private static boolean detectVectorApi() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.info("Distance kernel: scalar (start the JVM with --add-modules jdk.incubator.vector to vectorize)");
+            return false;
+        }
+        try {
+            boolean supported = VectorDistanceKernel.isSupported();
+            log.info("Distance kernel: {}", supported ? "Vector API (" + VectorDistanceKernel.lanes() + " lanes)" : "scalar");
+            return supported;
+        } catch (LinkageError e) {
+            log.warn("Vector API unavailable, using scalar distance kernel: {}", e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+/**
+ * Obliczenia odległości na kuli ziemskiej wspólne dla indeksu geo i scoringu.
+ */
+public final class GeoDistance {
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    /**
+     * Długość jednego stopnia szerokości geograficznej w km.
+     */
+    public static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    private GeoDistance() {
+    }
+
+    /**
+     * Dystans w km między dwoma punktami (Haversine formula), współrzędne w stopniach.
+     */
+    public static double haversineKm(double lat1Deg, double lon1Deg, double lat2Deg, double lon2Deg) {
+        double lat1 = Math.toRadians(lat1Deg);
+        double lon1 = Math.toRadians(lon1Deg);
+        double lat2 = Math.toRadians(lat2Deg);
+        double lon2 = Math.toRadians(lon2Deg);
+
+        double dLat = lat2 - lat1;
+        double dLon = lon2 - lon1;
+
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(lat1) * Math.cos(lat2) *
+                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return EARTH_RADIUS_KM * c;
+    }
+}
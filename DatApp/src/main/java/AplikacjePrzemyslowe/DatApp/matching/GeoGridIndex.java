@@ -0,0 +1,483 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indeks przestrzenny profili aktywnych użytkowników (siatka o stałym rozmiarze komórki).
+ *
+ * Świat podzielony jest na komórki {@value #CELL_DEG}° x {@value #CELL_DEG}°.
+ * Zapytanie o promień odwiedza tylko komórki przecinające prostokąt otaczający okrąg,
+ * a dla punktów w tych komórkach liczy dokładny dystans (Haversine) wsadowo przez DistanceKernel.
+ * Profile bez współrzędnych trafiają do osobnego kubełka - nie da się ich odfiltrować
+ * po dystansie, więc są zawsze dopuszczane (scoring przyjmuje dla nich dystans domyślny).
+ *
+ * Indeks jest niemutowalnym snapshotem podmienianym atomowo przy przebudowie.
+ * Między przebudowami zmiany zatwierdzonych danych (MatchingIndexUpdater) podmieniają
+ * snapshot na kopię z przeniesionymi punktami pojedynczych użytkowników.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GeoGridIndex {
+
+    static final double CELL_DEG = 0.1;
+    private static final int LAT_CELLS = (int) Math.round(180 / CELL_DEG);
+    private static final int LON_CELLS = (int) Math.round(360 / CELL_DEG);
+
+    private final UserJdbcDao userJdbcDao;
+    private final Object updateLock = new Object();
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Stan bazy, który odzwierciedla snapshot: start ostatniej przebudowy albo znacznik pliku,
+     * z którego snapshot odtworzono (zmiany późniejsze docierają przyrostowo).
+     */
+    private volatile LocalDateTime builtAt;
+
+    /**
+     * Użytkownicy odświeżeni w trakcie trwającej przebudowy (null - przebudowa nie trwa).
+     * Chroniony przez updateLock.
+     */
+    private Set<Long> changedDuringRebuild;
+
+    // ========== QUERY ==========
+
+    /**
+     * Sprawdza czy indeks został już zbudowany.
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Liczba zaindeksowanych profili (ze współrzędnymi i bez).
+     */
+    public int size() {
+        Snapshot current = snapshot;
+        return current != null ? current.size() : 0;
+    }
+
+    /**
+     * Znajduje użytkowników w promieniu {@code radiusKm} od punktu.
+     *
+     * @param latitude Szerokość geograficzna środka (stopnie)
+     * @param longitude Długość geograficzna środka (stopnie)
+     * @param radiusKm Promień w km
+     * @return Wynik zapytania (pusty jeśli indeks nie jest zbudowany)
+     */
+    public Nearby findWithinRadius(double latitude, double longitude, double radiusKm) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return new Nearby(Set.of(), new long[0]);
+        }
+
+        Set<Long> located = new HashSet<>();
+        double[] distances = new double[current.maxCellSize()];
+
+        double dLat = radiusKm / GeoDistance.KM_PER_DEGREE;
+        int minLatCell = latCell(latitude - dLat);
+        int maxLatCell = latCell(latitude + dLat);
+
+        // Najmniejszy cosinus w pasie szerokości wyznacza największy zasięg w długości
+        double maxAbsLat = Math.min(90.0, Math.abs(latitude) + dLat);
+        double cos = Math.cos(Math.toRadians(maxAbsLat));
+        double dLon = cos > 1e-9 ? radiusKm / (GeoDistance.KM_PER_DEGREE * cos) : 180.0;
+
+        int lonCellSpan;
+        int firstLonCell;
+        if (dLon >= 180.0) {
+            firstLonCell = 0;
+            lonCellSpan = LON_CELLS;
+        } else {
+            firstLonCell = lonCell(longitude - dLon);
+            lonCellSpan = Math.min(LON_CELLS,
+                    Math.floorMod(lonCell(longitude + dLon) - firstLonCell, LON_CELLS) + 1);
+        }
+
+        int visitedCells = 0;
+        for (int latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+            for (int i = 0; i < lonCellSpan; i++) {
+                // Zawijanie przez południk 180°
+                int lonCell = (firstLonCell + i) % LON_CELLS;
+                Cell cell = current.cells().get(cellKey(latCell, lonCell));
+                if (cell == null) {
+                    continue;
+                }
+                visitedCells++;
+                cell.collectWithin(latitude, longitude, radiusKm, distances, located);
+            }
+        }
+
+        log.debug("Geo grid query ({}, {}) r={}km: {} non-empty cells, {} users in radius",
+                latitude, longitude, radiusKm, visitedCells, located.size());
+
+        return new Nearby(located, current.withoutCoordinates());
+    }
+
+    // ========== INCREMENTAL UPDATES ==========
+
+    /**
+     * Odświeża punkty podanych użytkowników z aktualnego stanu bazy: usuwa je ze snapshotu
+     * i dodaje ponownie (nieaktywni i bez profilu nie wracają). Wywoływane po zatwierdzeniu
+     * zmiany lokalizacji lub aktywności konta - zamiast czekać na pełną przebudowę.
+     *
+     * Kopiowane są tylko komórki, których dotyczy zmiana (odszukanie starej komórki
+     * przegląda tablice ID - bez odwrotnej mapy użytkownik -> komórka). Zmiana zatwierdzona
+     * w trakcie przebudowy jest powtarzana na nowym snapshocie.
+     */
+    public void refreshUsers(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        synchronized (updateLock) {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.addAll(userIds);
+            }
+            Snapshot current = snapshot;
+            if (current != null) {
+                install(patch(current, userIds));
+            }
+        }
+    }
+
+    private Snapshot patch(Snapshot current, Collection<Long> userIds) {
+        Builder builder = new Builder();
+        userJdbcDao.streamProfileLocationsForIndex(userIds, rs -> addRow(builder, rs));
+        return current.without(new HashSet<>(userIds)).merge(builder.build());
+    }
+
+    // ========== BUILD ==========
+
+    /**
+     * Buduje indeks przy starcie aplikacji, o ile nie został już odtworzony z pliku (IndexSnapshotStore).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!isReady()) {
+            refresh();
+        }
+    }
+
+    /**
+     * Cyklicznie przebudowuje indeks (zmiany lokalizacji, nowe profile).
+     */
+    @Scheduled(fixedDelayString = "${matching.index.refresh-interval:PT5M}",
+               initialDelayString = "${matching.index.refresh-interval:PT5M}")
+    public void refresh() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Brak indeksu nie blokuje matchingu - dystans sprawdzany jest wtedy na encjach
+            log.warn("Geo grid index rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Przebudowuje indeks z tabeli profiles i podmienia snapshot.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        synchronized (updateLock) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        try {
+            Builder builder = new Builder();
+            userJdbcDao.streamProfileLocationsForIndex(rs -> addRow(builder, rs));
+            Snapshot built = builder.build();
+            synchronized (updateLock) {
+                // Zmiany zatwierdzone w trakcie odczytu mogły się w nim nie znaleźć
+                install(changedDuringRebuild.isEmpty() ? built : patch(built, changedDuringRebuild));
+                builtAt = startedAt;
+            }
+        } finally {
+            synchronized (updateLock) {
+                changedDuringRebuild = null;
+            }
+        }
+
+        log.info("Geo grid index rebuilt: {} profiles ({} without coordinates) in {} ms",
+                snapshot.size(), snapshot.withoutCoordinates().length, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Podmienia aktualny snapshot indeksu.
+     */
+    void install(Snapshot newSnapshot) {
+        this.snapshot = newSnapshot;
+    }
+
+    /**
+     * Instaluje snapshot odczytany z pliku, o ile indeks nie został jeszcze zbudowany.
+     *
+     * @param asOf Stan bazy zapisany w pliku
+     * @return true jeśli snapshot został zainstalowany
+     */
+    boolean restore(Snapshot restored, LocalDateTime asOf) {
+        synchronized (updateLock) {
+            if (snapshot != null) {
+                return false;
+            }
+            install(restored);
+            builtAt = asOf;
+            return true;
+        }
+    }
+
+    /**
+     * Aktualny snapshot (null przed zbudowaniem).
+     */
+    Snapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Stan bazy odzwierciedlany przez snapshot (null przed zbudowaniem).
+     */
+    LocalDateTime builtAt() {
+        return builtAt;
+    }
+
+    private static void addRow(Builder builder, ResultSet rs) throws SQLException {
+        builder.add(
+                rs.getLong("user_id"),
+                rs.getObject("latitude", Double.class),
+                rs.getObject("longitude", Double.class)
+        );
+    }
+
+    private static int latCell(double latitude) {
+        int cell = (int) Math.floor((latitude + 90.0) / CELL_DEG);
+        return Math.max(0, Math.min(LAT_CELLS - 1, cell));
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180.0) / CELL_DEG), LON_CELLS);
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return (long) latCell * LON_CELLS + lonCell;
+    }
+
+    // ========== DATA STRUCTURES ==========
+
+    /**
+     * Wynik zapytania: użytkownicy w promieniu + kubełek profili bez współrzędnych.
+     */
+    public record Nearby(Set<Long> located, long[] withoutCoordinates) {
+
+        /**
+         * Czy użytkownik jest w promieniu albo nie ma współrzędnych (fallback).
+         */
+        public boolean contains(long userId) {
+            return located.contains(userId) || Arrays.binarySearch(withoutCoordinates, userId) >= 0;
+        }
+    }
+
+    /**
+     * Komórka siatki: ID i spakowane współrzędne (GeoPoints) pod tymi samymi indeksami.
+     */
+    record Cell(long[] userIds, GeoPoints points) {
+
+        /**
+         * @param distances Bufor roboczy, co najmniej userIds.length elementów
+         */
+        void collectWithin(double latitude, double longitude, double radiusKm, double[] distances, Set<Long> result) {
+            if (DistanceKernel.withinRadiusKm(latitude, longitude, points, radiusKm, distances) == 0) {
+                return;
+            }
+            for (int i = 0; i < userIds.length; i++) {
+                if (distances[i] != DistanceKernel.OUTSIDE) {
+                    result.add(userIds[i]);
+                }
+            }
+        }
+
+        /**
+         * Kopia bez podanych użytkowników (ta sama komórka, gdy żadnego w niej nie ma).
+         */
+        Cell without(Set<Long> removed) {
+            int[] kept = new int[userIds.length];
+            int size = 0;
+            for (int i = 0; i < userIds.length; i++) {
+                if (!removed.contains(userIds[i])) {
+                    kept[size++] = i;
+                }
+            }
+            if (size == userIds.length) {
+                return this;
+            }
+
+            long[] ids = new long[size];
+            double[] latitudes = new double[size];
+            double[] longitudes = new double[size];
+            double[] cosLatitudes = new double[size];
+            for (int j = 0; j < size; j++) {
+                int i = kept[j];
+                ids[j] = userIds[i];
+                latitudes[j] = points.latitudes()[i];
+                longitudes[j] = points.longitudes()[i];
+                cosLatitudes[j] = points.cosLatitudes()[i];
+            }
+            return new Cell(ids, new GeoPoints(latitudes, longitudes, cosLatitudes));
+        }
+
+        /**
+         * Komórka z punktami obu komórek.
+         */
+        Cell merge(Cell other) {
+            return new Cell(concat(userIds, other.userIds),
+                    new GeoPoints(concat(points.latitudes(), other.points.latitudes()),
+                            concat(points.longitudes(), other.points.longitudes()),
+                            concat(points.cosLatitudes(), other.points.cosLatitudes())));
+        }
+
+        private static long[] concat(long[] a, long[] b) {
+            long[] result = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, result, a.length, b.length);
+            return result;
+        }
+
+        private static double[] concat(double[] a, double[] b) {
+            double[] result = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, result, a.length, b.length);
+            return result;
+        }
+    }
+
+    /**
+     * Niemutowalny stan indeksu.
+     */
+    record Snapshot(Map<Long, Cell> cells, long[] withoutCoordinates, int size, int maxCellSize) {
+
+        /**
+         * Kopia bez podanych użytkowników. maxCellSize pozostaje górnym ograniczeniem.
+         */
+        Snapshot without(Set<Long> userIds) {
+            Map<Long, Cell> result = new HashMap<>(cells);
+            int removed = 0;
+            for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+                Cell cell = entry.getValue();
+                Cell kept = cell.without(userIds);
+                if (kept == cell) {
+                    continue;
+                }
+                removed += cell.userIds().length - kept.userIds().length;
+                if (kept.userIds().length == 0) {
+                    result.remove(entry.getKey());
+                } else {
+                    result.put(entry.getKey(), kept);
+                }
+            }
+
+            long[] noCoordinates = Arrays.stream(withoutCoordinates)
+                    .filter(userId -> !userIds.contains(userId))
+                    .toArray();
+            removed += withoutCoordinates.length - noCoordinates.length;
+            return new Snapshot(result, noCoordinates, size - removed, maxCellSize);
+        }
+
+        /**
+         * Kopia uzupełniona o punkty {@code added} (użytkownicy nie mogą się powtarzać).
+         */
+        Snapshot merge(Snapshot added) {
+            if (added.size() == 0) {
+                return this;
+            }
+            Map<Long, Cell> result = new HashMap<>(cells);
+            int maxSize = maxCellSize;
+            for (Map.Entry<Long, Cell> entry : added.cells().entrySet()) {
+                Cell merged = result.merge(entry.getKey(), entry.getValue(), Cell::merge);
+                maxSize = Math.max(maxSize, merged.userIds().length);
+            }
+
+            long[] noCoordinates = Arrays.copyOf(withoutCoordinates,
+                    withoutCoordinates.length + added.withoutCoordinates().length);
+            System.arraycopy(added.withoutCoordinates(), 0, noCoordinates,
+                    withoutCoordinates.length, added.withoutCoordinates().length);
+            Arrays.sort(noCoordinates);
+            return new Snapshot(result, noCoordinates, size + added.size(), maxSize);
+        }
+    }
+
+    /**
+     * Builder indeksu - grupuje punkty po komórkach.
+     */
+    public static final class Builder {
+
+        private final Map<Long, CellBuilder> cells = new HashMap<>();
+        private long[] withoutCoordinates = new long[256];
+        private int withoutCoordinatesSize;
+        private int size;
+
+        public Builder add(long userId, Double latitude, Double longitude) {
+            size++;
+            if (latitude == null || longitude == null) {
+                if (withoutCoordinatesSize == withoutCoordinates.length) {
+                    withoutCoordinates = Arrays.copyOf(withoutCoordinates, withoutCoordinatesSize * 2);
+                }
+                withoutCoordinates[withoutCoordinatesSize++] = userId;
+                return this;
+            }
+            cells.computeIfAbsent(cellKey(latCell(latitude), lonCell(longitude)), k -> new CellBuilder())
+                    .add(userId, latitude, longitude);
+            return this;
+        }
+
+        Snapshot build() {
+            Map<Long, Cell> built = new HashMap<>(cells.size() * 2);
+            int maxCellSize = 0;
+            for (Map.Entry<Long, CellBuilder> entry : cells.entrySet()) {
+                Cell cell = entry.getValue().build();
+                built.put(entry.getKey(), cell);
+                maxCellSize = Math.max(maxCellSize, cell.userIds().length);
+            }
+
+            long[] noCoordinates = Arrays.copyOf(withoutCoordinates, withoutCoordinatesSize);
+            Arrays.sort(noCoordinates);
+            return new Snapshot(built, noCoordinates, size, maxCellSize);
+        }
+    }
+
+    private static final class CellBuilder {
+
+        private long[] userIds = new long[8];
+        private double[] latitudes = new double[8];
+        private double[] longitudes = new double[8];
+        private int size;
+
+        void add(long userId, double latitude, double longitude) {
+            if (size == userIds.length) {
+                userIds = Arrays.copyOf(userIds, size * 2);
+                latitudes = Arrays.copyOf(latitudes, size * 2);
+                longitudes = Arrays.copyOf(longitudes, size * 2);
+            }
+            userIds[size] = userId;
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            size++;
+        }
+
+        Cell build() {
+            return new Cell(Arrays.copyOf(userIds, size), GeoPoints.ofDegrees(latitudes, longitudes, size));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+/**
+ * Spakowane współrzędne punktów dla DistanceKernel.
+ *
+ * Równoległe tablice: szerokość i długość w radianach oraz cos(szerokości),
+ * liczone raz przy budowie - kernel nie wywołuje toRadians ani cos per punkt.
+ *
+ * @param latitudes  Szerokości geograficzne (radiany)
+ * @param longitudes Długości geograficzne (radiany)
+ * @param cosLatitudes cos(latitudes[i])
+ */
+public record GeoPoints(double[] latitudes, double[] longitudes, double[] cosLatitudes) {
+
+    public GeoPoints {
+        if (latitudes.length != longitudes.length || latitudes.length != cosLatitudes.length) {
+            throw new IllegalArgumentException("Coordinate arrays must have equal length");
+        }
+    }
+
+    /**
+     * Pakuje pierwsze {@code size} punktów podanych w stopniach.
+     */
+    public static GeoPoints ofDegrees(double[] latitudesDeg, double[] longitudesDeg, int size) {
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        double[] cosLatitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = Math.toRadians(latitudesDeg[i]);
+            longitudes[i] = Math.toRadians(longitudesDeg[i]);
+            cosLatitudes[i] = Math.cos(latitudes[i]);
+        }
+        return new GeoPoints(latitudes, longitudes, cosLatitudes);
+    }
+
+    public int size() {
+        return latitudes.length;
+    }
+}
@@ -0,0 +1,330 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.entity.Gender;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Binarny format pliku ze snapshotem indeksów silnika dopasowań (IndexSnapshotStore).
+ *
+ * Układ pliku (little-endian):
+ * - nagłówek {@value #HEADER_BYTES} B: magic, wersja formatu, stan bazy (asOf), epoka bazy
+ *   (MIN(users.created_at), {@link Long#MIN_VALUE} dla pustej tabeli), długość danych, CRC32C danych
+ * - CandidateIndex: kubełki płci z równoległymi tablicami (dni urodzenia, ID, preferencje, współrzędne)
+ * - GeoGridIndex: profile bez współrzędnych, komórki (klucz, ID, radiany, cos szerokości)
+ * - InterestBitsetIndex: pary (ID użytkownika, bitset)
+ *
+ * Plik jest zapisywany i czytany przez mapowanie pamięci; tablice kopiowane są blokami
+ * przez widoki (LongBuffer, IntBuffer...), bez parsowania per element. Zapis idzie do pliku
+ * tymczasowego przenoszonego atomowo, więc czytający nigdy nie widzi pliku w połowie zapisu.
+ * Znaczniki czasu zapisywane są z dokładnością do sekundy.
+ */
+final class IndexSnapshotFile {
+
+    static final int MAGIC = 0x44415849;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 40;
+
+    private static final long NO_EPOCH = Long.MIN_VALUE;
+
+    private IndexSnapshotFile() {
+    }
+
+    /**
+     * Zawartość pliku.
+     *
+     * @param asOf       Stan bazy odzwierciedlany przez indeksy
+     * @param usersEpoch MIN(users.created_at) bazy, z której zbudowano indeksy (null - pusta tabela)
+     */
+    record Contents(LocalDateTime asOf, LocalDateTime usersEpoch, CandidateIndex.Snapshot candidates,
+                    GeoGridIndex.Snapshot locations, Map<Long, long[]> interests) {
+    }
+
+    // ========== WRITE ==========
+
+    /**
+     * Zapisuje snapshot do pliku (przez plik tymczasowy i atomowe przeniesienie).
+     *
+     * @return Rozmiar pliku w bajtach
+     */
+    static long write(Path path, Contents contents) throws IOException {
+        long payloadBytes = candidatesBytes(contents.candidates())
+                + locationsBytes(contents.locations())
+                + interestsBytes(contents.interests());
+        if (HEADER_BYTES + payloadBytes > Integer.MAX_VALUE) {
+            throw new IOException("Index snapshot too large: " + payloadBytes + " bytes");
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + payloadBytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.position(HEADER_BYTES);
+            writeCandidates(buffer, contents.candidates());
+            writeLocations(buffer, contents.locations());
+            writeInterests(buffer, contents.interests());
+
+            CRC32C checksum = new CRC32C();
+            checksum.update(buffer.slice(HEADER_BYTES, (int) payloadBytes));
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            buffer.putLong(8, toEpochSecond(contents.asOf()));
+            buffer.putLong(16, contents.usersEpoch() != null ? toEpochSecond(contents.usersEpoch()) : NO_EPOCH);
+            buffer.putLong(24, payloadBytes);
+            buffer.putLong(32, checksum.getValue());
+            buffer.force();
+        }
+        Files.move(temp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+        return HEADER_BYTES + payloadBytes;
+    }
+
+    private static void writeCandidates(ByteBuffer buffer, CandidateIndex.Snapshot snapshot) {
+        buffer.putInt(snapshot.buckets().size());
+        for (Map.Entry<Gender, CandidateIndex.Bucket> entry : snapshot.buckets().entrySet()) {
+            CandidateIndex.Bucket bucket = entry.getValue();
+            buffer.putInt(entry.getKey().ordinal());
+            buffer.putInt(bucket.userIds().length);
+            putInts(buffer, bucket.birthDays());
+            putLongs(buffer, bucket.userIds());
+            putInts(buffer, bucket.preferences());
+            putFloats(buffer, bucket.latitudes());
+            putFloats(buffer, bucket.longitudes());
+        }
+    }
+
+    private static void writeLocations(ByteBuffer buffer, GeoGridIndex.Snapshot snapshot) {
+        buffer.putInt(snapshot.maxCellSize());
+        buffer.putInt(snapshot.withoutCoordinates().length);
+        putLongs(buffer, snapshot.withoutCoordinates());
+        buffer.putInt(snapshot.cells().size());
+        for (Map.Entry<Long, GeoGridIndex.Cell> entry : snapshot.cells().entrySet()) {
+            GeoGridIndex.Cell cell = entry.getValue();
+            buffer.putLong(entry.getKey());
+            buffer.putInt(cell.userIds().length);
+            putLongs(buffer, cell.userIds());
+            putDoubles(buffer, cell.points().latitudes());
+            putDoubles(buffer, cell.points().longitudes());
+            putDoubles(buffer, cell.points().cosLatitudes());
+        }
+    }
+
+    private static void writeInterests(ByteBuffer buffer, Map<Long, long[]> interests) {
+        buffer.putInt(interests.size());
+        for (Map.Entry<Long, long[]> entry : interests.entrySet()) {
+            buffer.putLong(entry.getKey());
+            buffer.putInt(entry.getValue().length);
+            putLongs(buffer, entry.getValue());
+        }
+    }
+
+    private static long candidatesBytes(CandidateIndex.Snapshot snapshot) {
+        long bytes = Integer.BYTES;
+        for (CandidateIndex.Bucket bucket : snapshot.buckets().values()) {
+            // płeć, rozmiar, dzień + ID + preferencje + 2 współrzędne
+            bytes += 2L * Integer.BYTES + (long) bucket.userIds().length * (Integer.BYTES + Long.BYTES
+                    + Integer.BYTES + 2 * Float.BYTES);
+        }
+        return bytes;
+    }
+
+    private static long locationsBytes(GeoGridIndex.Snapshot snapshot) {
+        long bytes = 3L * Integer.BYTES + (long) snapshot.withoutCoordinates().length * Long.BYTES;
+        for (GeoGridIndex.Cell cell : snapshot.cells().values()) {
+            // klucz, rozmiar, ID + 3 współrzędne
+            bytes += Long.BYTES + Integer.BYTES + (long) cell.userIds().length * (Long.BYTES + 3 * Double.BYTES);
+        }
+        return bytes;
+    }
+
+    private static long interestsBytes(Map<Long, long[]> interests) {
+        long bytes = Integer.BYTES;
+        for (long[] bits : interests.values()) {
+            bytes += Long.BYTES + Integer.BYTES + (long) bits.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    // ========== READ ==========
+
+    /**
+     * Mapuje plik i odczytuje snapshot, weryfikując nagłówek i sumę kontrolną.
+     *
+     * @throws IOException gdy pliku nie da się odczytać albo jest uszkodzony / w innej wersji formatu
+     */
+    static Contents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            long fileBytes = channel.size();
+            if (fileBytes < HEADER_BYTES || fileBytes > Integer.MAX_VALUE) {
+                throw new IOException("Invalid index snapshot size: " + fileBytes + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileBytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an index snapshot file: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported index snapshot format version: " + version);
+            }
+            LocalDateTime asOf = fromEpochSecond(buffer.getLong());
+            long usersEpoch = buffer.getLong();
+            long payloadBytes = buffer.getLong();
+            long expectedChecksum = buffer.getLong();
+            if (payloadBytes != fileBytes - HEADER_BYTES) {
+                throw new IOException("Index snapshot truncated: " + payloadBytes + " bytes declared, "
+                        + (fileBytes - HEADER_BYTES) + " present");
+            }
+
+            CRC32C checksum = new CRC32C();
+            checksum.update(buffer.slice(HEADER_BYTES, (int) payloadBytes));
+            if (checksum.getValue() != expectedChecksum) {
+                throw new IOException("Index snapshot checksum mismatch");
+            }
+
+            try {
+                return new Contents(asOf, usersEpoch != NO_EPOCH ? fromEpochSecond(usersEpoch) : null,
+                        readCandidates(buffer), readLocations(buffer), readInterests(buffer));
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                // Suma się zgadza, a układ nie - plik z niezgodnej wersji kodu
+                throw new IOException("Corrupted index snapshot: " + e, e);
+            }
+        }
+    }
+
+    private static CandidateIndex.Snapshot readCandidates(ByteBuffer buffer) {
+        Gender[] genders = Gender.values();
+        EnumMap<Gender, CandidateIndex.Bucket> buckets = new EnumMap<>(Gender.class);
+        int total = 0;
+        int bucketCount = buffer.getInt();
+        for (int b = 0; b < bucketCount; b++) {
+            int ordinal = buffer.getInt();
+            if (ordinal < 0 || ordinal >= genders.length) {
+                throw new IllegalArgumentException("gender ordinal " + ordinal);
+            }
+            int size = length(buffer);
+            buckets.put(genders[ordinal], new CandidateIndex.Bucket(getInts(buffer, size), getLongs(buffer, size),
+                    getInts(buffer, size), getFloats(buffer, size), getFloats(buffer, size)));
+            total += size;
+        }
+        return new CandidateIndex.Snapshot(buckets, total);
+    }
+
+    private static GeoGridIndex.Snapshot readLocations(ByteBuffer buffer) {
+        int maxCellSize = buffer.getInt();
+        long[] withoutCoordinates = getLongs(buffer, length(buffer));
+        int total = withoutCoordinates.length;
+        int cellCount = length(buffer);
+        Map<Long, GeoGridIndex.Cell> cells = new HashMap<>(cellCount * 2);
+        for (int c = 0; c < cellCount; c++) {
+            long key = buffer.getLong();
+            int size = length(buffer);
+            cells.put(key, new GeoGridIndex.Cell(getLongs(buffer, size), new GeoPoints(
+                    getDoubles(buffer, size), getDoubles(buffer, size), getDoubles(buffer, size))));
+            total += size;
+        }
+        return new GeoGridIndex.Snapshot(cells, withoutCoordinates, total, maxCellSize);
+    }
+
+    private static Map<Long, long[]> readInterests(ByteBuffer buffer) {
+        int users = length(buffer);
+        Map<Long, long[]> interests = new HashMap<>(users * 2);
+        for (int u = 0; u < users; u++) {
+            long userId = buffer.getLong();
+            interests.put(userId, getLongs(buffer, length(buffer)));
+        }
+        return interests;
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private static int length(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("array length " + length);
+        }
+        return length;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+    }
+
+    private static void putLongs(ByteBuffer buffer, long[] values) {
+        buffer.asLongBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Long.BYTES);
+    }
+
+    private static void putFloats(ByteBuffer buffer, float[] values) {
+        buffer.asFloatBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Float.BYTES);
+    }
+
+    private static void putDoubles(ByteBuffer buffer, double[] values) {
+        buffer.asDoubleBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Double.BYTES);
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int size) {
+        int[] values = new int[size];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + size * Integer.BYTES);
+        return values;
+    }
+
+    private static long[] getLongs(ByteBuffer buffer, int size) {
+        long[] values = new long[size];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + size * Long.BYTES);
+        return values;
+    }
+
+    private static float[] getFloats(ByteBuffer buffer, int size) {
+        float[] values = new float[size];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + size * Float.BYTES);
+        return values;
+    }
+
+    private static double[] getDoubles(ByteBuffer buffer, int size) {
+        double[] values = new double[size];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + size * Double.BYTES);
+        return values;
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,181 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Snapshot rezydentnych indeksów silnika dopasowań na dysku (szybki restart).
+ *
+ * Co matching.index-snapshot.write-interval indeksy CandidateIndex, GeoGridIndex
+ * i InterestBitsetIndex zapisywane są do pliku (IndexSnapshotFile). Przy starcie plik jest
+ * mapowany i instalowany zamiast pełnej przebudowy, a z bazy doczytywani są tylko użytkownicy
+ * zmienieni od znacznika snapshotu (updated_at). Usunięcia wierszy nie zostawiają śladu
+ * w updated_at - rozbieżna liczba aktywnych użytkowników wymusza przebudowę, a resztę
+ * naprawia cykliczna przebudowa indeksów.
+ *
+ * Plik z innej bazy (schema.sql odtwarza tabele przy każdym starcie) rozpoznawany jest
+ * po epoce tabeli users i pomijany. Każdy błąd odczytu oznacza zwykłą przebudowę.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndexSnapshotStore {
+
+    private static final int REPLAY_CHUNK_SIZE = 1_000;
+
+    private final MatchingProperties properties;
+    private final UserJdbcDao userJdbcDao;
+    private final CandidateIndex candidateIndex;
+    private final GeoGridIndex geoGridIndex;
+    private final InterestBitsetIndex interestBitsetIndex;
+
+    // ========== RESTORE ==========
+
+    /**
+     * Odtwarza indeksy z pliku przed ApplicationReadyEvent, na którym indeksy budują się od zera.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void onApplicationStarted() {
+        if (!properties.getIndexSnapshot().isEnabled()) {
+            return;
+        }
+        try {
+            restore();
+        } catch (IOException | RuntimeException e) {
+            // Bez snapshotu indeksy zbudują się od zera - wolniej, ale poprawnie
+            log.warn("Matching index snapshot restore failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Instaluje indeksy z pliku i doczytuje zmiany od jego zapisu.
+     *
+     * @return true jeśli indeksy zostały odtworzone z pliku
+     * @throws IOException gdy plik jest nieczytelny lub uszkodzony
+     */
+    public boolean restore() throws IOException {
+        long start = System.nanoTime();
+        Path path = Path.of(properties.getIndexSnapshot().getPath());
+        if (!Files.exists(path)) {
+            log.info("No matching index snapshot at {}", path);
+            return false;
+        }
+
+        IndexSnapshotFile.Contents contents = IndexSnapshotFile.read(path);
+        if (contents.asOf().isBefore(LocalDateTime.now().minus(properties.getIndexSnapshot().getMaxAge()))) {
+            log.info("Matching index snapshot from {} is too old, rebuilding", contents.asOf());
+            return false;
+        }
+        LocalDateTime usersEpoch = truncate(userJdbcDao.findUsersEpoch());
+        if (!Objects.equals(usersEpoch, contents.usersEpoch())) {
+            log.info("Matching index snapshot belongs to another database, rebuilding");
+            return false;
+        }
+
+        boolean restored = candidateIndex.restore(contents.candidates(), contents.asOf());
+        restored |= geoGridIndex.restore(contents.locations(), contents.asOf());
+        restored |= interestBitsetIndex.restore(contents.interests(), contents.asOf());
+        if (!restored) {
+            return false;
+        }
+
+        List<Long> changed = userJdbcDao.findUserIdsChangedSince(
+                contents.asOf().minus(properties.getIndexSnapshot().getReplayMargin()));
+        for (int from = 0; from < changed.size(); from += REPLAY_CHUNK_SIZE) {
+            List<Long> chunk = changed.subList(from, Math.min(from + REPLAY_CHUNK_SIZE, changed.size()));
+            candidateIndex.refreshUsers(chunk);
+            geoGridIndex.refreshUsers(chunk);
+            interestBitsetIndex.reload(chunk);
+        }
+
+        int activeUsers = userJdbcDao.countActiveUsers();
+        if (candidateIndex.size() != activeUsers) {
+            // Usunięte konta nie mają updated_at - odtworzony indeks się rozjechał
+            log.info("Matching index snapshot diverged ({} indexed, {} active users), rebuilding",
+                    candidateIndex.size(), activeUsers);
+            candidateIndex.refresh();
+            geoGridIndex.refresh();
+        }
+
+        log.info("Matching indexes restored from snapshot of {}: {} users, {} changed since, in {} ms",
+                contents.asOf(), candidateIndex.size(), changed.size(), (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    // ========== WRITE ==========
+
+    /**
+     * Cyklicznie zapisuje snapshot indeksów.
+     */
+    @Scheduled(fixedDelayString = "${matching.index-snapshot.write-interval:PT15M}",
+               initialDelayString = "${matching.index-snapshot.write-interval:PT15M}")
+    public void writeScheduled() {
+        if (!properties.getIndexSnapshot().isEnabled()) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            // Poprzedni plik zostaje nietknięty (zapis przez plik tymczasowy)
+            log.warn("Matching index snapshot write failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Zapisuje aktualne indeksy do pliku.
+     * Znacznik pliku to najstarszy ze stanów indeksów, odczytany przed samymi indeksami -
+     * zmiany nowsze od znacznika są najwyżej odtworzone ponownie przy starcie.
+     *
+     * @return false jeśli któryś z indeksów nie jest jeszcze zbudowany
+     */
+    public synchronized boolean write() throws IOException {
+        long start = System.nanoTime();
+        LocalDateTime candidatesAsOf = candidateIndex.builtAt();
+        LocalDateTime locationsAsOf = geoGridIndex.builtAt();
+        LocalDateTime interestsAsOf = interestBitsetIndex.loadedAt();
+        CandidateIndex.Snapshot candidates = candidateIndex.current();
+        GeoGridIndex.Snapshot locations = geoGridIndex.current();
+        Map<Long, long[]> interests = interestBitsetIndex.entries();
+        if (candidatesAsOf == null || locationsAsOf == null || interestsAsOf == null
+                || candidates == null || locations == null) {
+            return false;
+        }
+
+        LocalDateTime asOf = min(candidatesAsOf, min(locationsAsOf, interestsAsOf));
+        Path path = Path.of(properties.getIndexSnapshot().getPath());
+        long bytes = IndexSnapshotFile.write(path, new IndexSnapshotFile.Contents(
+                asOf, truncate(userJdbcDao.findUsersEpoch()), candidates, locations, interests));
+
+        log.info("Matching index snapshot written to {}: {} users, {} KB in {} ms",
+                path, candidates.size(), bytes / 1024, (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * Plik przechowuje czas z dokładnością do sekundy.
+     */
+    private static LocalDateTime truncate(LocalDateTime time) {
+        return time != null ? time.truncatedTo(ChronoUnit.SECONDS) : null;
+    }
+}
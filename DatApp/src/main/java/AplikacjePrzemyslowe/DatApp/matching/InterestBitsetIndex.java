@@ -0,0 +1,222 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zainteresowania profili trzymane w pamięci jako bitsety indeksowane po interest_id.
+ *
+ * Liczenie wspólnych zainteresowań to AND słów + popcount (Long.bitCount),
+ * zamiast zapytania InterestRepository.countCommonInterests dla każdej pary.
+ * Indeks ładowany jest raz przy starcie (z bazy albo z pliku IndexSnapshotStore), a potem
+ * aktualizowany przez MatchingIndexUpdater po każdej zatwierdzonej zmianie zainteresowań. Tablice są niemutowalne (copy-on-write per użytkownik).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InterestBitsetIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final UserJdbcDao userJdbcDao;
+
+    private final Map<Long, long[]> bitsByUser = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    /**
+     * Stan bazy, od którego indeks jest aktualizowany przyrostowo (start ładowania albo znacznik pliku).
+     */
+    private volatile LocalDateTime loadedAt;
+
+    // ========== QUERY ==========
+
+    /**
+     * Sprawdza czy indeks został załadowany z bazy.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Zwraca bitset zainteresowań użytkownika (pusty jeśli brak).
+     * Zwrócona tablica nie może być modyfikowana.
+     */
+    public long[] bitsOf(long userId) {
+        return bitsByUser.getOrDefault(userId, EMPTY);
+    }
+
+    /**
+     * Liczy wspólne zainteresowania między bitsetem a użytkownikiem z indeksu.
+     */
+    public int countCommon(long[] bits, long otherUserId) {
+        return countCommon(bits, bitsOf(otherUserId));
+    }
+
+    /**
+     * Liczy wspólne zainteresowania dwóch bitsetów (AND + popcount).
+     */
+    public static int countCommon(long[] a, long[] b) {
+        int words = Math.min(a.length, b.length);
+        int count = 0;
+        for (int i = 0; i < words; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    // ========== UPDATE ==========
+
+    /**
+     * Zastępuje zainteresowania użytkownika (wywoływane po zmianach w ProfileService).
+     */
+    public void put(long userId, Collection<Long> interestIds) {
+        long[] bits = toBits(interestIds);
+        if (bits.length == 0) {
+            bitsByUser.remove(userId);
+        } else {
+            bitsByUser.put(userId, bits);
+        }
+    }
+
+    /**
+     * Usuwa wszystkie zainteresowania użytkownika z indeksu.
+     */
+    public void remove(long userId) {
+        bitsByUser.remove(userId);
+    }
+
+    /**
+     * Buduje bitset z listy ID zainteresowań (ID null są pomijane).
+     */
+    public static long[] toBits(Collection<Long> interestIds) {
+        long[] bits = EMPTY;
+        for (Long interestId : interestIds) {
+            if (interestId != null) {
+                bits = withBit(bits, interestId);
+            }
+        }
+        return bits;
+    }
+
+    private static long[] withBit(long[] bits, long interestId) {
+        if (interestId < 0) {
+            throw new IllegalArgumentException("Interest id must not be negative: " + interestId);
+        }
+        int word = (int) (interestId >>> 6);
+        long[] result = word < bits.length ? bits : Arrays.copyOf(bits, word + 1);
+        result[word] |= 1L << interestId;
+        return result;
+    }
+
+    // ========== LOAD ==========
+
+    /**
+     * Ładuje indeks przy starcie aplikacji, o ile nie został już odtworzony z pliku (IndexSnapshotStore).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (ready) {
+            return;
+        }
+        try {
+            load();
+        } catch (RuntimeException e) {
+            // Bez indeksu silnik liczy wspólne zainteresowania zapytaniami (wolniej, ale poprawnie)
+            log.warn("Interest bitset index load failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ładuje zainteresowania wszystkich profili jednym zapytaniem.
+     * Wpisy dodane przez put() w trakcie ładowania mają pierwszeństwo (są nowsze).
+     */
+    public synchronized void load() {
+        long start = System.nanoTime();
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        Map<Long, long[]> loaded = new HashMap<>();
+        userJdbcDao.streamUserInterests(rs -> loaded.merge(
+                rs.getLong("user_id"),
+                withBit(EMPTY, rs.getLong("interest_id")),
+                InterestBitsetIndex::or
+        ));
+        loaded.forEach(bitsByUser::putIfAbsent);
+        loadedAt = startedAt;
+        ready = true;
+
+        log.info("Interest bitset index loaded: {} profiles in {} ms",
+                loaded.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Przeładowuje z bazy zainteresowania podanych użytkowników (odtwarzanie zmian po starcie z pliku).
+     */
+    public void reload(Collection<Long> userIds) {
+        Map<Long, long[]> loaded = new HashMap<>();
+        userJdbcDao.streamUserInterests(userIds, rs -> loaded.merge(
+                rs.getLong("user_id"),
+                withBit(EMPTY, rs.getLong("interest_id")),
+                InterestBitsetIndex::or
+        ));
+        for (Long userId : userIds) {
+            long[] bits = loaded.get(userId);
+            if (bits == null) {
+                bitsByUser.remove(userId);
+            } else {
+                bitsByUser.put(userId, bits);
+            }
+        }
+    }
+
+    /**
+     * Instaluje bitsety odczytane z pliku, o ile indeks nie został jeszcze załadowany.
+     *
+     * @param asOf Stan bazy zapisany w pliku
+     * @return true jeśli bitsety zostały zainstalowane
+     */
+    synchronized boolean restore(Map<Long, long[]> restored, LocalDateTime asOf) {
+        if (ready) {
+            return false;
+        }
+        restored.forEach(bitsByUser::putIfAbsent);
+        loadedAt = asOf;
+        ready = true;
+        return true;
+    }
+
+    /**
+     * Kopia wpisów indeksu do zapisu w pliku (tablice są współdzielone - niemutowalne).
+     */
+    Map<Long, long[]> entries() {
+        return new HashMap<>(bitsByUser);
+    }
+
+    /**
+     * Stan bazy, od którego indeks jest aktualizowany przyrostowo (null przed załadowaniem).
+     */
+    LocalDateTime loadedAt() {
+        return loadedAt;
+    }
+
+    private static long[] or(long[] a, long[] b) {
+        long[] longer = a.length >= b.length ? a : b;
+        long[] shorter = a.length >= b.length ? b : a;
+        long[] result = longer.clone();
+        for (int i = 0; i < shorter.length; i++) {
+            result[i] |= shorter[i];
+        }
+        return result;
+    }
+}
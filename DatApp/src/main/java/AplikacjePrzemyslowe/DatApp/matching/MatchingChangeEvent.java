@@ -0,0 +1,53 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import java.util.List;
+
+/**
+ * Zmiana danych użytkownika istotna dla rezydentnych indeksów silnika dopasowań.
+ *
+ * Publikowana przez serwisy w transakcji zapisu, a stosowana przez MatchingIndexUpdater
+ * dopiero po jej zatwierdzeniu - indeksy nigdy nie widzą stanu wycofanego rollbackiem.
+ */
+public sealed interface MatchingChangeEvent {
+
+    /**
+     * Użytkownik zmieniony przez zdarzenie (dla swipe'a - oceniający).
+     */
+    long userId();
+
+    /**
+     * Konto aktywowane (rejestracja, reaktywacja) albo dezaktywowane (także usunięte).
+     */
+    record UserActivationChanged(long userId, boolean active) implements MatchingChangeEvent {
+    }
+
+    /**
+     * Profil utworzony albo ze zmienionymi współrzędnymi.
+     */
+    record ProfileMoved(long userId) implements MatchingChangeEvent {
+    }
+
+    /**
+     * Nowy zestaw zainteresowań profilu (pusta lista - brak zainteresowań).
+     */
+    record InterestsChanged(long userId, List<Long> interestIds) implements MatchingChangeEvent {
+    }
+
+    /**
+     * Preferencje ustawione, zresetowane albo usunięte.
+     */
+    record PreferencesChanged(long userId) implements MatchingChangeEvent {
+    }
+
+    /**
+     * Zapisany swipe {@code userId -> swipedUserId}.
+     */
+    record SwipeRecorded(long userId, long swipedUserId) implements MatchingChangeEvent {
+    }
+
+    /**
+     * Zarchiwizowanym odrzuceniom użytkownika minęło okno drugiej szansy (pary zwolnione) - kandydaci wracają do puli.
+     */
+    record SwipesRecycled(long userId) implements MatchingChangeEvent {
+    }
+}
@@ -0,0 +1,89 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Przyrostowa aktualizacja rezydentnych indeksów silnika dopasowań.
+ *
+ * Zdarzenia MatchingChangeEvent stosowane są dopiero po zatwierdzeniu transakcji,
+ * która je opublikowała (AFTER_COMMIT) - po rollbacku nie docierają wcale. Zdarzenie
+ * opublikowane poza transakcją stosowane jest od razu. Pełne przebudowy indeksów
+ * pozostają siatką bezpieczeństwa dla zmian, których aktualizacja się nie powiodła.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MatchingIndexUpdater {
+
+    private final CandidateIndex candidateIndex;
+    private final GeoGridIndex geoGridIndex;
+    private final InterestBitsetIndex interestBitsetIndex;
+    private final SwipedUserCache swipedUserCache;
+    private final CandidateDeckStore candidateDeckStore;
+    private final TopPicksStore topPicksStore;
+
+    /**
+     * Stosuje zatwierdzoną zmianę w indeksach.
+     * Transakcja jest już zatwierdzona, więc błąd indeksu jest tylko logowany - nie może
+     * zamienić udanego zapisu w błąd żądania.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onChange(MatchingChangeEvent event) {
+        try {
+            apply(event);
+        } catch (RuntimeException e) {
+            log.warn("Matching index update failed for {} (repaired by next rebuild): {}", event, e.getMessage());
+        }
+    }
+
+    /**
+     * Talia unieważniana jest przed odświeżeniem indeksów (operacja w pamięci, bez bazy),
+     * więc nie przeżywa zmiany nawet wtedy, gdy odczyt do indeksu się nie powiedzie.
+     * Nocny ranking usuwany jest jeszcze przed talią - inaczej zimny start zdążyłby
+     * odbudować talię z rankingu policzonego według starych preferencji.
+     */
+    void apply(MatchingChangeEvent event) {
+        long userId = event.userId();
+        switch (event) {
+            case MatchingChangeEvent.UserActivationChanged changed -> {
+                if (!changed.active()) {
+                    candidateDeckStore.invalidate(userId);
+                }
+                candidateIndex.refreshUsers(List.of(userId));
+                geoGridIndex.refreshUsers(List.of(userId));
+            }
+            case MatchingChangeEvent.ProfileMoved moved -> {
+                topPicksStore.invalidate(userId);
+                candidateDeckStore.invalidate(userId);
+                // Współrzędne służą też filtrowi wzajemności w indeksie kandydatów
+                candidateIndex.refreshUsers(List.of(userId));
+                geoGridIndex.refreshUsers(List.of(userId));
+            }
+            case MatchingChangeEvent.InterestsChanged changed -> {
+                candidateDeckStore.invalidate(userId);
+                interestBitsetIndex.put(userId, changed.interestIds());
+            }
+            case MatchingChangeEvent.PreferencesChanged changed -> {
+                topPicksStore.invalidate(userId);
+                candidateDeckStore.invalidate(userId);
+                candidateIndex.refreshUsers(List.of(userId));
+            }
+            case MatchingChangeEvent.SwipeRecorded swipe -> {
+                // Oceniony kandydat znika z talii i trafia do zbioru ocenionych
+                candidateDeckStore.remove(userId, swipe.swipedUserId());
+                swipedUserCache.recordSwipe(userId, swipe.swipedUserId());
+            }
+            case MatchingChangeEvent.SwipesRecycled recycled -> {
+                // Zbiór ocenionych doczyta się bez zwolnionych swipe'ów, talia - z nimi w puli
+                candidateDeckStore.invalidate(userId);
+                swipedUserCache.invalidate(userId);
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache wyników scoringu par (szukający, kandydat): score, liczba wspólnych
+ * zainteresowań i dystans - kolejne rankingi tej samej pary nie liczą ich od nowa.
+ *
+ * Wpisy nie są jawnie unieważniane. Każdy pamięta wersje (@Version) profilu szukającego,
+ * jego preferencji i profilu kandydata, z którymi został policzony (Stamp). Aktualne wersje
+ * przychodzą tym samym zapytaniem co reszta danych do scoringu (ScoringContextLoader),
+ * więc po zmianie profilu, zdjęć, zainteresowań lub preferencji wpis po prostu nie pasuje (miss)
+ * i zostaje nadpisany nowym wynikiem.
+ *
+ * Rozmiar ograniczony przez max-entries - segmenty LRU, każdy pod własnym lockiem
+ * (ParallelRanker zapisuje wyniki z wielu wątków). Metryki w MeterRegistry:
+ * cache.gets (result=hit/miss), cache.evictions i cache.size z tagiem cache=pairScores.
+ */
+@Slf4j
+@Component
+public class PairScoreCache {
+
+    /**
+     * Wersja encji, której nie ma (brak profilu lub preferencji).
+     */
+    public static final long NO_VERSION = -1L;
+
+    static final String CACHE_NAME = "pairScores";
+
+    private static final int SEGMENTS = 16;
+
+    // Poniżej tej pojemności jeden segment - dokładne LRU dla małych limitów
+    private static final int MIN_SEGMENTED_ENTRIES = SEGMENTS * 64;
+
+    private final Segment[] segments;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public PairScoreCache(MatchingProperties properties, MeterRegistry meterRegistry) {
+        int maxEntries = Math.max(properties.getPairCache().getMaxEntries(), 0);
+        int segmentCount = maxEntries >= MIN_SEGMENTED_ENTRIES ? SEGMENTS : 1;
+
+        this.evictions = Counter.builder("cache.evictions")
+                .tag("cache", CACHE_NAME)
+                .description("Pair scores evicted over max-entries")
+                .register(meterRegistry);
+        this.hits = Counter.builder("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", "miss")
+                .register(meterRegistry);
+
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // Reszta z dzielenia trafia do pierwszych segmentów - suma pojemności równa max-entries
+            int capacity = maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0);
+            segments[i] = new Segment(capacity, evictions);
+        }
+
+        Gauge.builder("cache.size", this, PairScoreCache::size)
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+
+        log.info("Pair score cache: {} entries max in {} segment(s)", maxEntries, segmentCount);
+    }
+
+    // ========== QUERY ==========
+
+    public boolean isEnabled() {
+        return segments[0].capacity > 0;
+    }
+
+    /**
+     * Zwraca wynik pary policzony dla dokładnie tych wersji albo null (brak lub nieaktualny wpis).
+     */
+    public Entry get(long userId, long candidateId, Stamp stamp) {
+        if (!isEnabled()) {
+            return null;
+        }
+        PairKey key = new PairKey(userId, candidateId);
+        Segment segment = segmentOf(key);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.entries.get(key);
+        }
+        if (entry != null && entry.stamp().equals(stamp)) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Liczba par w cache (wszystkie segmenty).
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    // ========== UPDATE ==========
+
+    /**
+     * Zapisuje wynik pary (nadpisuje wpis dla starszych wersji).
+     * Ponad limit usuwana jest najdawniej używana para z segmentu.
+     */
+    public void put(long userId, long candidateId, Entry entry) {
+        if (!isEnabled()) {
+            return;
+        }
+        PairKey key = new PairKey(userId, candidateId);
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            segment.entries.put(key, entry);
+        }
+    }
+
+    private Segment segmentOf(PairKey key) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    // ========== INNER TYPES ==========
+
+    /**
+     * Wersje encji, z którymi policzono wynik pary.
+     *
+     * @param searcherProfileVersion  Wersja profilu szukającego
+     * @param preferenceVersion       Wersja preferencji szukającego
+     * @param candidateProfileVersion Wersja profilu kandydata
+     */
+    public record Stamp(long searcherProfileVersion, long preferenceVersion, long candidateProfileVersion) {
+    }
+
+    /**
+     * Wynik scoringu pary.
+     *
+     * @param score           Compatibility score
+     * @param commonInterests Liczba wspólnych zainteresowań
+     * @param distance        Dystans w km
+     * @param stamp           Wersje, z którymi policzono wynik
+     */
+    public record Entry(int score, int commonInterests, double distance, Stamp stamp) {
+    }
+
+    private record PairKey(long userId, long candidateId) {
+    }
+
+    /**
+     * Segment LRU - dostęp tylko pod synchronized (segment).
+     */
+    private static final class Segment {
+
+        private final int capacity;
+        private final LinkedHashMap<PairKey, Entry> entries;
+
+        private Segment(int capacity, Counter evictions) {
+            this.capacity = capacity;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<PairKey, Entry> eldest) {
+                    if (size() > Segment.this.capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Równoległy wybór K najlepszych elementów dla dużych pul kandydatów.
+ *
+ * Pula dzielona jest rekurencyjnie na fragmenty liczone na dedykowanej ForkJoinPool
+ * (nie commonPool - scoring nie konkuruje z parallel streams reszty aplikacji).
+ * Każdy fragment buduje własny częściowy TopKSelector, a wyniki scalane są
+ * w kolejności wejścia, więc ranking jest identyczny jak przy liczeniu sekwencyjnym.
+ * Poniżej progu parallel-threshold elementy liczone są w wątku wywołującym.
+ *
+ * Z podanym Deadline każdy fragment przerywa liczenie po terminie - wynik zawiera
+ * wtedy najlepszych spośród policzonych.
+ *
+ * Funkcja score musi być thread-safe (bez dostępu do encji JPA i bazy).
+ */
+@Slf4j
+@Component
+public class ParallelRanker {
+
+    private final boolean enabled;
+    private final int threshold;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+
+    public ParallelRanker(MatchingProperties properties) {
+        MatchingProperties.Scoring scoring = properties.getScoring();
+        this.enabled = scoring.isParallelEnabled();
+        this.threshold = scoring.getParallelThreshold();
+        this.chunkSize = Math.max(1, scoring.getChunkSize());
+        int parallelism = scoring.getParallelism() > 0
+                ? scoring.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("matching-scoring-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Czy pula tej wielkości zostanie policzona równolegle.
+     */
+    public boolean isParallel(int size) {
+        return enabled && size >= threshold && pool.getParallelism() > 1;
+    }
+
+    /**
+     * Liczy score wszystkich elementów i zwraca selektor z {@code k} najlepszymi.
+     *
+     * @param items   Elementy wejściowe (lista o dostępie swobodnym)
+     * @param k       Liczba zachowanych wyników
+     * @param scorer  Funkcja licząca wynik dla elementu (thread-safe)
+     * @param scoreOf Score wyniku
+     */
+    public <T, R> TopKSelector<R> rank(List<T> items, int k,
+                                       Function<? super T, ? extends R> scorer,
+                                       ToIntFunction<? super R> scoreOf) {
+        return rank(items, k, scorer, scoreOf, Deadline.NONE);
+    }
+
+    /**
+     * Jak {@link #rank(List, int, Function, ToIntFunction)}, ale po terminie {@code deadline}
+     * pozostałe elementy są pomijane (Deadline.wasExceeded() mówi, czy wynik jest częściowy).
+     */
+    public <T, R> TopKSelector<R> rank(List<T> items, int k,
+                                       Function<? super T, ? extends R> scorer,
+                                       ToIntFunction<? super R> scoreOf,
+                                       Deadline deadline) {
+        if (!isParallel(items.size())) {
+            return rankRange(items, 0, items.size(), k, scorer, scoreOf, deadline);
+        }
+        log.debug("Ranking {} items in parallel (parallelism: {}, chunk: {})",
+                items.size(), pool.getParallelism(), chunkSize);
+        return pool.invoke(new RankTask<>(items, 0, items.size(), k, scorer, scoreOf, chunkSize, deadline));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static <T, R> TopKSelector<R> rankRange(List<T> items, int from, int to, int k,
+                                                   Function<? super T, ? extends R> scorer,
+                                                   ToIntFunction<? super R> scoreOf,
+                                                   Deadline deadline) {
+        TopKSelector<R> selector = new TopKSelector<>(k);
+        for (int i = from; i < to; i++) {
+            if ((i - from) % Deadline.CHECK_INTERVAL == 0 && deadline.isExpired()) {
+                break;
+            }
+            R result = scorer.apply(items.get(i));
+            selector.offer(scoreOf.applyAsInt(result), result);
+        }
+        return selector;
+    }
+
+    /**
+     * Fragment [from, to) - dzielony na pół dopóki jest większy niż chunkSize.
+     */
+    private static final class RankTask<T, R> extends RecursiveTask<TopKSelector<R>> {
+
+        private final List<T> items;
+        private final int from;
+        private final int to;
+        private final int k;
+        private final Function<? super T, ? extends R> scorer;
+        private final ToIntFunction<? super R> scoreOf;
+        private final int chunkSize;
+        private final Deadline deadline;
+
+        private RankTask(List<T> items, int from, int to, int k,
+                         Function<? super T, ? extends R> scorer,
+                         ToIntFunction<? super R> scoreOf, int chunkSize, Deadline deadline) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.scorer = scorer;
+            this.scoreOf = scoreOf;
+            this.chunkSize = chunkSize;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected TopKSelector<R> compute() {
+            if (to - from <= chunkSize) {
+                return rankRange(items, from, to, k, scorer, scoreOf, deadline);
+            }
+            int middle = (from + to) >>> 1;
+            RankTask<T, R> left = new RankTask<>(items, from, middle, k, scorer, scoreOf, chunkSize, deadline);
+            RankTask<T, R> right = new RankTask<>(items, middle, to, k, scorer, scoreOf, chunkSize, deadline);
+            right.fork();
+            TopKSelector<R> result = left.compute();
+            // Lewa połowa pierwsza - przy równym score wygrywa wcześniejszy element
+            result.merge(right.join());
+            return result;
+        }
+    }
+}
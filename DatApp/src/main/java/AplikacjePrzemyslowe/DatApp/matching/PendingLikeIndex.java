@@ -0,0 +1,294 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rezydentny zbiór nieodwzajemnionych polubień (LIKE / SUPER_LIKE bez matcha) -
+ * wykrycie wzajemnego polubienia to jedno sprawdzenie w pamięci zamiast zapytań
+ * o swipe w odwrotnym kierunku i o istniejący match.
+ * SwipeService dopisuje polubienia po zatwierdzeniu transakcji, więc zbiór zna tylko polubienia
+ * zatwierdzone i tej instancji (albo z ładowania) - trafienie oznacza match, a brak trafienia
+ * rozstrzyga blokujący odczyt swipe_pairs (polubienie z innej instancji).
+ *
+ * Krawędź {@code swiperId -> swipedUserId} pakowana jest w jeden long (po 32 bity na ID)
+ * i trzymana w tablicy z adresowaniem otwartym (sondowanie liniowe, usuwanie przez
+ * przesunięcie wstecz - bez tombstone'ów). Zbiór podzielony jest na {@value #SHARDS} shardów
+ * po mniejszym ID pary, więc obie krawędzie pary leżą w tym samym shardzie i recordLike
+ * sprawdza odwrotną krawędź oraz wstawia nową atomowo pod jednym lockiem.
+ *
+ * Zbiór ładowany jest z tabeli swipes przy starcie; do tego czasu (i dla ID spoza 32 bitów)
+ * covers zwraca false. Krawędzie kont usuniętych zostają do restartu.
+ */
+@Slf4j
+@Component
+public class PendingLikeIndex {
+
+    private static final int SHARD_BITS = 6;
+    static final int SHARDS = 1 << SHARD_BITS;
+
+    /**
+     * Największe ID mieszczące się w połowie klucza.
+     */
+    static final long MAX_USER_ID = 0xFFFF_FFFFL;
+
+    private static final int INITIAL_SHARD_CAPACITY = 1024;
+
+    private final SwipeJdbcDao swipeJdbcDao;
+    private final Shard[] shards = new Shard[SHARDS];
+    private volatile boolean ready;
+
+    public PendingLikeIndex(SwipeJdbcDao swipeJdbcDao) {
+        this.swipeJdbcDao = swipeJdbcDao;
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard(INITIAL_SHARD_CAPACITY);
+        }
+    }
+
+    // ========== QUERY ==========
+
+    /**
+     * Czy zbiór jest załadowany i obejmuje parę (oba ID mieszczą się w kluczu).
+     */
+    public boolean covers(long swiperId, long swipedUserId) {
+        return ready && fits(swiperId) && fits(swipedUserId);
+    }
+
+    /**
+     * Czy {@code swiperId} polubił {@code swipedUserId} i para nie ma jeszcze matcha.
+     */
+    public boolean contains(long swiperId, long swipedUserId) {
+        if (!fits(swiperId) || !fits(swipedUserId)) {
+            return false;
+        }
+        Shard shard = shardOf(swiperId, swipedUserId);
+        synchronized (shard) {
+            return shard.contains(pack(swiperId, swipedUserId));
+        }
+    }
+
+    /**
+     * Liczba nieodwzajemnionych polubień.
+     */
+    public long size() {
+        long size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.size();
+            }
+        }
+        return size;
+    }
+
+    // ========== UPDATE ==========
+
+    /**
+     * Rejestruje polubienie: jeśli odwrotne polubienie czeka, usuwa je i zwraca true (match),
+     * w przeciwnym razie zapamiętuje nowe polubienie. Obie operacje atomowo - dwa równoczesne
+     * polubienia tej samej pary dają dokładnie jeden match.
+     */
+    public boolean recordLike(long swiperId, long swipedUserId) {
+        if (!fits(swiperId) || !fits(swipedUserId)) {
+            throw new IllegalArgumentException("User id out of pending-likes range: "
+                    + swiperId + " -> " + swipedUserId);
+        }
+        Shard shard = shardOf(swiperId, swipedUserId);
+        synchronized (shard) {
+            if (shard.remove(pack(swipedUserId, swiperId))) {
+                return true;
+            }
+            shard.add(pack(swiperId, swipedUserId));
+            return false;
+        }
+    }
+
+    /**
+     * Dodaje nieodwzajemnione polubienie (ID spoza zakresu są pomijane).
+     */
+    public void add(long swiperId, long swipedUserId) {
+        if (!fits(swiperId) || !fits(swipedUserId)) {
+            return;
+        }
+        Shard shard = shardOf(swiperId, swipedUserId);
+        synchronized (shard) {
+            shard.add(pack(swiperId, swipedUserId));
+        }
+    }
+
+    /**
+     * Usuwa polubienie (odwzajemnione albo wycofane).
+     */
+    public void remove(long swiperId, long swipedUserId) {
+        if (!fits(swiperId) || !fits(swipedUserId)) {
+            return;
+        }
+        Shard shard = shardOf(swiperId, swipedUserId);
+        synchronized (shard) {
+            shard.remove(pack(swiperId, swipedUserId));
+        }
+    }
+
+    // ========== BUILD ==========
+
+    /**
+     * Ładuje zbiór przy starcie aplikacji.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            load();
+        } catch (RuntimeException e) {
+            // Bez zbioru wzajemne polubienia wykrywane są zapytaniami (wolniej, ale poprawnie)
+            log.warn("Pending likes load failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ładuje nieodwzajemnione polubienia z tabeli swipes. Zmiany z add/remove/recordLike
+     * w trakcie ładowania trafiają do tych samych shardów - odczyt ich nie nadpisuje.
+     */
+    public synchronized void load() {
+        long start = System.nanoTime();
+        long[] skipped = new long[1];
+
+        swipeJdbcDao.streamOutstandingLikes(rs -> {
+            long swiperId = rs.getLong("swiper_id");
+            long swipedUserId = rs.getLong("swiped_user_id");
+            if (fits(swiperId) && fits(swipedUserId)) {
+                add(swiperId, swipedUserId);
+            } else {
+                skipped[0]++;
+            }
+        });
+        ready = true;
+
+        log.info("Pending likes loaded: {} edges ({} out of key range) in {} ms",
+                size(), skipped[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ========== HELPER METHODS ==========
+
+    static boolean fits(long userId) {
+        return userId > 0 && userId <= MAX_USER_ID;
+    }
+
+    static long pack(long swiperId, long swipedUserId) {
+        return swiperId << 32 | swipedUserId;
+    }
+
+    private Shard shardOf(long swiperId, long swipedUserId) {
+        long lower = Math.min(swiperId, swipedUserId);
+        return shards[(int) (mix(lower) >>> (Long.SIZE - SHARD_BITS))];
+    }
+
+    /**
+     * Finalizer MurmurHash3 - rozprasza kolejne ID po shardach i slotach.
+     */
+    static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Zbiór kluczy long z adresowaniem otwartym; 0 oznacza pusty slot (ID są dodatnie,
+     * więc spakowany klucz nigdy nie jest zerem). Dostęp pod synchronized (shard).
+     */
+    static final class Shard {
+
+        private long[] keys;
+        private int mask;
+        private int size;
+
+        Shard(int capacity) {
+            this.keys = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        boolean contains(long key) {
+            for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+                long current = keys[slot];
+                if (current == key) {
+                    return true;
+                }
+                if (current == 0) {
+                    return false;
+                }
+            }
+        }
+
+        boolean add(long key) {
+            int slot = slotOf(key);
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            // Współczynnik wypełnienia do 1/2 - krótkie sekwencje sondowania
+            if (++size > keys.length >>> 1) {
+                resize(keys.length << 1);
+            }
+            return true;
+        }
+
+        boolean remove(long key) {
+            int slot = slotOf(key);
+            while (keys[slot] != key) {
+                if (keys[slot] == 0) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            size--;
+
+            // Przesunięcie wstecz: klucze z dalszej części sekwencji, których slot docelowy
+            // nie leży między zwolnionym slotem a ich pozycją, wypełniają lukę
+            int gap = slot;
+            for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+                int home = slotOf(keys[next]);
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = 0;
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        private int slotOf(long key) {
+            return (int) mix(key) & mask;
+        }
+
+        private void resize(int capacity) {
+            long[] old = keys;
+            keys = new long[capacity];
+            mask = capacity - 1;
+            for (long key : old) {
+                if (key != 0) {
+                    int slot = slotOf(key);
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = key;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.entity.Gender;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wstępnie policzona lista "popularnych w okolicy" - najczęściej lubiani aktywni użytkownicy
+ * per miasto i płeć (z okresu matching.fallback.likes-window).
+ *
+ * Zwracana zamiast rankingu, gdy w budżecie czasu żądania (matching.pipeline.time-budget)
+ * nie udało się policzyć żadnego kandydata. Lista jest niemutowalnym snapshotem
+ * przeliczanym cyklicznie i podmienianym atomowo.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PopularNearbyIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final UserJdbcDao userJdbcDao;
+    private final MatchingProperties properties;
+
+    private volatile Map<Key, long[]> popular = Map.of();
+
+    // ========== QUERY ==========
+
+    /**
+     * Zwraca ID najpopularniejszych użytkowników danej płci w mieście, malejąco po liczbie
+     * polubień (pusta tablica, gdy brak). Zwrócona tablica nie może być modyfikowana.
+     */
+    public long[] find(String city, Gender gender) {
+        if (city == null || gender == null) {
+            return EMPTY;
+        }
+        return popular.getOrDefault(new Key(city, gender), EMPTY);
+    }
+
+    /**
+     * Liczba użytkowników na wszystkich listach.
+     */
+    public int size() {
+        int size = 0;
+        for (long[] userIds : popular.values()) {
+            size += userIds.length;
+        }
+        return size;
+    }
+
+    // ========== BUILD ==========
+
+    /**
+     * Liczy listę przy starcie aplikacji.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        refresh();
+    }
+
+    /**
+     * Cyklicznie przelicza listę (nowe polubienia, deaktywacje).
+     */
+    @Scheduled(fixedDelayString = "${matching.fallback.refresh-interval:PT15M}",
+               initialDelayString = "${matching.fallback.refresh-interval:PT15M}")
+    public void refresh() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // Brak listy oznacza tylko pusty fallback - ranking działa bez niej
+            log.warn("Popular nearby rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Przelicza listę z bazy i podmienia snapshot.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        MatchingProperties.Fallback fallback = properties.getFallback();
+        LocalDateTime since = LocalDateTime.now().minus(fallback.getLikesWindow());
+
+        Map<Key, long[]> built = new HashMap<>();
+        Map<Key, Integer> sizes = new HashMap<>();
+        userJdbcDao.streamPopularUsersByCity(fallback.getPopularPerCity(), since, rs -> {
+            Key key = new Key(rs.getString("city"), Gender.valueOf(rs.getString("gender")));
+            long[] userIds = built.computeIfAbsent(key, k -> new long[fallback.getPopularPerCity()]);
+            int size = sizes.merge(key, 1, Integer::sum);
+            userIds[size - 1] = rs.getLong("user_id");
+        });
+        built.replaceAll((key, userIds) -> Arrays.copyOf(userIds, sizes.get(key)));
+        this.popular = Map.copyOf(built);
+
+        log.info("Popular nearby rebuilt: {} users in {} cities/genders in {} ms",
+                size(), built.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ========== INNER TYPES ==========
+
+    private record Key(String city, Gender gender) {
+    }
+}
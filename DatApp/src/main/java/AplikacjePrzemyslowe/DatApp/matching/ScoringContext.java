@@ -0,0 +1,61 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+/**
+ * Dane do scoringu jednej listy kandydatów w obrębie jednego żądania (ScoringContextLoader).
+ * Pozycja i w tablicach odpowiada i-temu kandydatowi z wywołania load().
+ *
+ * @param searcherLocated        Czy szukający ma współrzędne
+ * @param commonInterests        Liczba wspólnych zainteresowań z szukającym
+ * @param distances              Dystans w km (domyślny, gdy szukający lub kandydat nie ma współrzędnych)
+ * @param located                Czy dystans jest policzony ze współrzędnych
+ * @param profileComplete        Czy profil kandydata jest kompletny (bio, zdjęcie, zainteresowanie)
+ * @param searcherProfileVersion Wersja profilu szukającego (PairScoreCache.NO_VERSION gdy brak)
+ * @param preferenceVersion      Wersja preferencji szukającego (PairScoreCache.NO_VERSION gdy brak)
+ * @param profileVersions        Wersja profilu kandydata (PairScoreCache.NO_VERSION gdy brak)
+ * @param cachedScores           Score z PairScoreCache albo NO_SCORE, gdy trzeba go policzyć
+ */
+public record ScoringContext(boolean searcherLocated, int[] commonInterests, double[] distances,
+                             boolean[] located, boolean[] profileComplete,
+                             long searcherProfileVersion, long preferenceVersion,
+                             long[] profileVersions, int[] cachedScores) {
+
+    /**
+     * Brak aktualnego wyniku w PairScoreCache.
+     */
+    public static final int NO_SCORE = -1;
+
+    public int size() {
+        return distances.length;
+    }
+
+    public int commonInterests(int i) {
+        return commonInterests[i];
+    }
+
+    public double distanceKm(int i) {
+        return distances[i];
+    }
+
+    public boolean isLocated(int i) {
+        return located[i];
+    }
+
+    public boolean isProfileComplete(int i) {
+        return profileComplete[i];
+    }
+
+    public boolean hasCachedScore(int i) {
+        return cachedScores[i] != NO_SCORE;
+    }
+
+    public int cachedScore(int i) {
+        return cachedScores[i];
+    }
+
+    /**
+     * Wersje, z którymi należy zapisać wynik i-tego kandydata w PairScoreCache.
+     */
+    public PairScoreCache.Stamp stamp(int i) {
+        return new PairScoreCache.Stamp(searcherProfileVersion, preferenceVersion, profileVersions[i]);
+    }
+}
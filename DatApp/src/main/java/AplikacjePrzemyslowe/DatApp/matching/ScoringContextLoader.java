@@ -0,0 +1,205 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wczytuje zbiorczo dane do scoringu listy kandydatów (ScoringContext).
+ *
+ * Zamiast getProfileEntity i countCommonInterests dla każdego kandydata (2N+1 zapytań
+ * plus leniwe kolekcje zdjęć i zainteresowań) liczba zapytań jest stała niezależnie od N:
+ * - współrzędne i kompletność profili szukającego i kandydatów - jedno zapytanie
+ * - zainteresowania - z InterestBitsetIndex, a dopóki nie jest załadowany jednym zapytaniem
+ * Dystanse liczone są jednym wywołaniem DistanceKernel.
+ *
+ * Kandydaci z aktualnym wynikiem w PairScoreCache (te same wersje profili i preferencji)
+ * nie są liczeni ponownie - dystans i wspólne zainteresowania liczone są tylko dla pozostałych.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ScoringContextLoader {
+
+    /**
+     * Dystans przyjmowany, gdy szukający lub kandydat nie ma współrzędnych.
+     */
+    public static final double DEFAULT_DISTANCE_KM = 50.0;
+
+    private final UserJdbcDao userJdbcDao;
+    private final InterestBitsetIndex interestBitsetIndex;
+    private final PairScoreCache pairScoreCache;
+
+    /**
+     * Wczytuje dane do scoringu kandydatów (bez duplikatów, bez samego szukającego).
+     * Kandydat bez profilu traktowany jest jak profil niekompletny bez współrzędnych.
+     *
+     * @param userId       ID użytkownika szukającego
+     * @param candidateIds ID kandydatów - kolejność wyznacza pozycje w ScoringContext
+     */
+    public ScoringContext load(long userId, List<Long> candidateIds) {
+        int size = candidateIds.size();
+        Map<Long, Integer> positions = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            positions.put(candidateIds.get(i), i);
+        }
+
+        List<Long> userIds = new ArrayList<>(size + 1);
+        userIds.add(userId);
+        userIds.addAll(candidateIds);
+
+        // 1. Współrzędne, kompletność i wersje profili
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        boolean[] located = new boolean[size];
+        boolean[] profileComplete = new boolean[size];
+        long[] profileVersions = new long[size];
+        Arrays.fill(profileVersions, PairScoreCache.NO_VERSION);
+        double[] searcher = new double[2];
+        boolean[] searcherLocated = new boolean[1];
+        long[] searcherVersions = {PairScoreCache.NO_VERSION, PairScoreCache.NO_VERSION};
+        userJdbcDao.streamScoringFeatures(userIds, rs -> {
+            long id = rs.getLong("user_id");
+            Double latitude = rs.getObject("latitude", Double.class);
+            Double longitude = rs.getObject("longitude", Double.class);
+            boolean hasCoordinates = latitude != null && longitude != null;
+            if (id == userId) {
+                searcherLocated[0] = hasCoordinates;
+                if (hasCoordinates) {
+                    searcher[0] = latitude;
+                    searcher[1] = longitude;
+                }
+                searcherVersions[0] = rs.getLong("profile_version");
+                Long preferenceVersion = rs.getObject("preference_version", Long.class);
+                searcherVersions[1] = preferenceVersion != null ? preferenceVersion : PairScoreCache.NO_VERSION;
+                return;
+            }
+            Integer i = positions.get(id);
+            if (i == null) {
+                return;
+            }
+            profileComplete[i] = rs.getBoolean("profile_complete");
+            profileVersions[i] = rs.getLong("profile_version");
+            if (hasCoordinates) {
+                located[i] = true;
+                latitudes[i] = latitude;
+                longitudes[i] = longitude;
+            }
+        });
+        if (!searcherLocated[0]) {
+            Arrays.fill(located, false);
+        }
+
+        // 2. Wyniki z PairScoreCache - dla trafień dystans i zainteresowania są już policzone
+        double[] distances = new double[size];
+        Arrays.fill(distances, DEFAULT_DISTANCE_KM);
+        int[] commonInterests = new int[size];
+        int[] cachedScores = new int[size];
+        Arrays.fill(cachedScores, ScoringContext.NO_SCORE);
+        boolean[] pending = new boolean[size];
+        int pendingCount = 0;
+        for (int i = 0; i < size; i++) {
+            PairScoreCache.Stamp stamp = new PairScoreCache.Stamp(
+                    searcherVersions[0], searcherVersions[1], profileVersions[i]);
+            PairScoreCache.Entry cached = pairScoreCache.get(userId, candidateIds.get(i), stamp);
+            if (cached != null) {
+                cachedScores[i] = cached.score();
+                commonInterests[i] = cached.commonInterests();
+                distances[i] = cached.distance();
+            } else {
+                pending[i] = true;
+                pendingCount++;
+            }
+        }
+
+        if (pendingCount > 0) {
+            // 3. Dystanse - jedno wywołanie kernela dla kandydatów ze współrzędnymi
+            if (searcherLocated[0]) {
+                computeDistances(searcher[0], searcher[1], latitudes, longitudes, located, pending, distances);
+            }
+
+            // 4. Wspólne zainteresowania
+            countCommonInterests(userId, candidateIds, positions, pending, commonInterests);
+        }
+
+        return new ScoringContext(searcherLocated[0], commonInterests, distances, located, profileComplete,
+                searcherVersions[0], searcherVersions[1], profileVersions, cachedScores);
+    }
+
+    private static void computeDistances(double latitude, double longitude, double[] latitudes, double[] longitudes,
+                                         boolean[] located, boolean[] pending, double[] distances) {
+        int size = located.length;
+        double[] packedLatitudes = new double[size];
+        double[] packedLongitudes = new double[size];
+        int locatedCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (located[i] && pending[i]) {
+                packedLatitudes[locatedCount] = latitudes[i];
+                packedLongitudes[locatedCount] = longitudes[i];
+                locatedCount++;
+            }
+        }
+        if (locatedCount == 0) {
+            return;
+        }
+
+        double[] packed = new double[locatedCount];
+        DistanceKernel.haversineKm(latitude, longitude,
+                GeoPoints.ofDegrees(packedLatitudes, packedLongitudes, locatedCount), packed);
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            if (located[i] && pending[i]) {
+                distances[i] = packed[next++];
+            }
+        }
+    }
+
+    /**
+     * AND + popcount na bitsetach z InterestBitsetIndex; przed jego załadowaniem
+     * bitsety budowane są z jednego zapytania o zainteresowania szukającego i kandydatów bez wyniku w cache.
+     */
+    private void countCommonInterests(long userId, List<Long> candidateIds, Map<Long, Integer> positions,
+                                      boolean[] pending, int[] commonInterests) {
+        int size = candidateIds.size();
+
+        if (interestBitsetIndex.isReady()) {
+            long[] searcherBits = interestBitsetIndex.bitsOf(userId);
+            for (int i = 0; i < size; i++) {
+                if (pending[i]) {
+                    commonInterests[i] = interestBitsetIndex.countCommon(searcherBits, candidateIds.get(i));
+                }
+            }
+            return;
+        }
+
+        List<Long> userIds = new ArrayList<>(size + 1);
+        userIds.add(userId);
+        for (int i = 0; i < size; i++) {
+            if (pending[i]) {
+                userIds.add(candidateIds.get(i));
+            }
+        }
+
+        Map<Long, List<Long>> interestsByUser = new HashMap<>();
+        userJdbcDao.streamUserInterests(userIds, rs -> interestsByUser
+                .computeIfAbsent(rs.getLong("user_id"), id -> new ArrayList<>())
+                .add(rs.getLong("interest_id")));
+
+        long[] searcherBits = InterestBitsetIndex.toBits(interestsByUser.getOrDefault(userId, List.of()));
+        interestsByUser.forEach((id, interestIds) -> {
+            Integer i = positions.get(id);
+            if (i != null && id != userId && pending[i]) {
+                commonInterests[i] = InterestBitsetIndex.countCommon(searcherBits, InterestBitsetIndex.toBits(interestIds));
+            }
+        });
+
+        log.debug("Common interests for user {} loaded from database ({} candidates)", userId, userIds.size() - 1);
+    }
+}
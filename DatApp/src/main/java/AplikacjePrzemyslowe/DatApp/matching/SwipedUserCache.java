@@ -0,0 +1,178 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.repository.SwipeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Zbiory już ocenionych użytkowników (SwipedUserSet) per użytkownik - zamiast
+ * {@code NOT IN (SELECT swiped_user_id FROM swipes ...)} przy każdym generowaniu kandydatów.
+ *
+ * Zbiór ładowany jest leniwie (SwipeRepository.findSwipedUserIds) przy pierwszym odczycie, a potem
+ * aktualizowany przez SwipeService.recordSwipe. Zbiory trzymane są w kolejności LRU
+ * i usuwane od najdawniej używanych, gdy suma ich rozmiarów przekroczy memory-budget.
+ * Budżet 0 wyłącza cache - wtedy silnik pyta bazę jak wcześniej.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SwipedUserCache {
+
+    private final SwipeRepository swipeRepository;
+    private final MatchingProperties properties;
+
+    // Kolejność dostępu (LRU) - dostęp tylko pod synchronized (entries)
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+
+    // ========== QUERY ==========
+
+    public boolean isEnabled() {
+        return budgetBytes() > 0;
+    }
+
+    /**
+     * Zwraca predykat "użytkownik już oceniony" dla danego użytkownika.
+     * Przy pierwszym wywołaniu zbiór ładowany jest z bazy; predykat czyta
+     * niezmienną kopię, więc można go używać bez synchronizacji.
+     */
+    public LongPredicate swipedBy(long userId) {
+        Entry entry = entryOf(userId);
+        SwipedUserSet snapshot;
+        long bytes;
+        synchronized (entry) {
+            if (!entry.loaded) {
+                List<Long> swipedIds = swipeRepository.findSwipedUserIds(userId);
+                for (Long swipedId : swipedIds) {
+                    entry.set.add(swipedId);
+                }
+                entry.loaded = true;
+                log.debug("Loaded {} swiped users for user {}", swipedIds.size(), userId);
+            }
+            if (entry.snapshot == null) {
+                entry.snapshot = entry.set.copy();
+            }
+            snapshot = entry.snapshot;
+            bytes = entry.memoryBytes();
+        }
+        account(userId, entry, bytes);
+        return snapshot::contains;
+    }
+
+    /**
+     * Liczba zbiorów w pamięci.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Szacowana pamięć zajmowana przez zbiory.
+     */
+    public long usedBytes() {
+        synchronized (entries) {
+            return usedBytes;
+        }
+    }
+
+    // ========== UPDATE ==========
+
+    /**
+     * Dodaje swipe do zbioru użytkownika. Jeśli zbiór nie jest jeszcze załadowany,
+     * ID jest zapamiętywane i scalane z wynikiem ładowania (swipe mógł nie być
+     * jeszcze zatwierdzony w bazie w chwili odczytu).
+     */
+    public void recordSwipe(long swiperId, long swipedUserId) {
+        if (!isEnabled()) {
+            return;
+        }
+        Entry entry = entryOf(swiperId);
+        long bytes;
+        synchronized (entry) {
+            if (entry.set.add(swipedUserId)) {
+                entry.snapshot = null;
+            }
+            bytes = entry.memoryBytes();
+        }
+        account(swiperId, entry, bytes);
+    }
+
+    /**
+     * Usuwa zbiór użytkownika (np. po usunięciu konta).
+     */
+    public void invalidate(long userId) {
+        synchronized (entries) {
+            Entry entry = entries.remove(userId);
+            if (entry != null) {
+                usedBytes -= entry.accountedBytes;
+            }
+        }
+    }
+
+    private Entry entryOf(long userId) {
+        synchronized (entries) {
+            return entries.computeIfAbsent(userId, id -> new Entry());
+        }
+    }
+
+    /**
+     * Aktualizuje zużycie pamięci i usuwa najdawniej używane zbiory ponad budżet.
+     */
+    private void account(long userId, Entry entry, long bytes) {
+        long budget = budgetBytes();
+        int evicted = 0;
+        synchronized (entries) {
+            if (entries.get(userId) != entry) {
+                // Zbiór został w międzyczasie usunięty
+                return;
+            }
+            usedBytes += bytes - entry.accountedBytes;
+            entry.accountedBytes = bytes;
+
+            Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+            while (usedBytes > budget && eldest.hasNext()) {
+                Map.Entry<Long, Entry> candidate = eldest.next();
+                if (candidate.getValue() == entry) {
+                    // Bieżący zbiór jest najświeższy - nie usuwamy go nawet ponad budżet
+                    continue;
+                }
+                usedBytes -= candidate.getValue().accountedBytes;
+                eldest.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} swiped-user sets (memory budget {} bytes)", evicted, budget);
+        }
+    }
+
+    private long budgetBytes() {
+        return properties.getSwiped().getMemoryBudget().toBytes();
+    }
+
+    /**
+     * Zbiór jednego użytkownika - pola set/snapshot/loaded pod synchronized (entry),
+     * accountedBytes pod synchronized (entries).
+     */
+    private static final class Entry {
+
+        private final SwipedUserSet set = new SwipedUserSet();
+        private SwipedUserSet snapshot;
+        private boolean loaded;
+        private long accountedBytes;
+
+        private long memoryBytes() {
+            return set.memoryBytes() + (snapshot != null ? snapshot.memoryBytes() : 0);
+        }
+    }
+}
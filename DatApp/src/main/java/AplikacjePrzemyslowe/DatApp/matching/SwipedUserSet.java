@@ -0,0 +1,158 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+/**
+ * Zbiór ID użytkowników ocenionych przez jednego użytkownika.
+ *
+ * Tablica z adresowaniem otwartym (linear probing) na prymitywnych long - bez boxingu
+ * i obiektów Entry jak w HashSet<Long>. Przed sondowaniem tablicy sprawdzany jest
+ * filtr Bloom (ok. 8 bitów na element, 2 funkcje haszujące): dla większości kandydatów
+ * (nieocenionych) odpowiedź "nie" zapada na małej tablicy bitów.
+ *
+ * Klasa nie jest thread-safe - SwipedUserCache publikuje kopie (copy) do odczytu.
+ */
+public final class SwipedUserSet {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private long[] bloom;
+    private int size;
+    private boolean containsEmptyKey;
+
+    public SwipedUserSet() {
+        this(MIN_CAPACITY);
+    }
+
+    private SwipedUserSet(int capacity) {
+        allocate(capacity);
+    }
+
+    /**
+     * Dodaje ID. Zwraca false jeśli już było w zbiorze.
+     */
+    public boolean add(long userId) {
+        if (userId == EMPTY) {
+            boolean added = !containsEmptyKey;
+            containsEmptyKey = true;
+            return added;
+        }
+        if ((size + 1) * 2L > table.length) {
+            resize(table.length * 2);
+        }
+        if (!insert(userId)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    public boolean contains(long userId) {
+        if (userId == EMPTY) {
+            return containsEmptyKey;
+        }
+        long hash = mix(userId);
+        if (!mightContain(hash)) {
+            return false;
+        }
+        int mask = table.length - 1;
+        for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+            long key = table[i];
+            if (key == userId) {
+                return true;
+            }
+            if (key == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    public int size() {
+        return size + (containsEmptyKey ? 1 : 0);
+    }
+
+    /**
+     * Przybliżony rozmiar w pamięci (tablice + nagłówki obiektów).
+     */
+    public long memoryBytes() {
+        return 64L + (long) table.length * Long.BYTES + (long) bloom.length * Long.BYTES;
+    }
+
+    /**
+     * Niezależna kopia - do publikacji dla czytelników.
+     */
+    public SwipedUserSet copy() {
+        SwipedUserSet copy = new SwipedUserSet(MIN_CAPACITY);
+        copy.table = table.clone();
+        copy.bloom = bloom.clone();
+        copy.size = size;
+        copy.containsEmptyKey = containsEmptyKey;
+        return copy;
+    }
+
+    // ========== INTERNAL ==========
+
+    private boolean insert(long userId) {
+        long hash = mix(userId);
+        int mask = table.length - 1;
+        int i = (int) hash & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == userId) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = userId;
+        setBloom(hash);
+        return true;
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        allocate(capacity);
+        for (long key : old) {
+            if (key != EMPTY) {
+                insert(key);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        // Tablica ma najwyżej capacity/2 elementów -> 4 * capacity bitów = ok. 8 bitów na element
+        bloom = new long[Math.max(1, capacity / 16)];
+    }
+
+    /**
+     * Dwie pozycje w filtrze: h1 i h1 + h2 (Kirsch-Mitzenmacher); liczba bitów jest potęgą 2.
+     */
+    private boolean mightContain(long hash) {
+        int mask = bloom.length * Long.SIZE - 1;
+        int h1 = (int) (hash >>> 32);
+        int b1 = h1 & mask;
+        int b2 = (h1 + (int) hash) & mask;
+        return (bloom[b1 >>> 6] & (1L << b1)) != 0 && (bloom[b2 >>> 6] & (1L << b2)) != 0;
+    }
+
+    private void setBloom(long hash) {
+        int mask = bloom.length * Long.SIZE - 1;
+        int h1 = (int) (hash >>> 32);
+        int b1 = h1 & mask;
+        int b2 = (h1 + (int) hash) & mask;
+        bloom[b1 >>> 6] |= 1L << b1;
+        bloom[b2 >>> 6] |= 1L << b2;
+    }
+
+    /**
+     * Finalizer MurmurHash3 - rozprasza kolejne ID po tablicy i filtrze.
+     */
+    private static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
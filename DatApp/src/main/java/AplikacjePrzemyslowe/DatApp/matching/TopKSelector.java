@@ -0,0 +1,173 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ograniczony wybór K najlepszych elementów wg score (zamiast sortowania całej listy).
+ *
+ * Kopiec typu min trzyma K najlepszych kluczy; klucz to prymitywny long
+ * pakujący (score, kolejność wejścia), więc porównania nie wymagają Comparatora
+ * ani boxingu. Przy równym score wygrywa element podany wcześniej - wynik jest
+ * taki sam jak przy stabilnym sortowaniu malejąco po score.
+ * Elementy podawane są pojedynczo (offer), więc wejście może być strumieniem.
+ *
+ * Klasa nie jest thread-safe - jedna instancja na jedno zapytanie.
+ *
+ * @param <T> Typ elementu przechowywanego razem ze score
+ */
+public final class TopKSelector<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long SEQUENCE_MASK = 0xFFFF_FFFFL;
+
+    private final int k;
+
+    private long[] keys;
+    private Object[] items;
+    private int size;
+    private long offered;
+
+    /**
+     * @param k Maksymalna liczba zwracanych elementów (offset + pageSize)
+     */
+    public TopKSelector(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.k = k;
+        int capacity = Math.min(k, INITIAL_CAPACITY);
+        this.keys = new long[capacity];
+        this.items = new Object[capacity];
+    }
+
+    /**
+     * Podaje element do wyboru. Elementy gorsze od K-tego najlepszego są od razu odrzucane.
+     */
+    public void offer(int score, T item) {
+        if (offered > SEQUENCE_MASK) {
+            throw new IllegalStateException("Too many elements offered: " + offered);
+        }
+        long key = ((long) score << 32) | (SEQUENCE_MASK - offered);
+        offered++;
+
+        if (size < k) {
+            if (size == keys.length) {
+                int capacity = (int) Math.min(k, (long) keys.length * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                items = Arrays.copyOf(items, capacity);
+            }
+            keys[size] = key;
+            items[size] = item;
+            siftUp(size++);
+        } else if (k > 0 && key > keys[0]) {
+            keys[0] = key;
+            items[0] = item;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Liczba wszystkich podanych elementów (także odrzuconych) - np. totalElements strony.
+     */
+    public long offered() {
+        return offered;
+    }
+
+    /**
+     * Liczba aktualnie trzymanych elementów (max K).
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Zwraca wybrane elementy posortowane malejąco po score i opróżnia selektor.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> drainDescending() {
+        Object[] result = new Object[size];
+        drainInto(new long[size], result);
+        List<T> list = new ArrayList<>(result.length);
+        for (Object item : result) {
+            list.add((T) item);
+        }
+        return list;
+    }
+
+    /**
+     * Scala wynik innego selektora (częściowy top-K kolejnego fragmentu wejścia) i opróżnia go.
+     * Elementy {@code other} traktowane są jak podane po elementach tego selektora, więc
+     * scalanie fragmentów w kolejności wejścia daje ten sam wynik co jeden selektor.
+     */
+    @SuppressWarnings("unchecked")
+    public void merge(TopKSelector<T> other) {
+        long total = offered + other.offered;
+        long[] otherKeys = new long[other.size];
+        Object[] otherItems = new Object[other.size];
+        other.drainInto(otherKeys, otherItems);
+        for (int i = 0; i < otherKeys.length; i++) {
+            offer((int) (otherKeys[i] >> 32), (T) otherItems[i]);
+        }
+        offered = total;
+        other.offered = 0;
+    }
+
+    // ========== HEAP ==========
+
+    /**
+     * Wyjmuje wszystkie elementy malejąco po kluczu.
+     */
+    private void drainInto(long[] keysOut, Object[] itemsOut) {
+        for (int i = size - 1; i >= 0; i--) {
+            keysOut[i] = keys[0];
+            itemsOut[i] = items[0];
+            size--;
+            keys[0] = keys[size];
+            items[0] = items[size];
+            items[size] = null;
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int index) {
+        long key = keys[index];
+        Object item = items[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[index] = keys[parent];
+            items[index] = items[parent];
+            index = parent;
+        }
+        keys[index] = key;
+        items[index] = item;
+    }
+
+    private void siftDown(int index) {
+        if (size == 0) {
+            return;
+        }
+        long key = keys[index];
+        Object item = items[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && keys[right] < keys[child]) {
+                child = right;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            keys[index] = keys[child];
+            items[index] = items[child];
+            index = child;
+        }
+        keys[index] = key;
+        items[index] = item;
+    }
+}
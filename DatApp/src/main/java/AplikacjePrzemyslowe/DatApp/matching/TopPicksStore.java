@@ -0,0 +1,89 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.TopPicksJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Odczyt rankingów policzonych nocą przez TopPicksJob (tabela top_picks).
+ *
+ * Zwraca ranking tylko, gdy jest świeższy niż matching.top-picks.max-age; starszy
+ * (albo wyłączone top-picks) oznacza pustą listę i zwykły pipeline przy zimnym starcie.
+ * Zmiana preferencji lub lokalizacji usuwa ranking użytkownika (invalidate) do kolejnego przebiegu.
+ *
+ * Tabela top_picks przeżywa ponowną inicjalizację schematu, dlatego rankingi policzone przed
+ * najwcześniejszym users.created_at (users epoch, jak w IndexSnapshotStore) należą do poprzedniej
+ * bazy i są pomijane.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TopPicksStore {
+
+    private final TopPicksJdbcDao topPicksJdbcDao;
+    private final MatchingProperties properties;
+    private final UserJdbcDao userJdbcDao;
+
+    /** Users epoch bieżącej bazy (null - jeszcze nieodczytany albo pusta tabela users). */
+    private volatile LocalDateTime usersEpoch;
+
+    /**
+     * ID kandydatów z zapisanego rankingu użytkownika (od najlepszego) albo pusta lista.
+     * Lista nie uwzględnia ocen i deaktywacji po przeliczeniu - filtruje je wywołujący.
+     */
+    public List<Long> find(long userId) {
+        MatchingProperties.TopPicks topPicks = properties.getTopPicks();
+        if (!topPicks.isEnabled()) {
+            return List.of();
+        }
+        try {
+            LocalDateTime notBefore = LocalDateTime.now().minus(topPicks.getMaxAge());
+            LocalDateTime epoch = usersEpoch();
+            if (epoch != null && epoch.isAfter(notBefore)) {
+                notBefore = epoch;
+            }
+            return topPicksJdbcDao.findTopPicks(userId, notBefore);
+        } catch (DataAccessException e) {
+            // Zapisany ranking to tylko skrót - bez niego zimny start liczy pipeline
+            log.warn("Top picks lookup for user {} failed: {}", userId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Usuwa zapisany ranking użytkownika - policzono go według poprzednich preferencji lub lokalizacji.
+     */
+    public void invalidate(long userId) {
+        if (!properties.getTopPicks().isEnabled()) {
+            return;
+        }
+        try {
+            topPicksJdbcDao.deleteTopPicks(userId);
+        } catch (DataAccessException e) {
+            log.warn("Top picks invalidation for user {} failed: {}", userId, e.getMessage());
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Users epoch odczytany raz na życie procesu - zmienia się tylko z ponowną inicjalizacją schematu,
+     * czyli z restartem aplikacji.
+     */
+    private LocalDateTime usersEpoch() {
+        LocalDateTime epoch = usersEpoch;
+        if (epoch == null) {
+            epoch = userJdbcDao.findUsersEpoch();
+            usersEpoch = epoch != null ? epoch.truncatedTo(ChronoUnit.SECONDS) : null;
+        }
+        return usersEpoch;
+    }
+}
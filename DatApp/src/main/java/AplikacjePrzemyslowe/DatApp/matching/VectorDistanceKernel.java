@@ -0,0 +1,114 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementacja DistanceKernel na Vector API (jdk.incubator.vector).
+ *
+ * Klasa ładowana jest tylko gdy moduł jest dostępny w JVM - bezpośrednio
+ * używają jej DistanceKernel i benchmarki. Ogon tablicy (mniej elementów
+ * niż szerokość wektora) liczony jest pętlą skalarną DistanceKernel.
+ */
+public final class VectorDistanceKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double TWO_PI = 2 * Math.PI;
+    private static final double TWO_R = 2 * GeoDistance.EARTH_RADIUS_KM;
+
+    private VectorDistanceKernel() {
+    }
+
+    /**
+     * Czy wektory mają co najmniej 2 lanes (inaczej pętla skalarna jest szybsza).
+     */
+    public static boolean isSupported() {
+        return SPECIES.length() > 1;
+    }
+
+    public static int lanes() {
+        return SPECIES.length();
+    }
+
+    /**
+     * @see DistanceKernel#haversineKm(double, double, GeoPoints, double[])
+     */
+    public static void haversineKm(double latitudeDeg, double longitudeDeg, GeoPoints points, double[] out) {
+        double lat0 = Math.toRadians(latitudeDeg);
+        double lon0 = Math.toRadians(longitudeDeg);
+        double cos0 = Math.cos(lat0);
+
+        double[] latitudes = points.latitudes();
+        double[] longitudes = points.longitudes();
+        double[] cosLatitudes = points.cosLatitudes();
+        int size = points.size();
+        int bound = SPECIES.loopBound(size);
+
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector sinLat = DoubleVector.fromArray(SPECIES, latitudes, i)
+                    .sub(lat0).mul(0.5).lanewise(VectorOperators.SIN);
+            DoubleVector sinLon = DoubleVector.fromArray(SPECIES, longitudes, i)
+                    .sub(lon0).mul(0.5).lanewise(VectorOperators.SIN);
+            DoubleVector cosProduct = DoubleVector.fromArray(SPECIES, cosLatitudes, i).mul(cos0);
+            toKm(sinLat.mul(sinLat).add(cosProduct.mul(sinLon).mul(sinLon))).intoArray(out, i);
+        }
+        DistanceKernel.haversineKmScalar(lat0, lon0, cos0, points, i, size, out);
+    }
+
+    /**
+     * @see DistanceKernel#withinRadiusKm(double, double, GeoPoints, double, double[])
+     */
+    public static int withinRadiusKm(double latitudeDeg, double longitudeDeg, GeoPoints points,
+                                     double radiusKm, double[] out) {
+        double lat0 = Math.toRadians(latitudeDeg);
+        double lon0 = Math.toRadians(longitudeDeg);
+        double cos0 = Math.cos(lat0);
+        double maxA = DistanceKernel.maxHaversineA(radiusKm);
+
+        double[] latitudes = points.latitudes();
+        double[] longitudes = points.longitudes();
+        double[] cosLatitudes = points.cosLatitudes();
+        int size = points.size();
+        int bound = SPECIES.loopBound(size);
+
+        int count = 0;
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector halfLat = DoubleVector.fromArray(SPECIES, latitudes, i)
+                    .sub(lat0).abs().mul(0.5);
+            DoubleVector dLon = DoubleVector.fromArray(SPECIES, longitudes, i).sub(lon0).abs();
+            DoubleVector halfLon = dLon.min(dLon.neg().add(TWO_PI)).mul(0.5);
+            DoubleVector cosProduct = DoubleVector.fromArray(SPECIES, cosLatitudes, i).mul(cos0);
+
+            // Pre-filtr: jeśli wszystkie lanes są na pewno poza promieniem, bez sin/asin
+            DoubleVector lowLat = sinLowerBound(halfLat);
+            DoubleVector lowLon = sinLowerBound(halfLon);
+            VectorMask<Double> candidates = lowLat.mul(lowLat)
+                    .add(cosProduct.mul(lowLon).mul(lowLon))
+                    .compare(VectorOperators.LE, maxA);
+            if (!candidates.anyTrue()) {
+                DoubleVector.broadcast(SPECIES, DistanceKernel.OUTSIDE).intoArray(out, i);
+                continue;
+            }
+
+            DoubleVector sinLat = halfLat.lanewise(VectorOperators.SIN);
+            DoubleVector sinLon = halfLon.lanewise(VectorOperators.SIN);
+            DoubleVector distance = toKm(sinLat.mul(sinLat).add(cosProduct.mul(sinLon).mul(sinLon)));
+            VectorMask<Double> within = candidates.and(distance.compare(VectorOperators.LE, radiusKm));
+            distance.blend(DistanceKernel.OUTSIDE, within.not()).intoArray(out, i);
+            count += within.trueCount();
+        }
+        return count + DistanceKernel.withinRadiusKmScalar(lat0, lon0, cos0, points, radiusKm, maxA, i, size, out);
+    }
+
+    private static DoubleVector sinLowerBound(DoubleVector y) {
+        return y.mul(y.mul(y).mul(-1.0 / 6.0).add(1.0));
+    }
+
+    private static DoubleVector toKm(DoubleVector haversineA) {
+        return haversineA.min(1.0).sqrt().lanewise(VectorOperators.ASIN).mul(TWO_R);
+    }
+}
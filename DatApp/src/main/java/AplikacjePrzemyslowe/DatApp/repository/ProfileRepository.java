@@ -1,9 +1,11 @@
 package AplikacjePrzemyslowe.DatApp.repository;
 
 import AplikacjePrzemyslowe.DatApp.entity.Profile;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -23,6 +25,13 @@ public interface ProfileRepository extends JpaRepository<Profile, Long> {
      */
     Optional<Profile> findByUserId(Long userId);
 
+    /**
+     * Znajduje profil po ID użytkownika i podbija jego wersję przy commicie
+     * (zmiana zdjęć nie modyfikuje samej encji Profile, a wpływa na scoring)
+     */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    Optional<Profile> findForVersionIncrementByUserId(Long userId);
+
     /**
      * Sprawdza czy profil użytkownika istnieje
      */
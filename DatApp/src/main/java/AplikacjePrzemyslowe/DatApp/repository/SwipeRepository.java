@@ -134,6 +134,22 @@ public interface SwipeRepository extends JpaRepository<Swipe, Long> {
         """)
     List<Long> findDislikedUserIds(@Param("userId") Long userId);
 
+    /**
+     * Znajduje ID wszystkich użytkowników już ocenionych przez użytkownika.
+     * Obejmuje zarchiwizowane odrzucenia, których para w swipe_pairs jest jeszcze zajęta
+     * (okno drugiej szansy trwa).
+     */
+    @Query(value = """
+        SELECT s.swiped_user_id FROM swipes s
+        WHERE s.swiper_id = :userId
+        UNION
+        SELECT a.swiped_user_id FROM swipes_archive a
+        JOIN swipe_pairs held ON held.swiper_id = a.swiper_id
+            AND held.swiped_user_id = a.swiped_user_id AND held.swipe_id = a.swipe_id
+        WHERE a.swiper_id = :userId
+        """, nativeQuery = true)
+    List<Long> findSwipedUserIds(@Param("userId") Long userId);
+
     /**
      * Liczba profili już ocenionych (swipów)
      */
@@ -0,0 +1,373 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.dto.request.BatchMutationRequest;
+import AplikacjePrzemyslowe.DatApp.dto.request.BatchOperationRequest;
+import AplikacjePrzemyslowe.DatApp.dto.response.BatchMutationResponse;
+import AplikacjePrzemyslowe.DatApp.dto.response.BatchOperationResponse;
+import AplikacjePrzemyslowe.DatApp.dto.response.MessageResponse;
+import AplikacjePrzemyslowe.DatApp.dto.response.SwipeResponse;
+import AplikacjePrzemyslowe.DatApp.entity.Match;
+import AplikacjePrzemyslowe.DatApp.entity.Message;
+import AplikacjePrzemyslowe.DatApp.entity.SwipeType;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import AplikacjePrzemyslowe.DatApp.exception.AlreadyMatchedException;
+import AplikacjePrzemyslowe.DatApp.exception.InvalidSwipeException;
+import AplikacjePrzemyslowe.DatApp.exception.ResourceNotFoundException;
+import AplikacjePrzemyslowe.DatApp.exception.UnauthorizedException;
+import AplikacjePrzemyslowe.DatApp.exception.ValidationException;
+import AplikacjePrzemyslowe.DatApp.repository.MatchRepository;
+import AplikacjePrzemyslowe.DatApp.repository.MessageRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Serwis wykonujący paczki operacji zakolejkowanych offline przez aplikację mobilną
+ * (swipe'y, wiadomości, oznaczenia odczytu) - jedno żądanie zamiast serii pojedynczych.
+ *
+ * Operacje wykonywane są w kolejności z żądania, a zbiorczo tylko kolejne operacje tego samego
+ * rodzaju (ciąg) - np. wiadomość po swipe'ie, który utworzył match, widzi już ten match.
+ *
+ * Wspólne odczyty: użytkownik wykonujący paczkę i oceniani użytkownicy wczytywani są raz, a matche
+ * i wiadomości - jednym zapytaniem IN na ciąg (świeżo, po wcześniejszych operacjach). Zapisy
+ * zbiorcze: swipe'y trafiają do kolejki SwipeWriter (grupowy commit), wiadomości ciągu zapisywane
+ * są w jednej transakcji, odczyty ciągu jednym UPDATE-em.
+ *
+ * Każda operacja dostaje własny wynik, a błąd jednej nie wycofuje pozostałych - metoda nie jest
+ * transakcyjna, transakcje otwierają wywoływane serwisy (każdy swipe osobno, wiadomości ciągu razem,
+ * a po błędzie ciągu każda wiadomość osobno).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchMutationService {
+
+    static final String SWIPE = "SWIPE";
+    static final String MESSAGE = "MESSAGE";
+    static final String MARK_READ = "MARK_READ";
+
+    private final MatchRepository matchRepository;
+    private final MessageRepository messageRepository;
+    private final UserService userService;
+    private final SwipeService swipeService;
+    private final MessageService messageService;
+    private final Validator validator;
+
+    // ========== WRITE OPERATIONS ==========
+
+    /**
+     * Wykonuje paczkę operacji użytkownika.
+     *
+     * @param userId ID użytkownika wykonującego operacje
+     * @param request Uporządkowana lista operacji
+     * @return Wyniki operacji w kolejności z żądania
+     * @throws ResourceNotFoundException gdy użytkownik nie istnieje (cała paczka odrzucona)
+     */
+    public BatchMutationResponse execute(Long userId, BatchMutationRequest request) {
+        List<BatchOperationRequest> operations = request.getOperations();
+        log.info("Executing batch of {} operations for user {}", operations.size(), userId);
+
+        User actor = userService.getUserEntity(userId);
+        BatchOperationResponse[] results = new BatchOperationResponse[operations.size()];
+
+        // Walidacja - każda operacja osobno, błędna nie odrzuca paczki
+        for (int i = 0; i < operations.size(); i++) {
+            String error = validate(operations.get(i));
+            if (error != null) {
+                results[i] = failure(i, operations.get(i), HttpStatus.BAD_REQUEST, error);
+            }
+        }
+
+        // Oceniani użytkownicy nie zmieniają się w trakcie paczki - jedno zapytanie dla wszystkich swipe'ów
+        Map<Long, User> swipedUsers = byId(userService.getUserEntities(idsOf(operations,
+                pendingOf(operations, results, SWIPE), op -> op.getSwipe().getSwipedUserId())), User::getId);
+
+        // Ciągi kolejnych operacji tego samego rodzaju; odrzucone przy walidacji nie przerywają ciągu
+        int start = 0;
+        while (start < operations.size()) {
+            if (results[start] != null) {
+                start++;
+                continue;
+            }
+            String type = operations.get(start).getType();
+            List<Integer> run = new ArrayList<>();
+            int end = start;
+            while (end < operations.size() && (results[end] != null || type.equals(operations.get(end).getType()))) {
+                if (results[end] == null) {
+                    run.add(end);
+                }
+                end++;
+            }
+
+            switch (type) {
+                case SWIPE -> swipes(operations, results, actor, run, swipedUsers);
+                case MESSAGE -> messages(operations, results, actor, run);
+                case MARK_READ -> markAsRead(operations, results, userId, run);
+                default -> {
+                    for (int i : run) {
+                        results[i] = failure(i, operations.get(i),
+                                new IllegalArgumentException("Unknown operation type: " + type));
+                    }
+                }
+            }
+            start = end;
+        }
+
+        List<BatchOperationResponse> resultList = Arrays.asList(results);
+        int succeeded = (int) resultList.stream().filter(BatchOperationResponse::getSuccess).count();
+
+        log.info("Batch for user {} finished: {} succeeded, {} failed",
+                userId, succeeded, operations.size() - succeeded);
+
+        return BatchMutationResponse.builder()
+                .results(resultList)
+                .succeeded(succeeded)
+                .failed(operations.size() - succeeded)
+                .build();
+    }
+
+    // ========== OPERATIONS ==========
+
+    private void swipes(List<BatchOperationRequest> operations, BatchOperationResponse[] results, User actor,
+                        List<Integer> run, Map<Long, User> swipedUsers) {
+        for (int i : run) {
+            BatchOperationRequest op = operations.get(i);
+            try {
+                User swipedUser = require(swipedUsers, op.getSwipe().getSwipedUserId(), "User");
+                SwipeType swipeType = SwipeType.valueOf(op.getSwipe().getSwipeType());
+
+                // Własna transakcja SwipeService - błąd wycofuje tylko ten swipe
+                SwipeResponse response = swipeService.recordSwipe(actor, swipedUser, swipeType);
+                results[i] = success(i, op, HttpStatus.CREATED).swipe(response).build();
+            } catch (RuntimeException e) {
+                results[i] = failure(i, op, e);
+            }
+        }
+    }
+
+    /**
+     * Przygotowuje wiadomości ciągu z matchami wczytanymi po wcześniejszych operacjach paczki.
+     */
+    private void messages(List<BatchOperationRequest> operations, BatchOperationResponse[] results, User actor,
+                          List<Integer> run) {
+        Map<Long, Match> matches = byId(matchRepository.findAllById(
+                idsOf(operations, run, op -> op.getMessage().getMatchId())), Match::getId);
+
+        List<Integer> indexes = new ArrayList<>();
+        List<Message> prepared = new ArrayList<>();
+        for (int i : run) {
+            BatchOperationRequest op = operations.get(i);
+            try {
+                Match match = require(matches, op.getMessage().getMatchId(), "Match");
+                prepared.add(messageService.prepareMessage(actor, match, op.getMessage().getContent()));
+                indexes.add(i);
+            } catch (RuntimeException e) {
+                results[i] = failure(i, op, e);
+            }
+        }
+
+        saveMessages(operations, results, actor, matches, indexes, prepared);
+    }
+
+    /**
+     * Zapisuje wiadomości jedną transakcją; gdy ta się nie powiedzie, każdą osobno,
+     * żeby błędna wiadomość nie zabrała pozostałych.
+     */
+    private void saveMessages(List<BatchOperationRequest> operations, BatchOperationResponse[] results, User actor,
+                              Map<Long, Match> matches, List<Integer> indexes, List<Message> prepared) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<MessageResponse> saved = messageService.saveMessages(prepared);
+            for (int j = 0; j < indexes.size(); j++) {
+                int i = indexes.get(j);
+                results[i] = success(i, operations.get(i), HttpStatus.CREATED).message(saved.get(j)).build();
+            }
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Message batch of {} failed, saving one by one: {}", indexes.size(), e.getMessage());
+        }
+
+        for (int i : indexes) {
+            BatchOperationRequest op = operations.get(i);
+            try {
+                // Nowa encja - ta z wycofanej transakcji mogła dostać już ID
+                Match match = matches.get(op.getMessage().getMatchId());
+                Message message = messageService.prepareMessage(actor, match, op.getMessage().getContent());
+                MessageResponse saved = messageService.saveMessages(List.of(message)).get(0);
+                results[i] = success(i, op, HttpStatus.CREATED).message(saved).build();
+            } catch (RuntimeException e) {
+                results[i] = failure(i, op, e);
+            }
+        }
+    }
+
+    private void markAsRead(List<BatchOperationRequest> operations, BatchOperationResponse[] results,
+                            Long userId, List<Integer> run) {
+        Map<Long, Message> readMessages = byId(messageRepository.findAllById(
+                idsOf(operations, run, BatchOperationRequest::getMessageId)), Message::getId);
+
+        List<Integer> indexes = new ArrayList<>();
+        Set<Long> messageIds = new LinkedHashSet<>();
+        for (int i : run) {
+            BatchOperationRequest op = operations.get(i);
+            try {
+                Message message = require(readMessages, op.getMessageId(), "Message");
+                if (!message.getReceiver().getId().equals(userId)) {
+                    throw new UnauthorizedException("You can only mark your own messages as read");
+                }
+                messageIds.add(op.getMessageId());
+                indexes.add(i);
+            } catch (RuntimeException e) {
+                results[i] = failure(i, op, e);
+            }
+        }
+        if (indexes.isEmpty()) {
+            return;
+        }
+
+        // Oznaczenie już przeczytanej wiadomości też jest sukcesem (jak w MessageService.markAsRead)
+        try {
+            messageService.markAsRead(userId, messageIds);
+            for (int i : indexes) {
+                results[i] = success(i, operations.get(i), HttpStatus.OK).build();
+            }
+        } catch (RuntimeException e) {
+            for (int i : indexes) {
+                results[i] = failure(i, operations.get(i), e);
+            }
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Waliduje operację (adnotacje DTO i pole wymagane dla typu).
+     *
+     * @return Komunikat błędu albo null, gdy operacja jest poprawna
+     */
+    private String validate(BatchOperationRequest op) {
+        if (op == null) {
+            return "Operacja jest wymagana";
+        }
+
+        Set<ConstraintViolation<BatchOperationRequest>> violations = validator.validate(op);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .collect(Collectors.joining("; "));
+        }
+
+        return switch (op.getType()) {
+            case SWIPE -> op.getSwipe() == null ? "Operacja SWIPE wymaga pola swipe" : null;
+            case MESSAGE -> op.getMessage() == null ? "Operacja MESSAGE wymaga pola message" : null;
+            default -> op.getMessageId() == null ? "Operacja MARK_READ wymaga pola messageId" : null;
+        };
+    }
+
+    /**
+     * Indeksy poprawnych operacji danego typu.
+     */
+    private static List<Integer> pendingOf(List<BatchOperationRequest> operations, BatchOperationResponse[] results,
+                                           String type) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            if (results[i] == null && type.equals(operations.get(i).getType())) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * ID encji potrzebnych wskazanym operacjom.
+     */
+    private static Set<Long> idsOf(List<BatchOperationRequest> operations, List<Integer> indexes,
+                                   Function<BatchOperationRequest, Long> id) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (int i : indexes) {
+            ids.add(id.apply(operations.get(i)));
+        }
+        return ids;
+    }
+
+    private static <T> Map<Long, T> byId(Collection<T> entities, Function<T, Long> id) {
+        return entities.stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+
+    private static <T> T require(Map<Long, T> entities, Long id, String resourceName) {
+        T entity = entities.get(id);
+        if (entity == null) {
+            throw new ResourceNotFoundException(resourceName, id);
+        }
+        return entity;
+    }
+
+    private static BatchOperationResponse.BatchOperationResponseBuilder success(int index, BatchOperationRequest op,
+                                                                               HttpStatus status) {
+        return BatchOperationResponse.builder()
+                .index(index)
+                .clientId(op.getClientId())
+                .type(op.getType())
+                .success(true)
+                .status(status.value());
+    }
+
+    private static BatchOperationResponse failure(int index, BatchOperationRequest op, RuntimeException e) {
+        HttpStatus status = statusOf(e);
+        if (status == HttpStatus.INTERNAL_SERVER_ERROR) {
+            log.error("Batch operation {} ({}) failed: {}", index, op.getType(), e.getMessage(), e);
+            return failure(index, op, status, "Wystąpił nieoczekiwany błąd. Spróbuj ponownie później.");
+        }
+        log.debug("Batch operation {} ({}) rejected: {}", index, op.getType(), e.getMessage());
+        return failure(index, op, status, e.getMessage());
+    }
+
+    private static BatchOperationResponse failure(int index, BatchOperationRequest op, HttpStatus status, String error) {
+        return BatchOperationResponse.builder()
+                .index(index)
+                .clientId(op != null ? op.getClientId() : null)
+                .type(op != null ? op.getType() : null)
+                .success(false)
+                .status(status.value())
+                .error(error)
+                .build();
+    }
+
+    /**
+     * Kod HTTP, który dla danego wyjątku zwróciłby GlobalExceptionHandler.
+     */
+    private static HttpStatus statusOf(RuntimeException e) {
+        if (e instanceof ResourceNotFoundException) {
+            return HttpStatus.NOT_FOUND;
+        }
+        if (e instanceof UnauthorizedException) {
+            return HttpStatus.FORBIDDEN;
+        }
+        if (e instanceof AlreadyMatchedException) {
+            return HttpStatus.CONFLICT;
+        }
+        if (e instanceof InvalidSwipeException || e instanceof ValidationException
+                || e instanceof IllegalArgumentException) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+}
@@ -0,0 +1,79 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateDeckRefillEvent;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateDeckStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uzupełnia talie kandydatów w tle, na dedykowanej puli wątków.
+ *
+ * Zlecenia przychodzą jako CandidateDeckRefillEvent z MatchingEngineService;
+ * pula jest ograniczona (wątki i kolejka), a zlecenie odrzucone lub zakończone
+ * błędem zwalnia talię do ponownej próby przy kolejnym odczycie.
+ */
+@Slf4j
+@Component
+public class CandidateDeckRefiller {
+
+    private final MatchingEngineService matchingEngineService;
+    private final CandidateDeckStore candidateDeckStore;
+    private final ThreadPoolExecutor executor;
+
+    public CandidateDeckRefiller(MatchingEngineService matchingEngineService,
+                                 CandidateDeckStore candidateDeckStore,
+                                 MatchingProperties properties) {
+        this.matchingEngineService = matchingEngineService;
+        this.candidateDeckStore = candidateDeckStore;
+
+        MatchingProperties.Deck deck = properties.getDeck();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                deck.getRefillThreads(), deck.getRefillThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(deck.getRefillQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "deck-refill-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Przekazuje zlecenie uzupełnienia do puli wątków.
+     */
+    @EventListener
+    public void onRefillRequested(CandidateDeckRefillEvent event) {
+        try {
+            executor.execute(() -> refill(event));
+        } catch (RejectedExecutionException e) {
+            log.warn("Candidate deck refill rejected for user {} (queue full)", event.userId());
+            candidateDeckStore.abortRefill(event.userId(), event.ticket());
+        }
+    }
+
+    private void refill(CandidateDeckRefillEvent event) {
+        try {
+            matchingEngineService.refillDeck(event.userId(), event.ticket());
+        } catch (RuntimeException e) {
+            log.warn("Candidate deck refill failed for user {}: {}", event.userId(), e.getMessage());
+            candidateDeckStore.abortRefill(event.userId(), event.ticket());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,287 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.dao.CandidateRow;
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.entity.Preference;
+import AplikacjePrzemyslowe.DatApp.entity.Profile;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import AplikacjePrzemyslowe.DatApp.exception.ResourceNotFoundException;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateIndex;
+import AplikacjePrzemyslowe.DatApp.matching.GeoGridIndex;
+import AplikacjePrzemyslowe.DatApp.matching.PopularNearbyIndex;
+import AplikacjePrzemyslowe.DatApp.matching.ScoringContext;
+import AplikacjePrzemyslowe.DatApp.matching.ScoringContextLoader;
+import AplikacjePrzemyslowe.DatApp.matching.SwipedUserCache;
+import AplikacjePrzemyslowe.DatApp.repository.SwipeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Etap 1 pipeline'u dopasowań - generowanie kandydatów (tanie filtry, bez scoringu).
+ *
+ * 1. Preferencje (płeć, wiek) - przez CandidateIndex w pamięci, a dopóki indeks
+ *    nie jest zbudowany przez UserJdbcDao
+ * 2. Wyklucza już ocenionych użytkowników (SwipedUserCache) i osoby spoza maxDistanceKm (GeoGridIndex);
+ *    na ścieżce indeksu także kandydatów, w których preferencjach szukający się nie mieści (wzajemność)
+ * 3. Wiek i aktywność sprawdzane na projekcji CandidateRow; bez indeksu geo dystans liczony na współrzędnych
+ *
+ * Kandydaci czytani są jako CandidateRow (bez hasła, emaila i encji JPA).
+ *
+ * popularNearby() to tania lista zastępcza (PopularNearbyIndex) dla żądań,
+ * które nie zmieściły się w budżecie czasu - z tymi samymi filtrami wzajemności i dystansu.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CandidateGenerator {
+
+    private final ProfileService profileService;
+    private final SwipeRepository swipeRepository;
+    private final UserJdbcDao userJdbcDao;
+    private final CandidateIndex candidateIndex;
+    private final GeoGridIndex geoGridIndex;
+    private final SwipedUserCache swipedUserCache;
+    private final ScoringContextLoader scoringContextLoader;
+    private final PopularNearbyIndex popularNearbyIndex;
+    private final SwipeWriter swipeWriter;
+
+    /**
+     * Znajduje eligible kandydatów (spełniających preferencje, nie swipe'niętych).
+     */
+    public List<CandidateRow> generate(User currentUser, Preference preferences) {
+        log.debug("Finding eligible candidates for user: {}", currentUser.getId());
+
+        List<CandidateRow> candidates;
+        boolean distanceFiltered = false;
+        if (candidateIndex.isReady()) {
+            // Indeks w pamięci - preferencje (obu stron) rozwiązywane bez skanu tabeli users
+            Profile currentProfile = findProfile(currentUser.getId());
+            GeoGridIndex.Nearby nearby = geoGridIndex.isReady()
+                    ? findNearby(currentProfile, preferences)
+                    : null;
+            candidates = findCandidatesFromIndex(currentUser, currentProfile, preferences, nearby);
+            distanceFiltered = nearby != null;
+        } else {
+            // Fallback: indeks jeszcze nie zbudowany - złożone query przez JDBC DAO
+            candidates = userJdbcDao.findCandidateRowsByPreference(
+                    currentUser.getId(),
+                    preferences.getPreferredGender(),
+                    preferences.getMinAge(),
+                    preferences.getMaxAge()
+            );
+            // Query wyklucza tylko swipe'y już zapisane w tabeli swipes
+            Set<Long> pendingIds = swipeWriter.findPendingSwipedBy(currentUser.getId());
+            if (!pendingIds.isEmpty()) {
+                candidates = candidates.stream()
+                        .filter(candidate -> !pendingIds.contains(candidate.userId()))
+                        .toList();
+            }
+        }
+
+        // Dodatkowe filtrowanie w Javie (age calculation)
+        List<CandidateRow> eligible = candidates.stream()
+                .filter(candidate -> isAgeInRange(candidate, preferences))
+                .filter(CandidateRow::active)
+                .collect(Collectors.toList());
+
+        // Bez indeksu geo dystans sprawdzany jest dokładnie na współrzędnych kandydatów
+        if (!distanceFiltered && !eligible.isEmpty()) {
+            eligible = filterWithinMaxDistance(currentUser.getId(), eligible, preferences.getMaxDistanceKm());
+        }
+
+        return eligible;
+    }
+
+    /**
+     * Najpopularniejsi użytkownicy preferowanej płci z miasta szukającego (PopularNearbyIndex),
+     * bez już ocenionych, nieaktywnych i spoza zakresu wieku - najwyżej {@code limit}, w kolejności popularności.
+     * Wzajemność i maxDistanceKm sprawdzane są jak w generate(): na spakowanych preferencjach
+     * i współrzędnych CandidateIndex, a dopóki indeks nie jest zbudowany - sam dystans na współrzędnych.
+     * Używane tylko jako fallback po przekroczeniu budżetu czasu.
+     */
+    public List<CandidateRow> popularNearby(User currentUser, Preference preferences, int limit) {
+        long[] popular = popularNearbyIndex.find(currentUser.getCity(), preferences.getPreferredGender());
+        if (popular.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        LongPredicate swiped = swipedBy(currentUser.getId());
+        boolean indexed = candidateIndex.isReady();
+        LongPredicate accepted = indexed
+                ? candidateIndex.candidateFilter(toSearcher(currentUser, findProfile(currentUser.getId())),
+                        preferences.getMaxDistanceKm(), LocalDate.now())
+                : candidateId -> true;
+        List<Long> candidateIds = new ArrayList<>(popular.length);
+        for (long candidateId : popular) {
+            if (candidateId != currentUser.getId() && !swiped.test(candidateId) && accepted.test(candidateId)) {
+                candidateIds.add(candidateId);
+            }
+        }
+        if (candidateIds.isEmpty()) {
+            return List.of();
+        }
+
+        // findCandidateRows nie gwarantuje kolejności - przywracana kolejność popularności
+        Map<Long, CandidateRow> rows = new HashMap<>();
+        for (CandidateRow row : userJdbcDao.findCandidateRows(candidateIds)) {
+            rows.put(row.userId(), row);
+        }
+        List<CandidateRow> candidates = new ArrayList<>(candidateIds.size());
+        for (Long candidateId : candidateIds) {
+            CandidateRow candidate = rows.get(candidateId);
+            if (candidate != null && candidate.active() && isAgeInRange(candidate, preferences)) {
+                candidates.add(candidate);
+            }
+        }
+
+        // Bez indeksu dystans sprawdzany jest dokładnie na współrzędnych kandydatów
+        if (!indexed && !candidates.isEmpty()) {
+            candidates = filterWithinMaxDistance(currentUser.getId(), candidates, preferences.getMaxDistanceKm());
+        }
+        if (candidates.size() > limit) {
+            candidates = candidates.subList(0, limit);
+        }
+
+        log.debug("Popular nearby fallback for user {}: {} candidates", currentUser.getId(), candidates.size());
+        return candidates;
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Odpytuje GeoGridIndex o użytkowników w promieniu maxDistanceKm.
+     * Zwraca null gdy indeks nie jest gotowy albo szukający nie ma współrzędnych.
+     */
+    private GeoGridIndex.Nearby findNearby(Profile currentProfile, Preference preferences) {
+        if (!geoGridIndex.isReady() || !hasCoordinates(currentProfile)) {
+            return null;
+        }
+        return geoGridIndex.findWithinRadius(
+                currentProfile.getLatitude(),
+                currentProfile.getLongitude(),
+                preferences.getMaxDistanceKm()
+        );
+    }
+
+    /**
+     * Zostawia kandydatów w maksymalnym dystansie (dystanse z ScoringContextLoader - stała liczba zapytań).
+     * Kandydaci bez współrzędnych są dopuszczani (scoring przyjmuje dystans domyślny),
+     * a gdy szukający nie ma współrzędnych lista nie jest filtrowana. Kolejność kandydatów jest zachowana.
+     */
+    private List<CandidateRow> filterWithinMaxDistance(long userId, List<CandidateRow> candidates, int maxDistanceKm) {
+        ScoringContext context = scoringContextLoader.load(userId, toIds(candidates));
+        if (!context.searcherLocated()) {
+            return candidates;
+        }
+
+        List<CandidateRow> within = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            if (!context.isLocated(i) || context.distanceKm(i) <= maxDistanceKm) {
+                within.add(candidates.get(i));
+            }
+        }
+        return within;
+    }
+
+    /**
+     * Zwraca profil użytkownika lub null jeśli nie istnieje.
+     */
+    private Profile findProfile(Long userId) {
+        try {
+            return profileService.getProfileEntity(userId);
+        } catch (ResourceNotFoundException e) {
+            return null;
+        }
+    }
+
+    private boolean hasCoordinates(Profile profile) {
+        return profile != null && profile.getLatitude() != null && profile.getLongitude() != null;
+    }
+
+    /**
+     * Rozwiązuje preferencje przez CandidateIndex (z filtrem wzajemności) i wyklucza już ocenionych
+     * oraz (jeśli podano wynik GeoGridIndex) osoby spoza promienia.
+     * Projekcje CandidateRow ładowane są tylko dla ID, które przeszły filtr.
+     */
+    private List<CandidateRow> findCandidatesFromIndex(User currentUser, Profile currentProfile,
+                                                       Preference preferences, GeoGridIndex.Nearby nearby) {
+        LongPredicate swiped = swipedBy(currentUser.getId());
+        CandidateIndex.Searcher searcher = toSearcher(currentUser, currentProfile);
+
+        List<Long> candidateIds = new ArrayList<>();
+        for (CandidateIndex.Slice slice : candidateIndex.findSlices(
+                preferences.getPreferredGender(),
+                preferences.getMinAge(),
+                preferences.getMaxAge(),
+                LocalDate.now(),
+                searcher)) {
+            slice.forEach(candidateId -> {
+                if (candidateId != currentUser.getId()
+                        && !swiped.test(candidateId)
+                        && (nearby == null || nearby.contains(candidateId))) {
+                    candidateIds.add(candidateId);
+                }
+            });
+        }
+
+        log.debug("Candidate index resolved {} ids for user {}", candidateIds.size(), currentUser.getId());
+
+        if (candidateIds.isEmpty()) {
+            return List.of();
+        }
+        return userJdbcDao.findCandidateRows(candidateIds);
+    }
+
+    /**
+     * Szukający dla filtra wzajemności CandidateIndex (NaN, gdy profil nie ma współrzędnych).
+     */
+    private CandidateIndex.Searcher toSearcher(User currentUser, Profile currentProfile) {
+        boolean located = hasCoordinates(currentProfile);
+        return new CandidateIndex.Searcher(
+                currentUser.getGender(),
+                currentUser.getBirthDate(),
+                located ? currentProfile.getLatitude() : Double.NaN,
+                located ? currentProfile.getLongitude() : Double.NaN);
+    }
+
+    /**
+     * Zbiór już ocenionych z SwipedUserCache, a przy wyłączonym cache - z bazy
+     * i swipe'ów czekających na zapis w SwipeWriter (także dla MatchingEngineService).
+     */
+    LongPredicate swipedBy(Long userId) {
+        if (swipedUserCache.isEnabled()) {
+            return swipedUserCache.swipedBy(userId);
+        }
+        Set<Long> swipedIds = new HashSet<>(swipeRepository.findSwipedUserIds(userId));
+        swipedIds.addAll(swipeWriter.findPendingSwipedBy(userId));
+        return swipedIds::contains;
+    }
+
+    /**
+     * Sprawdza czy wiek kandydata mieści się w zakresie.
+     */
+    private boolean isAgeInRange(CandidateRow candidate, Preference preferences) {
+        int age = Period.between(candidate.birthDate(), LocalDate.now()).getYears();
+        return age >= preferences.getMinAge() && age <= preferences.getMaxAge();
+    }
+
+    private static List<Long> toIds(List<CandidateRow> candidates) {
+        List<Long> ids = new ArrayList<>(candidates.size());
+        for (CandidateRow candidate : candidates) {
+            ids.add(candidate.userId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,80 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.CandidateRow;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import AplikacjePrzemyslowe.DatApp.matching.InterestBitsetIndex;
+import AplikacjePrzemyslowe.DatApp.matching.TopKSelector;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Etap 2 pipeline'u dopasowań - lekki pre-scoring, który przycina pulę przed pełnym scoringiem.
+ *
+ * Pre-score liczony jest wyłącznie z danych w pamięci (bez zapytań):
+ * wspólne zainteresowania z InterestBitsetIndex i różnica wieku z CandidateRow, plus pełny bonus
+ * za kompletny profil i zero kary za dystans - czyli górne ograniczenie pełnego score.
+ * Do CandidateScorer trafia pre-score-limit najlepszych, w kolejności z generatora.
+ *
+ * Pula nie jest przycinana, gdy mieści się w limicie, limit jest wyłączony (0)
+ * albo InterestBitsetIndex nie jest jeszcze załadowany.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CandidatePreScorer {
+
+    private final MatchingProperties properties;
+    private final InterestBitsetIndex interestBitsetIndex;
+
+    /**
+     * Zwraca kandydatów, którzy przechodzą do pełnego scoringu.
+     */
+    public List<CandidateRow> preScore(User currentUser, List<CandidateRow> candidates) {
+        int limit = properties.getPipeline().getPreScoreLimit();
+        if (limit <= 0 || candidates.size() <= limit || !interestBitsetIndex.isReady()) {
+            return candidates;
+        }
+        return preScore(currentUser, candidates, limit);
+    }
+
+    /**
+     * Zwraca {@code limit} kandydatów z najwyższym pre-score (w kolejności z generatora).
+     * Przycina zawsze, gdy pula przekracza limit (np. budget-score-limit w budżecie czasu) -
+     * bez załadowanego InterestBitsetIndex pre-score to tylko kara za różnicę wieku.
+     */
+    public List<CandidateRow> preScore(User currentUser, List<CandidateRow> candidates, int limit) {
+        if (candidates.size() <= limit) {
+            return candidates;
+        }
+
+        boolean withInterests = interestBitsetIndex.isReady();
+        long[] searcherBits = withInterests ? interestBitsetIndex.bitsOf(currentUser.getId()) : null;
+        TopKSelector<Integer> selector = new TopKSelector<>(limit);
+        for (int i = 0; i < candidates.size(); i++) {
+            CandidateRow candidate = candidates.get(i);
+            int commonInterests = withInterests ? interestBitsetIndex.countCommon(searcherBits, candidate.userId()) : 0;
+            int preScore = commonInterests * 10
+                    + CandidateScorer.COMPLETE_PROFILE_BONUS
+                    - CandidateScorer.agePenalty(currentUser.getBirthDate(), candidate.birthDate());
+            selector.offer(preScore, i);
+        }
+
+        // Kolejność z generatora - przy równym score pełny scoring rozstrzyga jak bez przycinania
+        int[] kept = selector.drainDescending().stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(kept);
+        List<CandidateRow> survivors = new ArrayList<>(kept.length);
+        for (int i : kept) {
+            survivors.add(candidates.get(i));
+        }
+
+        log.debug("Pre-scoring for user {} kept {} of {} candidates",
+                currentUser.getId(), survivors.size(), candidates.size());
+        return survivors;
+    }
+}
@@ -0,0 +1,197 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.dao.CandidateRow;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import AplikacjePrzemyslowe.DatApp.matching.Deadline;
+import AplikacjePrzemyslowe.DatApp.matching.PairScoreCache;
+import AplikacjePrzemyslowe.DatApp.matching.ParallelRanker;
+import AplikacjePrzemyslowe.DatApp.matching.ScoringContext;
+import AplikacjePrzemyslowe.DatApp.matching.ScoringContextLoader;
+import AplikacjePrzemyslowe.DatApp.matching.TopKSelector;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Etap 3 pipeline'u dopasowań - pełny compatibility score i wybór najlepszych.
+ *
+ * Dane do scoringu wczytywane są zbiorczo przez ScoringContextLoader (stała liczba zapytań
+ * niezależnie od liczby kandydatów); wyniki par zapamiętywane są w PairScoreCache i liczone
+ * ponownie dopiero po zmianie wersji profilu lub preferencji. Najlepsi wybierani są
+ * TopKSelector-em, a duże pule liczone równolegle (ParallelRanker).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CandidateScorer {
+
+    /**
+     * Bonus za kompletny profil (bio, zdjęcie, zainteresowanie).
+     */
+    static final int COMPLETE_PROFILE_BONUS = 20;
+
+    private final ScoringContextLoader scoringContextLoader;
+    private final ParallelRanker parallelRanker;
+    private final PairScoreCache pairScoreCache;
+
+    /**
+     * Liczy score kandydatów i zachowuje tylko {@code limit} najlepszych.
+     * Przy równym score kolejność jak w liście wejściowej.
+     *
+     * Dane do scoringu wczytywane są zbiorczo w wątku żądania (loadFeatures);
+     * dla dużych pul równolegle (ParallelRanker) liczony jest sam score.
+     */
+    public TopKSelector<ScoredCandidate> rank(User currentUser, List<CandidateRow> candidates, int limit) {
+        return rank(currentUser, candidates, limit, Deadline.NONE);
+    }
+
+    /**
+     * Jak {@link #rank(User, List, int)}, ale scoring przerywany jest po terminie {@code deadline}
+     * (sprawdzanym co Deadline.CHECK_INTERVAL kandydatów) - selektor zawiera wtedy najlepszych
+     * spośród policzonych, a deadline.wasExceeded() zwraca true.
+     *
+     * Termin minął przed wczytaniem danych - selektor jest pusty (bez zapytań). Gdy dane są już
+     * wczytane, pierwsza porcja (CHECK_INTERVAL kandydatów) liczona jest zawsze: to sama arytmetyka,
+     * tańsza niż ranking zastępczy z kolejnymi zapytaniami.
+     */
+    public TopKSelector<ScoredCandidate> rank(User currentUser, List<CandidateRow> candidates, int limit,
+                                              Deadline deadline) {
+        if (deadline.isExpired()) {
+            return new TopKSelector<>(limit);
+        }
+        List<CandidateFeatures> features = loadFeatures(currentUser, candidates);
+
+        if (!deadline.isExpired() && parallelRanker.isParallel(features.size())) {
+            TopKSelector<ScoredCandidate> selector = parallelRanker.rank(features, limit,
+                    candidate -> scoreCandidate(currentUser, candidate),
+                    ScoredCandidate::getScore, deadline);
+            if (selector.size() > 0) {
+                return selector;
+            }
+            // Termin minął, zanim którykolwiek fragment zaczął liczyć - pierwsza porcja w wątku żądania
+        }
+        return rankSequential(currentUser, features, limit, deadline);
+    }
+
+    /**
+     * Score jednego kandydata (np. głowy talii).
+     */
+    public ScoredCandidate score(User currentUser, User candidate) {
+        ScoringContext context = scoringContextLoader.load(currentUser.getId(), List.of(candidate.getId()));
+        return scoreCandidate(currentUser, CandidateFeatures.of(candidate.getId(), candidate.getBirthDate(), context, 0));
+    }
+
+    /**
+     * Kara za różnicę wieku: -2 punkty za każdy rok, max -20.
+     */
+    static int agePenalty(LocalDate currentUserBirthDate, LocalDate candidateBirthDate) {
+        int ageDifference = Math.abs(
+                Period.between(currentUserBirthDate, candidateBirthDate).getYears()
+        );
+        return Math.min(ageDifference * 2, 20);
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Score w wątku wywołującym; termin sprawdzany od drugiej porcji, więc pierwsza liczona jest zawsze.
+     */
+    private TopKSelector<ScoredCandidate> rankSequential(User currentUser, List<CandidateFeatures> features,
+                                                         int limit, Deadline deadline) {
+        TopKSelector<ScoredCandidate> selector = new TopKSelector<>(limit);
+        for (int i = 0; i < features.size(); i++) {
+            if (i > 0 && i % Deadline.CHECK_INTERVAL == 0 && deadline.isExpired()) {
+                break;
+            }
+            ScoredCandidate scored = scoreCandidate(currentUser, features.get(i));
+            selector.offer(scored.getScore(), scored);
+        }
+        return selector;
+    }
+
+    /**
+     * Wczytuje dane do scoringu wszystkich kandydatów jednym ScoringContext
+     * (stała liczba zapytań zamiast profilu i COUNT wspólnych zainteresowań per kandydat).
+     */
+    private List<CandidateFeatures> loadFeatures(User currentUser, List<CandidateRow> candidates) {
+        List<Long> candidateIds = new ArrayList<>(candidates.size());
+        for (CandidateRow candidate : candidates) {
+            candidateIds.add(candidate.userId());
+        }
+        ScoringContext context = scoringContextLoader.load(currentUser.getId(), candidateIds);
+
+        List<CandidateFeatures> features = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            CandidateRow candidate = candidates.get(i);
+            features.add(CandidateFeatures.of(candidate.userId(), candidate.birthDate(), context, i));
+        }
+        return features;
+    }
+
+    /**
+     * Oblicza compatibility score dla kandydata (albo zwraca aktualny wynik z PairScoreCache).
+     *
+     * Scoring algorithm:
+     * - Wspólne zainteresowania: +10 punktów za każde
+     * - Dystans: -1 punkt za każde 10km
+     * - Completeness profilu: +20 punktów za kompletny profil
+     * - Age difference: -2 punkty za każdy rok różnicy (max -20)
+     *
+     * Max score: ~100 punktów
+     */
+    private ScoredCandidate scoreCandidate(User currentUser, CandidateFeatures features) {
+        long candidateId = features.candidateId();
+        if (features.cachedScore() != ScoringContext.NO_SCORE) {
+            return new ScoredCandidate(candidateId, features.cachedScore(),
+                    features.commonInterests(), features.distance());
+        }
+        int score = 0;
+
+        // 1. Wspólne zainteresowania (+10 za każde) - policzone w ScoringContext
+        int commonInterests = features.commonInterests();
+        score += commonInterests * 10;
+
+        // 2. Dystans (-1 za każde 10km) - policzony wsadowo w ScoringContext
+        double distance = features.distance();
+        score -= (int) (distance / 10);
+
+        // 3. Completeness profilu (+20 punktów)
+        if (features.profileComplete()) {
+            score += COMPLETE_PROFILE_BONUS;
+        }
+
+        // 4. Age difference (-2 za każdy rok, max -20)
+        score -= agePenalty(currentUser.getBirthDate(), features.birthDate());
+
+        // Minimum score: 0
+        score = Math.max(score, 0);
+
+        log.debug("Scored candidate {} for user {}: {} points (commonInterests: {}, distance: {}km)",
+                candidateId, currentUser.getId(), score, commonInterests, distance);
+
+        pairScoreCache.put(currentUser.getId(), candidateId,
+                new PairScoreCache.Entry(score, commonInterests, distance, features.stamp()));
+
+        return new ScoredCandidate(candidateId, score, commonInterests, distance);
+    }
+
+    // ========== INNER CLASS ==========
+
+    /**
+     * Dane kandydata potrzebne do scoringu, odczytane z ScoringContext w wątku żądania.
+     * cachedScore różny od NO_SCORE oznacza aktualny wynik z PairScoreCache.
+     */
+    private record CandidateFeatures(long candidateId, LocalDate birthDate, int commonInterests, double distance,
+                                     boolean profileComplete, int cachedScore, PairScoreCache.Stamp stamp) {
+
+        static CandidateFeatures of(long candidateId, LocalDate birthDate, ScoringContext context, int i) {
+            return new CandidateFeatures(candidateId, birthDate, context.commonInterests(i), context.distanceKm(i),
+                    context.isProfileComplete(i), context.cachedScore(i), context.stamp(i));
+        }
+    }
+}
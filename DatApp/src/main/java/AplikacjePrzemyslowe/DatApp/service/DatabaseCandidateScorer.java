@@ -0,0 +1,60 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.entity.Preference;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import AplikacjePrzemyslowe.DatApp.matching.ScoringContextLoader;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scoring w bazie (matching.scoring.mode = DATABASE) - alternatywa dla etapów
+ * CandidateGenerator/CandidatePreScorer/CandidateScorer.
+ *
+ * MySQL liczy score całej puli i zwraca tylko top-K (UserJdbcDao.findTopScoredCandidates),
+ * więc do aplikacji trafia {@code limit} wierszy (same ID i wyniki) zamiast całej puli.
+ * Swipe'y czekające w SwipeWriter (jeszcze nie w tabeli swipes) przekazywane są jako wykluczenia.
+ * Dla deploymentów z małymi węzłami aplikacji; indeksy w pamięci i PairScoreCache
+ * nie są w tym trybie używane.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DatabaseCandidateScorer {
+
+    private final UserJdbcDao userJdbcDao;
+    private final SwipeWriter swipeWriter;
+
+    /**
+     * Wybiera {@code limit} najlepszych kandydatów policzonych w bazie.
+     */
+    public MatchingPipeline.Ranking rank(User currentUser, Preference preferences, int limit) {
+        List<UserJdbcDao.ScoredCandidateRow> rows = userJdbcDao.findTopScoredCandidates(
+                currentUser.getId(),
+                preferences.getPreferredGender(),
+                preferences.getMinAge(),
+                preferences.getMaxAge(),
+                preferences.getMaxDistanceKm(),
+                ScoringContextLoader.DEFAULT_DISTANCE_KM,
+                swipeWriter.findPendingSwipedBy(currentUser.getId()),
+                limit
+        );
+        if (rows.isEmpty()) {
+            return new MatchingPipeline.Ranking(0, List.of());
+        }
+
+        List<ScoredCandidate> ranked = new ArrayList<>(rows.size());
+        for (UserJdbcDao.ScoredCandidateRow row : rows) {
+            ranked.add(new ScoredCandidate(row.userId(), row.score(), row.commonInterests(), row.distanceKm()));
+        }
+
+        log.debug("Database scoring for user {}: {} of {} candidates ranked",
+                currentUser.getId(), ranked.size(), rows.get(0).totalCandidates());
+
+        return new MatchingPipeline.Ranking(rows.get(0).totalCandidates(), ranked);
+    }
+}
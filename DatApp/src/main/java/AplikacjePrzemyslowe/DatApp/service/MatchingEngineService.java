@@ -1,15 +1,21 @@
 package AplikacjePrzemyslowe.DatApp.service;
 
-import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dto.response.CandidatePageResponse;
 import AplikacjePrzemyslowe.DatApp.dto.response.CandidateResponse;
 import AplikacjePrzemyslowe.DatApp.dto.response.InterestResponse;
 import AplikacjePrzemyslowe.DatApp.dto.response.PhotoResponse;
 import AplikacjePrzemyslowe.DatApp.entity.*;
+import AplikacjePrzemyslowe.DatApp.exception.CursorExpiredException;
 import AplikacjePrzemyslowe.DatApp.exception.ResourceNotFoundException;
-import AplikacjePrzemyslowe.DatApp.repository.SwipeRepository;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateCursor;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateDeckRefillEvent;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateDeckStore;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateSnapshotStore;
+import AplikacjePrzemyslowe.DatApp.matching.TopPicksStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -19,35 +25,52 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.*;
+import java.util.function.LongPredicate;
 import java.util.stream.Collectors;
 
 /**
  * Service dla matching algorithm - główny silnik dopasowywania kandydatów.
  *
- * Algorytm matching:
- * 1. Filtruje po preferencjach (płeć, wiek)
- * 2. Wyklucza już ocenionych użytkowników
- * 3. Oblicza compatibility score (wspólne zainteresowania, dystans)
- * 4. Sortuje po score (malejąco)
+ * Ranking liczy MatchingPipeline (retrieve-then-rerank):
+ * 1. CandidateGenerator - preferencje (CandidateIndex), wykluczenie ocenionych (SwipedUserCache)
+ *    i osób spoza maxDistanceKm (GeoGridIndex)
+ * 2. CandidatePreScorer - lekki score z danych w pamięci przycina pulę
+ * 3. CandidateScorer - pełny compatibility score (ScoringContextLoader, PairScoreCache)
+ *    i wybór najlepszych (TopKSelector, ParallelRanker)
+ *
+ * getNextCandidate czyta głowę talii (CandidateDeckStore) w O(1); pełny pipeline
+ * liczony jest tylko przy zimnym starcie (w budżecie czasu matching.pipeline.time-budget),
+ * a talia uzupełniana jest w tle (CandidateDeckRefiller). Zimny start najpierw próbuje
+ * rankingu policzonego nocą przez TopPicksJob (TopPicksStore).
+ *
+ * Pipeline operuje na lekkich projekcjach (CandidateRow) i ID; encje User i Profile
+ * ładowane są tylko dla kandydatów renderowanej strony.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class MatchingEngineService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final UserService userService;
     private final PreferenceService preferenceService;
     private final ProfileService profileService;
-    private final InterestService interestService;
-    private final SwipeRepository swipeRepository;
-    private final UserJdbcDao userJdbcDao;
+    private final CandidateGenerator candidateGenerator;
+    private final CandidateDeckStore candidateDeckStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CandidateSnapshotStore candidateSnapshotStore;
+    private final MatchingPipeline matchingPipeline;
+    private final CandidateScorer candidateScorer;
+    private final TopPicksStore topPicksStore;
     private final ModelMapper modelMapper;
 
     // ========== MATCHING ALGORITHM ==========
 
     /**
      * Znajduje następnego kandydata dla użytkownika.
-     * Algorytm filtruje po preferencjach i sortuje po compatibility score.
+     * Kandydat pochodzi z talii użytkownika; przy zimnym starcie algorytm filtruje
+     * po preferencjach, sortuje po compatibility score i zapisuje najlepszych do talii.
      *
      * @param userId ID użytkownika szukającego
      * @return CandidateResponse lub null jeśli brak kandydatów
@@ -56,31 +79,78 @@ public class MatchingEngineService {
     public CandidateResponse getNextCandidate(Long userId) {
         log.info("Finding next candidate for user: {}", userId);
 
-        // Pobierz użytkownika i jego preferencje
         User currentUser = userService.getUserEntity(userId);
+
+        // Szybka ścieżka: głowa talii
+        CandidateResponse fromDeck = nextFromDeck(currentUser);
+        if (fromDeck != null) {
+            return fromDeck;
+        }
+
+        // Zimny start: pełny pipeline, najlepsi kandydaci trafiają do talii
+        long ticket = candidateDeckStore.startRefill(userId);
+
+        // Ranking z nocnego przebiegu (TopPicksJob) zastępuje pipeline, jeśli jest świeży
+        if (ticket != CandidateDeckStore.NO_TICKET && installTopPicks(userId, ticket)) {
+            CandidateResponse fromTopPicks = nextFromDeck(currentUser);
+            if (fromTopPicks != null) {
+                return fromTopPicks;
+            }
+            // Wszyscy z zapisanego rankingu zdezaktywowani - liczymy pipeline
+            ticket = candidateDeckStore.startRefill(userId);
+        }
+
         Preference preferences = preferenceService.getPreferenceEntity(userId);
 
-        // Znajdź kandydatów spełniających preferencje
-        List<User> candidates = findEligibleCandidates(currentUser, preferences);
+        // Kandydaci spełniający preferencje, najlepsi po compatibility score (capacity talii),
+        // w budżecie czasu żądania
+        MatchingPipeline.Ranking ranking = matchingPipeline.rankWithinBudget(currentUser, preferences, deckCapacity());
+
+        if (ranking.degraded()) {
+            // Niepełny ranking nie trafia do talii - pełna talia liczona jest w tle
+            if (ticket != CandidateDeckStore.NO_TICKET) {
+                eventPublisher.publishEvent(new CandidateDeckRefillEvent(userId, ticket));
+            }
+        } else if (ranking.isEmpty() && ticket != CandidateDeckStore.NO_TICKET) {
+            candidateDeckStore.abortRefill(userId, ticket);
+        }
 
-        if (candidates.isEmpty()) {
+        if (ranking.isEmpty()) {
             log.info("No candidates found for user: {}", userId);
             return null;
         }
 
-        // Oblicz compatibility score dla każdego kandydata
-        List<ScoredCandidate> scoredCandidates = candidates.stream()
-                .map(candidate -> scoreCandidate(currentUser, candidate))
-                .sorted(Comparator.comparingInt(ScoredCandidate::getScore).reversed())
-                .collect(Collectors.toList());
+        List<ScoredCandidate> ranked = ranking.ranked();
+        if (!ranking.degraded() && ticket != CandidateDeckStore.NO_TICKET) {
+            candidateDeckStore.install(userId, ticket, toUserIds(ranked));
+        }
+        ScoredCandidate bestMatch = ranked.get(0);
+        User candidate = userService.getUserEntity(bestMatch.getCandidateId());
+
+        log.info("Found best match for user {}: {} (score: {}, degraded: {})",
+                userId, candidate.getUsername(), bestMatch.getScore(), ranking.degraded());
 
-        // Zwróć najlepiej pasującego kandydata
-        User bestMatch = scoredCandidates.get(0).getUser();
+        CandidateResponse response = mapToCandidateResponse(bestMatch, candidate);
+        response.setDegraded(ranking.degraded());
+        return response;
+    }
 
-        log.info("Found best match for user {}: {} (score: {})",
-                userId, bestMatch.getUsername(), scoredCandidates.get(0).getScore());
+    /**
+     * Przelicza talię użytkownika (wywoływane w tle przez CandidateDeckRefiller).
+     *
+     * @param userId ID użytkownika
+     * @param ticket Numer generacji z CandidateDeckStore
+     */
+    @Transactional(readOnly = true)
+    public void refillDeck(Long userId, long ticket) {
+        User currentUser = userService.getUserEntity(userId);
+        Preference preferences = preferenceService.getPreferenceEntity(userId);
+
+        long[] rankedIds = toUserIds(matchingPipeline.rank(currentUser, preferences, deckCapacity()).ranked());
 
-        return mapToCandidateResponse(currentUser, bestMatch, scoredCandidates.get(0).getScore());
+        boolean installed = candidateDeckStore.install(userId, ticket, rankedIds);
+        log.debug("Candidate deck refill for user {}: {} candidates (installed: {})",
+                userId, rankedIds.length, installed);
     }
 
     /**
@@ -95,163 +165,244 @@ public class MatchingEngineService {
         User currentUser = userService.getUserEntity(userId);
         Preference preferences = preferenceService.getPreferenceEntity(userId);
 
-        // Znajdź wszystkich kandydatów
-        List<User> candidates = findEligibleCandidates(currentUser, preferences);
+        // Score i wybór top (offset + pageSize) - reszta kandydatów jest od razu odrzucana
+        int limit = (int) Math.min(Integer.MAX_VALUE, pageable.getOffset() + pageable.getPageSize());
+        MatchingPipeline.Ranking ranking = matchingPipeline.rank(currentUser, preferences, limit);
 
-        if (candidates.isEmpty()) {
+        if (ranking.isEmpty()) {
             log.info("No candidates found for user: {}", userId);
             return Page.empty(pageable);
         }
 
-        // Score i sortuj
-        List<ScoredCandidate> scoredCandidates = candidates.stream()
-                .map(candidate -> scoreCandidate(currentUser, candidate))
-                .sorted(Comparator.comparingInt(ScoredCandidate::getScore).reversed())
-                .collect(Collectors.toList());
+        long totalCandidates = ranking.totalCandidates();
+        List<ScoredCandidate> ranked = ranking.ranked();
 
-        // Paginacja
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), scoredCandidates.size());
+        // Paginacja - encje tylko dla kandydatów tej strony
+        int start = (int) Math.min(pageable.getOffset(), ranked.size());
+        List<ScoredCandidate> page = ranked.subList(start, ranked.size());
+        Map<Long, User> usersById = loadUsers(page.stream().map(ScoredCandidate::getCandidateId).toList());
 
-        List<CandidateResponse> pageContent = scoredCandidates.subList(start, end).stream()
-                .map(scored -> mapToCandidateResponse(currentUser, scored.getUser(), scored.getScore()))
-                .collect(Collectors.toList());
+        List<CandidateResponse> pageContent = new ArrayList<>(page.size());
+        for (ScoredCandidate scored : page) {
+            User candidate = usersById.get(scored.getCandidateId());
+            if (candidate != null) {
+                pageContent.add(mapToCandidateResponse(scored, candidate));
+            }
+        }
 
-        log.info("Found {} candidates for user: {}", scoredCandidates.size(), userId);
+        log.info("Found {} candidates for user: {}", totalCandidates, userId);
 
-        return new PageImpl<>(pageContent, pageable, scoredCandidates.size());
+        return new PageImpl<>(pageContent, pageable, totalCandidates);
+    }
+
+    /**
+     * Strona kandydatów stronicowana kursorem.
+     * Bez kursora liczony jest ranking i zapisywany jako snapshot; z kursorem strona
+     * czytana jest wprost ze snapshotu (bez filtrowania, scoringu i zapytania COUNT).
+     * Snapshot obejmuje najwyżej matching.snapshot.max-candidates najlepszych kandydatów.
+     *
+     * @param userId ID użytkownika szukającego
+     * @param cursor Kursor z poprzedniej strony lub null dla pierwszej strony
+     * @param size   Rozmiar strony (1-100)
+     * @throws CursorExpiredException gdy snapshot kursora wygasł
+     */
+    @Transactional(readOnly = true)
+    public CandidatePageResponse getCandidatePage(Long userId, String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        CandidateSnapshotStore.Snapshot snapshot;
+        int offset;
+        if (cursor == null || cursor.isBlank()) {
+            log.info("Creating candidate snapshot for user: {}", userId);
+            snapshot = createSnapshot(userId);
+            offset = 0;
+        } else {
+            CandidateCursor position = CandidateCursor.decode(cursor);
+            snapshot = candidateSnapshotStore.get(position.snapshotId(), userId);
+            if (snapshot == null) {
+                throw new CursorExpiredException("Kursor wygasł - pobierz listę kandydatów od początku");
+            }
+            offset = Math.min(position.offset(), snapshot.size());
+        }
+
+        int end = Math.min(offset + size, snapshot.size());
+        List<CandidateResponse> content = mapSnapshotRange(userId, snapshot, offset, end);
+        boolean hasNext = end < snapshot.size();
+
+        log.info("Candidate page for user {}: {} candidates (offset: {}, total: {}, matching: {})",
+                userId, content.size(), offset, snapshot.size(), snapshot.totalCandidates());
+
+        // totalElements to rozmiar snapshotu - zgodny z hasNext; przycięcie rankingu sygnalizuje truncated
+        return CandidatePageResponse.builder()
+                .content(content)
+                .nextCursor(hasNext ? new CandidateCursor(snapshot.id(), end).encode() : null)
+                .totalElements((long) snapshot.size())
+                .truncated(snapshot.totalCandidates() > snapshot.size())
+                .pageSize(size)
+                .hasNext(hasNext)
+                .build();
     }
 
     // ========== HELPER METHODS ==========
 
     /**
-     * Znajduje eligible kandydatów (spełniających preferencje, nie swipe'niętych).
+     * Liczy ranking (max maxCandidates najlepszych) i zapisuje go jako snapshot.
      */
-    private List<User> findEligibleCandidates(User currentUser, Preference preferences) {
-        log.debug("Finding eligible candidates for user: {}", currentUser.getId());
-
-        // Użyj JDBC DAO dla wydajności (złożone query)
-        Page<User> candidatesPage = userJdbcDao.findCandidatesByPreference(
-                currentUser.getId(),
-                preferences.getPreferredGender(),
-                preferences.getMinAge(),
-                preferences.getMaxAge(),
-                Pageable.unpaged()
-        );
-
-        List<User> candidates = candidatesPage.getContent();
-
-        // Dodatkowe filtrowanie w Javie (age calculation)
-        return candidates.stream()
-                .filter(candidate -> isAgeInRange(candidate, preferences))
-                .filter(User::getIsActive)
-                .collect(Collectors.toList());
+    private CandidateSnapshotStore.Snapshot createSnapshot(Long userId) {
+        User currentUser = userService.getUserEntity(userId);
+        Preference preferences = preferenceService.getPreferenceEntity(userId);
+        MatchingPipeline.Ranking ranking =
+                matchingPipeline.rank(currentUser, preferences, candidateSnapshotStore.maxCandidates());
+        long totalCandidates = ranking.totalCandidates();
+        List<ScoredCandidate> ranked = ranking.ranked();
+
+        int count = ranked.size();
+        long[] candidateIds = new long[count];
+        int[] scores = new int[count];
+        int[] commonInterests = new int[count];
+        double[] distances = new double[count];
+        for (int i = 0; i < count; i++) {
+            ScoredCandidate scored = ranked.get(i);
+            candidateIds[i] = scored.getCandidateId();
+            scores[i] = scored.getScore();
+            commonInterests[i] = scored.getCommonInterests();
+            distances[i] = scored.getDistance();
+        }
+        return candidateSnapshotStore.create(userId, totalCandidates, candidateIds, scores, commonInterests, distances);
     }
 
     /**
-     * Sprawdza czy wiek kandydata mieści się w zakresie.
+     * Mapuje pozycje [from, to) snapshotu na CandidateResponse w kolejności rankingu.
+     * Kandydaci usunięci, zdezaktywowani lub ocenieni od utworzenia snapshotu są pomijani,
+     * ale pozycje kolejnych stron się nie przesuwają.
      */
-    private boolean isAgeInRange(User candidate, Preference preferences) {
-        int age = Period.between(candidate.getBirthDate(), LocalDate.now()).getYears();
-        return age >= preferences.getMinAge() && age <= preferences.getMaxAge();
+    private List<CandidateResponse> mapSnapshotRange(Long userId, CandidateSnapshotStore.Snapshot snapshot,
+                                                     int from, int to) {
+        if (from >= to) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ids.add(snapshot.candidateIds()[i]);
+        }
+        Map<Long, User> usersById = loadUsers(ids);
+        LongPredicate swiped = candidateGenerator.swipedBy(userId);
+
+        List<CandidateResponse> content = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            User candidate = usersById.get(snapshot.candidateIds()[i]);
+            if (candidate == null || !Boolean.TRUE.equals(candidate.getIsActive()) || swiped.test(candidate.getId())) {
+                continue;
+            }
+            content.add(mapToCandidateResponse(new ScoredCandidate(candidate.getId(),
+                    snapshot.scores()[i], snapshot.commonInterests()[i], snapshot.distances()[i]), candidate));
+        }
+        return content;
     }
 
     /**
-     * Oblicza compatibility score dla kandydata.
-     *
-     * Scoring algorithm:
-     * - Wspólne zainteresowania: +10 punktów za każde
-     * - Dystans: -1 punkt za każde 10km
-     * - Completeness profilu: +20 punktów za kompletny profil
-     * - Age difference: -2 punkty za każdy rok różnicy (max -20)
-     *
-     * Max score: ~100 punktów
+     * Zwraca kandydata z głowy talii (O(1)) albo null gdy talia jest pusta.
+     * Kandydaci zdezaktywowani od czasu zbudowania talii są z niej usuwani.
      */
-    private ScoredCandidate scoreCandidate(User currentUser, User candidate) {
-        int score = 0;
-
-        // 1. Wspólne zainteresowania (+10 za każde)
-        long commonInterests = interestService.countCommonInterests(
-                currentUser.getId(),
-                candidate.getId()
-        );
-        score += (int) (commonInterests * 10);
-
-        // 2. Dystans (-1 za każde 10km)
-        double distance = calculateDistance(currentUser, candidate);
-        score -= (int) (distance / 10);
-
-        // 3. Completeness profilu (+20 punktów)
-        if (isProfileComplete(candidate)) {
-            score += 20;
+    private CandidateResponse nextFromDeck(User currentUser) {
+        long userId = currentUser.getId();
+        OptionalLong head = candidateDeckStore.peek(userId);
+        while (head.isPresent()) {
+            long candidateId = head.getAsLong();
+            User candidate = findActiveUser(candidateId);
+            if (candidate != null) {
+                requestRefillIfLow(userId);
+                ScoredCandidate scored = candidateScorer.score(currentUser, candidate);
+
+                log.info("Next candidate for user {} from deck: {} (score: {})",
+                        userId, candidate.getUsername(), scored.getScore());
+
+                return mapToCandidateResponse(scored, candidate);
+            }
+            candidateDeckStore.remove(userId, candidateId);
+            head = candidateDeckStore.peek(userId);
         }
-
-        // 4. Age difference (-2 za każdy rok, max -20)
-        int ageDifference = Math.abs(
-                Period.between(currentUser.getBirthDate(), candidate.getBirthDate()).getYears()
-        );
-        score -= Math.min(ageDifference * 2, 20);
-
-        // Minimum score: 0
-        score = Math.max(score, 0);
-
-        log.debug("Scored candidate {} for user {}: {} points (commonInterests: {}, distance: {}km)",
-                candidate.getUsername(), currentUser.getUsername(), score, commonInterests, distance);
-
-        return new ScoredCandidate(candidate, score, (int) commonInterests, distance);
+        return null;
     }
 
     /**
-     * Oblicza dystans między użytkownikami (Haversine formula).
-     * Zwraca dystans w kilometrach.
+     * Instaluje jako talię zapisany ranking z TopPicksStore bez kandydatów ocenionych od jego przeliczenia.
+     *
+     * @return false gdy brak świeżego rankingu (ticket pozostaje nieużyty)
      */
-    private double calculateDistance(User user1, User user2) {
-        Profile profile1 = profileService.getProfileEntity(user1.getId());
-        Profile profile2 = profileService.getProfileEntity(user2.getId());
-
-        // Jeśli brak koordynatów, zwróć średni dystans
-        if (profile1.getLatitude() == null || profile1.getLongitude() == null ||
-            profile2.getLatitude() == null || profile2.getLongitude() == null) {
-            return 50.0; // Default: 50km
+    private boolean installTopPicks(long userId, long ticket) {
+        List<Long> topPicks = topPicksStore.find(userId);
+        if (topPicks.isEmpty()) {
+            return false;
+        }
+        LongPredicate swiped = candidateGenerator.swipedBy(userId);
+        long[] rankedIds = topPicks.stream()
+                .mapToLong(Long::longValue)
+                .filter(candidateId -> !swiped.test(candidateId))
+                .toArray();
+        if (rankedIds.length == 0) {
+            return false;
         }
 
-        double lat1 = Math.toRadians(profile1.getLatitude());
-        double lon1 = Math.toRadians(profile1.getLongitude());
-        double lat2 = Math.toRadians(profile2.getLatitude());
-        double lon2 = Math.toRadians(profile2.getLongitude());
+        log.debug("Installing {} stored top picks as deck of user {}", rankedIds.length, userId);
+        return candidateDeckStore.install(userId, ticket, rankedIds);
+    }
 
-        // Haversine formula
-        double dLat = lat2 - lat1;
-        double dLon = lon2 - lon1;
+    /**
+     * Zleca uzupełnienie talii w tle, gdy spadła poniżej low-water mark.
+     */
+    private void requestRefillIfLow(long userId) {
+        long ticket = candidateDeckStore.startRefillIfLow(userId);
+        if (ticket != CandidateDeckStore.NO_TICKET) {
+            eventPublisher.publishEvent(new CandidateDeckRefillEvent(userId, ticket));
+        }
+    }
 
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                   Math.cos(lat1) * Math.cos(lat2) *
-                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    /**
+     * Zwraca aktywnego użytkownika lub null (usunięty / zdezaktywowany).
+     */
+    private User findActiveUser(long userId) {
+        try {
+            User user = userService.getUserEntity(userId);
+            return Boolean.TRUE.equals(user.getIsActive()) ? user : null;
+        } catch (ResourceNotFoundException e) {
+            return null;
+        }
+    }
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    /**
+     * Rozmiar rankingu dla talii - co najmniej 1, żeby zwrócić kandydata także przy wyłączonych taliach.
+     */
+    private int deckCapacity() {
+        return Math.max(1, candidateDeckStore.capacity());
+    }
 
-        double earthRadiusKm = 6371.0;
-        return earthRadiusKm * c;
+    private static long[] toUserIds(List<ScoredCandidate> ranked) {
+        long[] ids = new long[ranked.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = ranked.get(i).getCandidateId();
+        }
+        return ids;
     }
 
     /**
-     * Sprawdza czy profil jest kompletny.
+     * Encje User dla podanych ID (strona do wyrenderowania), po ID.
      */
-    private boolean isProfileComplete(User user) {
-        try {
-            Profile profile = profileService.getProfileEntity(user.getId());
-            return profile.getBio() != null && !profile.getBio().isBlank() &&
-                   !profile.getPhotos().isEmpty() &&
-                   !profile.getInterests().isEmpty();
-        } catch (ResourceNotFoundException e) {
-            return false;
+    private Map<Long, User> loadUsers(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
         }
+        return userService.getUserEntities(ids).stream()
+                .collect(Collectors.toMap(User::getId, user -> user));
     }
 
     /**
-     * Mapuje User entity na CandidateResponse DTO.
+     * Mapuje ocenionego kandydata na CandidateResponse DTO.
+     * Wspólne zainteresowania i dystans pochodzą ze scoringu (bez ponownych zapytań).
      */
-    private CandidateResponse mapToCandidateResponse(User currentUser, User candidate, int compatibilityScore) {
+    private CandidateResponse mapToCandidateResponse(ScoredCandidate scored, User candidate) {
         Profile candidateProfile = profileService.getProfileEntity(candidate.getId());
 
         // Main photo
@@ -266,15 +417,6 @@ public class MatchingEngineService {
                 .map(interest -> modelMapper.map(interest, InterestResponse.class))
                 .collect(Collectors.toSet());
 
-        // Common interests count
-        int commonInterestsCount = (int) interestService.countCommonInterests(
-                currentUser.getId(),
-                candidate.getId()
-        );
-
-        // Distance
-        double distance = calculateDistance(currentUser, candidate);
-
         // Age
         int age = Period.between(candidate.getBirthDate(), LocalDate.now()).getYears();
 
@@ -290,45 +432,9 @@ public class MatchingEngineService {
                 .education(candidateProfile.getEducation())
                 .mainPhoto(mainPhoto)
                 .interests(interests)
-                .commonInterestsCount(commonInterestsCount)
-                .distanceKm(distance)
-                .compatibilityScore(compatibilityScore)
+                .commonInterestsCount(scored.getCommonInterests())
+                .distanceKm(scored.getDistance())
+                .compatibilityScore(scored.getScore())
                 .build();
     }
-
-    // ========== INNER CLASS ==========
-
-    /**
-     * Helper class do przechowywania kandydata z jego score.
-     */
-    private static class ScoredCandidate {
-        private final User user;
-        private final int score;
-        private final int commonInterests;
-        private final double distance;
-
-        public ScoredCandidate(User user, int score, int commonInterests, double distance) {
-            this.user = user;
-            this.score = score;
-            this.commonInterests = commonInterests;
-            this.distance = distance;
-        }
-
-        public User getUser() {
-            return user;
-        }
-
-        public int getScore() {
-            return score;
-        }
-
-        public int getCommonInterests() {
-            return commonInterests;
-        }
-
-        public double getDistance() {
-            return distance;
-        }
-    }
 }
-
@@ -0,0 +1,227 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.CandidateRow;
+import AplikacjePrzemyslowe.DatApp.entity.Preference;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import AplikacjePrzemyslowe.DatApp.matching.Deadline;
+import AplikacjePrzemyslowe.DatApp.matching.TopKSelector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pipeline dopasowań w trzech etapach (retrieve-then-rerank):
+ * 1. CandidateGenerator - indeksy i filtry, bez scoringu
+ * 2. CandidatePreScorer - lekki score z danych w pamięci przycina pulę
+ * 3. CandidateScorer - pełny compatibility score tylko dla kandydatów, którzy przeszli pre-scoring
+ *
+ * Przy matching.scoring.mode = DATABASE wszystkie trzy etapy zastępuje DatabaseCandidateScorer
+ * (score liczony w MySQL, z bazy wraca tylko top-K).
+ *
+ * Każdy etap raportuje czas (matching.pipeline.stage) i liczbę kandydatów na wyjściu
+ * (matching.pipeline.candidates) z tagiem stage=generate/prescore/score/database.
+ *
+ * rankWithinBudget() ogranicza ranking czasem matching.pipeline.time-budget (i pełny scoring do
+ * matching.pipeline.budget-score-limit najlepszych wg pre-score): po terminie albo po przycięciu
+ * puli zwraca najlepszych spośród policzonych, a gdy po terminie nic nie zostało policzone - listę
+ * popularnych w okolicy (CandidateGenerator.popularNearby). Taki wynik ma degraded = true i jest
+ * liczony w matching.pipeline.degraded z tagiem reason=partial/fallback.
+ */
+@Slf4j
+@Component
+public class MatchingPipeline {
+
+    static final String GENERATE = "generate";
+    static final String PRE_SCORE = "prescore";
+    static final String SCORE = "score";
+    static final String DATABASE = "database";
+    static final String PARTIAL = "partial";
+    static final String FALLBACK = "fallback";
+
+    private final MatchingProperties properties;
+    private final CandidateGenerator candidateGenerator;
+    private final CandidatePreScorer candidatePreScorer;
+    private final CandidateScorer candidateScorer;
+    private final DatabaseCandidateScorer databaseCandidateScorer;
+
+    private final StageMetrics generateMetrics;
+    private final StageMetrics preScoreMetrics;
+    private final StageMetrics scoreMetrics;
+    private final StageMetrics databaseMetrics;
+    private final Counter partialRankings;
+    private final Counter fallbackRankings;
+
+    public MatchingPipeline(MatchingProperties properties,
+                            CandidateGenerator candidateGenerator,
+                            CandidatePreScorer candidatePreScorer,
+                            CandidateScorer candidateScorer,
+                            DatabaseCandidateScorer databaseCandidateScorer,
+                            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.candidateGenerator = candidateGenerator;
+        this.candidatePreScorer = candidatePreScorer;
+        this.candidateScorer = candidateScorer;
+        this.databaseCandidateScorer = databaseCandidateScorer;
+        this.generateMetrics = new StageMetrics(GENERATE, meterRegistry);
+        this.preScoreMetrics = new StageMetrics(PRE_SCORE, meterRegistry);
+        this.scoreMetrics = new StageMetrics(SCORE, meterRegistry);
+        this.databaseMetrics = new StageMetrics(DATABASE, meterRegistry);
+        this.partialRankings = degradedCounter(PARTIAL, meterRegistry);
+        this.fallbackRankings = degradedCounter(FALLBACK, meterRegistry);
+    }
+
+    /**
+     * Wybiera {@code limit} najlepszych kandydatów dla użytkownika.
+     *
+     * @return Ranking malejąco po score i liczba kandydatów z generatora (przed przycięciem)
+     */
+    public Ranking rank(User currentUser, Preference preferences, int limit) {
+        return rank(currentUser, preferences, limit, Deadline.NONE);
+    }
+
+    /**
+     * Jak {@link #rank(User, Preference, int)}, ale w budżecie czasu matching.pipeline.time-budget
+     * (dla żądań, na które czeka użytkownik).
+     */
+    public Ranking rankWithinBudget(User currentUser, Preference preferences, int limit) {
+        return rank(currentUser, preferences, limit, Deadline.after(properties.getPipeline().getTimeBudget()));
+    }
+
+    /**
+     * Wybiera {@code limit} najlepszych kandydatów przed terminem {@code deadline}.
+     * Termin sprawdzany jest między etapami i w trakcie scoringu; scoring w bazie (DATABASE)
+     * to jedno zapytanie i nie jest przerywany.
+     *
+     * @return Ranking; degraded = true, gdy termin minął albo pulę przycięto do budget-score-limit
+     *         (wynik częściowy albo popularni w okolicy)
+     */
+    public Ranking rank(User currentUser, Preference preferences, int limit, Deadline deadline) {
+        if (properties.getScoring().getMode() == MatchingProperties.Scoring.Mode.DATABASE) {
+            long start = System.nanoTime();
+            Ranking ranking = databaseCandidateScorer.rank(currentUser, preferences, limit);
+            databaseMetrics.record(start, ranking.ranked().size());
+            return ranking;
+        }
+
+        long start = System.nanoTime();
+        List<CandidateRow> generated = candidateGenerator.generate(currentUser, preferences);
+        generateMetrics.record(start, generated.size());
+        if (generated.isEmpty()) {
+            return new Ranking(0, List.of());
+        }
+        if (deadline.isExpired()) {
+            return fallback(currentUser, preferences, limit, generated.size());
+        }
+
+        start = System.nanoTime();
+        List<CandidateRow> survivors = candidatePreScorer.preScore(currentUser, generated);
+        preScoreMetrics.record(start, survivors.size());
+        if (deadline.isExpired()) {
+            return fallback(currentUser, preferences, limit, generated.size());
+        }
+
+        int budgetScoreLimit = properties.getPipeline().getBudgetScoreLimit();
+        boolean capped = deadline.isBounded() && budgetScoreLimit > 0 && survivors.size() > budgetScoreLimit;
+        if (capped) {
+            // Zbiorcze wczytanie danych do scoringu nie jest przerywane - w budżecie czasu pula
+            // jest ograniczona do najlepszych wg pre-score, a wynik jest częściowy
+            survivors = candidatePreScorer.preScore(currentUser, survivors, budgetScoreLimit);
+        }
+
+        start = System.nanoTime();
+        TopKSelector<ScoredCandidate> selector = candidateScorer.rank(currentUser, survivors, limit, deadline);
+        List<ScoredCandidate> ranked = selector.drainDescending();
+        scoreMetrics.record(start, ranked.size());
+
+        log.debug("Matching pipeline for user {}: {} generated, {} pre-scored, {} ranked",
+                currentUser.getId(), generated.size(), survivors.size(), ranked.size());
+
+        if (deadline.wasExceeded() || capped) {
+            if (ranked.isEmpty() && !capped) {
+                return fallback(currentUser, preferences, limit, generated.size());
+            }
+            partialRankings.increment();
+            log.debug("Matching time budget limited ranking for user {}, returning {} partially ranked candidates",
+                    currentUser.getId(), ranked.size());
+            return new Ranking(generated.size(), ranked, true);
+        }
+        return new Ranking(generated.size(), ranked);
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Ranking zastępczy, gdy w budżecie czasu nie policzono żadnego kandydata:
+     * popularni w okolicy, ocenieni bez terminu (lista jest krótka).
+     */
+    private Ranking fallback(User currentUser, Preference preferences, int limit, long totalCandidates) {
+        fallbackRankings.increment();
+        List<CandidateRow> popular = candidateGenerator.popularNearby(currentUser, preferences, limit);
+        List<ScoredCandidate> ranked = popular.isEmpty()
+                ? List.of()
+                : candidateScorer.rank(currentUser, popular, limit).drainDescending();
+
+        log.debug("Matching time budget exceeded for user {}, returning {} popular nearby candidates",
+                currentUser.getId(), ranked.size());
+        return new Ranking(totalCandidates, ranked, true);
+    }
+
+    private static Counter degradedCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("matching.pipeline.degraded")
+                .tag("reason", reason)
+                .description("Matching rankings degraded by the request time budget")
+                .register(meterRegistry);
+    }
+
+    // ========== INNER TYPES ==========
+
+    /**
+     * Wynik pipeline'u.
+     *
+     * @param totalCandidates Liczba kandydatów spełniających filtry (z generatora)
+     * @param ranked          Najlepsi kandydaci malejąco po score
+     * @param degraded        Czy ranking przekroczył budżet czasu (wynik częściowy albo popularni w okolicy)
+     */
+    public record Ranking(long totalCandidates, List<ScoredCandidate> ranked, boolean degraded) {
+
+        public Ranking(long totalCandidates, List<ScoredCandidate> ranked) {
+            this(totalCandidates, ranked, false);
+        }
+
+        public boolean isEmpty() {
+            return ranked.isEmpty();
+        }
+    }
+
+    /**
+     * Czas i liczba kandydatów na wyjściu jednego etapu.
+     */
+    private static final class StageMetrics {
+
+        private final Timer duration;
+        private final DistributionSummary candidates;
+
+        private StageMetrics(String stage, MeterRegistry meterRegistry) {
+            this.duration = Timer.builder("matching.pipeline.stage")
+                    .tag("stage", stage)
+                    .description("Matching pipeline stage duration")
+                    .register(meterRegistry);
+            this.candidates = DistributionSummary.builder("matching.pipeline.candidates")
+                    .tag("stage", stage)
+                    .description("Candidates left after matching pipeline stage")
+                    .register(meterRegistry);
+        }
+
+        private void record(long startNanos, int candidateCount) {
+            duration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            candidates.record(candidateCount);
+        }
+    }
+}
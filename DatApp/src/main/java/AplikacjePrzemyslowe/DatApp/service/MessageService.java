@@ -1,5 +1,6 @@
 package AplikacjePrzemyslowe.DatApp.service;
 
+import AplikacjePrzemyslowe.DatApp.dao.MessageJdbcDao;
 import AplikacjePrzemyslowe.DatApp.dto.request.MessageRequest;
 import AplikacjePrzemyslowe.DatApp.dto.response.MessageResponse;
 import AplikacjePrzemyslowe.DatApp.entity.Match;
@@ -19,6 +20,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -33,6 +36,7 @@ public class MessageService {
     private final MessageRepository messageRepository;
     private final MatchRepository matchRepository;
     private final UserRepository userRepository;
+    private final MessageJdbcDao messageJdbcDao;
     private final ModelMapper modelMapper;
 
     /**
@@ -56,30 +60,71 @@ public class MessageService {
         Match match = matchRepository.findById(request.getMatchId())
                 .orElseThrow(() -> new ResourceNotFoundException("Match not found with id: " + request.getMatchId()));
 
+        Message message = prepareMessage(sender, match, request.getContent());
+
+        Message savedMessage = messageRepository.save(message);
+        log.info("Message {} sent successfully from user {} to user {}",
+                savedMessage.getId(), senderId, message.getReceiver().getId());
+
+        return modelMapper.map(savedMessage, MessageResponse.class);
+    }
+
+    /**
+     * Tworzy (bez zapisu) wiadomość w matchu, sprawdzając czy nadawca do niego należy.
+     *
+     * @param sender Nadawca
+     * @param match Match, w którym wysyłana jest wiadomość
+     * @param content Treść wiadomości
+     * @return Niezapisana wiadomość
+     * @throws UnauthorizedException gdy użytkownik nie należy do matcha
+     */
+    public Message prepareMessage(User sender, Match match, String content) {
+        Long senderId = sender.getId();
+
         // Sprawdź czy użytkownik należy do tego matcha
         if (!match.getUser1().getId().equals(senderId) && !match.getUser2().getId().equals(senderId)) {
-            log.error("User {} attempted to send message to unauthorized match {}", senderId, request.getMatchId());
+            log.error("User {} attempted to send message to unauthorized match {}", senderId, match.getId());
             throw new UnauthorizedException("You are not part of this match");
         }
 
         // Określ odbiorcę
         User receiver = match.getUser1().getId().equals(senderId) ? match.getUser2() : match.getUser1();
 
-        // Utwórz wiadomość
-        Message message = Message.builder()
+        return Message.builder()
                 .match(match)
                 .sender(sender)
                 .receiver(receiver)
-                .content(request.getContent())
+                .content(content)
                 .sentAt(LocalDateTime.now())
                 .isRead(false)
                 .build();
+    }
 
-        Message savedMessage = messageRepository.save(message);
-        log.info("Message {} sent successfully from user {} to user {}",
-                savedMessage.getId(), senderId, receiver.getId());
-
-        return modelMapper.map(savedMessage, MessageResponse.class);
+    /**
+     * Zapisuje przygotowane wiadomości jednym wielowierszowym INSERT-em (paczka operacji offline).
+     * Błąd dowolnej wiadomości wycofuje całą paczkę - wywołujący może zapisać je pojedynczo.
+     *
+     * @param messages Wiadomości z prepareMessage (otrzymują ID nadane przez bazę)
+     * @return Zapisane wiadomości w tej samej kolejności
+     */
+    @Transactional
+    public List<MessageResponse> saveMessages(List<Message> messages) {
+        log.info("Saving batch of {} messages", messages.size());
+
+        List<MessageJdbcDao.MessageRow> rows = messages.stream()
+                .map(message -> new MessageJdbcDao.MessageRow(message.getMatch().getId(),
+                        message.getSender().getId(), message.getReceiver().getId(),
+                        message.getContent(), message.getSentAt()))
+                .toList();
+        List<Long> messageIds = messageJdbcDao.insertMessages(rows);
+
+        List<MessageResponse> responses = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            message.setId(messageIds.get(i));
+            responses.add(modelMapper.map(message, MessageResponse.class));
+        }
+        return responses;
     }
 
     /**
@@ -141,6 +186,21 @@ public class MessageService {
         }
     }
 
+    /**
+     * Oznacza wiele wiadomości jako przeczytane jednym UPDATE-em.
+     * Wiadomości, których użytkownik nie jest odbiorcą, i już przeczytane są pomijane.
+     *
+     * @param userId ID użytkownika (odbiorcy)
+     * @param messageIds ID wiadomości
+     * @return Liczba oznaczonych wiadomości
+     */
+    @Transactional
+    public int markAsRead(Long userId, Collection<Long> messageIds) {
+        log.debug("Marking {} messages as read by user {}", messageIds.size(), userId);
+
+        return messageJdbcDao.markMessagesAsRead(messageIds, userId);
+    }
+
     /**
      * Usuwa całą konwersację (wszystkie wiadomości) dla danego matcha.
      *
@@ -6,17 +6,21 @@ import AplikacjePrzemyslowe.DatApp.entity.Gender;
 import AplikacjePrzemyslowe.DatApp.entity.Preference;
 import AplikacjePrzemyslowe.DatApp.entity.User;
 import AplikacjePrzemyslowe.DatApp.exception.ResourceNotFoundException;
+import AplikacjePrzemyslowe.DatApp.matching.MatchingChangeEvent;
 import AplikacjePrzemyslowe.DatApp.repository.PreferenceRepository;
 import AplikacjePrzemyslowe.DatApp.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Serwis do zarządzania preferencjami wyszukiwania użytkowników.
  * Umożliwia definiowanie kryteriów dopasowania (płeć, wiek, lokalizacja).
+ * Każda zmiana preferencji publikuje MatchingChangeEvent - po zatwierdzeniu transakcji
+ * odświeża wpis użytkownika w indeksie kandydatów i unieważnia jego talię.
  */
 @Slf4j
 @Service
@@ -25,6 +29,7 @@ public class PreferenceService {
 
     private final PreferenceRepository preferenceRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
     private final ModelMapper modelMapper;
 
     /**
@@ -83,6 +88,7 @@ public class PreferenceService {
         preference.setMaxDistanceKm(request.getMaxDistanceKm());
 
         Preference savedPreference = preferenceRepository.save(preference);
+        eventPublisher.publishEvent(new MatchingChangeEvent.PreferencesChanged(userId));
 
         log.info("Preferences saved successfully for user {}", userId);
 
@@ -116,6 +122,7 @@ public class PreferenceService {
         preference.setMaxDistanceKm(50); // 50 km
 
         Preference savedPreference = preferenceRepository.save(preference);
+        eventPublisher.publishEvent(new MatchingChangeEvent.PreferencesChanged(userId));
 
         log.info("Preferences reset to defaults for user {}", userId);
 
@@ -158,6 +165,7 @@ public class PreferenceService {
             preferenceRepository.delete(preference);
             log.info("Preferences deleted for user {}", userId);
         });
+        eventPublisher.publishEvent(new MatchingChangeEvent.PreferencesChanged(userId));
     }
 
     /**
@@ -10,23 +10,31 @@ import AplikacjePrzemyslowe.DatApp.entity.Profile;
 import AplikacjePrzemyslowe.DatApp.entity.User;
 import AplikacjePrzemyslowe.DatApp.exception.ResourceNotFoundException;
 import AplikacjePrzemyslowe.DatApp.exception.ValidationException;
+import AplikacjePrzemyslowe.DatApp.matching.MatchingChangeEvent;
 import AplikacjePrzemyslowe.DatApp.repository.InterestRepository;
 import AplikacjePrzemyslowe.DatApp.repository.PhotoRepository;
 import AplikacjePrzemyslowe.DatApp.repository.ProfileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Service dla zarządzania profilami użytkowników.
  * Obsługuje tworzenie, aktualizację profilu, dodawanie zdjęć i zainteresowań.
+ * Zmiany zainteresowań i lokalizacji publikowane są jako MatchingChangeEvent - indeksy
+ * silnika dopasowań (InterestBitsetIndex, GeoGridIndex, talia kandydatów) stosują je
+ * dopiero po zatwierdzeniu transakcji.
+ * Zmiany zdjęć podbijają wersję profilu (@Version) - tak jak zmiany pól i zainteresowań
+ * unieważniają wyniki par w PairScoreCache.
  */
 @Slf4j
 @Service
@@ -37,6 +45,7 @@ public class ProfileService {
     private final PhotoRepository photoRepository;
     private final InterestRepository interestRepository;
     private final UserService userService;
+    private final ApplicationEventPublisher eventPublisher;
     private final ModelMapper modelMapper;
 
     // ========== READ OPERATIONS ==========
@@ -109,6 +118,8 @@ public class ProfileService {
         }
 
         Profile savedProfile = profileRepository.save(profile);
+        eventPublisher.publishEvent(new MatchingChangeEvent.ProfileMoved(userId));
+        publishInterestsChanged(userId, savedProfile);
 
         log.info("Profile created successfully for user: {}", userId);
 
@@ -127,6 +138,8 @@ public class ProfileService {
 
         Profile profile = profileRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Profile", "userId", userId));
+        Double previousLatitude = profile.getLatitude();
+        Double previousLongitude = profile.getLongitude();
 
         // Aktualizacja pól (jeśli podane)
         if (request.getBio() != null) {
@@ -154,6 +167,13 @@ public class ProfileService {
         }
 
         Profile savedProfile = profileRepository.save(profile);
+        if (!Objects.equals(previousLatitude, savedProfile.getLatitude())
+                || !Objects.equals(previousLongitude, savedProfile.getLongitude())) {
+            eventPublisher.publishEvent(new MatchingChangeEvent.ProfileMoved(userId));
+        }
+        if (request.getInterestIds() != null) {
+            publishInterestsChanged(userId, savedProfile);
+        }
 
         log.info("Profile updated successfully for user: {}", userId);
 
@@ -172,7 +192,8 @@ public class ProfileService {
     public PhotoResponse addPhoto(Long userId, String photoUrl, Boolean isPrimary, Integer displayOrder) {
         log.info("Adding photo to profile for user: {}", userId);
 
-        Profile profile = profileRepository.findByUserId(userId)
+        // Nowa wersja profilu - zdjęcie zmienia kompletność profilu w scoringu (PairScoreCache)
+        Profile profile = profileRepository.findForVersionIncrementByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Profile", "userId", userId));
 
         // Jeśli to ma być główne zdjęcie, usuń flag z innych
@@ -204,11 +225,15 @@ public class ProfileService {
     public void removePhoto(Long userId, Long photoId) {
         log.info("Removing photo {} from profile for user: {}", photoId, userId);
 
+        // Nowa wersja profilu - zdjęcie zmienia kompletność profilu w scoringu (PairScoreCache)
+        Profile profile = profileRepository.findForVersionIncrementByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Profile", "userId", userId));
+
         Photo photo = photoRepository.findById(photoId)
                 .orElseThrow(() -> new ResourceNotFoundException("Photo", photoId));
 
         // Sprawdź czy zdjęcie należy do użytkownika
-        if (!photo.getProfile().getUser().getId().equals(userId)) {
+        if (!photo.getProfile().getId().equals(profile.getId())) {
             log.error("Photo removal failed - photo does not belong to user: {}", userId);
             throw new ValidationException("photo", "To zdjęcie nie należy do Twojego profilu");
         }
@@ -264,6 +289,7 @@ public class ProfileService {
         addInterestsToProfile(profile, interestIds);
 
         Profile savedProfile = profileRepository.save(profile);
+        publishInterestsChanged(userId, savedProfile);
 
         log.info("Interests added successfully to profile for user: {}", userId);
 
@@ -288,6 +314,7 @@ public class ProfileService {
         profile.removeInterest(interest);
 
         Profile savedProfile = profileRepository.save(profile);
+        publishInterestsChanged(userId, savedProfile);
 
         log.info("Interest removed successfully from profile for user: {}", userId);
 
@@ -307,6 +334,7 @@ public class ProfileService {
 
         profile.getInterests().clear();
         profileRepository.save(profile);
+        eventPublisher.publishEvent(new MatchingChangeEvent.InterestsChanged(userId, List.of()));
 
         log.info("All interests cleared from profile for user: {}", userId);
     }
@@ -333,6 +361,15 @@ public class ProfileService {
         addInterestsToProfile(profile, interestIds);
     }
 
+    /**
+     * Publikuje nowy zestaw zainteresowań profilu dla indeksów silnika dopasowań (helper).
+     */
+    private void publishInterestsChanged(Long userId, Profile profile) {
+        eventPublisher.publishEvent(new MatchingChangeEvent.InterestsChanged(userId, profile.getInterests().stream()
+                .map(Interest::getId)
+                .toList()));
+    }
+
     /**
      * Mapuje Profile entity na ProfileResponse DTO.
      */
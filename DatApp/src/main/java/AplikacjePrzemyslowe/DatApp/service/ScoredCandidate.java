@@ -0,0 +1,36 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+/**
+ * Kandydat z policzonym compatibility score (wynik CandidateScorer).
+ * Trzyma tylko ID - encja User ładowana jest dopiero dla renderowanej strony.
+ */
+public final class ScoredCandidate {
+
+    private final long candidateId;
+    private final int score;
+    private final int commonInterests;
+    private final double distance;
+
+    public ScoredCandidate(long candidateId, int score, int commonInterests, double distance) {
+        this.candidateId = candidateId;
+        this.score = score;
+        this.commonInterests = commonInterests;
+        this.distance = distance;
+    }
+
+    public long getCandidateId() {
+        return candidateId;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getCommonInterests() {
+        return commonInterests;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+}
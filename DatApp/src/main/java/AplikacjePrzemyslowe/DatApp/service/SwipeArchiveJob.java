@@ -0,0 +1,268 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao;
+import AplikacjePrzemyslowe.DatApp.entity.SwipeType;
+import AplikacjePrzemyslowe.DatApp.matching.MatchingChangeEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Utrzymanie tabeli swipes: partycje miesięczne naprzód i archiwizacja starych odrzuceń.
+ *
+ * Partycje: p_future (MAXVALUE) dzielona jest na partycje kolejnych miesięcy
+ * (matching.swipe-archive.partitions-ahead). Pierwsza partycja miesięczna przejmuje też
+ * starsze wiersze. Tabela bez partycji (np. H2 w testach) jest pomijana.
+ *
+ * Archiwizacja i druga szansa to osobne kroki:
+ * 1. DISLIKE i PASS starsze niż archive-after (albo krótsze okno drugiej szansy typu) przenoszone są
+ *    porcjami do swipes_archive. Ich pary zostają w swipe_pairs, a wykluczanie ocenionych czyta też
+ *    zarchiwizowane swipe'y z zajętą parą - kandydat dalej jest wykluczony.
+ * 2. Zarchiwizowane swipe'y starsze niż okno drugiej szansy (dislike/pass-second-chance) zwalniają
+ *    parę - kandydat wraca do talii i może zostać oceniony ponownie. Po każdej porcji oceniający
+ *    dostają zdarzenie SwipesRecycled (talia i zbiór ocenionych do przeładowania).
+ * LIKE i SUPER_LIKE nie są archiwizowane.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SwipeArchiveJob {
+
+    static final String FUTURE_PARTITION = "p_future";
+
+    private static final DateTimeFormatter PARTITION_NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final MatchingProperties properties;
+    private final SwipeJdbcDao swipeJdbcDao;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Zakłada brakujące partycje przy starcie (schema.sql tworzy tylko p_future).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.getSwipeArchive().isEnabled()) {
+            return;
+        }
+        try {
+            ensurePartitions(LocalDate.now());
+        } catch (RuntimeException e) {
+            // Bez nowych partycji wiersze trafiają do p_future - zapis działa dalej
+            log.warn("Swipes partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Uruchamia przebieg według matching.swipe-archive.cron.
+     */
+    @Scheduled(cron = "${matching.swipe-archive.cron:0 30 4 * * *}")
+    public void runScheduled() {
+        if (!properties.getSwipeArchive().isEnabled()) {
+            return;
+        }
+        try {
+            ensurePartitions(LocalDate.now());
+        } catch (RuntimeException e) {
+            log.warn("Swipes partition maintenance failed: {}", e.getMessage());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            archive(now);
+        } catch (RuntimeException e) {
+            // Przeniesione porcje zostają w archiwum - kolejny przebieg zaczyna od pozostałych
+            log.warn("Swipe archive run failed: {}", e.getMessage());
+        }
+        try {
+            releaseSecondChances(now);
+        } catch (RuntimeException e) {
+            log.warn("Swipe second chance run failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Dokłada partycje od bieżącego miesiąca do partitions-ahead miesięcy naprzód,
+     * za ostatnią istniejącą partycją miesięczną.
+     *
+     * @return Liczba dodanych partycji
+     */
+    public synchronized int ensurePartitions(LocalDate today) {
+        List<String> existing = swipeJdbcDao.findPartitionNames();
+        if (!existing.contains(FUTURE_PARTITION)) {
+            log.debug("Swipes table is not partitioned, skipping partition maintenance");
+            return 0;
+        }
+
+        YearMonth current = YearMonth.from(today);
+        YearMonth last = current.minusMonths(1);
+        for (String name : existing) {
+            YearMonth month = parsePartitionMonth(name);
+            if (month != null && month.isAfter(last)) {
+                last = month;
+            }
+        }
+
+        // Nowe granice muszą leżeć za granicą ostatniej partycji - luk wstecz się nie wypełnia
+        YearMonth until = current.plusMonths(Math.max(0, properties.getSwipeArchive().getPartitionsAhead()));
+        List<SwipeJdbcDao.PartitionBound> missing = new ArrayList<>();
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(until); month = month.plusMonths(1)) {
+            missing.add(new SwipeJdbcDao.PartitionBound(month.format(PARTITION_NAME_FORMAT),
+                    month.plusMonths(1).atDay(1).atStartOfDay()));
+        }
+
+        swipeJdbcDao.addPartitions(missing);
+        return missing.size();
+    }
+
+    /**
+     * Przenosi do archiwum odrzucenia starsze niż archive-after (albo krótsze okno drugiej szansy typu).
+     * Pary zostają zajęte, więc wykluczanie ocenionych się nie zmienia.
+     *
+     * @return Liczba przeniesionych swipe'ów
+     */
+    public synchronized int archive(LocalDateTime now) {
+        MatchingProperties.SwipeArchive config = properties.getSwipeArchive();
+        int chunkSize = Math.max(1, config.getChunkSize());
+        long start = System.nanoTime();
+
+        int archived = archiveType(SwipeType.DISLIKE, archiveAge(config.getDislikeSecondChance()), now, chunkSize)
+                + archiveType(SwipeType.PASS, archiveAge(config.getPassSecondChance()), now, chunkSize);
+
+        log.info("Swipe archive run completed: {} swipes archived in {} ms",
+                archived, (System.nanoTime() - start) / 1_000_000);
+        return archived;
+    }
+
+    /**
+     * Zwalnia pary zarchiwizowanych odrzuceń starszych niż okna drugiej szansy.
+     *
+     * @return Liczba zwolnionych par
+     */
+    public synchronized int releaseSecondChances(LocalDateTime now) {
+        MatchingProperties.SwipeArchive config = properties.getSwipeArchive();
+        int chunkSize = Math.max(1, config.getChunkSize());
+
+        int released = releaseType(SwipeType.DISLIKE, config.getDislikeSecondChance(), now, chunkSize)
+                + releaseType(SwipeType.PASS, config.getPassSecondChance(), now, chunkSize);
+
+        log.info("Swipe second chance run completed: {} pairs released", released);
+        return released;
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Wiek, od którego swipe typu trafia do archiwum: archive-after, ale nie później niż koniec
+     * okna drugiej szansy (zwolnienie pary wymaga swipe'a w archiwum). Null - typ nie jest archiwizowany.
+     */
+    private Duration archiveAge(Duration secondChance) {
+        Duration archiveAfter = properties.getSwipeArchive().getArchiveAfter();
+        if (archiveAfter == null || (secondChance != null && secondChance.compareTo(archiveAfter) < 0)) {
+            return secondChance;
+        }
+        return archiveAfter;
+    }
+
+    /**
+     * Przenosi porcjami swipe'y jednego typu; brak wieku - typ nigdy nie jest archiwizowany.
+     */
+    private int archiveType(SwipeType swipeType, Duration age, LocalDateTime now, int chunkSize) {
+        if (age == null) {
+            return 0;
+        }
+        LocalDateTime cutoff = now.minus(age);
+
+        int archived = 0;
+        while (true) {
+            List<SwipeJdbcDao.ArchivableSwipe> chunk = swipeJdbcDao.findArchivableSwipes(swipeType, cutoff, chunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            List<Long> swipeIds = new ArrayList<>(chunk.size());
+            for (SwipeJdbcDao.ArchivableSwipe swipe : chunk) {
+                swipeIds.add(swipe.swipeId());
+            }
+
+            int moved = swipeJdbcDao.archiveSwipes(swipeIds, swipeType, cutoff);
+            archived += moved;
+
+            // Nic nie usunięto - ta sama porcja wróciłaby w nieskończoność
+            if (moved == 0 || chunk.size() < chunkSize) {
+                break;
+            }
+        }
+
+        log.debug("Archived {} {} swipes older than {}", archived, swipeType, cutoff);
+        return archived;
+    }
+
+    /**
+     * Zwalnia porcjami pary zarchiwizowanych swipe'ów jednego typu; brak okna - typ nigdy nie dostaje
+     * drugiej szansy.
+     */
+    private int releaseType(SwipeType swipeType, Duration secondChance, LocalDateTime now, int chunkSize) {
+        if (secondChance == null) {
+            return 0;
+        }
+        LocalDateTime cutoff = now.minus(secondChance);
+
+        int released = 0;
+        while (true) {
+            List<SwipeJdbcDao.ArchivableSwipe> chunk = swipeJdbcDao.findReleasableSwipes(swipeType, cutoff, chunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            List<Long> swipeIds = new ArrayList<>(chunk.size());
+            Set<Long> swiperIds = new LinkedHashSet<>();
+            for (SwipeJdbcDao.ArchivableSwipe swipe : chunk) {
+                swipeIds.add(swipe.swipeId());
+                swiperIds.add(swipe.swiperId());
+            }
+
+            int freed = swipeJdbcDao.releaseArchivedPairs(swipeIds);
+            released += freed;
+
+            // Nic nie zwolniono - ta sama porcja wróciłaby w nieskończoność
+            if (freed == 0) {
+                break;
+            }
+            for (Long swiperId : swiperIds) {
+                eventPublisher.publishEvent(new MatchingChangeEvent.SwipesRecycled(swiperId));
+            }
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+
+        log.debug("Released {} {} pairs archived before {}", released, swipeType, cutoff);
+        return released;
+    }
+
+    /**
+     * Miesiąc partycji pYYYYMM (null dla p_future i nazw spoza schematu).
+     */
+    private static YearMonth parsePartitionMonth(String name) {
+        try {
+            return YearMonth.parse(name, PARTITION_NAME_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
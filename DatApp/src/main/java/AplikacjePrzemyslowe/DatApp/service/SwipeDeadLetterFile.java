@@ -0,0 +1,122 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao.SwipeRow;
+import AplikacjePrzemyslowe.DatApp.entity.SwipeType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Plik swipe'ów, których SwipeWriter nie zdołał zapisać (dead letter).
+ *
+ * Format tekstowy, jeden swipe na linię: {@code swipeId,swiperId,swipedUserId,TYPE,swipedAt} (ISO-8601).
+ * Dopisanie kończy się force(), więc potwierdzony swipe przeżywa awarię procesu. Przepisanie
+ * pliku po odtworzeniu idzie przez plik tymczasowy i atomowe przeniesienie.
+ */
+@Slf4j
+final class SwipeDeadLetterFile {
+
+    private SwipeDeadLetterFile() {
+    }
+
+    /**
+     * Dopisuje swipe'y na koniec pliku (tworzy plik i katalogi, jeśli nie istnieją).
+     */
+    static void append(Path path, List<SwipeRow> swipes) throws IOException {
+        createParentDirectories(path);
+        try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, APPEND)) {
+            write(channel, swipes);
+        }
+    }
+
+    /**
+     * Czyta swipe'y z pliku; uszkodzone linie są pomijane z ostrzeżeniem.
+     *
+     * @return Swipe'y w kolejności dopisania (pusta lista, gdy plik nie istnieje)
+     */
+    static List<SwipeRow> read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+
+        List<SwipeRow> swipes = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                swipes.add(parse(line));
+            } catch (RuntimeException e) {
+                log.warn("Skipping malformed swipe dead-letter line '{}': {}", line, e.getMessage());
+            }
+        }
+        return swipes;
+    }
+
+    /**
+     * Zastępuje zawartość pliku podanymi swipe'ami; pusta lista usuwa plik.
+     */
+    static void rewrite(Path path, List<SwipeRow> swipes) throws IOException {
+        if (swipes.isEmpty()) {
+            Files.deleteIfExists(path);
+            return;
+        }
+
+        createParentDirectories(path);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            write(channel, swipes);
+        }
+        Files.move(temp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private static void write(FileChannel channel, List<SwipeRow> swipes) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (SwipeRow swipe : swipes) {
+            lines.append(swipe.swipeId()).append(',')
+                    .append(swipe.swiperId()).append(',')
+                    .append(swipe.swipedUserId()).append(',')
+                    .append(swipe.swipeType().name()).append(',')
+                    .append(swipe.swipedAt()).append('\n');
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(true);
+    }
+
+    private static SwipeRow parse(String line) {
+        String[] fields = line.split(",");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("expected 5 fields, got " + fields.length);
+        }
+        return new SwipeRow(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                SwipeType.valueOf(fields[3]), LocalDateTime.parse(fields[4]));
+    }
+
+    private static void createParentDirectories(Path path) throws IOException {
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Nadaje ID swipe'om przed zapisem w tle (SwipeWriter), żeby SwipeService mógł zwrócić swipeId
+ * od razu. ID rezerwowane są pulami (matching.swipe-ingestion.id-block-size) z tabeli
+ * swipe_id_sequence, więc kilka instancji aplikacji nie nadaje tego samego ID, a baza
+ * odpytywana jest raz na pulę. Niewykorzystana reszta puli przepada przy restarcie - ID
+ * są unikalne i rosnące w obrębie instancji, ale nie ciągłe.
+ */
+@Slf4j
+@Component
+public class SwipeIdAllocator {
+
+    private final SwipeJdbcDao swipeJdbcDao;
+    private final int blockSize;
+
+    private long nextId;
+    private long limit;
+
+    public SwipeIdAllocator(SwipeJdbcDao swipeJdbcDao, MatchingProperties properties) {
+        this.swipeJdbcDao = swipeJdbcDao;
+        this.blockSize = Math.max(1, properties.getSwipeIngestion().getIdBlockSize());
+    }
+
+    /**
+     * Kolejne ID swipe'a; po wyczerpaniu puli rezerwuje następną.
+     */
+    public synchronized long next() {
+        if (nextId >= limit) {
+            nextId = swipeJdbcDao.allocateSwipeIds(blockSize);
+            limit = nextId + blockSize;
+            log.debug("Allocated swipe ids [{}, {})", nextId, limit);
+        }
+        return nextId++;
+    }
+}
@@ -0,0 +1,45 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pasmowe (striped) locki par użytkowników - serializują równoległe swipe'y tej samej pary
+ * (A -> B i B -> A) bez globalnego locka. Para {A, B} i {B, A} trafia do tego samego paska;
+ * różne pary mogą dzielić pasek, co najwyżej czekając na siebie krótko.
+ *
+ * Lock obejmuje jedną instancję aplikacji - między instancjami duplikatów matcha
+ * pilnuje upsert na uk_user1_user2.
+ */
+final class SwipePairLocks {
+
+    static final int DEFAULT_STRIPES = 256;
+
+    private final Lock[] stripes;
+    private final int mask;
+
+    SwipePairLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Lock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Lock pary (kolejność ID bez znaczenia).
+     */
+    Lock lockFor(long userId1, long userId2) {
+        long lower = Math.min(userId1, userId2);
+        long upper = Math.max(userId1, userId2);
+        long h = lower * 0x9E3779B97F4A7C15L + upper;
+        h ^= h >>> 32;
+        h *= 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h >>> 32) & mask];
+    }
+
+    int size() {
+        return stripes.length;
+    }
+}
@@ -1,5 +1,8 @@
 package AplikacjePrzemyslowe.DatApp.service;
 
+import AplikacjePrzemyslowe.DatApp.dao.MatchJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao.SwipeRow;
 import AplikacjePrzemyslowe.DatApp.dto.request.SwipeRequest;
 import AplikacjePrzemyslowe.DatApp.dto.response.MatchResponse;
 import AplikacjePrzemyslowe.DatApp.dto.response.SwipeResponse;
@@ -9,26 +12,52 @@ import AplikacjePrzemyslowe.DatApp.entity.SwipeType;
 import AplikacjePrzemyslowe.DatApp.entity.User;
 import AplikacjePrzemyslowe.DatApp.exception.InvalidSwipeException;
 import AplikacjePrzemyslowe.DatApp.exception.ResourceNotFoundException;
+import AplikacjePrzemyslowe.DatApp.matching.MatchingChangeEvent;
+import AplikacjePrzemyslowe.DatApp.matching.PendingLikeIndex;
+import AplikacjePrzemyslowe.DatApp.matching.SwipedUserCache;
 import AplikacjePrzemyslowe.DatApp.repository.MatchRepository;
 import AplikacjePrzemyslowe.DatApp.repository.SwipeRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Service dla zarządzania swipe'ami i detekcji matchów.
  *
  * Logika mutual like:
- * 1. User A swipe'uje User B (LIKE)
- * 2. System sprawdza czy User B już dał LIKE dla User A
+ * 1. User A swipe'uje User B (LIKE lub SUPER_LIKE)
+ * 2. System sprawdza czy User B już polubił User A (PendingLikeIndex, a gdy tam brak - swipe_pairs)
  * 3. Jeśli TAK → tworzy Match
  * 4. Jeśli NIE → zapisuje tylko Swipe
+ *
+ * Duplikat pary rozstrzyga tabela swipe_pairs: para wstawiana jest w transakcji żądania
+ * (SwipeJdbcDao.reservePair), więc jest unikalna także między instancjami aplikacji, a rollback
+ * ją zwalnia. SwipedUserCache i kolejka SwipeWriter służą tylko do szybkiego odrzucenia
+ * znanych duplikatów. Para rezerwowana jest też w SwipeWriter, a sam swipe przekazywany do zapisu w tle dopiero po
+ * zatwierdzeniu transakcji - rollback (np. błąd upsertu matcha) zwalnia rezerwację
+ * i nie zostawia swipe'a. swipeId nadawany jest z góry (SwipeIdAllocator), więc odpowiedź
+ * zawiera ID, pod którym swipe zostanie zapisany.
+ *
+ * Wzajemne polubienie rozstrzyga baza: odwrotna krawędź czytana jest z swipe_pairs odczytem
+ * blokującym (SwipeJdbcDao.lockPairType) w transakcji żądania, a match wstawiany w tej samej
+ * transakcji upsertem (MatchJdbcDao.upsertMatch). Obie krawędzie pary blokowane są w jednej
+ * kolejności - najpierw krawędź od mniejszego ID - więc równoczesne A -> B i B -> A, także
+ * z różnych instancji aplikacji, czekają na siebie zamiast się mijać albo zakleszczać; późniejsze
+ * widzi polubienie wcześniejszego i tworzy match (wymaga REPEATABLE READ - domyślnego w InnoDB).
+ * PendingLikeIndex skraca tylko przypadek pozytywny: zawiera polubienia zatwierdzone, więc
+ * trafienie w nim oznacza match bez odczytu bazy. Lock pary (SwipePairLocks) porządkuje
+ * swipe'y pary w obrębie jednej instancji.
  */
 @Slf4j
 @Service
@@ -37,8 +66,16 @@ public class SwipeService {
 
     private final SwipeRepository swipeRepository;
     private final MatchRepository matchRepository;
+    private final MatchJdbcDao matchJdbcDao;
+    private final SwipeJdbcDao swipeJdbcDao;
     private final UserService userService;
+    private final SwipeWriter swipeWriter;
+    private final SwipeIdAllocator swipeIdAllocator;
+    private final SwipedUserCache swipedUserCache;
+    private final PendingLikeIndex pendingLikeIndex;
+    private final ApplicationEventPublisher eventPublisher;
     private final ModelMapper modelMapper;
+    private final SwipePairLocks pairLocks = new SwipePairLocks(SwipePairLocks.DEFAULT_STRIPES);
 
     // ========== WRITE OPERATIONS ==========
 
@@ -58,20 +95,30 @@ public class SwipeService {
         SwipeType swipeType = SwipeType.valueOf(request.getSwipeType());
 
         // Walidacja - nie można swipnąć samego siebie
-        if (swiperId.equals(swipedUserId)) {
-            log.error("Swipe failed - user {} tried to swipe themselves", swiperId);
-            throw new InvalidSwipeException("Nie możesz swipnąć samego siebie");
-        }
+        requireNotSelf(swiperId, swipedUserId);
 
         // Walidacja - czy użytkownicy istnieją
         User swiper = userService.getUserEntity(swiperId);
         User swipedUser = userService.getUserEntity(swipedUserId);
 
-        // Walidacja - czy już swipnięto tego użytkownika
-        if (swipeRepository.existsBySwipedUserIdAndSwiperId(swipedUserId, swiperId)) {
-            log.error("Swipe failed - user {} already swiped user {}", swiperId, swipedUserId);
-            throw new InvalidSwipeException(swipedUserId, "Ten użytkownik został już oceniony");
-        }
+        return recordSwipe(swiper, swipedUser, swipeType);
+    }
+
+    /**
+     * Zapisuje swipe między już wczytanymi użytkownikami (np. wspólne odczyty BatchMutationService).
+     *
+     * @param swiper Użytkownik wykonujący swipe
+     * @param swipedUser Użytkownik będący obiektem swipe'a
+     * @param swipeType Typ swipe'a
+     * @return SwipeResponse z informacją o matchu
+     */
+    @Transactional
+    public SwipeResponse recordSwipe(User swiper, User swipedUser, SwipeType swipeType) {
+        Long swiperId = swiper.getId();
+        Long swipedUserId = swipedUser.getId();
+
+        // Walidacja - nie można swipnąć samego siebie
+        requireNotSelf(swiperId, swipedUserId);
 
         // Walidacja - czy swipedUser jest aktywny
         if (!swipedUser.getIsActive()) {
@@ -79,39 +126,79 @@ public class SwipeService {
             throw new InvalidSwipeException(swipedUserId, "Ten użytkownik nie jest już aktywny");
         }
 
-        // Zapisz swipe
-        Swipe swipe = Swipe.builder()
-                .swiper(swiper)
-                .swipedUser(swipedUser)
-                .swipeType(swipeType)
-                .build();
-
-        Swipe savedSwipe = swipeRepository.save(swipe);
-
-        log.info("Swipe recorded successfully: {} -> {} ({})",
-                swiper.getUsername(), swipedUser.getUsername(), swipeType);
-
-        // Jeśli LIKE, sprawdź czy nastąpił match
         boolean isMatch = false;
         MatchResponse matchDetails = null;
+        LocalDateTime swipedAt = LocalDateTime.now();
+        SwipeRow swipe = new SwipeRow(swipeIdAllocator.next(), swiperId, swipedUserId, swipeType, swipedAt);
+
+        // Od sprawdzenia duplikatu do rezerwacji pary - swipe'y tej pary po kolei
+        Lock pairLock = pairLocks.lockFor(swiperId, swipedUserId);
+        pairLock.lock();
+        try {
+            // Walidacja - czy już swipnięto tego użytkownika (szybko z pamięci, rozstrzyga swipe_pairs)
+            if (isAlreadySwiped(swiperId, swipedUserId)) {
+                log.error("Swipe failed - user {} already swiped user {}", swiperId, swipedUserId);
+                throw new InvalidSwipeException(swipedUserId, "Ten użytkownik został już oceniony");
+            }
 
-        if (swipeType == SwipeType.LIKE) {
-            Optional<Match> potentialMatch = checkMutualLike(swiper, swipedUser);
+            // Krawędzie pary w stałej kolejności: najpierw ta od mniejszego ID
+            boolean positive = swipeType.isPositive();
+            boolean likedBack = positive && swipedUserId < swiperId && isLikedBack(swiperId, swipedUserId);
+            if (!swipeJdbcDao.reservePair(swipe)) {
+                log.error("Swipe failed - user {} already swiped user {}", swiperId, swipedUserId);
+                throw new InvalidSwipeException(swipedUserId, "Ten użytkownik został już oceniony");
+            }
+            if (positive && swiperId < swipedUserId) {
+                likedBack = isLikedBack(swiperId, swipedUserId);
+            }
 
-            if (potentialMatch.isPresent()) {
-                isMatch = true;
-                matchDetails = mapToMatchResponse(potentialMatch.get(), swiperId);
-                log.info("MATCH DETECTED! Users {} and {} matched!",
-                        swiper.getUsername(), swipedUser.getUsername());
+            // Rezerwacja pary - kolejne swipe'y widzą ten swipe zanim trafi do bazy
+            if (!swipeWriter.reserve(swipe)) {
+                log.error("Swipe failed - user {} already swiped user {} (pending)", swiperId, swipedUserId);
+                throw new InvalidSwipeException(swipedUserId, "Ten użytkownik został już oceniony");
             }
+
+            try {
+                // Wzajemne polubienie - match w tej samej transakcji co para swipe'a
+                // Wcześniej zerwany match (nieaktywny) nie jest raportowany jako nowy
+                if (likedBack) {
+                    Match match = createMatch(swiper, swipedUser);
+                    isMatch = Boolean.TRUE.equals(match.getIsActive());
+                    if (isMatch) {
+                        matchDetails = mapToMatchResponse(match, swiperId);
+                        log.info("MATCH DETECTED! Users {} and {} matched!",
+                                swiper.getUsername(), swipedUser.getUsername());
+                    }
+                }
+                if (positive) {
+                    updatePendingLikesAfterCommit(swiperId, swipedUserId, likedBack);
+                }
+            } catch (RuntimeException e) {
+                swipeWriter.release(swipe);
+                throw e;
+            }
+
+            // Oceniony trafia do zbioru ocenionych, zanim rezerwacja zniknie z SwipeWriter (po zapisie)
+            swipedUserCache.recordSwipe(swiperId, swipedUserId);
+
+            // Zapisz swipe (w tle, z grupowym commitem) - dopiero po zatwierdzeniu transakcji
+            submitAfterCommit(swipe);
+        } finally {
+            pairLock.unlock();
         }
 
-        // Zwróć response
+        // Po zatwierdzeniu oceniony kandydat znika z talii i trafia do zbioru ocenionych
+        eventPublisher.publishEvent(new MatchingChangeEvent.SwipeRecorded(swiperId, swipedUserId));
+
+        log.info("Swipe recorded successfully: {} -> {} ({})",
+                swiper.getUsername(), swipedUser.getUsername(), swipeType);
+
+        // Zwróć response (swipeId nadany z góry - wiersz trafi do bazy w tle)
         return SwipeResponse.builder()
-                .swipeId(savedSwipe.getId())
+                .swipeId(swipe.swipeId())
                 .swipedUserId(swipedUserId)
                 .swipeType(swipeType.name())
-                .swipedAt(savedSwipe.getSwipedAt())
+                .swipedAt(swipedAt)
                 .isMatch(isMatch)
                 .matchDetails(matchDetails)
                 .build();
@@ -119,6 +206,8 @@ public class SwipeService {
 
     /**
      * Sprawdza czy nastąpił mutual like i tworzy match jeśli tak.
+     * Odwrotna krawędź czytana jest z swipe_pairs odczytem blokującym - widzi też polubienie
+     * z innej instancji aplikacji, którego swipe czeka jeszcze na zapis w tle.
      *
      * @param swiper Użytkownik wykonujący swipe
      * @param swipedUser Użytkownik będący obiektem swipe'a
@@ -130,38 +219,23 @@ public class SwipeService {
                 swiper.getId(), swipedUser.getId());
 
         // Sprawdź czy swipedUser dał już LIKE dla swiper
-        Optional<Swipe> reverseSwipe = swipeRepository.findSwipe(
-                swipedUser.getId(),
-                swiper.getId()
-        );
-
-        // Jeśli nie ma reverse swipe lub nie jest LIKE, brak matcha
-        if (reverseSwipe.isEmpty() || reverseSwipe.get().getSwipeType() != SwipeType.LIKE) {
-            log.debug("No mutual like - reverse swipe not found or not LIKE");
-            return Optional.empty();
-        }
+        boolean likedBack = swipeJdbcDao.lockPairType(swipedUser.getId(), swiper.getId())
+                .filter(SwipeType::isPositive)
+                .isPresent();
 
-        // Sprawdź czy match już nie istnieje (zabezpieczenie przed duplikatami)
-        Optional<Match> existingMatch = matchRepository.findMatchBetween(
-                swiper.getId(),
-                swipedUser.getId()
-        );
-
-        if (existingMatch.isPresent()) {
-            log.warn("Match already exists between users {} and {}",
-                    swiper.getId(), swipedUser.getId());
-            return existingMatch;
+        // Jeśli nie ma reverse swipe lub nie jest polubieniem, brak matcha
+        if (!likedBack) {
+            log.debug("No mutual like - reverse swipe not found or not a like");
+            return Optional.empty();
         }
 
-        // Utwórz match
-        Match match = detectMatch(swiper, swipedUser);
-
-        return Optional.of(match);
+        // Upsert zwraca też match już istniejący (zabezpieczenie przed duplikatami)
+        return Optional.of(createMatch(swiper, swipedUser));
     }
 
     /**
      * Tworzy match między użytkownikami.
-     * WYWOŁANE TYLKO gdy oba swipe'y to LIKE.
+     * WYWOŁANE TYLKO gdy oba swipe'y to polubienia.
      */
     @Transactional
     public Match detectMatch(User user1, User user2) {
@@ -174,6 +248,15 @@ public class SwipeService {
             return existingMatch.get();
         }
 
+        return createMatch(user1, user2);
+    }
+
+    /**
+     * Zapisuje match upsertem - przy wyścigu zwracany jest istniejący match zamiast błędu uk_user1_user2.
+     * Wynik odzwierciedla zapisany wiersz, więc istniejący (np. nieaktywny) match nie jest
+     * raportowany jako nowy.
+     */
+    private Match createMatch(User user1, User user2) {
         // Twórz match (user1 zawsze ma mniejsze ID dla konsystencji)
         Long userId1 = Math.min(user1.getId(), user2.getId());
         Long userId2 = Math.max(user1.getId(), user2.getId());
@@ -181,16 +264,19 @@ public class SwipeService {
         User userWithSmallerId = userId1.equals(user1.getId()) ? user1 : user2;
         User userWithLargerId = userId1.equals(user1.getId()) ? user2 : user1;
 
-        Match match = Match.builder()
+        MatchJdbcDao.StoredMatch stored = matchJdbcDao.upsertMatch(userId1, userId2, LocalDateTime.now());
+
+        Match savedMatch = Match.builder()
+                .id(stored.matchId())
                 .user1(userWithSmallerId)
                 .user2(userWithLargerId)
-                .isActive(true)
+                .isActive(stored.active())
+                .matchedAt(stored.matchedAt())
+                .unmatchedAt(stored.unmatchedAt())
                 .build();
 
-        Match savedMatch = matchRepository.save(match);
-
-        log.info("Match created successfully: {} (id: {})",
-                savedMatch.getId(), savedMatch.getId());
+        log.info("Match {} stored for users {} and {} (active: {})",
+                savedMatch.getId(), userId1, userId2, stored.active());
 
         return savedMatch;
     }
@@ -226,7 +312,7 @@ public class SwipeService {
      */
     @Transactional(readOnly = true)
     public long countUserSwipes(Long userId) {
-        return swipeRepository.countReviewedProfiles(userId);
+        return swipeJdbcDao.countSwipedBy(userId);
     }
 
     /**
@@ -247,6 +333,85 @@ public class SwipeService {
 
     // ========== HELPER METHODS ==========
 
+    private static void requireNotSelf(Long swiperId, Long swipedUserId) {
+        if (swiperId.equals(swipedUserId)) {
+            log.error("Swipe failed - user {} tried to swipe themselves", swiperId);
+            throw new InvalidSwipeException("Nie możesz swipnąć samego siebie");
+        }
+    }
+
+    /**
+     * Czy oceniany polubił już oceniającego. PendingLikeIndex zawiera tylko polubienia zatwierdzone
+     * i bez matcha, więc trafienie w nim wystarcza; brak trafienia (np. polubienie z innej instancji
+     * albo zbiór jeszcze niezaładowany) rozstrzyga blokujący odczyt swipe_pairs.
+     */
+    private boolean isLikedBack(long swiperId, long swipedUserId) {
+        if (pendingLikeIndex.contains(swipedUserId, swiperId)) {
+            return true;
+        }
+        return swipeJdbcDao.lockPairType(swipedUserId, swiperId)
+                .filter(SwipeType::isPositive)
+                .isPresent();
+    }
+
+    /**
+     * Aktualizuje PendingLikeIndex po zatwierdzeniu transakcji (bez transakcji - od razu):
+     * match usuwa odwrotne polubienie, polubienie bez matcha trafia do zbioru.
+     */
+    private void updatePendingLikesAfterCommit(long swiperId, long swipedUserId, boolean mutual) {
+        Runnable update = mutual
+                ? () -> pendingLikeIndex.remove(swipedUserId, swiperId)
+                : () -> pendingLikeIndex.add(swiperId, swipedUserId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    /**
+     * Przekazuje zarezerwowany swipe do SwipeWriter po zatwierdzeniu bieżącej transakcji,
+     * a gdy się nie zatwierdzi - zwalnia rezerwację (wycofany swipe nie trafia do bazy,
+     * a ponowienie żądania nie jest odrzucane jako duplikat). Bez transakcji - od razu.
+     * Rollback usuwa też zbiór ocenionych użytkownika (przeładuje się bez wycofanego swipe'a).
+     */
+    private void submitAfterCommit(SwipeRow swipe) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            swipeWriter.submit(swipe);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                swipeWriter.submit(swipe);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    swipeWriter.release(swipe);
+                    swipedUserCache.invalidate(swipe.swiperId());
+                }
+            }
+        });
+    }
+
+    /**
+     * Szybkie odrzucenie duplikatu bez zapytania: swipe pary czeka w kolejce SwipeWriter
+     * albo jest w SwipedUserCache. Wynik false nie wyklucza duplikatu - rozstrzyga swipe_pairs.
+     */
+    private boolean isAlreadySwiped(Long swiperId, Long swipedUserId) {
+        if (swipeWriter.findPending(swiperId, swipedUserId).isPresent()) {
+            return true;
+        }
+        return swipedUserCache.isEnabled() && swipedUserCache.swipedBy(swiperId).test(swipedUserId);
+    }
+
     /**
      * Mapuje Match entity na MatchResponse DTO.
      */
@@ -0,0 +1,440 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao.SwipeRow;
+import AplikacjePrzemyslowe.DatApp.entity.SwipeType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zapis swipe'ów w tle (write-behind) z grupowym commitem.
+ *
+ * SwipeService rezerwuje parę (reserve) pod lockiem pary, a swipe trafia do ograniczonej
+ * kolejki (submit) dopiero po zatwierdzeniu transakcji żądania - rollback zwalnia rezerwację
+ * (release), więc wycofany swipe nigdy nie jest zapisywany. Jeden wątek writer-a zbiera
+ * swipe'y w paczki (do batch-size albo flush-interval od pierwszego) i zapisuje każdą
+ * jednym wielowierszowym INSERT-em (SwipeJdbcDao).
+ *
+ * Pełna kolejka to backpressure: żądanie czeka do enqueue-timeout na miejsce, a potem zapisuje
+ * swipe samo, synchronicznie.
+ * Paczka odrzucona przez bazę jest ponawiana, a potem zapisywana wiersz po wierszu, żeby jeden
+ * błędny wiersz (np. konto usunięte w międzyczasie) nie zabrał reszty.
+ *
+ * Swipe, którego nie udało się zapisać, jest już potwierdzony użytkownikowi - trafia do pliku
+ * dead-letter (dead-letter-path, SwipeDeadLetterFile), odtwarzanego co dead-letter-replay-interval.
+ * Przy odtwarzaniu wiersz odrzucony przez więzy bazy (np. usunięte konto) jest porzucany,
+ * a przy innym błędzie bazy plik zostaje na następną próbę. Porzucony swipe zwalnia swoją parę
+ * w swipe_pairs.
+ *
+ * Swipe'y czekające na zapis widoczne są przez findPending (duplikaty, wzajemne LIKE)
+ * i findPendingSwipedBy (wykluczanie ocenionych w zapytaniach czytających tylko tabelę swipes);
+ * pozostałe odczyty swipe'ów widzą je dopiero po zapisie. Przy zamykaniu aplikacji kolejka
+ * jest opróżniana (shutdown-timeout); przy awarii procesu tracone są tylko swipe'y z kolejki.
+ * Metryki: swipe.ingestion.queue (rozmiar),
+ * swipe.ingestion.rows (result=flushed/fallback/spilled/replayed/dropped).
+ */
+@Slf4j
+@Component
+public class SwipeWriter {
+
+    private final SwipeJdbcDao swipeJdbcDao;
+    private final MatchingProperties.SwipeIngestion settings;
+    private final BlockingQueue<SwipeRow> queue;
+    /**
+     * Swipe'y czekające na zapis: oceniający -> (oceniany -> swipe).
+     */
+    private final Map<Long, Map<Long, SwipeRow>> pending = new ConcurrentHashMap<>();
+    private final Path deadLetterPath;
+    private final Object deadLetterLock = new Object();
+    private final Thread writer;
+    private volatile boolean running;
+
+    private final Counter flushed;
+    private final Counter fallback;
+    private final Counter spilled;
+    private final Counter replayed;
+    private final Counter dropped;
+
+    public SwipeWriter(SwipeJdbcDao swipeJdbcDao, MatchingProperties properties, MeterRegistry meterRegistry) {
+        this.swipeJdbcDao = swipeJdbcDao;
+        this.settings = properties.getSwipeIngestion();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity()));
+        this.deadLetterPath = Path.of(settings.getDeadLetterPath());
+
+        this.flushed = rowsCounter("flushed", meterRegistry);
+        this.fallback = rowsCounter("fallback", meterRegistry);
+        this.spilled = rowsCounter("spilled", meterRegistry);
+        this.replayed = rowsCounter("replayed", meterRegistry);
+        this.dropped = rowsCounter("dropped", meterRegistry);
+        Gauge.builder("swipe.ingestion.queue", queue, BlockingQueue::size)
+                .description("Swipes waiting for the write-behind flush")
+                .register(meterRegistry);
+
+        this.running = settings.isEnabled();
+        this.writer = new Thread(this::runWriter, "swipe-writer");
+        this.writer.setDaemon(true);
+        if (running) {
+            writer.start();
+        }
+    }
+
+    // ========== SUBMIT ==========
+
+    /**
+     * Rezerwuje parę swipe'a - od tej chwili findPending widzi swipe, a druga rezerwacja
+     * tej samej pary jest odrzucana. Rezerwację kończy submit (po zatwierdzeniu transakcji
+     * żądania) albo release (po rollbacku).
+     *
+     * @return false jeśli swipe tej samej pary już czeka na zapis
+     */
+    public boolean reserve(SwipeRow swipe) {
+        boolean[] reserved = {false};
+        pending.compute(swipe.swiperId(), (swiperId, bySwiped) -> {
+            Map<Long, SwipeRow> swipes = bySwiped != null ? bySwiped : new ConcurrentHashMap<>();
+            reserved[0] = swipes.putIfAbsent(swipe.swipedUserId(), swipe) == null;
+            return swipes;
+        });
+        return reserved[0];
+    }
+
+    /**
+     * Zwalnia rezerwację swipe'a, który nie zostanie zapisany (rollback transakcji żądania).
+     */
+    public void release(SwipeRow swipe) {
+        // Pusta mapa usuwana w tym samym compute co reserve - bez wyścigu z nową rezerwacją
+        pending.computeIfPresent(swipe.swiperId(), (swiperId, bySwiped) -> {
+            bySwiped.remove(swipe.swipedUserId(), swipe);
+            return bySwiped.isEmpty() ? null : bySwiped;
+        });
+    }
+
+    /**
+     * Przekazuje zarezerwowany swipe do zapisu - wywoływane po zatwierdzeniu transakcji żądania.
+     * Przy wyłączonej kolejce, po zamknięciu writer-a i przy kolejce pełnej mimo czekania
+     * swipe zapisywany jest synchronicznie w wątku wywołującego. Swipe jest już potwierdzony,
+     * więc błąd zapisu synchronicznego nie wychodzi do wywołującego - swipe trafia do dead-letter.
+     */
+    public void submit(SwipeRow swipe) {
+        if (running) {
+            try {
+                if (queue.offer(swipe, settings.getEnqueueTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                log.debug("Swipe queue full, writing swipe {} -> {} synchronously",
+                        swipe.swiperId(), swipe.swipedUserId());
+                fallback.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        try {
+            swipeJdbcDao.insertSwipes(List.of(swipe));
+        } catch (DataAccessException e) {
+            log.warn("Synchronous write of swipe {} -> {} failed: {}",
+                    swipe.swiperId(), swipe.swipedUserId(), e.getMessage());
+            spill(List.of(swipe));
+        } finally {
+            release(swipe);
+        }
+    }
+
+    /**
+     * Typ swipe'a {@code swiperId -> swipedUserId} czekającego na zapis (pusty, gdy nie czeka).
+     */
+    public Optional<SwipeType> findPending(long swiperId, long swipedUserId) {
+        Map<Long, SwipeRow> bySwiped = pending.get(swiperId);
+        SwipeRow swipe = bySwiped != null ? bySwiped.get(swipedUserId) : null;
+        return swipe != null ? Optional.of(swipe.swipeType()) : Optional.empty();
+    }
+
+    /**
+     * ID użytkowników ocenionych przez {@code swiperId}, których swipe'y czekają na zapis.
+     * Uzupełnia zapytania czytające tylko tabelę swipes.
+     */
+    public Set<Long> findPendingSwipedBy(long swiperId) {
+        Map<Long, SwipeRow> bySwiped = pending.get(swiperId);
+        return bySwiped != null ? Set.copyOf(bySwiped.keySet()) : Set.of();
+    }
+
+    /**
+     * Liczba swipe'ów czekających na zapis.
+     */
+    public int queued() {
+        return queue.size();
+    }
+
+    // ========== WRITER ==========
+
+    private void runWriter() {
+        List<SwipeRow> batch = new ArrayList<>(settings.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                // Zamykanie - dopisujemy bez czekania to, co już jest w kolejce
+                queue.drainTo(batch, Math.max(1, settings.getBatchSize()) - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+        log.info("Swipe writer stopped");
+    }
+
+    /**
+     * Zbiera paczkę: czeka na pierwszy swipe, potem dobiera kolejne do batch-size,
+     * nie dłużej niż flush-interval od pierwszego.
+     */
+    private void collect(List<SwipeRow> batch) throws InterruptedException {
+        int batchSize = Math.max(1, settings.getBatchSize());
+        long flushIntervalNanos = settings.getFlushInterval().toNanos();
+
+        SwipeRow first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            SwipeRow next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Zapisuje paczkę z ponowieniami, a po ich wyczerpaniu wiersz po wierszu.
+     */
+    void flush(List<SwipeRow> batch) {
+        try {
+            if (!writeBatch(batch)) {
+                writeOneByOne(batch);
+            }
+        } finally {
+            for (SwipeRow swipe : batch) {
+                release(swipe);
+            }
+        }
+    }
+
+    private boolean writeBatch(List<SwipeRow> batch) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                swipeJdbcDao.insertSwipes(batch);
+                flushed.increment(batch.size());
+                return true;
+            } catch (DataAccessException e) {
+                if (attempt >= settings.getMaxRetries()) {
+                    log.warn("Swipe batch of {} failed after {} attempts, writing row by row: {}",
+                            batch.size(), attempt + 1, e.getMessage());
+                    return false;
+                }
+                if (!sleep(settings.getRetryBackoff().toMillis() * (attempt + 1))) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void writeOneByOne(List<SwipeRow> batch) {
+        List<SwipeRow> failed = new ArrayList<>();
+        for (SwipeRow swipe : batch) {
+            try {
+                swipeJdbcDao.insertSwipes(List.of(swipe));
+                flushed.increment();
+            } catch (DataAccessException e) {
+                log.warn("Swipe {} -> {} ({}) not written: {}", swipe.swiperId(), swipe.swipedUserId(),
+                        swipe.swipeType(), e.getMessage());
+                failed.add(swipe);
+            }
+        }
+        if (!failed.isEmpty()) {
+            spill(failed);
+        }
+    }
+
+    // ========== DEAD LETTER ==========
+
+    /**
+     * Dopisuje niezapisane swipe'y do pliku dead-letter. Swipe jest tracony (dropped)
+     * tylko wtedy, gdy nie da się zapisać także pliku.
+     */
+    private void spill(List<SwipeRow> swipes) {
+        synchronized (deadLetterLock) {
+            try {
+                SwipeDeadLetterFile.append(deadLetterPath, swipes);
+                spilled.increment(swipes.size());
+                log.warn("Spilled {} swipes to {}", swipes.size(), deadLetterPath);
+            } catch (IOException e) {
+                log.error("Dropping {} swipes, dead-letter file {} not writable: {}",
+                        swipes.size(), deadLetterPath, e.getMessage());
+                drop(swipes);
+            }
+        }
+    }
+
+    /**
+     * Cyklicznie odtwarza plik dead-letter.
+     */
+    @Scheduled(fixedDelayString = "${matching.swipe-ingestion.dead-letter-replay-interval:PT1M}",
+               initialDelayString = "${matching.swipe-ingestion.dead-letter-replay-interval:PT1M}")
+    public void replayScheduled() {
+        try {
+            replayDeadLetters();
+        } catch (IOException | RuntimeException e) {
+            // Plik zostaje nietknięty - kolejna próba za dead-letter-replay-interval
+            log.warn("Swipe dead-letter replay failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Zapisuje swipe'y z pliku dead-letter paczkami po batch-size. Paczka odrzucona przez bazę
+     * zapisywana jest wiersz po wierszu: naruszenie więzów porzuca wiersz, inny błąd bazy
+     * przerywa odtwarzanie i zostawia w pliku wiersze jeszcze niezapisane.
+     *
+     * @return Liczba swipe'ów zapisanych do bazy
+     */
+    public int replayDeadLetters() throws IOException {
+        synchronized (deadLetterLock) {
+            List<SwipeRow> swipes = SwipeDeadLetterFile.read(deadLetterPath);
+            if (swipes.isEmpty()) {
+                return 0;
+            }
+
+            int batchSize = Math.max(1, settings.getBatchSize());
+            int written = 0;
+            int next = 0;
+            try {
+                while (next < swipes.size()) {
+                    List<SwipeRow> batch = swipes.subList(next, Math.min(next + batchSize, swipes.size()));
+                    try {
+                        swipeJdbcDao.insertSwipes(batch);
+                        written += batch.size();
+                        next += batch.size();
+                    } catch (DataAccessException e) {
+                        for (SwipeRow swipe : batch) {
+                            written += replayOne(swipe);
+                            next++;
+                        }
+                    }
+                }
+            } catch (DataAccessException e) {
+                log.warn("Swipe dead-letter replay stopped, {} swipes kept: {}", swipes.size() - next, e.getMessage());
+            } finally {
+                SwipeDeadLetterFile.rewrite(deadLetterPath, new ArrayList<>(swipes.subList(next, swipes.size())));
+                replayed.increment(written);
+            }
+
+            log.info("Replayed {} of {} dead-letter swipes", written, swipes.size());
+            return written;
+        }
+    }
+
+    /**
+     * Zapisuje jeden swipe z pliku dead-letter.
+     *
+     * @return 1 po zapisie, 0 gdy wiersz naruszał więzy i został porzucony
+     * @throws DataAccessException inny błąd bazy - odtwarzanie przerywane
+     */
+    private int replayOne(SwipeRow swipe) {
+        try {
+            swipeJdbcDao.insertSwipes(List.of(swipe));
+            return 1;
+        } catch (DataIntegrityViolationException e) {
+            log.error("Dropping dead-letter swipe {} -> {} ({}): {}", swipe.swiperId(), swipe.swipedUserId(),
+                    swipe.swipeType(), e.getMessage());
+            drop(List.of(swipe));
+            return 0;
+        }
+    }
+
+    /**
+     * Porzuca swipe'y, które nie trafią do bazy, i zwalnia ich pary w swipe_pairs - inaczej para
+     * zostałaby zablokowana i liczona w statystykach bez swipe'a. Błąd zwolnienia jest tylko
+     * logowany (baza bywa wtedy niedostępna); para zostaje wtedy zajęta.
+     */
+    private void drop(List<SwipeRow> swipes) {
+        dropped.increment(swipes.size());
+        try {
+            swipeJdbcDao.releasePairs(swipes);
+        } catch (DataAccessException e) {
+            log.error("Could not release swipe pairs of {} dropped swipes: {}", swipes.size(), e.getMessage());
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Zatrzymuje writer i czeka na zapis swipe'ów z kolejki. Późniejsze swipe'y
+     * zapisywane są synchronicznie.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            writer.join(settings.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.error("Swipe writer did not drain in {}, {} swipes not written",
+                    settings.getShutdownTimeout(), queue.size());
+            return;
+        }
+        // Swipe'y wstawione tuż po zatrzymaniu pętli writer-a
+        List<SwipeRow> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private static Counter rowsCounter(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("swipe.ingestion.rows")
+                .tag("result", result)
+                .description("Swipes written by the write-behind writer")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,246 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.TopPicksJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.entity.Preference;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Nocne przeliczanie rankingów "top picks" wszystkich aktywnych użytkowników (tabela top_picks).
+ * Poranny zimny start (MatchingEngineService) serwuje zapisany ranking zamiast liczyć pipeline.
+ *
+ * Rankingi liczone są tym samym MatchingPipeline co w żądaniach (bez budżetu czasu).
+ * Użytkownicy dzieleni są na porcje po user_id (matching.top-picks.chunk-size), porcje liczone
+ * równolegle na workers wątkach, a wyniki porcji zapisywane jednym batchem JDBC.
+ *
+ * Po każdej fali porcji zapisywany jest checkpoint (ostatni user_id, do którego wszystko jest
+ * zapisane); przerwany przebieg wznawiany jest od checkpointu, o ile zaczął się nie dawniej
+ * niż resume-window - przy starcie aplikacji (w tle, bez czekania na cron) albo przy kolejnym
+ * uruchomieniu z crona. Zapis porcji zastępuje poprzednie rankingi, więc powtórzenie porcji
+ * po przerwaniu jest bezpieczne. Checkpoint sprzed users epoch (najwcześniejszy users.created_at)
+ * pochodzi z poprzedniej bazy - schema.sql zachowuje top_picks i batch_checkpoints - i nie jest wznawiany.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TopPicksJob {
+
+    static final String JOB_NAME = "top-picks";
+
+    private final MatchingProperties properties;
+    private final UserJdbcDao userJdbcDao;
+    private final TopPicksJdbcDao topPicksJdbcDao;
+    private final UserService userService;
+    private final PreferenceService preferenceService;
+    private final MatchingPipeline matchingPipeline;
+
+    /**
+     * Wznawia w tle przebieg przerwany restartem aplikacji; cron uruchamia zadanie raz na dobę,
+     * więc bez tego checkpoint wypadałby z resume-window przed kolejnym uruchomieniem.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.getTopPicks().isEnabled()) {
+            return;
+        }
+        try {
+            if (!hasResumableRun()) {
+                return;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Top picks checkpoint lookup failed: {}", e.getMessage());
+            return;
+        }
+
+        log.info("Resuming interrupted top picks run in background");
+        Thread thread = new Thread(this::runScheduled, "top-picks-resume");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Uruchamia przebieg według matching.top-picks.cron.
+     */
+    @Scheduled(cron = "${matching.top-picks.cron:0 0 3 * * *}")
+    public void runScheduled() {
+        if (!properties.getTopPicks().isEnabled()) {
+            return;
+        }
+        try {
+            run();
+        } catch (RuntimeException e) {
+            // Checkpoint zostaje - restart aplikacji albo kolejny cron wznowi przebieg
+            log.warn("Top picks run failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Przelicza rankingi wszystkich aktywnych użytkowników, wznawiając przerwany przebieg.
+     *
+     * @return Liczba użytkowników przetworzonych w całym przebiegu (także przed wznowieniem)
+     */
+    public synchronized long run() {
+        MatchingProperties.TopPicks topPicks = properties.getTopPicks();
+        int workers = Math.max(1, topPicks.getWorkers());
+        TopPicksJdbcDao.Checkpoint checkpoint = resumeOrStart();
+        String runId = checkpoint.runId();
+        LocalDateTime computedAt = checkpoint.startedAt();
+        long lastUserId = checkpoint.lastUserId();
+        long processed = checkpoint.processedUsers();
+        long start = System.nanoTime();
+
+        log.info("Top picks run {} started after user {} ({} users already processed)",
+                runId, lastUserId, processed);
+
+        ExecutorService executor = newExecutor(workers);
+        try {
+            while (true) {
+                // Fala: po jednej porcji na wątek, kolejne porcje po user_id
+                List<List<Long>> wave = new ArrayList<>(workers);
+                long cursor = lastUserId;
+                for (int i = 0; i < workers; i++) {
+                    List<Long> chunk = userJdbcDao.findActiveUserIdsAfter(cursor, topPicks.getChunkSize());
+                    if (chunk.isEmpty()) {
+                        break;
+                    }
+                    wave.add(chunk);
+                    cursor = chunk.get(chunk.size() - 1);
+                }
+                if (wave.isEmpty()) {
+                    break;
+                }
+
+                List<Future<?>> futures = new ArrayList<>(wave.size());
+                for (List<Long> chunk : wave) {
+                    futures.add(executor.submit(() -> processChunk(chunk, topPicks.getSize(), computedAt)));
+                }
+                awaitAll(futures);
+
+                // Cała fala zapisana - checkpoint przesuwa się za jej ostatniego użytkownika
+                lastUserId = cursor;
+                for (List<Long> chunk : wave) {
+                    processed += chunk.size();
+                }
+                topPicksJdbcDao.saveCheckpoint(JOB_NAME, runId, lastUserId, processed);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        topPicksJdbcDao.completeRun(JOB_NAME, runId, LocalDateTime.now());
+        int removed = topPicksJdbcDao.deleteTopPicksBefore(computedAt);
+
+        log.info("Top picks run {} completed: {} users in {} ms ({} stale rows removed)",
+                runId, processed, (System.nanoTime() - start) / 1_000_000, removed);
+        return processed;
+    }
+
+    /**
+     * Czy istnieje przerwany przebieg, który run() wznowi (niezakończony i z okna resume-window).
+     */
+    boolean hasResumableRun() {
+        return findResumableRun(LocalDateTime.now()).isPresent();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private Optional<TopPicksJdbcDao.Checkpoint> findResumableRun(LocalDateTime now) {
+        LocalDateTime notBefore = now.minus(properties.getTopPicks().getResumeWindow());
+        Optional<TopPicksJdbcDao.Checkpoint> checkpoint = topPicksJdbcDao.findCheckpoint(JOB_NAME)
+                .filter(previous -> !previous.isCompleted() && previous.startedAt().isAfter(notBefore));
+        if (checkpoint.isEmpty()) {
+            return checkpoint;
+        }
+
+        // Przebieg sprzed users epoch liczono dla bazy, którą schema.sql już zastąpiła
+        LocalDateTime usersEpoch = userJdbcDao.findUsersEpoch();
+        if (usersEpoch != null
+                && checkpoint.get().startedAt().isBefore(usersEpoch.truncatedTo(ChronoUnit.SECONDS))) {
+            log.info("Top picks checkpoint {} belongs to another database, starting over", checkpoint.get().runId());
+            return Optional.empty();
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Wznawia przerwany przebieg z okna resume-window albo rozpoczyna nowy.
+     */
+    private TopPicksJdbcDao.Checkpoint resumeOrStart() {
+        // Pełne sekundy - znacznik przebiegu porównywany jest z kolumną TIMESTAMP
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Optional<TopPicksJdbcDao.Checkpoint> previous = findResumableRun(now);
+        if (previous.isPresent()) {
+            return previous.get();
+        }
+
+        String runId = UUID.randomUUID().toString();
+        topPicksJdbcDao.startRun(JOB_NAME, runId, now);
+        return new TopPicksJdbcDao.Checkpoint(runId, 0L, 0L, now, null);
+    }
+
+    /**
+     * Liczy rankingi porcji użytkowników i zapisuje je jednym batchem.
+     * Błąd jednego użytkownika pomija tylko jego ranking.
+     */
+    private void processChunk(List<Long> userIds, int size, LocalDateTime computedAt) {
+        List<TopPicksJdbcDao.TopPickRow> rows = new ArrayList<>(userIds.size() * size);
+        for (User user : userService.getUserEntities(userIds)) {
+            try {
+                Preference preferences = preferenceService.getPreferenceEntity(user.getId());
+                List<ScoredCandidate> ranked = matchingPipeline.rank(user, preferences, size).ranked();
+                for (int position = 0; position < ranked.size(); position++) {
+                    ScoredCandidate candidate = ranked.get(position);
+                    rows.add(new TopPicksJdbcDao.TopPickRow(user.getId(), position,
+                            candidate.getCandidateId(), candidate.getScore()));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Top picks for user {} failed: {}", user.getId(), e.getMessage());
+            }
+        }
+        topPicksJdbcDao.replaceTopPicks(userIds, rows, computedAt);
+    }
+
+    /**
+     * Czeka na wszystkie porcje fali; błąd którejkolwiek przerywa przebieg (checkpoint zostaje na poprzedniej fali).
+     */
+    private static void awaitAll(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Top picks run interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Top picks chunk failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static ExecutorService newExecutor(int workers) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "top-picks-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -7,10 +7,12 @@ import AplikacjePrzemyslowe.DatApp.entity.User;
 import AplikacjePrzemyslowe.DatApp.exception.ResourceAlreadyExistsException;
 import AplikacjePrzemyslowe.DatApp.exception.ResourceNotFoundException;
 import AplikacjePrzemyslowe.DatApp.exception.ValidationException;
+import AplikacjePrzemyslowe.DatApp.matching.MatchingChangeEvent;
 import AplikacjePrzemyslowe.DatApp.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,10 +20,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Service dla zarządzania użytkownikami.
  * Obsługuje rejestrację, usuwanie konta, zmianę hasła.
+ * Zmiany aktywności konta publikowane są jako MatchingChangeEvent (stosowane po commicie).
  */
 @Slf4j
 @Service
@@ -30,6 +35,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
     private final ModelMapper modelMapper;
 
     // ========== READ OPERATIONS ==========
@@ -171,6 +177,7 @@ public class UserService {
                 .build();
 
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new MatchingChangeEvent.UserActivationChanged(savedUser.getId(), true));
 
         log.info("User registered successfully: {} (id: {})", savedUser.getUsername(), savedUser.getId());
 
@@ -248,6 +255,7 @@ public class UserService {
 
         user.setIsActive(false);
         userRepository.save(user);
+        eventPublisher.publishEvent(new MatchingChangeEvent.UserActivationChanged(userId, false));
 
         log.info("Account deactivated successfully for user: {}", userId);
     }
@@ -265,6 +273,7 @@ public class UserService {
 
         user.setIsActive(true);
         userRepository.save(user);
+        eventPublisher.publishEvent(new MatchingChangeEvent.UserActivationChanged(userId, true));
 
         log.info("Account reactivated successfully for user: {}", userId);
     }
@@ -285,6 +294,7 @@ public class UserService {
 
         // Kaskadowe usunięcie dzięki ON DELETE CASCADE w FK constraints
         userRepository.delete(user);
+        eventPublisher.publishEvent(new MatchingChangeEvent.UserActivationChanged(userId, false));
 
         log.warn("Account permanently deleted for user: {} (username: {})", userId, username);
     }
@@ -339,6 +349,14 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User", id));
     }
 
+    /**
+     * Zwraca encje User dla listy ID (jedno zapytanie IN).
+     */
+    @Transactional(readOnly = true)
+    public List<User> getUserEntities(Collection<Long> ids) {
+        return userRepository.findAllById(ids);
+    }
+
     /**
      * Usuwa użytkownika po ID.
      */
@@ -348,6 +366,7 @@ public class UserService {
             throw new ResourceNotFoundException("User", id);
         }
         userRepository.deleteById(id);
+        eventPublisher.publishEvent(new MatchingChangeEvent.UserActivationChanged(id, false));
         log.info("User {} deleted", id);
     }
 }
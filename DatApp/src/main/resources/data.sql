@@ -158,6 +158,10 @@ INSERT INTO swipes (swipe_id, swiper_id, swiped_user_id, swipe_type, swiped_at)
 (21, 10, 3, 'LIKE', NOW() - INTERVAL 1 DAY),
 (22, 10, 7, 'LIKE', NOW());
 
+-- Klucze par dla powyższych swipe'ów (swipe_pairs pilnuje jednego swipe'a na parę)
+INSERT INTO swipe_pairs (swiper_id, swiped_user_id, swipe_id, swipe_type)
+SELECT swiper_id, swiped_user_id, swipe_id, swipe_type FROM swipes;
+
 -- ============================================
 -- MATCHES - Dopasowania (wzajemne like'i)
 -- ============================================
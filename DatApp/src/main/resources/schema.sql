@@ -5,6 +5,9 @@
 -- Drop all tables (for fresh initialization)
 DROP TABLE IF EXISTS messages CASCADE;
 DROP TABLE IF EXISTS matches CASCADE;
+DROP TABLE IF EXISTS swipes_archive CASCADE;
+DROP TABLE IF EXISTS swipe_id_sequence CASCADE;
+DROP TABLE IF EXISTS swipe_pairs CASCADE;
 DROP TABLE IF EXISTS swipes CASCADE;
 DROP TABLE IF EXISTS profile_interests CASCADE;
 DROP TABLE IF EXISTS photos CASCADE;
@@ -34,7 +37,8 @@ CREATE TABLE users (
     INDEX idx_username (username),
     INDEX idx_city (city),
     INDEX idx_is_active (is_active),
-    INDEX idx_created_at (created_at)
+    INDEX idx_created_at (created_at),
+    INDEX idx_updated_at (updated_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- ============================================
@@ -52,9 +56,11 @@ CREATE TABLE profiles (
     longitude DOUBLE,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0 COMMENT 'Optimistic locking (JPA @Version)',
 
     CONSTRAINT fk_profile_user FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
-    INDEX idx_user_id (user_id)
+    INDEX idx_user_id (user_id),
+    INDEX idx_updated_at (updated_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- ============================================
@@ -117,33 +123,95 @@ CREATE TABLE preferences (
     max_distance_km INT NOT NULL DEFAULT 50,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0 COMMENT 'Optimistic locking (JPA @Version)',
 
     CONSTRAINT fk_preference_user FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
     INDEX idx_user_id (user_id),
+    INDEX idx_updated_at (updated_at),
     CHECK (min_age >= 18 AND max_age <= 100),
     CHECK (min_age <= max_age)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- ============================================
 -- TABLE: swipes
--- Description: Akcje swipe'a (LIKE, DISLIKE, SUPER_LIKE)
+-- Description: Akcje swipe'a (LIKE, DISLIKE, PASS, SUPER_LIKE)
+-- Partycje miesięczne po swiped_at (RANGE po UNIX_TIMESTAMP - kolumna TIMESTAMP),
+-- kolejne miesiące dokłada SwipeArchiveJob, dzieląc p_future.
+-- Tabela partycjonowana nie może mieć kluczy obcych, a każdy klucz unikalny musi
+-- zawierać swiped_at - usunięcie użytkownika kasuje jego swipe'y jawnie, a jeden
+-- swipe na parę pilnuje tabela swipe_pairs.
 -- ============================================
 CREATE TABLE swipes (
-    swipe_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    swipe_id BIGINT AUTO_INCREMENT,
     swiper_id BIGINT NOT NULL,
     swiped_user_id BIGINT NOT NULL,
-    swipe_type VARCHAR(20) NOT NULL COMMENT 'LIKE, DISLIKE, SUPER_LIKE',
+    swipe_type VARCHAR(20) NOT NULL COMMENT 'LIKE, DISLIKE, PASS, SUPER_LIKE',
     swiped_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
 
-    CONSTRAINT fk_swipe_swiper FOREIGN KEY (swiper_id) REFERENCES users(user_id) ON DELETE CASCADE,
-    CONSTRAINT fk_swipe_swiped FOREIGN KEY (swiped_user_id) REFERENCES users(user_id) ON DELETE CASCADE,
-    UNIQUE KEY uk_swiper_swiped (swiper_id, swiped_user_id),
+    PRIMARY KEY (swipe_id, swiped_at),
+    UNIQUE KEY uk_swiper_swiped (swiper_id, swiped_user_id, swiped_at),
     INDEX idx_swiper_id (swiper_id),
     INDEX idx_swiped_user_id (swiped_user_id),
     INDEX idx_swipe_type (swipe_type),
     INDEX idx_swiped_at (swiped_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+PARTITION BY RANGE (UNIX_TIMESTAMP(swiped_at)) (
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
+
+-- ============================================
+-- TABLE: swipe_pairs
+-- Description: Jeden wiersz na parę (oceniający, oceniany) dla swipe'ów z tabeli swipes
+-- Niepartycjonowana, więc klucz pary jest unikalny globalnie (także między instancjami
+-- aplikacji). SwipeService wstawia parę w transakcji żądania, zanim swipe trafi do zapisu
+-- w tle; SwipeArchiveJob usuwa parę razem z archiwizowanym swipe'em (druga szansa).
+-- ============================================
+CREATE TABLE swipe_pairs (
+    swiper_id BIGINT NOT NULL,
+    swiped_user_id BIGINT NOT NULL,
+    swipe_id BIGINT NOT NULL,
+    swipe_type VARCHAR(20) NOT NULL COMMENT 'LIKE, DISLIKE, PASS, SUPER_LIKE',
+
+    PRIMARY KEY (swiper_id, swiped_user_id),
+    CONSTRAINT fk_swipe_pair_swiper FOREIGN KEY (swiper_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    CONSTRAINT fk_swipe_pair_swiped FOREIGN KEY (swiped_user_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    INDEX idx_swipe_pair_swiped_type (swiped_user_id, swipe_type),
+    INDEX idx_swipe_pair_swipe_id (swipe_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- ============================================
+-- TABLE: swipes_archive
+-- Description: Stare DISLIKE/PASS przeniesione z swipes (SwipeArchiveJob, archive-after)
+-- Wiersz archiwum wyklucza kandydata, dopóki jego para jest w swipe_pairs - po oknie
+-- "drugiej szansy" para jest zwalniana i odrzucony kandydat może wrócić do talii
+-- ============================================
+CREATE TABLE swipes_archive (
+    swipe_id BIGINT PRIMARY KEY,
+    swiper_id BIGINT NOT NULL,
+    swiped_user_id BIGINT NOT NULL,
+    swipe_type VARCHAR(20) NOT NULL,
+    swiped_at TIMESTAMP NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT fk_swipe_archive_swiper FOREIGN KEY (swiper_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    CONSTRAINT fk_swipe_archive_swiped FOREIGN KEY (swiped_user_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    INDEX idx_swipe_archive_pair (swiper_id, swiped_user_id),
+    INDEX idx_swipe_archive_type_swiped_at (swipe_type, swiped_at),
+    INDEX idx_swipe_archive_archived_at (archived_at)
+) ENGINE=InnoDB ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================
+-- TABLE: swipe_id_sequence
+-- Description: Następne wolne swipe_id - SwipeIdAllocator rezerwuje z niej pule ID,
+-- żeby swipe zapisywany w tle (SwipeWriter) miał ID już w odpowiedzi na żądanie
+-- ============================================
+CREATE TABLE swipe_id_sequence (
+    sequence_id TINYINT PRIMARY KEY,
+    next_id BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO swipe_id_sequence (sequence_id, next_id) VALUES (1, 1);
+
 -- ============================================
 -- TABLE: matches
 -- Description: Dopasowania między użytkownikami
@@ -207,6 +275,39 @@ CREATE TABLE profile_backups (
     INDEX idx_created_at (created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- ============================================
+-- TABLE: top_picks
+-- Description: Nocny ranking kandydatów per użytkownik (TopPicksJob)
+-- Dane pochodne - bez kluczy obcych i nieusuwane przy starcie
+-- (przerwany przebieg wznawiany jest z batch_checkpoints). Wiersze sprzed
+-- MIN(users.created_at) pochodzą z poprzedniej bazy i są pomijane przy odczycie
+-- (TopPicksStore, TopPicksJob), a usuwa je kolejny pełny przebieg
+-- ============================================
+CREATE TABLE IF NOT EXISTS top_picks (
+    user_id BIGINT NOT NULL,
+    position INT NOT NULL,
+    candidate_id BIGINT NOT NULL,
+    score INT NOT NULL,
+    computed_at TIMESTAMP NOT NULL,
+
+    PRIMARY KEY (user_id, position),
+    INDEX idx_top_picks_computed_at (computed_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================
+-- TABLE: batch_checkpoints
+-- Description: Postęp zadań wsadowych (ostatni przetworzony user_id)
+-- ============================================
+CREATE TABLE IF NOT EXISTS batch_checkpoints (
+    job_name VARCHAR(50) PRIMARY KEY,
+    run_id VARCHAR(36) NOT NULL,
+    last_user_id BIGINT NOT NULL DEFAULT 0,
+    processed_users BIGINT NOT NULL DEFAULT 0,
+    started_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- ============================================
 -- Indeksy dla wydajności
 -- ============================================
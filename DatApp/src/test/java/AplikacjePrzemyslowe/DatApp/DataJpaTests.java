@@ -12,6 +12,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -33,6 +34,9 @@ class DataJpaTests {
     @Autowired
     private InterestRepository interestRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     private User testUser;
     private Profile testProfile;
 
@@ -217,6 +221,21 @@ class DataJpaTests {
         Profile found = profileRepository.findById(profile.getId()).orElse(null);
         assertThat(found.getInterests()).hasSize(2);
     }
-}
 
+    @Test
+    @DisplayName("13. Profile version increments on update")
+    void testProfileVersionIncrements() {
+        User saved = userRepository.save(testUser);
+        entityManager.flush();
+        Long initialVersion = saved.getProfile().getVersion();
+        assertThat(initialVersion).isNotNull();
+
+        saved.getProfile().setBio("Updated bio");
+        entityManager.flush();
+        entityManager.clear();
 
+        // Wymuszenie kolejnej wersji (zdjęcia) następuje dopiero przy commicie
+        Profile found = profileRepository.findForVersionIncrementByUserId(saved.getId()).orElseThrow();
+        assertThat(found.getVersion()).isEqualTo(initialVersion + 1);
+    }
+}
@@ -1,16 +1,23 @@
 package AplikacjePrzemyslowe.DatApp;
 
+import AplikacjePrzemyslowe.DatApp.dao.MatchJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao.SwipeRow;
 import AplikacjePrzemyslowe.DatApp.dto.request.SwipeRequest;
 import AplikacjePrzemyslowe.DatApp.dto.response.MatchResponse;
 import AplikacjePrzemyslowe.DatApp.dto.response.SwipeResponse;
 import AplikacjePrzemyslowe.DatApp.entity.Match;
-import AplikacjePrzemyslowe.DatApp.entity.Swipe;
 import AplikacjePrzemyslowe.DatApp.entity.SwipeType;
 import AplikacjePrzemyslowe.DatApp.entity.User;
 import AplikacjePrzemyslowe.DatApp.exception.InvalidSwipeException;
+import AplikacjePrzemyslowe.DatApp.matching.MatchingChangeEvent;
+import AplikacjePrzemyslowe.DatApp.matching.PendingLikeIndex;
+import AplikacjePrzemyslowe.DatApp.matching.SwipedUserCache;
 import AplikacjePrzemyslowe.DatApp.repository.MatchRepository;
 import AplikacjePrzemyslowe.DatApp.repository.SwipeRepository;
+import AplikacjePrzemyslowe.DatApp.service.SwipeIdAllocator;
 import AplikacjePrzemyslowe.DatApp.service.SwipeService;
+import AplikacjePrzemyslowe.DatApp.service.SwipeWriter;
 import AplikacjePrzemyslowe.DatApp.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -19,7 +26,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.modelmapper.ModelMapper;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -34,7 +47,14 @@ class SwipeServiceTests {
 
     @Mock private SwipeRepository swipeRepository;
     @Mock private MatchRepository matchRepository;
+    @Mock private MatchJdbcDao matchJdbcDao;
+    @Mock private SwipeJdbcDao swipeJdbcDao;
     @Mock private UserService userService;
+    @Mock private SwipeWriter swipeWriter;
+    @Mock private SwipeIdAllocator swipeIdAllocator;
+    @Mock private SwipedUserCache swipedUserCache;
+    @Mock private PendingLikeIndex pendingLikeIndex;
+    @Mock private ApplicationEventPublisher eventPublisher;
     @Mock private ModelMapper modelMapper;
 
     @InjectMocks private SwipeService swipeService;
@@ -63,7 +83,7 @@ class SwipeServiceTests {
     }
 
     @Test
-    @DisplayName("recordSwipe: cannot swipe same user twice")
+    @DisplayName("recordSwipe: cannot swipe same user twice - pair already in swipe_pairs")
     void recordSwipe_duplicateSwipe() {
         SwipeRequest req = SwipeRequest.builder()
                 .swipedUserId(2L)
@@ -72,12 +92,52 @@ class SwipeServiceTests {
 
         when(userService.getUserEntity(1L)).thenReturn(swiper);
         when(userService.getUserEntity(2L)).thenReturn(swiped);
-        when(swipeRepository.existsBySwipedUserIdAndSwiperId(2L, 1L)).thenReturn(true);
+        when(swipeJdbcDao.reservePair(any())).thenReturn(false);
 
         assertThatThrownBy(() -> swipeService.recordSwipe(1L, req))
                 .isInstanceOf(InvalidSwipeException.class);
 
-        verify(swipeRepository, never()).save(any());
+        verify(swipeWriter, never()).reserve(any());
+        verify(swipeWriter, never()).submit(any());
+    }
+
+    @Test
+    @DisplayName("recordSwipe: duplicate detected from swiped-user cache without a query")
+    void recordSwipe_duplicateFromCache() {
+        SwipeRequest req = SwipeRequest.builder()
+                .swipedUserId(2L)
+                .swipeType("DISLIKE")
+                .build();
+
+        when(userService.getUserEntity(1L)).thenReturn(swiper);
+        when(userService.getUserEntity(2L)).thenReturn(swiped);
+        when(swipedUserCache.isEnabled()).thenReturn(true);
+        when(swipedUserCache.swipedBy(1L)).thenReturn(id -> id == 2L);
+
+        assertThatThrownBy(() -> swipeService.recordSwipe(1L, req))
+                .isInstanceOf(InvalidSwipeException.class);
+
+        verify(swipeJdbcDao, never()).reservePair(any());
+        verify(swipeWriter, never()).submit(any());
+    }
+
+    @Test
+    @DisplayName("recordSwipe: concurrent swipe of the same pair already queued is rejected")
+    void recordSwipe_pendingDuplicateRejected() {
+        SwipeRequest req = SwipeRequest.builder()
+                .swipedUserId(2L)
+                .swipeType("DISLIKE")
+                .build();
+
+        when(userService.getUserEntity(1L)).thenReturn(swiper);
+        when(userService.getUserEntity(2L)).thenReturn(swiped);
+        when(swipeJdbcDao.reservePair(any())).thenReturn(true);
+        when(swipeWriter.reserve(any())).thenReturn(false);
+
+        assertThatThrownBy(() -> swipeService.recordSwipe(1L, req))
+                .isInstanceOf(InvalidSwipeException.class);
+
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -90,36 +150,215 @@ class SwipeServiceTests {
 
         when(userService.getUserEntity(1L)).thenReturn(swiper);
         when(userService.getUserEntity(2L)).thenReturn(swiped);
-        when(swipeRepository.existsBySwipedUserIdAndSwiperId(2L, 1L)).thenReturn(false);
+        when(swipeJdbcDao.reservePair(any())).thenReturn(true);
+        when(swipeWriter.reserve(any())).thenReturn(true);
+        when(swipeIdAllocator.next()).thenReturn(501L);
 
-        Swipe saved = Swipe.builder().id(100L).swiper(swiper).swipedUser(swiped).swipeType(SwipeType.LIKE).swipedAt(LocalDateTime.now()).build();
-        when(swipeRepository.save(any(Swipe.class))).thenReturn(saved);
-
-        when(swipeRepository.findSwipe(2L, 1L)).thenReturn(Optional.empty());
+        when(swipeJdbcDao.lockPairType(2L, 1L)).thenReturn(Optional.empty());
 
         SwipeResponse resp = swipeService.recordSwipe(1L, req);
 
-        assertThat(resp.getSwipeId()).isEqualTo(100L);
+        // ID nadany z góry - ten sam trafia do zapisu w tle
+        assertThat(resp.getSwipeId()).isEqualTo(501L);
+        assertThat(resp.getSwipedAt()).isNotNull();
         assertThat(resp.getIsMatch()).isFalse();
         assertThat(resp.getMatchDetails()).isNull();
+        ArgumentCaptor<SwipeRow> queued = ArgumentCaptor.forClass(SwipeRow.class);
+        verify(swipeWriter).submit(queued.capture());
+        assertThat(queued.getValue()).isEqualTo(new SwipeRow(501L, 1L, 2L, SwipeType.LIKE, resp.getSwipedAt()));
+        verify(swipeRepository, never()).save(any());
+        // Zbiór ocenionych aktualizowany od razu - nie dopiero po zatwierdzeniu i zapisie w tle
+        verify(swipedUserCache).recordSwipe(1L, 2L);
+        verify(eventPublisher).publishEvent(new MatchingChangeEvent.SwipeRecorded(1L, 2L));
     }
 
     @Test
-    @DisplayName("checkMutualLike: when reverse LIKE and no existing match -> creates match")
-    void checkMutualLike_createsMatch() {
-        Swipe reverse = Swipe.builder().id(200L).swiper(swiped).swipedUser(swiper).swipeType(SwipeType.LIKE).build();
+    @DisplayName("recordSwipe: failed match upsert releases the pair reservation and queues nothing")
+    void recordSwipe_matchFailureReleasesReservation() {
+        SwipeRequest req = SwipeRequest.builder()
+                .swipedUserId(2L)
+                .swipeType("LIKE")
+                .build();
+
+        when(userService.getUserEntity(1L)).thenReturn(swiper);
+        when(userService.getUserEntity(2L)).thenReturn(swiped);
+        when(swipeJdbcDao.reservePair(any())).thenReturn(true);
+        when(swipeWriter.reserve(any())).thenReturn(true);
+        when(pendingLikeIndex.contains(2L, 1L)).thenReturn(true);
+        when(matchJdbcDao.upsertMatch(eq(1L), eq(2L), any())).thenThrow(new DataAccessResourceFailureException("db down"));
+
+        assertThatThrownBy(() -> swipeService.recordSwipe(1L, req))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+
+        ArgumentCaptor<SwipeRow> reserved = ArgumentCaptor.forClass(SwipeRow.class);
+        verify(swipeWriter).reserve(reserved.capture());
+        verify(swipeWriter).release(reserved.getValue());
+        verify(swipeWriter, never()).submit(any());
+        verify(swipedUserCache, never()).recordSwipe(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("recordSwipe: swipe queued only after commit, rollback releases the reservation")
+    void recordSwipe_queuedAfterCommitOnly() {
+        SwipeRequest req = SwipeRequest.builder()
+                .swipedUserId(2L)
+                .swipeType("DISLIKE")
+                .build();
+
+        when(userService.getUserEntity(1L)).thenReturn(swiper);
+        when(userService.getUserEntity(2L)).thenReturn(swiped);
+        when(swipeJdbcDao.reservePair(any())).thenReturn(true);
+        when(swipeWriter.reserve(any())).thenReturn(true);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            swipeService.recordSwipe(1L, req);
+            verify(swipeWriter, never()).submit(any());
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(swipedUserCache).recordSwipe(1L, 2L);
+        verify(swipeWriter).release(any());
+        verify(swipedUserCache).invalidate(1L);
+        verify(swipeWriter, never()).submit(any());
+    }
+
+    @Test
+    @DisplayName("recordSwipe: LIKE without reverse like enters pending-likes index only after commit")
+    void recordSwipe_likeNoMatchUpdatesPendingLikesAfterCommit() {
+        SwipeRequest req = SwipeRequest.builder()
+                .swipedUserId(2L)
+                .swipeType("LIKE")
+                .build();
+
+        when(userService.getUserEntity(1L)).thenReturn(swiper);
+        when(userService.getUserEntity(2L)).thenReturn(swiped);
+        when(swipeJdbcDao.reservePair(any())).thenReturn(true);
+        when(swipeWriter.reserve(any())).thenReturn(true);
+        when(swipeJdbcDao.lockPairType(2L, 1L)).thenReturn(Optional.empty());
 
-        when(swipeRepository.findSwipe(2L, 1L)).thenReturn(Optional.of(reverse));
-        when(matchRepository.findMatchBetween(1L, 2L)).thenReturn(Optional.empty());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            swipeService.recordSwipe(1L, req);
+            verify(pendingLikeIndex, never()).add(anyLong(), anyLong());
 
-        Match created = Match.builder().id(300L).user1(swiper).user2(swiped).isActive(true).build();
-        when(matchRepository.save(any(Match.class))).thenReturn(created);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(pendingLikeIndex).add(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("recordSwipe: SUPER_LIKE with reverse like in pending-likes index creates match without queries")
+    void recordSwipe_superLikeMatchFromPendingLikes() {
+        SwipeRequest req = SwipeRequest.builder()
+                .swipedUserId(2L)
+                .swipeType("SUPER_LIKE")
+                .build();
+
+        when(userService.getUserEntity(1L)).thenReturn(swiper);
+        when(userService.getUserEntity(2L)).thenReturn(swiped);
+        when(swipeJdbcDao.reservePair(any())).thenReturn(true);
+        when(swipeWriter.reserve(any())).thenReturn(true);
+        when(pendingLikeIndex.contains(2L, 1L)).thenReturn(true);
+
+        when(matchJdbcDao.upsertMatch(eq(1L), eq(2L), any())).thenReturn(stored(302L, true));
+        when(modelMapper.map(any(Match.class), eq(MatchResponse.class))).thenReturn(MatchResponse.builder().id(302L).build());
+
+        SwipeResponse resp = swipeService.recordSwipe(1L, req);
+
+        assertThat(resp.getIsMatch()).isTrue();
+        assertThat(resp.getMatchDetails().getId()).isEqualTo(302L);
+        verify(swipeJdbcDao, never()).lockPairType(anyLong(), anyLong());
+        verify(matchRepository, never()).findMatchBetween(any(), any());
+        verify(pendingLikeIndex).remove(2L, 1L);
+    }
+
+    @Test
+    @DisplayName("recordSwipe: reverse DISLIKE in swipe_pairs returns isMatch=false")
+    void recordSwipe_likeNoMatchFromSwipePairs() {
+        SwipeRequest req = SwipeRequest.builder()
+                .swipedUserId(2L)
+                .swipeType("LIKE")
+                .build();
+
+        when(userService.getUserEntity(1L)).thenReturn(swiper);
+        when(userService.getUserEntity(2L)).thenReturn(swiped);
+        when(swipeJdbcDao.reservePair(any())).thenReturn(true);
+        when(swipeWriter.reserve(any())).thenReturn(true);
+        when(swipeJdbcDao.lockPairType(2L, 1L)).thenReturn(Optional.of(SwipeType.DISLIKE));
+
+        SwipeResponse resp = swipeService.recordSwipe(1L, req);
+
+        assertThat(resp.getIsMatch()).isFalse();
+        verify(swipeRepository, never()).findSwipe(any(), any());
+        verify(matchJdbcDao, never()).upsertMatch(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("recordSwipe: pair edges locked from the smaller swiper id - larger swiper reads reverse edge first")
+    void recordSwipe_locksPairEdgesInFixedOrder() {
+        User larger = User.builder().id(3L).username("u3").email("u3@x.pl").password("password123").isActive(true).build();
+        SwipeRequest req = SwipeRequest.builder()
+                .swipedUserId(2L)
+                .swipeType("LIKE")
+                .build();
+
+        when(userService.getUserEntity(3L)).thenReturn(larger);
+        when(userService.getUserEntity(2L)).thenReturn(swiped);
+        when(swipeJdbcDao.lockPairType(2L, 3L)).thenReturn(Optional.of(SwipeType.LIKE));
+        when(swipeJdbcDao.reservePair(any())).thenReturn(true);
+        when(swipeWriter.reserve(any())).thenReturn(true);
+        when(matchJdbcDao.upsertMatch(eq(2L), eq(3L), any())).thenReturn(stored(303L, true));
+        when(modelMapper.map(any(Match.class), eq(MatchResponse.class))).thenReturn(MatchResponse.builder().id(303L).build());
+
+        SwipeResponse resp = swipeService.recordSwipe(3L, req);
+
+        assertThat(resp.getIsMatch()).isTrue();
+        InOrder order = inOrder(swipeJdbcDao, matchJdbcDao);
+        order.verify(swipeJdbcDao).lockPairType(2L, 3L);
+        order.verify(swipeJdbcDao).reservePair(any());
+        order.verify(matchJdbcDao).upsertMatch(eq(2L), eq(3L), any());
+    }
+
+    @Test
+    @DisplayName("checkMutualLike: when reverse LIKE in swipe_pairs -> creates match")
+    void checkMutualLike_createsMatch() {
+        when(swipeJdbcDao.lockPairType(2L, 1L)).thenReturn(Optional.of(SwipeType.LIKE));
+        when(matchJdbcDao.upsertMatch(eq(1L), eq(2L), any())).thenReturn(stored(300L, true));
 
         Optional<Match> result = swipeService.checkMutualLike(swiper, swiped);
 
         assertThat(result).isPresent();
         assertThat(result.get().getId()).isEqualTo(300L);
-        verify(matchRepository).save(any(Match.class));
+        assertThat(result.get().getUser1()).isSameAs(swiper);
+        assertThat(result.get().getIsActive()).isTrue();
+        verify(matchRepository, never()).save(any(Match.class));
+        verify(swipeWriter, never()).findPending(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("checkMutualLike: existing inactive match is returned as stored, not as a new active one")
+    void checkMutualLike_existingMatchKeepsStoredState() {
+        LocalDateTime matchedAt = LocalDateTime.of(2026, 1, 10, 12, 0);
+        LocalDateTime unmatchedAt = LocalDateTime.of(2026, 2, 1, 9, 30);
+        when(swipeJdbcDao.lockPairType(2L, 1L)).thenReturn(Optional.of(SwipeType.SUPER_LIKE));
+        when(matchJdbcDao.upsertMatch(eq(1L), eq(2L), any()))
+                .thenReturn(new MatchJdbcDao.StoredMatch(301L, false, matchedAt, unmatchedAt));
+
+        Optional<Match> result = swipeService.checkMutualLike(swiper, swiped);
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getId()).isEqualTo(301L);
+        assertThat(result.get().getIsActive()).isFalse();
+        assertThat(result.get().getMatchedAt()).isEqualTo(matchedAt);
+        assertThat(result.get().getUnmatchedAt()).isEqualTo(unmatchedAt);
     }
 
     @Test
@@ -131,7 +370,7 @@ class SwipeServiceTests {
         Match result = swipeService.detectMatch(swiper, swiped);
 
         assertThat(result.getId()).isEqualTo(400L);
-        verify(matchRepository, never()).save(any());
+        verify(matchJdbcDao, never()).upsertMatch(anyLong(), anyLong(), any());
     }
 
     @Test
@@ -144,19 +383,14 @@ class SwipeServiceTests {
 
         when(userService.getUserEntity(1L)).thenReturn(swiper);
         when(userService.getUserEntity(2L)).thenReturn(swiped);
-        when(swipeRepository.existsBySwipedUserIdAndSwiperId(2L, 1L)).thenReturn(false);
-
-        Swipe saved = Swipe.builder().id(101L).swiper(swiper).swipedUser(swiped).swipeType(SwipeType.LIKE).swipedAt(LocalDateTime.now()).build();
-        when(swipeRepository.save(any(Swipe.class))).thenReturn(saved);
+        when(swipeJdbcDao.reservePair(any())).thenReturn(true);
+        when(swipeWriter.reserve(any())).thenReturn(true);
 
-        Swipe reverse = Swipe.builder().id(201L).swiper(swiped).swipedUser(swiper).swipeType(SwipeType.LIKE).build();
-        when(swipeRepository.findSwipe(2L, 1L)).thenReturn(Optional.of(reverse));
-
-        Match existing = Match.builder().id(401L).user1(swiper).user2(swiped).isActive(true).build();
-        when(matchRepository.findMatchBetween(1L, 2L)).thenReturn(Optional.of(existing));
+        when(swipeJdbcDao.lockPairType(2L, 1L)).thenReturn(Optional.of(SwipeType.LIKE));
+        when(matchJdbcDao.upsertMatch(eq(1L), eq(2L), any())).thenReturn(stored(401L, true));
 
         MatchResponse mapped = MatchResponse.builder().id(401L).build();
-        when(modelMapper.map(eq(existing), eq(MatchResponse.class))).thenReturn(mapped);
+        when(modelMapper.map(argThat((Match match) -> match.getId() == 401L), eq(MatchResponse.class))).thenReturn(mapped);
 
         SwipeResponse resp = swipeService.recordSwipe(1L, req);
 
@@ -165,4 +399,10 @@ class SwipeServiceTests {
         assertThat(resp.getMatchDetails().getId()).isEqualTo(401L);
         // partnerId nie jest ustawiany w SwipeService.mapToMatchResponse (TODO w kodzie), więc tego tu nie asercjonujemy
     }
+
+    // ========== HELPER METHODS ==========
+
+    private static MatchJdbcDao.StoredMatch stored(long matchId, boolean active) {
+        return new MatchJdbcDao.StoredMatch(matchId, active, LocalDateTime.of(2026, 10, 17, 12, 0), null);
+    }
 }
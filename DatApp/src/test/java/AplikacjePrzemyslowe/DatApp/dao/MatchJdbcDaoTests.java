@@ -12,6 +12,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
@@ -333,6 +334,46 @@ public class MatchJdbcDaoTests {
         assertEquals(0, result);
     }
 
+    // ========== upsertMatch Tests ==========
+
+    @Test
+    @DisplayName("Powinno wstawić match upsertem i zwrócić stan zapisanego wiersza z odczytu blokującego")
+    void testUpsertMatch_ReturnsStoredRow() {
+        // Arrange
+        LocalDateTime matchedAt = LocalDateTime.of(2026, 10, 17, 12, 0);
+        MatchJdbcDao.StoredMatch stored = new MatchJdbcDao.StoredMatch(77L, true, matchedAt, null);
+        when(jdbcTemplate.queryForObject(contains("FOR UPDATE"), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(stored);
+
+        // Act
+        MatchJdbcDao.StoredMatch result = matchJdbcDao.upsertMatch(1L, 2L, matchedAt);
+
+        // Assert
+        assertEquals(stored, result);
+        verify(jdbcTemplate).update(contains("ON DUPLICATE KEY UPDATE match_id = match_id"),
+                argThat((MapSqlParameterSource params) -> Long.valueOf(1L).equals(params.getValue("user1Id"))
+                        && matchedAt.equals(params.getValue("matchedAt"))));
+    }
+
+    @Test
+    @DisplayName("Powinno zwrócić istniejący nieaktywny match bez zmiany jego stanu")
+    void testUpsertMatch_ExistingInactive() {
+        // Arrange
+        LocalDateTime matchedAt = LocalDateTime.of(2026, 1, 10, 12, 0);
+        LocalDateTime unmatchedAt = LocalDateTime.of(2026, 2, 1, 9, 30);
+        when(jdbcTemplate.queryForObject(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(new MatchJdbcDao.StoredMatch(5L, false, matchedAt, unmatchedAt));
+
+        // Act
+        MatchJdbcDao.StoredMatch result = matchJdbcDao.upsertMatch(1L, 2L, LocalDateTime.now());
+
+        // Assert
+        assertEquals(5L, result.matchId());
+        assertFalse(result.active());
+        assertEquals(matchedAt, result.matchedAt());
+        assertEquals(unmatchedAt, result.unmatchedAt());
+    }
+
     // ========== deleteMatch Tests ==========
 
     @Test
@@ -4,15 +4,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.KeyHolder;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -33,6 +37,68 @@ public class MessageJdbcDaoTests {
         // Setup if needed
     }
 
+    // ========== insertMessages Tests ==========
+
+    @Test
+    @DisplayName("Powinno zapisać wszystkie wiadomości jednym wielowierszowym INSERT-em i zwrócić ich ID")
+    void testInsertMessages() {
+        // Arrange
+        LocalDateTime sentAt = LocalDateTime.of(2026, 10, 17, 12, 0);
+        List<MessageJdbcDao.MessageRow> messages = List.of(
+                new MessageJdbcDao.MessageRow(10L, 1L, 2L, "Cześć", sentAt),
+                new MessageJdbcDao.MessageRow(11L, 1L, 3L, "Hej", sentAt));
+        doAnswer(invocation -> {
+            KeyHolder keyHolder = invocation.getArgument(2);
+            keyHolder.getKeyList().add(Map.of("GENERATED_KEY", 70L));
+            keyHolder.getKeyList().add(Map.of("GENERATED_KEY", 71L));
+            return 2;
+        }).when(jdbcTemplate).update(anyString(), any(MapSqlParameterSource.class), any(KeyHolder.class), any(String[].class));
+
+        // Act
+        List<Long> result = messageJdbcDao.insertMessages(messages);
+
+        // Assert
+        assertEquals(List.of(70L, 71L), result);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbcTemplate, times(1)).update(sql.capture(), params.capture(), any(KeyHolder.class), any(String[].class));
+        assertTrue(sql.getValue().contains("INSERT INTO messages (match_id, "));
+        assertTrue(sql.getValue().contains("(:matchId0, :senderId0, :receiverId0, :content0, FALSE, :sentAt0), "
+                + "(:matchId1, :senderId1, :receiverId1, :content1, FALSE, :sentAt1)"));
+        assertEquals(11L, params.getValue().getValue("matchId1"));
+        assertEquals(3L, params.getValue().getValue("receiverId1"));
+        assertEquals("Hej", params.getValue().getValue("content1"));
+        assertEquals(sentAt, params.getValue().getValue("sentAt0"));
+    }
+
+    @Test
+    @DisplayName("Powinno zgłosić błąd, gdy sterownik zwrócił klucze nie dla wszystkich wierszy")
+    void testInsertMessages_MissingKeys() {
+        // Arrange
+        List<MessageJdbcDao.MessageRow> messages = List.of(
+                new MessageJdbcDao.MessageRow(10L, 1L, 2L, "Cześć", LocalDateTime.now()),
+                new MessageJdbcDao.MessageRow(10L, 1L, 2L, "Hej", LocalDateTime.now()));
+        doAnswer(invocation -> {
+            KeyHolder keyHolder = invocation.getArgument(2);
+            keyHolder.getKeyList().add(Map.of("GENERATED_KEY", 70L));
+            return 2;
+        }).when(jdbcTemplate).update(anyString(), any(MapSqlParameterSource.class), any(KeyHolder.class), any(String[].class));
+
+        // Act & Assert
+        assertThrows(IncorrectResultSizeDataAccessException.class, () -> messageJdbcDao.insertMessages(messages));
+    }
+
+    @Test
+    @DisplayName("Pusta lista wiadomości nie trafia do bazy")
+    void testInsertMessages_Empty() {
+        // Act
+        List<Long> result = messageJdbcDao.insertMessages(List.of());
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
     // ========== countUnreadMessages Tests ==========
 
     @Test
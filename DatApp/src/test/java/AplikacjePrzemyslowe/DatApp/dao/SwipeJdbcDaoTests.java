@@ -0,0 +1,273 @@
+package AplikacjePrzemyslowe.DatApp.dao;
+
+import AplikacjePrzemyslowe.DatApp.entity.SwipeType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SwipeJdbcDao Tests")
+class SwipeJdbcDaoTests {
+
+    private static final LocalDateTime SWIPED_AT = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private SwipeJdbcDao swipeJdbcDao;
+
+    // ========== insertSwipes Tests ==========
+
+    @Test
+    @DisplayName("Powinno zapisać wszystkie swipe'y jednym wielowierszowym INSERT IGNORE")
+    void testInsertSwipes() {
+        // Arrange
+        List<SwipeJdbcDao.SwipeRow> swipes = List.of(
+                new SwipeJdbcDao.SwipeRow(101L, 1L, 2L, SwipeType.LIKE, SWIPED_AT),
+                new SwipeJdbcDao.SwipeRow(102L, 1L, 3L, SwipeType.DISLIKE, SWIPED_AT));
+        when(jdbcTemplate.update(anyString(), any(MapSqlParameterSource.class))).thenReturn(2);
+
+        // Act
+        int inserted = swipeJdbcDao.insertSwipes(swipes);
+
+        // Assert
+        assertEquals(2, inserted);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbcTemplate, times(1)).update(sql.capture(), params.capture());
+        assertTrue(sql.getValue().contains("INSERT IGNORE INTO swipes (swipe_id, "));
+        assertTrue(sql.getValue().contains("(:swipeId0, :swiperId0, :swipedUserId0, :swipeType0, :swipedAt0), "
+                + "(:swipeId1, :swiperId1, :swipedUserId1, :swipeType1, :swipedAt1)"));
+        assertEquals(102L, params.getValue().getValue("swipeId1"));
+        assertEquals(3L, params.getValue().getValue("swipedUserId1"));
+        assertEquals("DISLIKE", params.getValue().getValue("swipeType1"));
+        assertEquals(SWIPED_AT, params.getValue().getValue("swipedAt0"));
+    }
+
+    @Test
+    @DisplayName("Pusta lista nie trafia do bazy")
+    void testInsertSwipes_Empty() {
+        // Act
+        int inserted = swipeJdbcDao.insertSwipes(List.of());
+
+        // Assert
+        assertEquals(0, inserted);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    // ========== reservePair Tests ==========
+
+    @Test
+    @DisplayName("Powinno zarezerwować parę w swipe_pairs, a przy istniejącej parze zwrócić false")
+    void testReservePair() {
+        // Arrange
+        SwipeJdbcDao.SwipeRow swipe = new SwipeJdbcDao.SwipeRow(101L, 1L, 2L, SwipeType.LIKE, SWIPED_AT);
+        when(jdbcTemplate.update(anyString(), any(MapSqlParameterSource.class))).thenReturn(1, 0);
+
+        // Act & Assert
+        assertTrue(swipeJdbcDao.reservePair(swipe));
+        assertFalse(swipeJdbcDao.reservePair(swipe));
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbcTemplate, times(2)).update(sql.capture(), params.capture());
+        assertTrue(sql.getValue().contains("INSERT IGNORE INTO swipe_pairs"));
+        assertEquals(101L, params.getValue().getValue("swipeId"));
+        assertEquals("LIKE", params.getValue().getValue("swipeType"));
+    }
+
+    // ========== lockPairType Tests ==========
+
+    @Test
+    @DisplayName("Powinno odczytać typ swipe'a pary odczytem blokującym, a przy braku pary zwrócić pusty")
+    void testLockPairType() {
+        // Arrange
+        when(jdbcTemplate.queryForList(contains("FOR UPDATE"),
+                argThat((MapSqlParameterSource params) -> Long.valueOf(2L).equals(params.getValue("swiperId"))
+                        && Long.valueOf(1L).equals(params.getValue("swipedUserId"))),
+                eq(String.class)))
+                .thenReturn(List.of("SUPER_LIKE"), List.of());
+
+        // Act & Assert
+        assertEquals(Optional.of(SwipeType.SUPER_LIKE), swipeJdbcDao.lockPairType(2L, 1L));
+        assertEquals(Optional.empty(), swipeJdbcDao.lockPairType(2L, 1L));
+    }
+
+    // ========== releasePairs Tests ==========
+
+    @Test
+    @DisplayName("Powinno usunąć pary porzuconych swipe'ów po ich swipe_id")
+    void testReleasePairs() {
+        // Arrange
+        List<SwipeJdbcDao.SwipeRow> swipes = List.of(
+                new SwipeJdbcDao.SwipeRow(101L, 1L, 2L, SwipeType.LIKE, SWIPED_AT),
+                new SwipeJdbcDao.SwipeRow(102L, 1L, 3L, SwipeType.PASS, SWIPED_AT));
+        when(jdbcTemplate.update(anyString(), any(MapSqlParameterSource.class))).thenReturn(2);
+
+        // Act
+        int released = swipeJdbcDao.releasePairs(swipes);
+
+        // Assert
+        assertEquals(2, released);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbcTemplate).update(sql.capture(), params.capture());
+        assertTrue(sql.getValue().contains("DELETE FROM swipe_pairs WHERE swipe_id IN (:swipeIds)"));
+        assertEquals(List.of(101L, 102L), params.getValue().getValue("swipeIds"));
+    }
+
+    @Test
+    @DisplayName("Powinno pominąć bazę dla pustej listy porzuconych swipe'ów")
+    void testReleasePairs_Empty() {
+        assertEquals(0, swipeJdbcDao.releasePairs(List.of()));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    // ========== allocateSwipeIds Tests ==========
+
+    @Test
+    @DisplayName("Powinno zarezerwować pulę ID i przesunąć sekwencję o jej rozmiar")
+    void testAllocateSwipeIds() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), any(MapSqlParameterSource.class), eq(Long.class)))
+                .thenReturn(501L);
+
+        // Act
+        long first = swipeJdbcDao.allocateSwipeIds(100);
+
+        // Assert
+        assertEquals(501L, first);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbcTemplate).update(sql.capture(), params.capture());
+        assertTrue(sql.getValue().contains("UPDATE swipe_id_sequence"));
+        assertEquals(601L, params.getValue().getValue("nextId"));
+    }
+
+    // ========== archiveSwipes Tests ==========
+
+    @Test
+    @DisplayName("Powinno skopiować swipe'y do archiwum i usunąć je z swipes tym samym warunkiem, bez zwalniania par")
+    void testArchiveSwipes() {
+        // Arrange
+        when(jdbcTemplate.update(anyString(), any(MapSqlParameterSource.class))).thenReturn(2);
+
+        // Act
+        int archived = swipeJdbcDao.archiveSwipes(List.of(5L, 6L), SwipeType.DISLIKE, SWIPED_AT);
+
+        // Assert
+        assertEquals(2, archived);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbcTemplate, times(2)).update(sql.capture(), params.capture());
+        assertTrue(sql.getAllValues().get(0).contains("INSERT IGNORE INTO swipes_archive"));
+        assertTrue(sql.getAllValues().get(1).contains("DELETE FROM swipes"));
+        assertTrue(sql.getAllValues().get(1).contains("swiped_at < :cutoff"));
+        assertFalse(sql.getAllValues().stream().anyMatch(statement -> statement.contains("swipe_pairs")));
+        assertEquals("DISLIKE", params.getValue().getValue("swipeType"));
+        assertEquals(List.of(5L, 6L), params.getValue().getValue("swipeIds"));
+    }
+
+    @Test
+    @DisplayName("Pusta porcja nie trafia do bazy")
+    void testArchiveSwipes_Empty() {
+        // Act
+        int archived = swipeJdbcDao.archiveSwipes(List.of(), SwipeType.PASS, SWIPED_AT);
+
+        // Assert
+        assertEquals(0, archived);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    // ========== releaseArchivedPairs Tests ==========
+
+    @Test
+    @DisplayName("Powinno zwolnić pary zarchiwizowanych swipe'ów po ich swipe_id")
+    void testReleaseArchivedPairs() {
+        // Arrange
+        when(jdbcTemplate.update(anyString(), any(MapSqlParameterSource.class))).thenReturn(2);
+
+        // Act
+        int released = swipeJdbcDao.releaseArchivedPairs(List.of(5L, 6L));
+
+        // Assert
+        assertEquals(2, released);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbcTemplate).update(sql.capture(), params.capture());
+        assertTrue(sql.getValue().contains("DELETE FROM swipe_pairs WHERE swipe_id IN (:swipeIds)"));
+        assertEquals(List.of(5L, 6L), params.getValue().getValue("swipeIds"));
+    }
+
+    @Test
+    @DisplayName("Pusta porcja zwalnianych par nie trafia do bazy")
+    void testReleaseArchivedPairs_Empty() {
+        assertEquals(0, swipeJdbcDao.releaseArchivedPairs(List.of()));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    // ========== findReleasableSwipes Tests ==========
+
+    @Test
+    @DisplayName("Powinno szukać w archiwum tylko swipe'ów z zajętą parą, od najstarszych")
+    @SuppressWarnings("unchecked")
+    void testFindReleasableSwipes() {
+        // Arrange
+        List<SwipeJdbcDao.ArchivableSwipe> releasable = List.of(new SwipeJdbcDao.ArchivableSwipe(5L, 1L));
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(releasable);
+
+        // Act
+        List<SwipeJdbcDao.ArchivableSwipe> found = swipeJdbcDao.findReleasableSwipes(SwipeType.PASS, SWIPED_AT, 100);
+
+        // Assert
+        assertEquals(releasable, found);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbcTemplate).query(sql.capture(), params.capture(), any(RowMapper.class));
+        assertTrue(sql.getValue().contains("FROM swipes_archive a"));
+        assertTrue(sql.getValue().contains("JOIN swipe_pairs sp"));
+        assertTrue(sql.getValue().contains("AND sp.swipe_id = a.swipe_id"));
+        assertTrue(sql.getValue().contains("ORDER BY a.swiped_at"));
+        assertEquals("PASS", params.getValue().getValue("swipeType"));
+        assertEquals(SWIPED_AT, params.getValue().getValue("cutoff"));
+        assertEquals(100, params.getValue().getValue("limit"));
+    }
+
+    // ========== addPartitions Tests ==========
+
+    @Test
+    @DisplayName("Powinno podzielić p_future na partycje miesięczne i nową p_future")
+    void testAddPartitions() {
+        // Arrange
+        JdbcTemplate plainJdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.getJdbcTemplate()).thenReturn(plainJdbcTemplate);
+
+        // Act
+        swipeJdbcDao.addPartitions(List.of(
+                new SwipeJdbcDao.PartitionBound("p202403", LocalDateTime.of(2024, 4, 1, 0, 0)),
+                new SwipeJdbcDao.PartitionBound("p202404", LocalDateTime.of(2024, 5, 1, 0, 0))));
+
+        // Assert
+        verify(plainJdbcTemplate).execute("ALTER TABLE swipes REORGANIZE PARTITION p_future INTO ("
+                + "PARTITION p202403 VALUES LESS THAN (UNIX_TIMESTAMP('2024-04-01 00:00:00')), "
+                + "PARTITION p202404 VALUES LESS THAN (UNIX_TIMESTAMP('2024-05-01 00:00:00')), "
+                + "PARTITION p_future VALUES LESS THAN MAXVALUE)");
+    }
+}
@@ -0,0 +1,148 @@
+package AplikacjePrzemyslowe.DatApp.dao;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TopPicksJdbcDao Tests")
+class TopPicksJdbcDaoTests {
+
+    private static final LocalDateTime COMPUTED_AT = LocalDateTime.of(2024, 3, 1, 3, 0);
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private TopPicksJdbcDao topPicksJdbcDao;
+
+    // ========== replaceTopPicks Tests ==========
+
+    @Test
+    @DisplayName("Powinno usunąć stare rankingi grupy i wstawić nowe jednym batchem")
+    void testReplaceTopPicks() {
+        // Arrange
+        List<TopPicksJdbcDao.TopPickRow> picks = List.of(
+                new TopPicksJdbcDao.TopPickRow(1L, 0, 5L, 60),
+                new TopPicksJdbcDao.TopPickRow(1L, 1, 7L, 40));
+
+        // Act
+        topPicksJdbcDao.replaceTopPicks(List.of(1L, 2L), picks, COMPUTED_AT);
+
+        // Assert
+        verify(jdbcTemplate).update(contains("DELETE FROM top_picks"),
+                argThat((MapSqlParameterSource params) -> List.of(1L, 2L).equals(params.getValue("userIds"))));
+        ArgumentCaptor<SqlParameterSource[]> batch = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO top_picks"), batch.capture());
+        assertEquals(2, batch.getValue().length);
+        assertEquals(7L, batch.getValue()[1].getValue("candidateId"));
+        assertEquals(1, batch.getValue()[1].getValue("position"));
+        assertEquals(COMPUTED_AT, batch.getValue()[0].getValue("computedAt"));
+    }
+
+    @Test
+    @DisplayName("Powinno tylko usunąć rankingi, gdy grupa nie ma kandydatów")
+    void testReplaceTopPicks_NoPicks() {
+        // Act
+        topPicksJdbcDao.replaceTopPicks(List.of(1L), List.of(), COMPUTED_AT);
+        topPicksJdbcDao.replaceTopPicks(List.of(), List.of(), COMPUTED_AT);
+
+        // Assert - pusta grupa nie trafia do bazy (IN () jest niepoprawne)
+        verify(jdbcTemplate, times(1)).update(contains("DELETE FROM top_picks"), any(MapSqlParameterSource.class));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(SqlParameterSource[].class));
+    }
+
+    @Test
+    @DisplayName("Powinno zwrócić zapisany ranking nie starszy niż podany znacznik")
+    void testFindTopPicks() {
+        // Arrange
+        when(jdbcTemplate.queryForList(contains("ORDER BY position"),
+                argThat((MapSqlParameterSource params) -> COMPUTED_AT.equals(params.getValue("notBefore"))),
+                eq(Long.class)))
+                .thenReturn(List.of(5L, 7L));
+
+        // Act
+        List<Long> result = topPicksJdbcDao.findTopPicks(1L, COMPUTED_AT);
+
+        // Assert
+        assertEquals(List.of(5L, 7L), result);
+    }
+
+    @Test
+    @DisplayName("Powinno usunąć ranking jednego użytkownika")
+    void testDeleteTopPicks() {
+        // Arrange
+        when(jdbcTemplate.update(contains("WHERE user_id = :userId"),
+                argThat((MapSqlParameterSource params) -> Long.valueOf(1L).equals(params.getValue("userId")))))
+                .thenReturn(2);
+
+        // Act
+        int result = topPicksJdbcDao.deleteTopPicks(1L);
+
+        // Assert
+        assertEquals(2, result);
+    }
+
+    // ========== Checkpoint Tests ==========
+
+    @Test
+    @DisplayName("Powinno zwrócić pusty checkpoint, gdy zadanie jeszcze nie działało")
+    void testFindCheckpoint_Empty() {
+        // Arrange
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of());
+
+        // Act
+        Optional<TopPicksJdbcDao.Checkpoint> result = topPicksJdbcDao.findCheckpoint("top-picks");
+
+        // Assert
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Powinno rozpocząć przebieg upsertem z postępem od zera")
+    void testStartRun() {
+        // Act
+        topPicksJdbcDao.startRun("top-picks", "run-1", COMPUTED_AT);
+
+        // Assert
+        verify(jdbcTemplate).update(contains("ON DUPLICATE KEY UPDATE"),
+                argThat((MapSqlParameterSource params) -> "run-1".equals(params.getValue("runId"))
+                        && COMPUTED_AT.equals(params.getValue("startedAt"))));
+    }
+
+    @Test
+    @DisplayName("Powinno zapisać checkpoint tylko dla bieżącego przebiegu")
+    void testSaveCheckpoint() {
+        // Act
+        topPicksJdbcDao.saveCheckpoint("top-picks", "run-1", 400L, 380L);
+
+        // Assert
+        verify(jdbcTemplate).update(contains("run_id = :runId"),
+                argThat((MapSqlParameterSource params) -> Long.valueOf(400L).equals(params.getValue("lastUserId"))
+                        && Long.valueOf(380L).equals(params.getValue("processedUsers"))));
+    }
+
+    @Test
+    @DisplayName("Checkpoint bez completed_at oznacza przebieg przerwany")
+    void testCheckpoint_IsCompleted() {
+        assertFalse(new TopPicksJdbcDao.Checkpoint("run-1", 1L, 1L, COMPUTED_AT, null).isCompleted());
+        assertTrue(new TopPicksJdbcDao.Checkpoint("run-1", 1L, 1L, COMPUTED_AT, COMPUTED_AT).isCompleted());
+    }
+}
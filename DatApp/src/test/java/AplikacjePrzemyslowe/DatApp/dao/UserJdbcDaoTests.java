@@ -1,5 +1,6 @@
 package AplikacjePrzemyslowe.DatApp.dao;
 
+import AplikacjePrzemyslowe.DatApp.dao.mapper.CandidateRowMapper;
 import AplikacjePrzemyslowe.DatApp.dao.mapper.UserRowMapper;
 import AplikacjePrzemyslowe.DatApp.entity.Gender;
 import AplikacjePrzemyslowe.DatApp.entity.User;
@@ -13,10 +14,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
@@ -34,6 +37,9 @@ class UserJdbcDaoTests {
     @Mock
     private UserRowMapper userRowMapper;
 
+    @Mock
+    private CandidateRowMapper candidateRowMapper;
+
     @InjectMocks
     private UserJdbcDao userJdbcDao;
 
@@ -126,6 +132,138 @@ class UserJdbcDaoTests {
         assertEquals(1, result.getNumber()); // Page number
     }
 
+    @Test
+    @DisplayName("Powinno pobrać wszystkich kandydatów bez LIMIT i bez COUNT dla Pageable.unpaged()")
+    void testFindCandidatesByPreference_Unpaged() {
+        // Arrange
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), eq(userRowMapper)))
+                .thenReturn(Arrays.asList(testUser1, testUser2));
+
+        // Act
+        Page<User> result = userJdbcDao.findCandidatesByPreference(1L, Gender.FEMALE, 25, 35, Pageable.unpaged());
+
+        // Assert
+        assertEquals(2, result.getContent().size());
+        assertEquals(2, result.getTotalElements());
+        verify(jdbcTemplate).query(argThat((String sql) -> !sql.contains("LIMIT")),
+                any(MapSqlParameterSource.class), eq(userRowMapper));
+        verify(jdbcTemplate, never()).queryForObject(anyString(), any(MapSqlParameterSource.class), eq(Long.class));
+    }
+
+    @Test
+    @DisplayName("Powinno pobrać projekcje CandidateRow bez hasła i emaila")
+    void testFindCandidateRowsByPreference() {
+        // Arrange
+        CandidateRow row = new CandidateRow(2L, Gender.FEMALE, LocalDate.of(1998, 3, 10), "Krakow",
+                50.0647, 19.945, true);
+        when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), eq(candidateRowMapper)))
+                .thenReturn(List.of(row));
+
+        // Act
+        List<CandidateRow> result = userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35);
+
+        // Assert
+        assertEquals(List.of(row), result);
+        verify(jdbcTemplate).query(argThat((String sql) -> !sql.contains("password") && !sql.contains("email")),
+                any(MapSqlParameterSource.class), eq(candidateRowMapper));
+    }
+
+    @Test
+    @DisplayName("Powinno odrzucić kandydatów, w których preferencjach szukający się nie mieści")
+    void testFindCandidateRowsByPreference_Reciprocal() {
+        // Act
+        userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35);
+
+        // Assert - płeć, wiek i dystans z preferencji kandydata; kandydat bez preferencji przechodzi
+        LocalDate today = LocalDate.now();
+        verify(jdbcTemplate).query(argThat((String sql) -> sql.contains("LEFT JOIN preferences cp ON cp.user_id = u.user_id")
+                        && sql.contains("cp.user_id IS NULL OR")
+                        && sql.contains("cp.preferred_gender = su.gender")
+                        && sql.contains("BETWEEN cp.min_age * 12 AND cp.max_age * 12 + 11")
+                        && sql.contains("cp.max_distance_km")),
+                argThat((MapSqlParameterSource params) ->
+                        Integer.valueOf(today.getYear() * 12 + today.getMonthValue()).equals(params.getValue("todayMonths"))
+                                && Integer.valueOf(today.getDayOfMonth()).equals(params.getValue("todayDay"))),
+                eq(candidateRowMapper));
+    }
+
+    @Test
+    @DisplayName("Powinno pobrać projekcje CandidateRow dla ID z indeksu jednym zapytaniem IN")
+    void testFindCandidateRows() {
+        // Act
+        userJdbcDao.findCandidateRows(List.of(2L, 3L));
+        List<CandidateRow> empty = userJdbcDao.findCandidateRows(List.of());
+
+        // Assert - pusta lista nie trafia do bazy
+        assertTrue(empty.isEmpty());
+        verify(jdbcTemplate, times(1)).query(contains("u.user_id IN (:userIds)"),
+                argThat((MapSqlParameterSource params) -> List.of(2L, 3L).equals(params.getValue("userIds"))),
+                eq(candidateRowMapper));
+    }
+
+    @Test
+    @DisplayName("Powinno strumieniować aktywnych użytkowników do indeksu")
+    void testStreamActiveUsersForIndex() {
+        // Arrange
+        RowCallbackHandler handler = rs -> { };
+
+        // Act
+        userJdbcDao.streamActiveUsersForIndex(handler);
+
+        // Assert
+        verify(jdbcTemplate).query(contains("is_active = TRUE"), any(MapSqlParameterSource.class), eq(handler));
+    }
+
+    @Test
+    @DisplayName("Powinno zwrócić porcję ID aktywnych użytkowników po kluczu")
+    void testFindActiveUserIdsAfter() {
+        // Arrange
+        when(jdbcTemplate.queryForList(contains("u.user_id > :afterUserId"),
+                argThat((MapSqlParameterSource params) -> Long.valueOf(10L).equals(params.getValue("afterUserId"))
+                        && Integer.valueOf(2).equals(params.getValue("limit"))),
+                eq(Long.class)))
+                .thenReturn(List.of(11L, 14L));
+
+        // Act
+        List<Long> result = userJdbcDao.findActiveUserIdsAfter(10L, 2);
+
+        // Assert
+        assertEquals(List.of(11L, 14L), result);
+    }
+
+    @Test
+    @DisplayName("Powinno strumieniować popularnych per miasto i płeć z limitem i oknem czasu")
+    void testStreamPopularUsersByCity() {
+        // Arrange
+        RowCallbackHandler handler = rs -> { };
+        LocalDateTime since = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        // Act
+        userJdbcDao.streamPopularUsersByCity(50, since, handler);
+
+        // Assert
+        verify(jdbcTemplate).query(contains("PARTITION BY liked.city, liked.gender"),
+                argThat((MapSqlParameterSource params) -> Integer.valueOf(50).equals(params.getValue("perCity"))
+                        && since.equals(params.getValue("since"))),
+                eq(handler));
+    }
+
+    @Test
+    @DisplayName("Powinno strumieniować dane do scoringu jednym zapytaniem IN")
+    void testStreamScoringFeatures() {
+        // Arrange
+        RowCallbackHandler handler = rs -> { };
+
+        // Act
+        userJdbcDao.streamScoringFeatures(List.of(1L, 2L, 3L), handler);
+        userJdbcDao.streamScoringFeatures(List.of(), handler);
+
+        // Assert - pusta lista nie trafia do bazy (IN () jest niepoprawne)
+        verify(jdbcTemplate, times(1)).query(contains("p.user_id IN (:userIds)"),
+                argThat((MapSqlParameterSource params) -> List.of(1L, 2L, 3L).equals(params.getValue("userIds"))),
+                eq(handler));
+    }
+
     // ========== findCandidatesByCommonInterests Tests ==========
 
     @Test
@@ -405,7 +543,8 @@ class UserJdbcDaoTests {
 
         // Assert
         assertEquals(1, result);
-        verify(jdbcTemplate).update(anyString(), any(MapSqlParameterSource.class));
+        verify(jdbcTemplate).update(contains("DELETE FROM swipes"), any(MapSqlParameterSource.class));
+        verify(jdbcTemplate).update(contains("DELETE FROM users"), any(MapSqlParameterSource.class));
     }
 
     @Test
@@ -27,5 +27,13 @@ class SwipeTypeTests {
         assertEquals(SwipeType.PASS, SwipeType.valueOf("PASS"));
         assertEquals(SwipeType.SUPER_LIKE, SwipeType.valueOf("SUPER_LIKE"));
     }
-}
 
+    @Test
+    @DisplayName("isPositive: LIKE i SUPER_LIKE to polubienia, DISLIKE i PASS nie")
+    void isPositive() {
+        assertTrue(SwipeType.LIKE.isPositive());
+        assertTrue(SwipeType.SUPER_LIKE.isPositive());
+        assertFalse(SwipeType.DISLIKE.isPositive());
+        assertFalse(SwipeType.PASS.isPositive());
+    }
+}
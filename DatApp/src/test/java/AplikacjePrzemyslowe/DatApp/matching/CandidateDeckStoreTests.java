@@ -0,0 +1,129 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("CandidateDeckStore unit tests")
+class CandidateDeckStoreTests {
+
+    private MatchingProperties properties;
+    private CandidateDeckStore store;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MatchingProperties();
+        properties.getDeck().setCapacity(5);
+        properties.getDeck().setLowWaterMark(2);
+        store = new CandidateDeckStore(properties);
+    }
+
+    @Test
+    @DisplayName("Zimny start: install -> peek zwraca głowę, remove przesuwa talię")
+    void coldStart_installPeekRemove() {
+        long ticket = store.startRefill(1L);
+        assertThat(ticket).isNotEqualTo(CandidateDeckStore.NO_TICKET);
+        assertThat(store.startRefill(1L)).isEqualTo(CandidateDeckStore.NO_TICKET);
+
+        assertThat(store.install(1L, ticket, new long[]{10L, 11L, 12L, 13L, 14L, 15L, 16L})).isTrue();
+
+        assertThat(store.remaining(1L)).isEqualTo(5);
+        assertThat(store.peek(1L)).isEqualTo(OptionalLong.of(10L));
+
+        store.remove(1L, 10L);
+        assertThat(store.peek(1L)).isEqualTo(OptionalLong.of(11L));
+
+        // Swipe spoza głowy (np. przez listę getCandidates) też usuwa z talii
+        store.remove(1L, 13L);
+        store.remove(1L, 11L);
+        assertThat(store.peek(1L)).isEqualTo(OptionalLong.of(12L));
+        assertThat(store.remaining(1L)).isEqualTo(2);
+        assertThat(store.peek(2L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("startRefillIfLow: bilet dopiero poniżej low-water mark i tylko jeden naraz")
+    void startRefillIfLow_belowLowWaterMark() {
+        long ticket = store.startRefill(1L);
+        store.install(1L, ticket, new long[]{10L, 11L, 12L});
+
+        assertThat(store.startRefillIfLow(1L)).isEqualTo(CandidateDeckStore.NO_TICKET);
+
+        store.remove(1L, 10L);
+        store.remove(1L, 11L);
+        long refill = store.startRefillIfLow(1L);
+        assertThat(refill).isGreaterThan(ticket);
+        assertThat(store.startRefillIfLow(1L)).isEqualTo(CandidateDeckStore.NO_TICKET);
+        assertThat(store.startRefillIfLow(99L)).isEqualTo(CandidateDeckStore.NO_TICKET);
+    }
+
+    @Test
+    @DisplayName("Kandydaci ocenieni w trakcie uzupełniania nie wracają do talii")
+    void install_skipsConsumedDuringRefill() {
+        long ticket = store.startRefill(1L);
+        store.install(1L, ticket, new long[]{10L});
+
+        long refill = store.startRefillIfLow(1L);
+        store.remove(1L, 10L);
+
+        assertThat(store.install(1L, refill, new long[]{10L, 11L, 12L})).isTrue();
+        assertThat(store.peek(1L)).isEqualTo(OptionalLong.of(11L));
+        assertThat(store.remaining(1L)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("invalidate odrzuca uzupełnienie policzone dla starych preferencji")
+    void invalidate_rejectsStaleInstall() {
+        long stale = store.startRefill(1L);
+        store.invalidate(1L);
+
+        long fresh = store.startRefill(1L);
+        assertThat(fresh).isNotEqualTo(stale);
+        assertThat(store.install(1L, stale, new long[]{10L})).isFalse();
+        assertThat(store.install(1L, fresh, new long[]{20L})).isTrue();
+        assertThat(store.peek(1L)).isEqualTo(OptionalLong.of(20L));
+    }
+
+    @Test
+    @DisplayName("abortRefill pozwala rozpocząć uzupełnianie ponownie")
+    void abortRefill_allowsRetry() {
+        long ticket = store.startRefill(1L);
+        store.abortRefill(1L, ticket);
+
+        long retry = store.startRefill(1L);
+        assertThat(retry).isNotEqualTo(CandidateDeckStore.NO_TICKET);
+        assertThat(store.install(1L, ticket, new long[]{10L})).isFalse();
+    }
+
+    @Test
+    @DisplayName("capacity 0 wyłącza talie, maxDecks ogranicza ich liczbę")
+    void limits() {
+        properties.getDeck().setMaxDecks(1);
+        assertThat(store.startRefill(1L)).isNotEqualTo(CandidateDeckStore.NO_TICKET);
+        assertThat(store.startRefill(2L)).isEqualTo(CandidateDeckStore.NO_TICKET);
+
+        properties.getDeck().setCapacity(0);
+        assertThat(store.startRefill(3L)).isEqualTo(CandidateDeckStore.NO_TICKET);
+    }
+
+    @Test
+    @DisplayName("evictIdle usuwa talie nieużywane dłużej niż idle-ttl")
+    void evictIdle() {
+        long ticket = store.startRefill(1L);
+        store.install(1L, ticket, new long[]{10L});
+        store.startRefill(2L);
+
+        properties.getDeck().setIdleTtl(Duration.ZERO);
+        store.evictIdle();
+
+        // Talia w trakcie uzupełniania zostaje
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.peek(1L)).isEmpty();
+    }
+}
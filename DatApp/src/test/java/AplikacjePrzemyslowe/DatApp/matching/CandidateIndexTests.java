@@ -0,0 +1,291 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.entity.Gender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CandidateIndex unit tests")
+class CandidateIndexTests {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 15);
+
+    @Mock private UserJdbcDao userJdbcDao;
+
+    @InjectMocks private CandidateIndex candidateIndex;
+
+    @BeforeEach
+    void setUp() {
+        candidateIndex.install(new CandidateIndex.Builder()
+                .add(1L, Gender.FEMALE, LocalDate.of(2000, 6, 15))   // 25 lat
+                .add(2L, Gender.FEMALE, LocalDate.of(1990, 6, 16))   // 34 lata (35 jutro)
+                .add(3L, Gender.FEMALE, LocalDate.of(1990, 6, 15))   // 35 lat
+                .add(4L, Gender.FEMALE, LocalDate.of(1989, 6, 15))   // 36 lat
+                .add(5L, Gender.FEMALE, LocalDate.of(2000, 6, 16))   // 24 lata
+                .add(6L, Gender.MALE, LocalDate.of(1995, 1, 1))
+                .build());
+    }
+
+    @Test
+    @DisplayName("findSlices: zwraca tylko kandydatów z zakresu wieku i płci")
+    void findSlices_ageAndGender() {
+        List<CandidateIndex.Slice> slices = candidateIndex.findSlices(Gender.FEMALE, 25, 35, TODAY);
+
+        assertThat(collect(slices)).containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("findSlices: wynik posortowany po dniu urodzenia w jednym slice")
+    void findSlices_singleSliceSortedByBirthDay() {
+        List<CandidateIndex.Slice> slices = candidateIndex.findSlices(Gender.FEMALE, 18, 99, TODAY);
+
+        assertThat(slices).hasSize(1);
+        assertThat(collect(slices)).containsExactly(4L, 3L, 2L, 1L, 5L);
+    }
+
+    @Test
+    @DisplayName("findSlices: pusta lista dla płci bez użytkowników")
+    void findSlices_emptyBucket() {
+        assertThat(candidateIndex.findSlices(Gender.OTHER, 18, 99, TODAY)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("findSlices: pusta lista gdy minAge > maxAge")
+    void findSlices_invalidRange() {
+        assertThat(candidateIndex.findSlices(Gender.FEMALE, 40, 30, TODAY)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("findSlices: filtr wzajemności - szukający musi spełniać płeć, wiek i dystans kandydata")
+    void findSlices_reciprocalFilter() {
+        // Szukający: MALE, 30 lat, Warszawa
+        CandidateIndex.Searcher searcher = new CandidateIndex.Searcher(
+                Gender.MALE, LocalDate.of(1995, 6, 1), 52.2297, 21.0122);
+        candidateIndex.install(new CandidateIndex.Builder()
+                .add(10L, Gender.FEMALE, LocalDate.of(1997, 1, 1),
+                        CandidateIndex.preference(Gender.MALE, 25, 35, 50), 52.2297, 21.0122)   // akceptuje
+                .add(11L, Gender.FEMALE, LocalDate.of(1997, 1, 2),
+                        CandidateIndex.preference(Gender.FEMALE, 25, 35, 50), 52.2297, 21.0122) // zła płeć
+                .add(12L, Gender.FEMALE, LocalDate.of(1997, 1, 3),
+                        CandidateIndex.preference(Gender.MALE, 31, 40, 50), 52.2297, 21.0122)   // za młody
+                .add(13L, Gender.FEMALE, LocalDate.of(1997, 1, 4),
+                        CandidateIndex.preference(Gender.MALE, 25, 35, 10), 52.4064, 16.9252)   // Poznań, za daleko
+                .add(14L, Gender.FEMALE, LocalDate.of(1997, 1, 5),
+                        CandidateIndex.preference(Gender.MALE, 25, 35, 10), null, null)         // brak współrzędnych
+                .add(15L, Gender.FEMALE, LocalDate.of(1997, 1, 6),
+                        CandidateIndex.NO_PREFERENCE, 52.4064, 16.9252)                         // brak preferencji
+                .build());
+
+        List<CandidateIndex.Slice> slices = candidateIndex.findSlices(Gender.FEMALE, 25, 35, TODAY, searcher);
+
+        assertThat(collect(slices)).containsExactly(10L, 14L, 15L);
+        assertThat(collect(candidateIndex.findSlices(Gender.FEMALE, 25, 35, TODAY)))
+                .containsExactly(10L, 11L, 12L, 13L, 14L, 15L);
+    }
+
+    @Test
+    @DisplayName("candidateFilter: wzajemność kandydata i maxDistanceKm szukającego dla pojedynczych ID")
+    void candidateFilter_reciprocalAndDistance() {
+        // Szukający: MALE, 30 lat, Warszawa, maxDistanceKm = 100
+        CandidateIndex.Searcher searcher = new CandidateIndex.Searcher(
+                Gender.MALE, LocalDate.of(1995, 6, 1), 52.2297, 21.0122);
+        candidateIndex.install(new CandidateIndex.Builder()
+                .add(10L, Gender.FEMALE, LocalDate.of(1997, 1, 1),
+                        CandidateIndex.preference(Gender.MALE, 25, 35, 500), 52.2297, 21.0122)  // akceptuje
+                .add(11L, Gender.FEMALE, LocalDate.of(1997, 1, 2),
+                        CandidateIndex.preference(Gender.FEMALE, 25, 35, 500), 52.2297, 21.0122) // zła płeć
+                .add(12L, Gender.FEMALE, LocalDate.of(1997, 1, 3),
+                        CandidateIndex.NO_PREFERENCE, 52.4064, 16.9252)                          // Poznań, za daleko
+                .add(13L, Gender.FEMALE, LocalDate.of(1997, 1, 4),
+                        CandidateIndex.NO_PREFERENCE, null, null)                                // brak współrzędnych
+                .build());
+
+        LongPredicate filter = candidateIndex.candidateFilter(searcher, 100, TODAY);
+
+        assertThat(LongStream.of(10L, 11L, 12L, 13L, 99L).filter(filter).boxed().toList())
+                .containsExactly(10L, 13L);
+    }
+
+    @Test
+    @DisplayName("findSlices: szukający bez współrzędnych nie jest filtrowany po dystansie")
+    void findSlices_reciprocalSearcherWithoutCoordinates() {
+        CandidateIndex.Searcher searcher = new CandidateIndex.Searcher(
+                Gender.MALE, LocalDate.of(1995, 6, 1), Double.NaN, Double.NaN);
+        candidateIndex.install(new CandidateIndex.Builder()
+                .add(13L, Gender.FEMALE, LocalDate.of(1997, 1, 4),
+                        CandidateIndex.preference(Gender.MALE, 25, 35, 10), 52.4064, 16.9252)
+                .build());
+
+        assertThat(collect(candidateIndex.findSlices(Gender.FEMALE, 25, 35, TODAY, searcher)))
+                .containsExactly(13L);
+    }
+
+    @Test
+    @DisplayName("preference: odrzuca zakres wieku spoza indeksu")
+    void preference_rejectsInvalidAgeRange() {
+        assertThatThrownBy(() -> CandidateIndex.preference(Gender.MALE, 40, 30, 50))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CandidateIndex.preference(Gender.MALE, 18, 200, 50))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("size i isReady odzwierciedlają snapshot")
+    void sizeAndReady() {
+        assertThat(candidateIndex.isReady()).isTrue();
+        assertThat(candidateIndex.size()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("refresh: błąd bazy nie usuwa poprzedniego snapshotu")
+    void refresh_failureKeepsSnapshot() {
+        doThrow(new IllegalStateException("db down")).when(userJdbcDao).streamActiveUsersForIndex(any());
+
+        candidateIndex.refresh();
+
+        assertThat(candidateIndex.size()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("refreshUsers: nieaktywny użytkownik znika z indeksu")
+    void refreshUsers_removesInactiveUser() {
+        candidateIndex.refreshUsers(List.of(3L));
+
+        assertThat(candidateIndex.size()).isEqualTo(5);
+        assertThat(collect(candidateIndex.findSlices(Gender.FEMALE, 18, 99, TODAY)))
+                .containsExactly(4L, 2L, 1L, 5L);
+    }
+
+    @Test
+    @DisplayName("refreshUsers: zmieniony wpis wraca na miejsce wynikające z daty urodzenia")
+    void refreshUsers_reinsertsChangedUser() throws SQLException {
+        ResultSet row = userRow(1L, LocalDate.of(1989, 6, 14));
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(row);
+            return null;
+        }).when(userJdbcDao).streamActiveUsersForIndex(eq(List.of(1L)), any());
+
+        candidateIndex.refreshUsers(List.of(1L));
+
+        assertThat(candidateIndex.size()).isEqualTo(6);
+        assertThat(collect(candidateIndex.findSlices(Gender.FEMALE, 18, 99, TODAY)))
+                .containsExactly(1L, 4L, 3L, 2L, 5L);
+    }
+
+    @Test
+    @DisplayName("refreshUsers: zmiana preferencji nadpisuje wpis na miejscu, bez zmiany układu kubełka")
+    void refreshUsers_updatesPreferencesInPlace() throws SQLException {
+        CandidateIndex.Snapshot before = candidateIndex.current();
+        ResultSet row = userRow(1L, LocalDate.of(2000, 6, 15));
+        when(row.getString("preferred_gender")).thenReturn("FEMALE");
+        when(row.getInt("min_age")).thenReturn(18);
+        when(row.getInt("max_age")).thenReturn(99);
+        when(row.getInt("max_distance_km")).thenReturn(50);
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(row);
+            return null;
+        }).when(userJdbcDao).streamActiveUsersForIndex(eq(List.of(1L)), any());
+
+        candidateIndex.refreshUsers(List.of(1L));
+
+        CandidateIndex.Snapshot after = candidateIndex.current();
+        CandidateIndex.Searcher searcher = new CandidateIndex.Searcher(
+                Gender.MALE, LocalDate.of(1995, 6, 1), Double.NaN, Double.NaN);
+        assertThat(after.positions()).isSameAs(before.positions());
+        assertThat(after.buckets().get(Gender.FEMALE).userIds()).isSameAs(before.buckets().get(Gender.FEMALE).userIds());
+        assertThat(collect(candidateIndex.findSlices(Gender.FEMALE, 18, 99, TODAY, searcher)))
+                .containsExactly(4L, 3L, 2L, 5L);
+        // Poprzedni snapshot (np. w trakcie zapytania) nie widzi zmiany
+        assertThat(before.buckets().get(Gender.FEMALE).preferences()).containsOnly(CandidateIndex.NO_PREFERENCE);
+    }
+
+    @Test
+    @DisplayName("refreshUsers: snapshot zainstalowany w trakcie odczytu wymusza ponowny odczyt")
+    void refreshUsers_retriesAfterConcurrentInstall() throws SQLException {
+        ResultSet row = userRow(1L, LocalDate.of(1989, 6, 14));
+        int[] reads = new int[1];
+        doAnswer(invocation -> {
+            if (!List.of(1L).equals(invocation.getArgument(0))) {
+                return null;   // użytkownik 3 - nieaktywny
+            }
+            if (reads[0]++ == 0) {
+                // Inna aktualizacja kończy się w trakcie odczytu - ten odczyt mógł być starszy
+                candidateIndex.refreshUsers(List.of(3L));
+            } else {
+                invocation.<RowCallbackHandler>getArgument(1).processRow(row);
+            }
+            return null;
+        }).when(userJdbcDao).streamActiveUsersForIndex(anyCollection(), any());
+
+        candidateIndex.refreshUsers(List.of(1L));
+
+        assertThat(reads[0]).isEqualTo(2);
+        assertThat(collect(candidateIndex.findSlices(Gender.FEMALE, 18, 99, TODAY)))
+                .containsExactly(1L, 4L, 2L, 5L);
+    }
+
+    @Test
+    @DisplayName("rebuild: zmiana zatwierdzona w trakcie odczytu jest powtarzana na nowym snapshocie")
+    void rebuild_replaysChangesDuringRebuild() throws SQLException {
+        ResultSet row = userRow(9L, LocalDate.of(1995, 1, 1));
+        doAnswer(invocation -> {
+            // Odczyt pełnej tabeli nie widzi jeszcze użytkownika 9
+            candidateIndex.refreshUsers(List.of(9L));
+            return null;
+        }).when(userJdbcDao).streamActiveUsersForIndex(any(RowCallbackHandler.class));
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(row);
+            return null;
+        }).when(userJdbcDao).streamActiveUsersForIndex(anyCollection(), any());
+
+        candidateIndex.rebuild();
+
+        assertThat(candidateIndex.size()).isEqualTo(1);
+        assertThat(collect(candidateIndex.findSlices(Gender.FEMALE, 18, 99, TODAY))).containsExactly(9L);
+    }
+
+    @Test
+    @DisplayName("Builder: odrzuca ID spoza zakresu indeksu")
+    void builder_rejectsNegativeId() {
+        assertThatThrownBy(() -> new CandidateIndex.Builder().add(-1L, Gender.MALE, TODAY))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ResultSet userRow(long userId, LocalDate birthDate) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("user_id")).thenReturn(userId);
+        when(rs.getString("gender")).thenReturn("FEMALE");
+        when(rs.getObject("birth_date", LocalDate.class)).thenReturn(birthDate);
+        return rs;
+    }
+
+    private static List<Long> collect(List<CandidateIndex.Slice> slices) {
+        List<Long> ids = new ArrayList<>();
+        slices.forEach(slice -> slice.forEach(ids::add));
+        return ids;
+    }
+}
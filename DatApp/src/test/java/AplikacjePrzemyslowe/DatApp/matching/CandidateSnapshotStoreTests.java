@@ -0,0 +1,86 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("CandidateSnapshotStore / CandidateCursor unit tests")
+class CandidateSnapshotStoreTests {
+
+    private MatchingProperties properties;
+    private CandidateSnapshotStore store;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MatchingProperties();
+        store = new CandidateSnapshotStore(properties);
+    }
+
+    private CandidateSnapshotStore.Snapshot create(long userId, int candidates) {
+        long[] ids = new long[candidates];
+        for (int i = 0; i < candidates; i++) {
+            ids[i] = i + 100;
+        }
+        return store.create(userId, candidates, ids, new int[candidates], new int[candidates], new double[candidates]);
+    }
+
+    @Test
+    @DisplayName("Snapshot dostępny tylko dla właściciela")
+    void get_onlyForOwner() {
+        CandidateSnapshotStore.Snapshot snapshot = create(1L, 3);
+
+        assertThat(store.get(snapshot.id(), 1L)).isSameAs(snapshot);
+        assertThat(store.get(snapshot.id(), 2L)).isNull();
+        assertThat(store.get(snapshot.id() + 1, 1L)).isNull();
+        assertThat(snapshot.size()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Po ttl snapshot wygasa")
+    void ttl_expires() {
+        CandidateSnapshotStore.Snapshot snapshot = create(1L, 3);
+        properties.getSnapshot().setTtl(Duration.ofNanos(-1));
+
+        assertThat(store.get(snapshot.id(), 1L)).isNull();
+
+        create(2L, 3);
+        store.evictExpired();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Ponad memory-budget usuwane są najstarsze snapshoty")
+    void memoryBudget_evictsOldest() {
+        // 100 kandydatów to ok. 2.5 KB - budżet mieści dwa snapshoty
+        properties.getSnapshot().setMemoryBudget(DataSize.ofBytes(6_000));
+
+        CandidateSnapshotStore.Snapshot first = create(1L, 100);
+        CandidateSnapshotStore.Snapshot second = create(2L, 100);
+        CandidateSnapshotStore.Snapshot third = create(3L, 100);
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.get(first.id(), 1L)).isNull();
+        assertThat(store.get(second.id(), 2L)).isNotNull();
+        assertThat(store.get(third.id(), 3L)).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Kursor: encode/decode i odrzucanie błędnych tokenów")
+    void cursor_roundTrip() {
+        CandidateCursor cursor = new CandidateCursor(-8_123_456_789L, 40);
+
+        String token = cursor.encode();
+
+        assertThat(token).doesNotContain("=", "+", "/");
+        assertThat(CandidateCursor.decode(token)).isEqualTo(cursor);
+        assertThatThrownBy(() -> CandidateCursor.decode("???")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CandidateCursor.decode("AAAA")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CandidateCursor(1L, -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,45 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Deadline unit tests")
+class DeadlineTests {
+
+    @Test
+    @DisplayName("Budżet zerowy, ujemny lub null - brak limitu")
+    void nonPositiveBudget_isUnbounded() {
+        assertThat(Deadline.after(Duration.ZERO)).isSameAs(Deadline.NONE);
+        assertThat(Deadline.after(Duration.ofMillis(-1))).isSameAs(Deadline.NONE);
+        assertThat(Deadline.after(null)).isSameAs(Deadline.NONE);
+        assertThat(Deadline.NONE.isExpired()).isFalse();
+        assertThat(Deadline.NONE.wasExceeded()).isFalse();
+        assertThat(Deadline.NONE.isBounded()).isFalse();
+        assertThat(Deadline.after(Duration.ofHours(1)).isBounded()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Przekroczenie terminu zapamiętywane przez wasExceeded")
+    void expired_isLatched() {
+        Deadline deadline = Deadline.after(Duration.ofNanos(1));
+        while (!deadline.isExpired()) {
+            Thread.onSpinWait();
+        }
+
+        assertThat(deadline.wasExceeded()).isTrue();
+        assertThat(deadline.isExpired()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Przed terminem - niewygasły i bez przekroczenia")
+    void beforeDeadline_notExpired() {
+        Deadline deadline = Deadline.after(Duration.ofHours(1));
+
+        assertThat(deadline.isExpired()).isFalse();
+        assertThat(deadline.wasExceeded()).isFalse();
+    }
+}
@@ -0,0 +1,122 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@DisplayName("DistanceKernel / VectorDistanceKernel unit tests")
+class DistanceKernelTests {
+
+    // Warszawa
+    private static final double LAT = 52.2297;
+    private static final double LON = 21.0122;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private GeoPoints points;
+
+    @BeforeEach
+    void setUp() {
+        // Nieparzysta liczba punktów - ogon tablicy liczony skalarnie;
+        // cała kula, w tym bieguny i okolice południka 180°
+        Random random = new Random(42);
+        int size = 1_003;
+        latitudes = new double[size];
+        longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = i % 3 == 0 ? LAT + random.nextGaussian() : random.nextDouble() * 180 - 90;
+            longitudes[i] = i % 3 == 0 ? LON + random.nextGaussian() : random.nextDouble() * 360 - 180;
+        }
+        latitudes[1] = 90.0;
+        longitudes[2] = 180.0;
+        points = GeoPoints.ofDegrees(latitudes, longitudes, size);
+    }
+
+    @Test
+    @DisplayName("Skalarny kernel zgodny z GeoDistance.haversineKm")
+    void scalar_matchesGeoDistance() {
+        double[] distances = new double[points.size()];
+
+        DistanceKernel.haversineKmScalar(LAT, LON, points, distances);
+
+        for (int i = 0; i < points.size(); i++) {
+            assertThat(distances[i])
+                    .isCloseTo(GeoDistance.haversineKm(LAT, LON, latitudes[i], longitudes[i]), within(1e-6));
+        }
+    }
+
+    @Test
+    @DisplayName("withinRadiusKm: pre-filtr nie odrzuca punktów w promieniu")
+    void withinRadius_matchesBruteForce() {
+        double[] distances = new double[points.size()];
+
+        for (double radiusKm : new double[]{1, 50, 150, 1_000, 20_000, 30_000}) {
+            int count = DistanceKernel.withinRadiusKmScalar(LAT, LON, points, radiusKm, distances);
+
+            int expected = 0;
+            for (int i = 0; i < points.size(); i++) {
+                double exact = GeoDistance.haversineKm(LAT, LON, latitudes[i], longitudes[i]);
+                boolean inside = exact <= radiusKm - 1e-6;
+                boolean outside = exact > radiusKm + 1e-6;
+                if (inside) {
+                    assertThat(distances[i]).isCloseTo(exact, within(1e-6));
+                } else if (outside) {
+                    assertThat(distances[i]).isEqualTo(DistanceKernel.OUTSIDE);
+                }
+                if (distances[i] != DistanceKernel.OUTSIDE) {
+                    expected++;
+                }
+            }
+            assertThat(count).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("withinRadiusKm: zawijanie przez południk 180° i bieguny")
+    void withinRadius_antimeridianAndPoles() {
+        GeoPoints edge = GeoPoints.ofDegrees(
+                new double[]{0.0, 0.0, 89.9, 89.9},
+                new double[]{179.95, -179.95, 0.0, 180.0},
+                4);
+        double[] distances = new double[4];
+
+        assertThat(DistanceKernel.withinRadiusKmScalar(0.0, 179.99, edge, 20, distances)).isEqualTo(2);
+        assertThat(DistanceKernel.withinRadiusKmScalar(89.9, 90.0, edge, 30, distances)).isEqualTo(2);
+        assertThat(distances[2]).isLessThan(30);
+        assertThat(distances[3]).isLessThan(30);
+    }
+
+    @Test
+    @DisplayName("Vector API zgodne z pętlą skalarną")
+    void vector_matchesScalar() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "JVM started without --add-modules jdk.incubator.vector");
+        double[] scalar = new double[points.size()];
+        double[] vector = new double[points.size()];
+
+        DistanceKernel.haversineKmScalar(LAT, LON, points, scalar);
+        VectorDistanceKernel.haversineKm(LAT, LON, points, vector);
+        assertThat(vector).containsExactly(scalar, within(1e-6));
+
+        for (double radiusKm : new double[]{1, 50, 1_000, 30_000}) {
+            int scalarCount = DistanceKernel.withinRadiusKmScalar(LAT, LON, points, radiusKm, scalar);
+            int vectorCount = VectorDistanceKernel.withinRadiusKm(LAT, LON, points, radiusKm, vector);
+            assertThat(vectorCount).isEqualTo(scalarCount);
+            for (int i = 0; i < points.size(); i++) {
+                assertThat(vector[i] == DistanceKernel.OUTSIDE).isEqualTo(scalar[i] == DistanceKernel.OUTSIDE);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("GeoPoints: tablice o różnej długości odrzucane")
+    void geoPoints_validatesLengths() {
+        assertThatThrownBy(() -> new GeoPoints(new double[2], new double[2], new double[1]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
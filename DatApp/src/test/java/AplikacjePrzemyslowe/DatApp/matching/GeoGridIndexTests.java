@@ -0,0 +1,123 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("GeoGridIndex unit tests")
+class GeoGridIndexTests {
+
+    // Warszawa
+    private static final double LAT = 52.2297;
+    private static final double LON = 21.0122;
+
+    @Mock private UserJdbcDao userJdbcDao;
+
+    @InjectMocks private GeoGridIndex geoGridIndex;
+
+    @BeforeEach
+    void setUp() {
+        geoGridIndex.install(new GeoGridIndex.Builder()
+                .add(1L, LAT, LON)                      // 0 km
+                .add(2L, LAT + 0.3, LON)                // ~33 km
+                .add(3L, LAT + 0.5, LON)                // ~56 km
+                .add(4L, 50.0647, 19.9450)              // Kraków, ~252 km
+                .add(5L, null, null)                    // brak współrzędnych
+                .add(6L, 0.0, 179.95)                   // przy południku 180°
+                .add(7L, 0.0, -179.95)
+                .build());
+    }
+
+    @Test
+    @DisplayName("findWithinRadius: dokładny dystans, nie tylko komórki")
+    void findWithinRadius_exactDistance() {
+        GeoGridIndex.Nearby nearby = geoGridIndex.findWithinRadius(LAT, LON, 50);
+
+        assertThat(nearby.located()).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(nearby.contains(3L)).isFalse();
+        assertThat(nearby.contains(4L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("findWithinRadius: profile bez współrzędnych w kubełku fallback")
+    void findWithinRadius_fallbackBucket() {
+        GeoGridIndex.Nearby nearby = geoGridIndex.findWithinRadius(LAT, LON, 10);
+
+        assertThat(nearby.located()).containsExactly(1L);
+        assertThat(nearby.contains(5L)).isTrue();
+        assertThat(nearby.withoutCoordinates()).containsExactly(5L);
+    }
+
+    @Test
+    @DisplayName("findWithinRadius: duży promień obejmuje inne miasto")
+    void findWithinRadius_largeRadius() {
+        assertThat(geoGridIndex.findWithinRadius(LAT, LON, 300).located())
+                .containsExactlyInAnyOrder(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    @DisplayName("findWithinRadius: zawijanie przez południk 180°")
+    void findWithinRadius_antimeridian() {
+        assertThat(geoGridIndex.findWithinRadius(0.0, 179.99, 20).located())
+                .containsExactlyInAnyOrder(6L, 7L);
+    }
+
+    @Test
+    @DisplayName("refreshUsers: przeniesiony profil trafia do nowej komórki")
+    void refreshUsers_movesProfile() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("user_id")).thenReturn(4L);
+        when(rs.getObject("latitude", Double.class)).thenReturn(LAT + 0.1);
+        when(rs.getObject("longitude", Double.class)).thenReturn(LON);
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(userJdbcDao).streamProfileLocationsForIndex(eq(List.of(4L)), any());
+
+        geoGridIndex.refreshUsers(List.of(4L));
+
+        assertThat(geoGridIndex.size()).isEqualTo(7);
+        assertThat(geoGridIndex.findWithinRadius(LAT, LON, 50).located()).containsExactlyInAnyOrder(1L, 2L, 4L);
+        assertThat(geoGridIndex.findWithinRadius(50.0647, 19.9450, 10).located()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("refreshUsers: nieaktywny profil znika, także z kubełka bez współrzędnych")
+    void refreshUsers_removesInactiveProfiles() {
+        geoGridIndex.refreshUsers(List.of(1L, 5L));
+
+        assertThat(geoGridIndex.size()).isEqualTo(5);
+        GeoGridIndex.Nearby nearby = geoGridIndex.findWithinRadius(LAT, LON, 50);
+        assertThat(nearby.located()).containsExactly(2L);
+        assertThat(nearby.withoutCoordinates()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("refresh: błąd bazy nie usuwa poprzedniego snapshotu")
+    void refresh_failureKeepsSnapshot() {
+        doThrow(new IllegalStateException("db down")).when(userJdbcDao).streamProfileLocationsForIndex(any());
+
+        geoGridIndex.refresh();
+
+        assertThat(geoGridIndex.isReady()).isTrue();
+        assertThat(geoGridIndex.size()).isEqualTo(7);
+    }
+}
@@ -0,0 +1,243 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.entity.Gender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("IndexSnapshotStore unit tests")
+class IndexSnapshotStoreTests {
+
+    private static final LocalDateTime USERS_EPOCH = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @TempDir private Path directory;
+
+    @Mock private UserJdbcDao userJdbcDao;
+
+    private MatchingProperties properties;
+    private Path path;
+
+    @BeforeEach
+    void setUp() {
+        path = directory.resolve("matching-index.snapshot");
+        properties = new MatchingProperties();
+        properties.getIndexSnapshot().setPath(path.toString());
+    }
+
+    @Test
+    @DisplayName("IndexSnapshotFile: zapis i odczyt odtwarzają indeksy bit w bit")
+    void file_roundTrip() throws IOException {
+        LocalDateTime asOf = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        IndexSnapshotFile.Contents written = contents(asOf);
+
+        IndexSnapshotFile.write(path, written);
+        IndexSnapshotFile.Contents read = IndexSnapshotFile.read(path);
+
+        assertThat(read.asOf()).isEqualTo(asOf);
+        assertThat(read.usersEpoch()).isEqualTo(USERS_EPOCH);
+
+        assertThat(read.candidates().size()).isEqualTo(written.candidates().size());
+        assertThat(read.candidates().buckets()).containsOnlyKeys(Gender.FEMALE, Gender.MALE);
+        CandidateIndex.Bucket expected = written.candidates().buckets().get(Gender.FEMALE);
+        CandidateIndex.Bucket actual = read.candidates().buckets().get(Gender.FEMALE);
+        assertThat(actual.userIds()).containsExactly(expected.userIds());
+        assertThat(actual.birthDays()).containsExactly(expected.birthDays());
+        assertThat(actual.preferences()).containsExactly(expected.preferences());
+        assertThat(actual.latitudes()).containsExactly(expected.latitudes());
+        assertThat(actual.longitudes()).containsExactly(expected.longitudes());
+
+        assertThat(read.locations().size()).isEqualTo(written.locations().size());
+        assertThat(read.locations().maxCellSize()).isEqualTo(written.locations().maxCellSize());
+        assertThat(read.locations().withoutCoordinates()).containsExactly(3L);
+        assertThat(read.locations().cells()).containsOnlyKeys(written.locations().cells().keySet());
+        written.locations().cells().forEach((key, cell) -> {
+            GeoGridIndex.Cell readCell = read.locations().cells().get(key);
+            assertThat(readCell.userIds()).containsExactly(cell.userIds());
+            assertThat(readCell.points().latitudes()).containsExactly(cell.points().latitudes());
+            assertThat(readCell.points().cosLatitudes()).containsExactly(cell.points().cosLatitudes());
+        });
+
+        assertThat(read.interests()).containsOnlyKeys(1L, 2L);
+        assertThat(read.interests().get(1L)).containsExactly(written.interests().get(1L));
+    }
+
+    @Test
+    @DisplayName("IndexSnapshotFile: uszkodzone dane odrzucane przez sumę kontrolną")
+    void file_corruptedPayloadRejected() throws IOException {
+        IndexSnapshotFile.write(path, contents(LocalDateTime.now()));
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(IndexSnapshotFile.HEADER_BYTES + 10);
+            int value = file.read();
+            file.seek(IndexSnapshotFile.HEADER_BYTES + 10);
+            file.write(value ^ 0xFF);
+        }
+
+        assertThatThrownBy(() -> IndexSnapshotFile.read(path))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("checksum");
+    }
+
+    @Test
+    @DisplayName("IndexSnapshotFile: obcy plik odrzucany po nagłówku")
+    void file_foreignFileRejected() throws IOException {
+        Files.write(path, new byte[IndexSnapshotFile.HEADER_BYTES + 8]);
+
+        assertThatThrownBy(() -> IndexSnapshotFile.read(path))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not an index snapshot");
+    }
+
+    @Test
+    @DisplayName("write: pomija zapis, dopóki indeksy nie są zbudowane")
+    void write_skippedBeforeIndexesReady() throws IOException {
+        IndexSnapshotStore store = store(new CandidateIndex(userJdbcDao), new GeoGridIndex(userJdbcDao),
+                new InterestBitsetIndex(userJdbcDao));
+
+        assertThat(store.write()).isFalse();
+        assertThat(path).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("restore: instaluje indeksy z pliku i doczytuje tylko zmienionych użytkowników")
+    void restore_replaysChangesSinceSnapshot() throws IOException {
+        writeSnapshot(LocalDateTime.now());
+        CandidateIndex candidateIndex = new CandidateIndex(userJdbcDao);
+        GeoGridIndex geoGridIndex = new GeoGridIndex(userJdbcDao);
+        InterestBitsetIndex interestBitsetIndex = new InterestBitsetIndex(userJdbcDao);
+        when(userJdbcDao.findUsersEpoch()).thenReturn(USERS_EPOCH.plusNanos(500_000));
+        // Użytkownik 1 zdezaktywowany po zapisie - zapytania o niego nie zwracają wierszy
+        when(userJdbcDao.findUserIdsChangedSince(any())).thenReturn(List.of(1L));
+        when(userJdbcDao.countActiveUsers()).thenReturn(2);
+
+        boolean restored = store(candidateIndex, geoGridIndex, interestBitsetIndex).restore();
+
+        assertThat(restored).isTrue();
+        assertThat(candidateIndex.size()).isEqualTo(2);
+        assertThat(geoGridIndex.size()).isEqualTo(2);
+        assertThat(interestBitsetIndex.isReady()).isTrue();
+        assertThat(interestBitsetIndex.bitsOf(1L)).isEmpty();
+        assertThat(interestBitsetIndex.bitsOf(2L)).isNotEmpty();
+        verify(userJdbcDao).streamActiveUsersForIndex(eq(List.of(1L)), any());
+        verify(userJdbcDao, never()).streamActiveUsersForIndex(any());
+    }
+
+    @Test
+    @DisplayName("restore: rozbieżna liczba aktywnych (usunięcia) wymusza przebudowę")
+    void restore_divergedCountRebuilds() throws IOException {
+        writeSnapshot(LocalDateTime.now());
+        CandidateIndex candidateIndex = new CandidateIndex(userJdbcDao);
+        when(userJdbcDao.findUsersEpoch()).thenReturn(USERS_EPOCH);
+        when(userJdbcDao.findUserIdsChangedSince(any())).thenReturn(List.of());
+        when(userJdbcDao.countActiveUsers()).thenReturn(2);
+
+        boolean restored = store(candidateIndex, new GeoGridIndex(userJdbcDao),
+                new InterestBitsetIndex(userJdbcDao)).restore();
+
+        assertThat(restored).isTrue();
+        verify(userJdbcDao).streamActiveUsersForIndex(any());
+        verify(userJdbcDao).streamProfileLocationsForIndex(any());
+    }
+
+    @Test
+    @DisplayName("restore: plik z innej bazy (inna epoka users) jest pomijany")
+    void restore_otherDatabaseSkipped() throws IOException {
+        writeSnapshot(LocalDateTime.now());
+        CandidateIndex candidateIndex = new CandidateIndex(userJdbcDao);
+        when(userJdbcDao.findUsersEpoch()).thenReturn(USERS_EPOCH.plusDays(1));
+
+        boolean restored = store(candidateIndex, new GeoGridIndex(userJdbcDao),
+                new InterestBitsetIndex(userJdbcDao)).restore();
+
+        assertThat(restored).isFalse();
+        assertThat(candidateIndex.isReady()).isFalse();
+        verify(userJdbcDao, never()).findUserIdsChangedSince(any());
+    }
+
+    @Test
+    @DisplayName("restore: zbyt stary plik jest pomijany")
+    void restore_staleSnapshotSkipped() throws IOException {
+        writeSnapshot(LocalDateTime.now().minusDays(2));
+        CandidateIndex candidateIndex = new CandidateIndex(userJdbcDao);
+
+        boolean restored = store(candidateIndex, new GeoGridIndex(userJdbcDao),
+                new InterestBitsetIndex(userJdbcDao)).restore();
+
+        assertThat(restored).isFalse();
+        assertThat(candidateIndex.isReady()).isFalse();
+        verifyNoInteractions(userJdbcDao);
+    }
+
+    @Test
+    @DisplayName("onApplicationStarted: brak pliku nie przerywa startu")
+    void onApplicationStarted_missingFile() {
+        CandidateIndex candidateIndex = new CandidateIndex(userJdbcDao);
+
+        assertThatCode(() -> store(candidateIndex, new GeoGridIndex(userJdbcDao),
+                new InterestBitsetIndex(userJdbcDao)).onApplicationStarted())
+                .doesNotThrowAnyException();
+        assertThat(candidateIndex.isReady()).isFalse();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Zapisuje plik przez store z indeksami odtworzonymi na chwilę {@code asOf}.
+     */
+    private void writeSnapshot(LocalDateTime asOf) throws IOException {
+        IndexSnapshotFile.Contents contents = contents(asOf);
+        CandidateIndex candidateIndex = new CandidateIndex(userJdbcDao);
+        GeoGridIndex geoGridIndex = new GeoGridIndex(userJdbcDao);
+        InterestBitsetIndex interestBitsetIndex = new InterestBitsetIndex(userJdbcDao);
+        candidateIndex.restore(contents.candidates(), asOf);
+        geoGridIndex.restore(contents.locations(), asOf);
+        interestBitsetIndex.restore(contents.interests(), asOf);
+        doReturn(USERS_EPOCH).when(userJdbcDao).findUsersEpoch();
+
+        assertThat(store(candidateIndex, geoGridIndex, interestBitsetIndex).write()).isTrue();
+        reset(userJdbcDao);
+    }
+
+    private IndexSnapshotStore store(CandidateIndex candidateIndex, GeoGridIndex geoGridIndex,
+                                     InterestBitsetIndex interestBitsetIndex) {
+        return new IndexSnapshotStore(properties, userJdbcDao, candidateIndex, geoGridIndex, interestBitsetIndex);
+    }
+
+    private static IndexSnapshotFile.Contents contents(LocalDateTime asOf) {
+        CandidateIndex.Snapshot candidates = new CandidateIndex.Builder()
+                .add(1L, Gender.FEMALE, LocalDate.of(2000, 6, 15),
+                        CandidateIndex.preference(Gender.MALE, 20, 30, 50), 52.2297, 21.0122)
+                .add(2L, Gender.FEMALE, LocalDate.of(1995, 3, 1))
+                .add(3L, Gender.MALE, LocalDate.of(1990, 1, 1))
+                .build();
+        GeoGridIndex.Snapshot locations = new GeoGridIndex.Builder()
+                .add(1L, 52.2297, 21.0122)
+                .add(2L, 50.0647, 19.9450)
+                .add(3L, null, null)
+                .build();
+        Map<Long, long[]> interests = Map.of(
+                1L, InterestBitsetIndex.toBits(List.of(1L, 5L, 70L)),
+                2L, InterestBitsetIndex.toBits(List.of(5L)));
+        return new IndexSnapshotFile.Contents(asOf, USERS_EPOCH, candidates, locations, interests);
+    }
+}
@@ -0,0 +1,95 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("InterestBitsetIndex unit tests")
+class InterestBitsetIndexTests {
+
+    @Mock private UserJdbcDao userJdbcDao;
+
+    @InjectMocks private InterestBitsetIndex interestBitsetIndex;
+
+    @Test
+    @DisplayName("countCommon: AND + popcount, także dla bitsetów różnej długości")
+    void countCommon_differentLengths() {
+        long[] a = InterestBitsetIndex.toBits(List.of(1L, 5L, 70L, 130L));
+        long[] b = InterestBitsetIndex.toBits(List.of(5L, 70L, 71L));
+
+        assertThat(InterestBitsetIndex.countCommon(a, b)).isEqualTo(2);
+        assertThat(InterestBitsetIndex.countCommon(b, a)).isEqualTo(2);
+        assertThat(InterestBitsetIndex.countCommon(a, new long[0])).isZero();
+    }
+
+    @Test
+    @DisplayName("put/remove: zastępuje zainteresowania użytkownika")
+    void putAndRemove() {
+        interestBitsetIndex.put(1L, List.of(1L, 2L, 3L));
+        interestBitsetIndex.put(2L, List.of(2L, 3L, 4L));
+        long[] bits = interestBitsetIndex.bitsOf(1L);
+
+        assertThat(interestBitsetIndex.countCommon(bits, 2L)).isEqualTo(2);
+
+        interestBitsetIndex.put(2L, List.of(4L));
+        assertThat(interestBitsetIndex.countCommon(bits, 2L)).isZero();
+
+        interestBitsetIndex.remove(1L);
+        assertThat(interestBitsetIndex.bitsOf(1L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("toBits: pomija ID null i odrzuca ujemne")
+    void toBits_nullAndNegative() {
+        assertThat(InterestBitsetIndex.toBits(Arrays.asList(null, 3L))).containsExactly(1L << 3);
+        assertThatThrownBy(() -> InterestBitsetIndex.toBits(List.of(-1L)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("load: buduje bitsety z par (user_id, interest_id), nie nadpisuje nowszych wpisów")
+    void load_buildsBitsetsAndKeepsNewerEntries() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("user_id")).thenReturn(1L, 1L, 2L);
+        when(rs.getLong("interest_id")).thenReturn(3L, 100L, 3L);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(0);
+            for (int i = 0; i < 3; i++) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(userJdbcDao).streamUserInterests(any());
+
+        interestBitsetIndex.put(2L, List.of(7L));
+        interestBitsetIndex.load();
+
+        assertThat(interestBitsetIndex.isReady()).isTrue();
+        assertThat(InterestBitsetIndex.countCommon(
+                interestBitsetIndex.bitsOf(1L), InterestBitsetIndex.toBits(List.of(3L, 100L)))).isEqualTo(2);
+        assertThat(interestBitsetIndex.bitsOf(2L)).containsExactly(1L << 7);
+    }
+
+    @Test
+    @DisplayName("onApplicationReady: błąd bazy zostawia indeks niezaładowany")
+    void onApplicationReady_failure() {
+        doThrow(new IllegalStateException("db down")).when(userJdbcDao).streamUserInterests(any());
+
+        interestBitsetIndex.onApplicationReady();
+
+        assertThat(interestBitsetIndex.isReady()).isFalse();
+    }
+}
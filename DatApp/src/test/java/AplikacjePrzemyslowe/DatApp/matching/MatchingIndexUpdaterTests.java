@@ -0,0 +1,111 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MatchingIndexUpdater unit tests")
+class MatchingIndexUpdaterTests {
+
+    @Mock private CandidateIndex candidateIndex;
+    @Mock private GeoGridIndex geoGridIndex;
+    @Mock private InterestBitsetIndex interestBitsetIndex;
+    @Mock private SwipedUserCache swipedUserCache;
+    @Mock private CandidateDeckStore candidateDeckStore;
+    @Mock private TopPicksStore topPicksStore;
+
+    @InjectMocks private MatchingIndexUpdater updater;
+
+    @Test
+    @DisplayName("onChange: dezaktywacja odświeża oba indeksy i zwalnia talię")
+    void onChange_deactivation() {
+        updater.onChange(new MatchingChangeEvent.UserActivationChanged(1L, false));
+
+        verify(candidateIndex).refreshUsers(List.of(1L));
+        verify(geoGridIndex).refreshUsers(List.of(1L));
+        verify(candidateDeckStore).invalidate(1L);
+    }
+
+    @Test
+    @DisplayName("onChange: aktywacja odświeża indeksy bez ruszania talii")
+    void onChange_activation() {
+        updater.onChange(new MatchingChangeEvent.UserActivationChanged(1L, true));
+
+        verify(candidateIndex).refreshUsers(List.of(1L));
+        verify(geoGridIndex).refreshUsers(List.of(1L));
+        verifyNoInteractions(candidateDeckStore);
+    }
+
+    @Test
+    @DisplayName("onChange: zmiana lokalizacji odświeża indeksy i unieważnia talię oraz nocny ranking")
+    void onChange_profileMoved() {
+        updater.onChange(new MatchingChangeEvent.ProfileMoved(2L));
+
+        verify(candidateIndex).refreshUsers(List.of(2L));
+        verify(geoGridIndex).refreshUsers(List.of(2L));
+        InOrder order = inOrder(topPicksStore, candidateDeckStore);
+        order.verify(topPicksStore).invalidate(2L);
+        order.verify(candidateDeckStore).invalidate(2L);
+    }
+
+    @Test
+    @DisplayName("onChange: nowe zainteresowania trafiają do bitsetu")
+    void onChange_interestsChanged() {
+        updater.onChange(new MatchingChangeEvent.InterestsChanged(3L, List.of(4L, 5L)));
+
+        verify(interestBitsetIndex).put(3L, List.of(4L, 5L));
+        verify(candidateDeckStore).invalidate(3L);
+        verifyNoInteractions(candidateIndex, geoGridIndex);
+    }
+
+    @Test
+    @DisplayName("onChange: zmiana preferencji odświeża wpis w indeksie kandydatów i usuwa nocny ranking")
+    void onChange_preferencesChanged() {
+        updater.onChange(new MatchingChangeEvent.PreferencesChanged(4L));
+
+        verify(candidateIndex).refreshUsers(List.of(4L));
+        verify(candidateDeckStore).invalidate(4L);
+        verify(topPicksStore).invalidate(4L);
+        verifyNoInteractions(geoGridIndex);
+    }
+
+    @Test
+    @DisplayName("onChange: swipe usuwa kandydata z talii i trafia do zbioru ocenionych")
+    void onChange_swipeRecorded() {
+        updater.onChange(new MatchingChangeEvent.SwipeRecorded(1L, 2L));
+
+        verify(candidateDeckStore).remove(1L, 2L);
+        verify(swipedUserCache).recordSwipe(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("onChange: archiwizacja odrzuceń unieważnia talię i zbiór ocenionych")
+    void onChange_swipesRecycled() {
+        updater.onChange(new MatchingChangeEvent.SwipesRecycled(5L));
+
+        verify(candidateDeckStore).invalidate(5L);
+        verify(swipedUserCache).invalidate(5L);
+        verifyNoInteractions(candidateIndex, geoGridIndex, interestBitsetIndex);
+    }
+
+    @Test
+    @DisplayName("onChange: błąd indeksu nie wychodzi poza listener, talia i tak unieważniona")
+    void onChange_failureIsSwallowed() {
+        doThrow(new IllegalStateException("db down")).when(candidateIndex).refreshUsers(any());
+
+        assertThatCode(() -> updater.onChange(new MatchingChangeEvent.PreferencesChanged(4L)))
+                .doesNotThrowAnyException();
+        verify(candidateDeckStore).invalidate(4L);
+    }
+}
@@ -0,0 +1,133 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("PairScoreCache unit tests")
+class PairScoreCacheTests {
+
+    private static final PairScoreCache.Stamp STAMP = new PairScoreCache.Stamp(1L, 2L, 3L);
+
+    private MatchingProperties properties;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MatchingProperties();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private PairScoreCache cache(int maxEntries) {
+        properties.getPairCache().setMaxEntries(maxEntries);
+        return new PairScoreCache(properties, meterRegistry);
+    }
+
+    private static PairScoreCache.Entry entry(int score, PairScoreCache.Stamp stamp) {
+        return new PairScoreCache.Entry(score, 2, 12.5, stamp);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", PairScoreCache.CACHE_NAME).tag("result", result)
+                .counter().count();
+    }
+
+    @Test
+    @DisplayName("Wynik pary zwracany tylko dla tych samych wersji")
+    void get_onlyForSameStamp() {
+        PairScoreCache cache = cache(100);
+        cache.put(1L, 2L, entry(70, STAMP));
+
+        assertThat(cache.get(1L, 2L, STAMP)).isEqualTo(entry(70, STAMP));
+        assertThat(cache.get(1L, 2L, new PairScoreCache.Stamp(2L, 2L, 3L))).isNull();
+        assertThat(cache.get(1L, 2L, new PairScoreCache.Stamp(1L, 3L, 3L))).isNull();
+        assertThat(cache.get(1L, 2L, new PairScoreCache.Stamp(1L, 2L, 4L))).isNull();
+        assertThat(cache.get(2L, 1L, STAMP)).isNull();
+    }
+
+    @Test
+    @DisplayName("Nowy wynik nadpisuje wpis dla starszych wersji")
+    void put_replacesStaleEntry() {
+        PairScoreCache cache = cache(100);
+        PairScoreCache.Stamp newer = new PairScoreCache.Stamp(1L, 2L, 4L);
+        cache.put(1L, 2L, entry(70, STAMP));
+        cache.put(1L, 2L, entry(55, newer));
+
+        assertThat(cache.get(1L, 2L, newer).score()).isEqualTo(55);
+        assertThat(cache.get(1L, 2L, STAMP)).isNull();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Ponad max-entries usuwana jest najdawniej używana para")
+    void maxEntries_evictsLeastRecentlyUsed() {
+        PairScoreCache cache = cache(2);
+        cache.put(1L, 2L, entry(70, STAMP));
+        cache.put(1L, 3L, entry(60, STAMP));
+        cache.get(1L, 2L, STAMP);
+        cache.put(1L, 4L, entry(50, STAMP));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(1L, 3L, STAMP)).isNull();
+        assertThat(cache.get(1L, 2L, STAMP)).isNotNull();
+        assertThat(cache.get(1L, 4L, STAMP)).isNotNull();
+        assertThat(meterRegistry.get("cache.evictions").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Metryki hit/miss i rozmiar cache")
+    void metrics_hitsMissesAndSize() {
+        PairScoreCache cache = cache(100);
+        cache.put(1L, 2L, entry(70, STAMP));
+
+        cache.get(1L, 2L, STAMP);
+        cache.get(1L, 2L, STAMP);
+        cache.get(1L, 3L, STAMP);
+        cache.get(1L, 2L, new PairScoreCache.Stamp(1L, 2L, 4L));
+
+        assertThat(gets("hit")).isEqualTo(2.0);
+        assertThat(gets("miss")).isEqualTo(2.0);
+        assertThat(meterRegistry.get("cache.size").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("max-entries 0 wyłącza cache")
+    void zeroMaxEntries_disablesCache() {
+        PairScoreCache cache = cache(0);
+        cache.put(1L, 2L, entry(70, STAMP));
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.get(1L, 2L, STAMP)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Równoległe zapisy z wielu wątków nie przekraczają max-entries")
+    void concurrentPuts_stayWithinMaxEntries() throws InterruptedException {
+        PairScoreCache cache = cache(4_096);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            long userId = thread;
+            executor.submit(() -> {
+                for (long candidateId = 0; candidateId < 5_000; candidateId++) {
+                    cache.put(userId, candidateId, entry(1, STAMP));
+                    cache.get(userId, candidateId, STAMP);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(cache.size()).isLessThanOrEqualTo(4_096);
+        assertThat(cache.size() + meterRegistry.get("cache.evictions").counter().count()).isEqualTo(20_000.0);
+    }
+}
@@ -0,0 +1,136 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ParallelRanker unit tests")
+class ParallelRankerTests {
+
+    private record Scored(int index, int score) {
+    }
+
+    private ParallelRanker ranker;
+
+    @AfterEach
+    void tearDown() {
+        if (ranker != null) {
+            ranker.shutdown();
+        }
+    }
+
+    private ParallelRanker ranker(int threshold, int parallelism, int chunkSize) {
+        MatchingProperties properties = new MatchingProperties();
+        properties.getScoring().setParallelThreshold(threshold);
+        properties.getScoring().setParallelism(parallelism);
+        properties.getScoring().setChunkSize(chunkSize);
+        ranker = new ParallelRanker(properties);
+        return ranker;
+    }
+
+    @Test
+    @DisplayName("Ranking równoległy identyczny z sekwencyjnym (także przy równym score)")
+    void parallel_matchesSequential() {
+        Random random = new Random(42);
+        int[] scores = new int[20_000];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextInt(120);
+        }
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            indexes.add(i);
+        }
+
+        ParallelRanker parallel = ranker(1_000, 4, 256);
+        assertThat(parallel.isParallel(indexes.size())).isTrue();
+
+        TopKSelector<Scored> selector = parallel.rank(indexes, 100,
+                index -> new Scored(index, scores[index]), Scored::score);
+
+        List<Scored> expected = indexes.stream()
+                .map(index -> new Scored(index, scores[index]))
+                .sorted(Comparator.comparingInt(Scored::score).reversed())
+                .limit(100)
+                .toList();
+        assertThat(selector.offered()).isEqualTo(scores.length);
+        assertThat(selector.drainDescending()).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    @DisplayName("Scoring dużej puli działa na dedykowanej puli wątków")
+    void parallel_usesDedicatedPool() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            items.add(i);
+        }
+
+        ranker(1_000, 2, 100).rank(items, 10, item -> {
+            threads.add(Thread.currentThread().getName());
+            return item;
+        }, Integer::intValue);
+
+        assertThat(threads).anyMatch(name -> name.startsWith("matching-scoring-"));
+    }
+
+    @Test
+    @DisplayName("Poniżej progu scoring zostaje w wątku wywołującym")
+    void belowThreshold_sequential() {
+        ParallelRanker sequential = ranker(5_000, 4, 256);
+        assertThat(sequential.isParallel(4_999)).isFalse();
+
+        String caller = Thread.currentThread().getName();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        TopKSelector<Integer> selector = sequential.rank(List.of(3, 1, 2), 2, item -> {
+            threads.add(Thread.currentThread().getName());
+            return item;
+        }, Integer::intValue);
+
+        assertThat(threads).containsExactly(caller);
+        assertThat(selector.drainDescending()).containsExactly(3, 2);
+    }
+
+    @Test
+    @DisplayName("Tryb wyłączony lub pula jednowątkowa - zawsze sekwencyjnie")
+    void disabled() {
+        assertThat(ranker(1, 1, 256).isParallel(1_000_000)).isFalse();
+        ranker.shutdown();
+
+        MatchingProperties properties = new MatchingProperties();
+        properties.getScoring().setParallelEnabled(false);
+        properties.getScoring().setParallelism(4);
+        ranker = new ParallelRanker(properties);
+        assertThat(ranker.isParallel(1_000_000)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Po terminie fragmenty przerywają scoring - wynik z policzonych elementów")
+    void deadline_stopsScoring() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            items.add(i);
+        }
+        Deadline deadline = Deadline.after(Duration.ofMillis(50));
+
+        TopKSelector<Integer> selector = ranker(1_000, 2, 100).rank(items, 10, item -> {
+            while (!deadline.isExpired()) {
+                Thread.onSpinWait();
+            }
+            return item;
+        }, Integer::intValue, deadline);
+
+        assertThat(deadline.wasExceeded()).isTrue();
+        assertThat(selector.offered()).isPositive().isLessThan(items.size());
+    }
+}
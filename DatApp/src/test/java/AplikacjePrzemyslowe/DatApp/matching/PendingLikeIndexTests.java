@@ -0,0 +1,151 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PendingLikeIndex unit tests")
+class PendingLikeIndexTests {
+
+    @Mock private SwipeJdbcDao swipeJdbcDao;
+
+    private PendingLikeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PendingLikeIndex(swipeJdbcDao);
+    }
+
+    // ========== Shard ==========
+
+    @Test
+    @DisplayName("Shard: zgodność z HashSet przy dodawaniu, powiększaniu i usuwaniu")
+    void shard_matchesHashSet() {
+        Random random = new Random(7);
+        PendingLikeIndex.Shard shard = new PendingLikeIndex.Shard(16);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            long key = PendingLikeIndex.pack(1 + random.nextInt(300), 1 + random.nextInt(300));
+            if (random.nextInt(3) == 0) {
+                assertThat(shard.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                assertThat(shard.add(key)).isEqualTo(expected.add(key));
+            }
+        }
+
+        assertThat(shard.size()).isEqualTo(expected.size());
+        assertThat(shard.capacity()).isGreaterThanOrEqualTo(2 * expected.size());
+        for (long a = 1; a <= 300; a++) {
+            for (long b = 1; b <= 300; b++) {
+                long key = PendingLikeIndex.pack(a, b);
+                assertThat(shard.contains(key)).isEqualTo(expected.contains(key));
+            }
+        }
+    }
+
+    // ========== recordLike ==========
+
+    @Test
+    @DisplayName("recordLike: pierwsze polubienie czeka, odwzajemnione daje match i znika")
+    void recordLike_detectsMutualLike() {
+        assertThat(index.recordLike(1L, 2L)).isFalse();
+        assertThat(index.contains(1L, 2L)).isTrue();
+
+        assertThat(index.recordLike(2L, 1L)).isTrue();
+        assertThat(index.contains(1L, 2L)).isFalse();
+        assertThat(index.contains(2L, 1L)).isFalse();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("recordLike: równoczesne polubienia tej samej pary dają dokładnie jeden match")
+    void recordLike_concurrentPairYieldsOneMatch() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (long pair = 1; pair <= 2_000; pair++) {
+                long a = pair * 2;
+                long b = pair * 2 + 1;
+                Future<Boolean> first = executor.submit(() -> index.recordLike(a, b));
+                Future<Boolean> second = executor.submit(() -> index.recordLike(b, a));
+
+                assertThat(first.get(5, TimeUnit.SECONDS) ^ second.get(5, TimeUnit.SECONDS)).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("recordLike: ID spoza 32 bitów odrzucane, add/remove je pomijają")
+    void recordLike_rejectsIdsOutOfRange() {
+        long tooLarge = PendingLikeIndex.MAX_USER_ID + 1;
+
+        assertThatThrownBy(() -> index.recordLike(1L, tooLarge))
+                .isInstanceOf(IllegalArgumentException.class);
+        index.add(tooLarge, 1L);
+        assertThat(index.contains(tooLarge, 1L)).isFalse();
+        assertThat(index.size()).isZero();
+    }
+
+    // ========== load ==========
+
+    @Test
+    @DisplayName("covers: false przed załadowaniem i dla ID spoza zakresu")
+    void covers_onlyAfterLoadAndInRange() throws Exception {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(0);
+            handler.processRow(row(1L, 2L));
+            handler.processRow(row(3L, PendingLikeIndex.MAX_USER_ID + 5));
+            return null;
+        }).when(swipeJdbcDao).streamOutstandingLikes(any());
+
+        assertThat(index.covers(1L, 2L)).isFalse();
+
+        index.load();
+
+        assertThat(index.covers(1L, 2L)).isTrue();
+        assertThat(index.covers(1L, PendingLikeIndex.MAX_USER_ID + 1)).isFalse();
+        assertThat(index.contains(1L, 2L)).isTrue();
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.recordLike(2L, 1L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("onApplicationReady: błąd ładowania zostawia zbiór niezaładowany")
+    void onApplicationReady_loadFailureKeepsFallback() {
+        doThrow(new IllegalStateException("db down")).when(swipeJdbcDao).streamOutstandingLikes(any());
+
+        index.onApplicationReady();
+
+        assertThat(index.covers(1L, 2L)).isFalse();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private static ResultSet row(long swiperId, long swipedUserId) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("swiper_id")).thenReturn(swiperId);
+        when(rs.getLong("swiped_user_id")).thenReturn(swipedUserId);
+        return rs;
+    }
+}
@@ -0,0 +1,78 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.entity.Gender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PopularNearbyIndex unit tests")
+class PopularNearbyIndexTests {
+
+    @Mock private UserJdbcDao userJdbcDao;
+
+    private PopularNearbyIndex popularNearbyIndex;
+
+    @BeforeEach
+    void setUp() {
+        MatchingProperties properties = new MatchingProperties();
+        properties.getFallback().setPopularPerCity(2);
+        popularNearbyIndex = new PopularNearbyIndex(userJdbcDao, properties);
+    }
+
+    @Test
+    @DisplayName("rebuild: listy per miasto i płeć w kolejności z zapytania")
+    void rebuild_groupsByCityAndGender() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("user_id")).thenReturn(5L, 3L, 8L, 9L);
+        when(rs.getString("city")).thenReturn("Krakow", "Krakow", "Krakow", "Warsaw");
+        when(rs.getString("gender")).thenReturn("FEMALE", "FEMALE", "MALE", "FEMALE");
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (int i = 0; i < 4; i++) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(userJdbcDao).streamPopularUsersByCity(eq(2), any(LocalDateTime.class), any());
+
+        popularNearbyIndex.rebuild();
+
+        assertThat(popularNearbyIndex.find("Krakow", Gender.FEMALE)).containsExactly(5L, 3L);
+        assertThat(popularNearbyIndex.find("Krakow", Gender.MALE)).containsExactly(8L);
+        assertThat(popularNearbyIndex.find("Warsaw", Gender.FEMALE)).containsExactly(9L);
+        assertThat(popularNearbyIndex.find("Gdansk", Gender.FEMALE)).isEmpty();
+        assertThat(popularNearbyIndex.size()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("find: brak miasta lub płci - pusta lista")
+    void find_nullKey_empty() {
+        assertThat(popularNearbyIndex.find(null, Gender.FEMALE)).isEmpty();
+        assertThat(popularNearbyIndex.find("Warsaw", null)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("refresh: błąd bazy zostawia poprzednią listę")
+    void refresh_failureKeepsPreviousList() {
+        doThrow(new IllegalStateException("db down"))
+                .when(userJdbcDao).streamPopularUsersByCity(anyInt(), any(), any());
+
+        assertThatCode(() -> popularNearbyIndex.refresh()).doesNotThrowAnyException();
+        assertThat(popularNearbyIndex.size()).isZero();
+    }
+}
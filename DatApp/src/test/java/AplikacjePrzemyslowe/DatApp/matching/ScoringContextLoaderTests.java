@@ -0,0 +1,238 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.mapper.CandidateRowMapper;
+import AplikacjePrzemyslowe.DatApp.dao.mapper.UserRowMapper;
+import AplikacjePrzemyslowe.DatApp.entity.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DataJpaTest
+@Import({UserJdbcDao.class, UserRowMapper.class, CandidateRowMapper.class, ScoringContextLoaderTests.QueryCountingConfig.class})
+@DisplayName("ScoringContextLoader - zbiorcze ładowanie danych do scoringu")
+class ScoringContextLoaderTests {
+
+    /**
+     * Liczba instrukcji SQL przygotowanych na połączeniach z DataSource.
+     */
+    private static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserJdbcDao userJdbcDao;
+
+    private PairScoreCache pairScoreCache;
+    private ScoringContextLoader scoringContextLoader;
+    private Interest travel;
+    private Interest music;
+    private User searcher;
+    private int sequence;
+
+    @BeforeEach
+    void setUp() {
+        // InterestBitsetIndex niezaładowany - zainteresowania czytane z bazy (ścieżka z dwoma zapytaniami)
+        pairScoreCache = new PairScoreCache(new MatchingProperties(), new SimpleMeterRegistry());
+        scoringContextLoader = new ScoringContextLoader(userJdbcDao, new InterestBitsetIndex(userJdbcDao), pairScoreCache);
+
+        travel = entityManager.persist(Interest.builder().name("Travel").category("Lifestyle").build());
+        music = entityManager.persist(Interest.builder().name("Music").category("Art").build());
+        searcher = persistUser(52.2297, 21.0122, "Searcher bio", true, Set.of(travel, music));
+    }
+
+    @Test
+    @DisplayName("Stała liczba zapytań niezależnie od liczby kandydatów")
+    void load_constantQueryCount() {
+        List<Long> candidateIds = new ArrayList<>();
+        List<Integer> statementCounts = new ArrayList<>();
+
+        for (int size : new int[]{1, 10, 50}) {
+            while (candidateIds.size() < size) {
+                candidateIds.add(persistUser(52.0 + candidateIds.size() * 0.01, 21.0, "Bio", true, Set.of(travel)).getId());
+            }
+            entityManager.flush();
+            entityManager.clear();
+
+            STATEMENTS.set(0);
+            ScoringContext context = scoringContextLoader.load(searcher.getId(), List.copyOf(candidateIds));
+            statementCounts.add(STATEMENTS.get());
+
+            assertThat(context.size()).isEqualTo(size);
+        }
+
+        assertThat(statementCounts).containsOnly(2);
+    }
+
+    @Test
+    @DisplayName("Dystans, kompletność profilu i wspólne zainteresowania w kolejności kandydatów")
+    void load_featuresInCandidateOrder() {
+        User nearby = persistUser(52.5297, 21.0122, "Bio", true, Set.of(travel, music));
+        User withoutCoordinates = persistUser(null, null, "  ", false, Set.of(music));
+        User withoutProfile = entityManager.persist(user());
+        entityManager.flush();
+        entityManager.clear();
+
+        ScoringContext context = scoringContextLoader.load(searcher.getId(),
+                List.of(withoutProfile.getId(), nearby.getId(), withoutCoordinates.getId()));
+
+        assertThat(context.searcherLocated()).isTrue();
+
+        assertThat(context.isLocated(0)).isFalse();
+        assertThat(context.distanceKm(0)).isEqualTo(ScoringContextLoader.DEFAULT_DISTANCE_KM);
+        assertThat(context.isProfileComplete(0)).isFalse();
+        assertThat(context.commonInterests(0)).isZero();
+
+        assertThat(context.isLocated(1)).isTrue();
+        assertThat(context.distanceKm(1)).isCloseTo(33.4, within(0.1));
+        assertThat(context.isProfileComplete(1)).isTrue();
+        assertThat(context.commonInterests(1)).isEqualTo(2);
+
+        assertThat(context.isLocated(2)).isFalse();
+        assertThat(context.distanceKm(2)).isEqualTo(ScoringContextLoader.DEFAULT_DISTANCE_KM);
+        assertThat(context.isProfileComplete(2)).isFalse();
+        assertThat(context.commonInterests(2)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Wynik z PairScoreCache pomija liczenie, a zmiana profilu kandydata go unieważnia")
+    void load_pairScoreCacheValidatedByVersions() {
+        User first = persistUser(52.5297, 21.0122, "Bio", true, Set.of(travel));
+        User second = persistUser(52.3297, 21.0122, "Bio", true, Set.of(music));
+        entityManager.flush();
+        entityManager.clear();
+        List<Long> candidateIds = List.of(first.getId(), second.getId());
+
+        ScoringContext computed = scoringContextLoader.load(searcher.getId(), candidateIds);
+        for (int i = 0; i < computed.size(); i++) {
+            pairScoreCache.put(searcher.getId(), candidateIds.get(i), new PairScoreCache.Entry(
+                    40 + i, computed.commonInterests(i), computed.distanceKm(i), computed.stamp(i)));
+        }
+
+        // Te same wersje - wszystko z cache, bez zapytania o zainteresowania
+        STATEMENTS.set(0);
+        ScoringContext cached = scoringContextLoader.load(searcher.getId(), candidateIds);
+        assertThat(STATEMENTS.get()).isEqualTo(1);
+        assertThat(cached.cachedScores()).containsExactly(40, 41);
+        assertThat(cached.commonInterests(0)).isEqualTo(computed.commonInterests(0));
+        assertThat(cached.distanceKm(0)).isEqualTo(computed.distanceKm(0));
+
+        // Zmiana profilu kandydata podbija @Version - tylko jego wynik liczony od nowa
+        Profile profile = entityManager.getEntityManager()
+                .createQuery("SELECT p FROM Profile p WHERE p.user.id = :userId", Profile.class)
+                .setParameter("userId", first.getId())
+                .getSingleResult();
+        profile.setBio("Nowe bio");
+        entityManager.flush();
+        entityManager.clear();
+
+        ScoringContext afterUpdate = scoringContextLoader.load(searcher.getId(), candidateIds);
+        assertThat(afterUpdate.hasCachedScore(0)).isFalse();
+        assertThat(afterUpdate.hasCachedScore(1)).isTrue();
+        assertThat(afterUpdate.stamp(0).candidateProfileVersion())
+                .isEqualTo(computed.stamp(0).candidateProfileVersion() + 1);
+        assertThat(afterUpdate.commonInterests(0)).isEqualTo(1);
+    }
+
+    // ========== HELPERS ==========
+
+    private User user() {
+        sequence++;
+        return User.builder()
+                .username("scoring" + sequence)
+                .email("scoring" + sequence + "@example.com")
+                .password("hashedPassword123")
+                .gender(Gender.FEMALE)
+                .birthDate(LocalDate.of(1996, 6, 20))
+                .city("Warsaw")
+                .isActive(true)
+                .build();
+    }
+
+    private User persistUser(Double latitude, Double longitude, String bio, boolean withPhoto, Set<Interest> interests) {
+        User user = entityManager.persist(user());
+        Profile profile = entityManager.persist(Profile.builder()
+                .user(user)
+                .bio(bio)
+                .latitude(latitude)
+                .longitude(longitude)
+                .interests(new HashSet<>(interests))
+                .build());
+        if (withPhoto) {
+            entityManager.persist(Photo.builder()
+                    .profile(profile)
+                    .photoUrl("https://example.com/" + user.getUsername() + ".jpg")
+                    .isPrimary(true)
+                    .build());
+        }
+        return user;
+    }
+
+    @TestConfiguration
+    static class QueryCountingConfig {
+
+        /**
+         * Opakowuje DataSource tak, żeby liczyć przygotowane instrukcje (JPA i JdbcTemplate).
+         */
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? counting(dataSource) : bean;
+                }
+            };
+        }
+
+        private static DataSource counting(DataSource dataSource) {
+            return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(dataSource, method, args);
+                        return result instanceof Connection connection ? counting(connection) : result;
+                    });
+        }
+
+        private static Connection counting(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("prepareStatement") || method.getName().equals("createStatement")
+                                || method.getName().equals("prepareCall")) {
+                            STATEMENTS.incrementAndGet();
+                        }
+                        return invoke(connection, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.repository.SwipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SwipedUserCache / SwipedUserSet unit tests")
+class SwipedUserCacheTests {
+
+    @Mock private SwipeRepository swipeRepository;
+
+    private MatchingProperties properties;
+    private SwipedUserCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MatchingProperties();
+        cache = new SwipedUserCache(swipeRepository, properties);
+    }
+
+    // ========== SwipedUserSet ==========
+
+    @Test
+    @DisplayName("SwipedUserSet: zgodność z HashSet także po wielu powiększeniach tablicy")
+    void set_matchesHashSet() {
+        Random random = new Random(42);
+        SwipedUserSet set = new SwipedUserSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            long id = random.nextInt(50_000);
+            assertThat(set.add(id)).isEqualTo(expected.add(id));
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (long id = 0; id < 50_000; id++) {
+            assertThat(set.contains(id)).isEqualTo(expected.contains(id));
+        }
+    }
+
+    @Test
+    @DisplayName("SwipedUserSet: kopia jest niezależna od oryginału")
+    void set_copyIsIndependent() {
+        SwipedUserSet set = new SwipedUserSet();
+        set.add(1L);
+        SwipedUserSet copy = set.copy();
+        set.add(2L);
+
+        assertThat(copy.contains(1L)).isTrue();
+        assertThat(copy.contains(2L)).isFalse();
+        assertThat(set.contains(2L)).isTrue();
+    }
+
+    // ========== SwipedUserCache ==========
+
+    @Test
+    @DisplayName("Zbiór ładowany leniwie raz, kolejne odczyty bez zapytań do swipes")
+    void swipedBy_loadsOnce() {
+        when(swipeRepository.findSwipedUserIds(1L)).thenReturn(List.of(3L, 4L));
+
+        LongPredicate swiped = cache.swipedBy(1L);
+        cache.swipedBy(1L);
+
+        assertThat(swiped.test(3L)).isTrue();
+        assertThat(swiped.test(5L)).isFalse();
+        verify(swipeRepository, times(1)).findSwipedUserIds(1L);
+    }
+
+    @Test
+    @DisplayName("recordSwipe aktualizuje zbiór bez przeładowania z bazy")
+    void recordSwipe_updatesLoadedSet() {
+        when(swipeRepository.findSwipedUserIds(1L)).thenReturn(List.of(3L));
+        LongPredicate before = cache.swipedBy(1L);
+
+        cache.recordSwipe(1L, 5L);
+
+        assertThat(before.test(5L)).isFalse();
+        assertThat(cache.swipedBy(1L).test(5L)).isTrue();
+        verify(swipeRepository, times(1)).findSwipedUserIds(1L);
+    }
+
+    @Test
+    @DisplayName("Swipe przed załadowaniem zbioru jest scalany z wynikiem z bazy")
+    void recordSwipe_beforeLoad_merged() {
+        when(swipeRepository.findSwipedUserIds(1L)).thenReturn(List.of(3L));
+
+        cache.recordSwipe(1L, 7L);
+        LongPredicate swiped = cache.swipedBy(1L);
+
+        assertThat(swiped.test(3L)).isTrue();
+        assertThat(swiped.test(7L)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Ponad memory-budget usuwane są najdawniej używane zbiory")
+    void lruEviction_overBudget() {
+        // Pusty zbiór + kopia to kilkaset bajtów - budżet mieści dwa
+        properties.getSwiped().setMemoryBudget(DataSize.ofBytes(1_000));
+        when(swipeRepository.findSwipedUserIds(anyLong())).thenReturn(List.of());
+
+        cache.swipedBy(1L);
+        cache.swipedBy(2L);
+        cache.swipedBy(1L);
+        cache.swipedBy(3L);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.usedBytes()).isLessThanOrEqualTo(1_000);
+
+        // Użytkownik 2 był najdawniej używany - ładowany ponownie
+        cache.swipedBy(2L);
+        verify(swipeRepository, times(2)).findSwipedUserIds(2L);
+        verify(swipeRepository, times(1)).findSwipedUserIds(1L);
+    }
+
+    @Test
+    @DisplayName("Budżet 0 wyłącza cache")
+    void disabled() {
+        properties.getSwiped().setMemoryBudget(DataSize.ofBytes(0));
+
+        cache.recordSwipe(1L, 2L);
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.size()).isZero();
+    }
+}
@@ -0,0 +1,97 @@
+package AplikacjePrzemyslowe.DatApp.matching;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("TopKSelector unit tests")
+class TopKSelectorTests {
+
+    private record Scored(String name, int score) {
+    }
+
+    @Test
+    @DisplayName("drainDescending: K najlepszych malejąco po score")
+    void drainDescending_bestK() {
+        TopKSelector<String> selector = new TopKSelector<>(3);
+        selector.offer(10, "a");
+        selector.offer(50, "b");
+        selector.offer(30, "c");
+        selector.offer(5, "d");
+        selector.offer(40, "e");
+
+        assertThat(selector.offered()).isEqualTo(5);
+        assertThat(selector.drainDescending()).containsExactly("b", "e", "c");
+        assertThat(selector.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Przy równym score zachowuje kolejność wejścia (jak stabilny sort)")
+    void ties_keepInputOrder() {
+        TopKSelector<String> selector = new TopKSelector<>(2);
+        selector.offer(20, "first");
+        selector.offer(20, "second");
+        selector.offer(20, "third");
+
+        assertThat(selector.drainDescending()).containsExactly("first", "second");
+    }
+
+    @Test
+    @DisplayName("Zgodność z pełnym sortowaniem Comparator.comparingInt(...).reversed()")
+    void matchesFullSort() {
+        Random random = new Random(42);
+        List<Scored> input = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            input.add(new Scored("c" + i, random.nextInt(120)));
+        }
+
+        TopKSelector<Scored> selector = new TopKSelector<>(100);
+        input.forEach(scored -> selector.offer(scored.score(), scored));
+
+        List<Scored> expected = input.stream()
+                .sorted(Comparator.comparingInt(Scored::score).reversed())
+                .limit(100)
+                .toList();
+        assertThat(selector.drainDescending()).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    @DisplayName("merge: scalanie fragmentów w kolejności wejścia = jeden selektor")
+    void merge_matchesSingleSelector() {
+        TopKSelector<String> left = new TopKSelector<>(3);
+        left.offer(20, "a");
+        left.offer(10, "b");
+        left.offer(30, "c");
+        TopKSelector<String> right = new TopKSelector<>(3);
+        right.offer(20, "d");
+        right.offer(30, "e");
+
+        left.merge(right);
+
+        assertThat(left.offered()).isEqualTo(5);
+        assertThat(right.size()).isZero();
+        assertThat(left.drainDescending()).containsExactly("c", "e", "a");
+    }
+
+    @Test
+    @DisplayName("K większe niż liczba elementów i K = 0")
+    void edgeSizes() {
+        TopKSelector<String> large = new TopKSelector<>(1_000_000);
+        large.offer(1, "x");
+        large.offer(2, "y");
+        assertThat(large.drainDescending()).containsExactly("y", "x");
+
+        TopKSelector<String> empty = new TopKSelector<>(0);
+        empty.offer(1, "x");
+        assertThat(empty.drainDescending()).isEmpty();
+        assertThat(empty.offered()).isEqualTo(1);
+
+        assertThatThrownBy(() -> new TopKSelector<>(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
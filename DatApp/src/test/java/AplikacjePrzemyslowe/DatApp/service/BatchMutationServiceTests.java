@@ -0,0 +1,246 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.dto.request.BatchMutationRequest;
+import AplikacjePrzemyslowe.DatApp.dto.request.BatchOperationRequest;
+import AplikacjePrzemyslowe.DatApp.dto.request.MessageRequest;
+import AplikacjePrzemyslowe.DatApp.dto.request.SwipeRequest;
+import AplikacjePrzemyslowe.DatApp.dto.response.BatchMutationResponse;
+import AplikacjePrzemyslowe.DatApp.dto.response.BatchOperationResponse;
+import AplikacjePrzemyslowe.DatApp.dto.response.MessageResponse;
+import AplikacjePrzemyslowe.DatApp.dto.response.SwipeResponse;
+import AplikacjePrzemyslowe.DatApp.entity.Match;
+import AplikacjePrzemyslowe.DatApp.entity.Message;
+import AplikacjePrzemyslowe.DatApp.entity.SwipeType;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import AplikacjePrzemyslowe.DatApp.exception.InvalidSwipeException;
+import AplikacjePrzemyslowe.DatApp.repository.MatchRepository;
+import AplikacjePrzemyslowe.DatApp.repository.MessageRepository;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BatchMutationService unit tests")
+class BatchMutationServiceTests {
+
+    private static ValidatorFactory validatorFactory;
+    private static Validator validator;
+
+    @Mock private MatchRepository matchRepository;
+    @Mock private MessageRepository messageRepository;
+    @Mock private UserService userService;
+    @Mock private SwipeService swipeService;
+    @Mock private MessageService messageService;
+
+    private BatchMutationService batchMutationService;
+
+    private User actor;
+    private User partner;
+    private User stranger;
+    private Match match;
+
+    @BeforeAll
+    static void setUpValidator() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @AfterAll
+    static void closeValidator() {
+        validatorFactory.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        batchMutationService = new BatchMutationService(matchRepository, messageRepository,
+                userService, swipeService, messageService, validator);
+
+        actor = User.builder().id(1L).username("u1").email("u1@x.pl").password("password123").isActive(true).build();
+        partner = User.builder().id(2L).username("u2").email("u2@x.pl").password("password123").isActive(true).build();
+        stranger = User.builder().id(3L).username("u3").email("u3@x.pl").password("password123").isActive(true).build();
+        match = Match.builder().id(10L).user1(actor).user2(partner).isActive(true).build();
+
+        when(userService.getUserEntity(1L)).thenReturn(actor);
+    }
+
+    @Test
+    @DisplayName("execute: mixed batch - results in request order, one lookup per entity kind")
+    void execute_mixedBatch() {
+        Message received = Message.builder().id(50L).match(match).sender(partner).receiver(actor).content("hi").build();
+        when(userService.getUserEntities(Set.of(2L))).thenReturn(List.of(partner));
+        when(matchRepository.findAllById(Set.of(10L))).thenReturn(List.of(match));
+        when(messageRepository.findAllById(Set.of(50L))).thenReturn(List.of(received));
+        when(swipeService.recordSwipe(actor, partner, SwipeType.LIKE))
+                .thenReturn(SwipeResponse.builder().swipedUserId(2L).isMatch(false).build());
+        prepareMessagesFromContent();
+        when(messageService.saveMessages(anyList())).thenReturn(List.of(MessageResponse.builder().id(70L).build()));
+
+        BatchMutationResponse response = batchMutationService.execute(1L, batch(
+                swipe("a", 2L, "LIKE"),
+                BatchOperationRequest.builder().type("SWIPE").clientId("b").build(),
+                message("c", 10L, "hej"),
+                markRead("d", 50L)));
+
+        assertThat(response.getResults()).extracting(BatchOperationResponse::getClientId)
+                .containsExactly("a", "b", "c", "d");
+        assertThat(response.getResults()).extracting(BatchOperationResponse::getStatus)
+                .containsExactly(201, 400, 201, 200);
+        assertThat(response.getResults().get(1).getError()).contains("swipe");
+        assertThat(response.getResults().get(2).getMessage().getId()).isEqualTo(70L);
+        assertThat(response.getSucceeded()).isEqualTo(3);
+        assertThat(response.getFailed()).isEqualTo(1);
+        verify(messageService).markAsRead(1L, Set.of(50L));
+        verify(userService, times(1)).getUserEntity(anyLong());
+    }
+
+    @Test
+    @DisplayName("execute: operations run in request order, only consecutive ones of a kind are batched")
+    void execute_runsInRequestOrder() {
+        when(userService.getUserEntities(Set.of(2L))).thenReturn(List.of(partner));
+        when(matchRepository.findAllById(Set.of(10L))).thenReturn(List.of(match));
+        when(swipeService.recordSwipe(actor, partner, SwipeType.LIKE))
+                .thenReturn(SwipeResponse.builder().swipedUserId(2L).isMatch(true).build());
+        prepareMessagesFromContent();
+        when(messageService.saveMessages(anyList())).thenAnswer(invocation -> {
+            List<Message> messages = invocation.getArgument(0);
+            return messages.stream().map(message -> MessageResponse.builder().content(message.getContent()).build()).toList();
+        });
+
+        BatchMutationResponse response = batchMutationService.execute(1L, batch(
+                message("a", 10L, "before"),
+                swipe("b", 2L, "LIKE"),
+                message("c", 10L, "after 1"),
+                message("d", 10L, "after 2")));
+
+        assertThat(response.getResults()).extracting(BatchOperationResponse::getStatus)
+                .containsExactly(201, 201, 201, 201);
+        assertThat(response.getResults().get(3).getMessage().getContent()).isEqualTo("after 2");
+
+        // Matche wczytywane na nowo po swipe'ie, wiadomości po nim zapisane razem
+        InOrder inOrder = inOrder(matchRepository, swipeService, messageService);
+        inOrder.verify(matchRepository).findAllById(Set.of(10L));
+        inOrder.verify(messageService).saveMessages(argThat(messages -> messages.size() == 1));
+        inOrder.verify(swipeService).recordSwipe(actor, partner, SwipeType.LIKE);
+        inOrder.verify(matchRepository).findAllById(Set.of(10L));
+        inOrder.verify(messageService).saveMessages(argThat(messages -> messages.size() == 2));
+    }
+
+    @Test
+    @DisplayName("execute: failed swipe does not affect the following ones")
+    void execute_failedSwipeIsolated() {
+        when(userService.getUserEntities(Set.of(2L, 3L, 99L))).thenReturn(List.of(partner, stranger));
+        when(swipeService.recordSwipe(actor, partner, SwipeType.LIKE))
+                .thenThrow(new InvalidSwipeException(2L, "Ten użytkownik został już oceniony"));
+        when(swipeService.recordSwipe(actor, stranger, SwipeType.DISLIKE))
+                .thenReturn(SwipeResponse.builder().swipedUserId(3L).isMatch(false).build());
+
+        BatchMutationResponse response = batchMutationService.execute(1L, batch(
+                swipe("a", 2L, "LIKE"),
+                swipe("b", 3L, "DISLIKE"),
+                swipe("c", 99L, "LIKE"),
+                swipe("d", 3L, "MAYBE")));
+
+        assertThat(response.getResults()).extracting(BatchOperationResponse::getStatus)
+                .containsExactly(400, 201, 404, 400);
+        assertThat(response.getResults().get(1).getSwipe().getSwipedUserId()).isEqualTo(3L);
+        assertThat(response.getSucceeded()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("execute: failed message batch falls back to one-by-one saves")
+    void execute_messageBatchFallback() {
+        when(matchRepository.findAllById(Set.of(10L, 11L))).thenReturn(List.of(match));
+        prepareMessagesFromContent();
+        when(messageService.saveMessages(anyList())).thenAnswer(invocation -> {
+            List<Message> messages = invocation.getArgument(0);
+            if (messages.size() > 1 || messages.get(0).getContent().equals("broken")) {
+                throw new DataIntegrityViolationException("fk");
+            }
+            return List.of(MessageResponse.builder().content(messages.get(0).getContent()).build());
+        });
+
+        BatchMutationResponse response = batchMutationService.execute(1L, batch(
+                message("a", 10L, "ok"),
+                message("b", 10L, "broken"),
+                message("c", 11L, "no match")));
+
+        assertThat(response.getResults()).extracting(BatchOperationResponse::getStatus)
+                .containsExactly(201, 500, 404);
+        assertThat(response.getResults().get(0).getMessage().getContent()).isEqualTo("ok");
+        assertThat(response.getResults().get(1).getError()).doesNotContain("fk");
+        verify(messageService, times(3)).saveMessages(anyList());
+    }
+
+    @Test
+    @DisplayName("execute: marking someone else's message is rejected without touching the rest")
+    void execute_markReadOwnershipChecked() {
+        Message received = Message.builder().id(50L).match(match).sender(partner).receiver(actor).build();
+        Message sent = Message.builder().id(51L).match(match).sender(actor).receiver(partner).build();
+        when(messageRepository.findAllById(Set.of(50L, 51L))).thenReturn(List.of(received, sent));
+
+        BatchMutationResponse response = batchMutationService.execute(1L, batch(
+                markRead("a", 50L),
+                markRead("b", 51L)));
+
+        assertThat(response.getResults()).extracting(BatchOperationResponse::getStatus)
+                .containsExactly(200, 403);
+        verify(messageService).markAsRead(1L, Set.of(50L));
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private void prepareMessagesFromContent() {
+        when(messageService.prepareMessage(eq(actor), any(Match.class), anyString()))
+                .thenAnswer(invocation -> Message.builder()
+                        .match(invocation.getArgument(1))
+                        .sender(actor)
+                        .receiver(partner)
+                        .content(invocation.getArgument(2))
+                        .build());
+    }
+
+    private static BatchMutationRequest batch(BatchOperationRequest... operations) {
+        return BatchMutationRequest.builder().operations(List.of(operations)).build();
+    }
+
+    private static BatchOperationRequest swipe(String clientId, Long swipedUserId, String swipeType) {
+        return BatchOperationRequest.builder()
+                .type("SWIPE")
+                .clientId(clientId)
+                .swipe(SwipeRequest.builder().swipedUserId(swipedUserId).swipeType(swipeType).build())
+                .build();
+    }
+
+    private static BatchOperationRequest message(String clientId, Long matchId, String content) {
+        return BatchOperationRequest.builder()
+                .type("MESSAGE")
+                .clientId(clientId)
+                .message(MessageRequest.builder().matchId(matchId).content(content).build())
+                .build();
+    }
+
+    private static BatchOperationRequest markRead(String clientId, Long messageId) {
+        return BatchOperationRequest.builder()
+                .type("MARK_READ")
+                .clientId(clientId)
+                .messageId(messageId)
+                .build();
+    }
+}
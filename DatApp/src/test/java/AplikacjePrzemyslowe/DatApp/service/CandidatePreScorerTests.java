@@ -0,0 +1,99 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.CandidateRow;
+import AplikacjePrzemyslowe.DatApp.entity.Gender;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import AplikacjePrzemyslowe.DatApp.matching.InterestBitsetIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CandidatePreScorer unit tests")
+class CandidatePreScorerTests {
+
+    @Mock private InterestBitsetIndex interestBitsetIndex;
+
+    private MatchingProperties properties;
+    private CandidatePreScorer preScorer;
+    private User searcher;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MatchingProperties();
+        properties.getPipeline().setPreScoreLimit(2);
+        preScorer = new CandidatePreScorer(properties, interestBitsetIndex);
+        searcher = User.builder().id(1L).username("u1").birthDate(LocalDate.of(1995, 1, 1)).isActive(true).build();
+    }
+
+    private static CandidateRow candidate(long id) {
+        return new CandidateRow(id, Gender.FEMALE, LocalDate.of(1995, 1, 1), "Warsaw", Double.NaN, Double.NaN, true);
+    }
+
+    private static CandidateRow candidate(long id, LocalDate birthDate) {
+        return new CandidateRow(id, Gender.FEMALE, birthDate, "Warsaw", Double.NaN, Double.NaN, true);
+    }
+
+    @Test
+    @DisplayName("preScore: pula w limicie przechodzi bez odpytywania indeksu")
+    void preScore_withinLimit_passesThrough() {
+        List<CandidateRow> candidates = List.of(candidate(2L), candidate(3L));
+
+        assertThat(preScorer.preScore(searcher, candidates)).isSameAs(candidates);
+        verifyNoInteractions(interestBitsetIndex);
+    }
+
+    @Test
+    @DisplayName("preScore: zostawia najlepszych po wspólnych zainteresowaniach w kolejności z generatora")
+    void preScore_keepsTopInGeneratorOrder() {
+        long[] bits = {0b111L};
+        when(interestBitsetIndex.isReady()).thenReturn(true);
+        when(interestBitsetIndex.bitsOf(1L)).thenReturn(bits);
+        when(interestBitsetIndex.countCommon(bits, 2L)).thenReturn(0);
+        when(interestBitsetIndex.countCommon(bits, 3L)).thenReturn(3);
+        when(interestBitsetIndex.countCommon(bits, 4L)).thenReturn(1);
+        when(interestBitsetIndex.countCommon(bits, 5L)).thenReturn(2);
+
+        List<CandidateRow> survivors = preScorer.preScore(searcher, List.of(candidate(2L), candidate(3L), candidate(4L), candidate(5L)));
+
+        assertThat(survivors).extracting(CandidateRow::userId).containsExactly(3L, 5L);
+    }
+
+    @Test
+    @DisplayName("preScore: bez załadowanego indeksu albo z limitem 0 pula nie jest przycinana")
+    void preScore_indexNotReadyOrDisabled_passesThrough() {
+        List<CandidateRow> candidates = List.of(candidate(2L), candidate(3L), candidate(4L));
+        when(interestBitsetIndex.isReady()).thenReturn(false);
+
+        assertThat(preScorer.preScore(searcher, candidates)).isSameAs(candidates);
+
+        properties.getPipeline().setPreScoreLimit(0);
+        assertThat(preScorer.preScore(searcher, candidates)).isSameAs(candidates);
+        verify(interestBitsetIndex, never()).countCommon(any(), anyLong());
+    }
+
+    @Test
+    @DisplayName("preScore z limitem: bez załadowanego indeksu przycina po różnicy wieku")
+    void preScoreWithLimit_indexNotReady_cutsByAgePenalty() {
+        when(interestBitsetIndex.isReady()).thenReturn(false);
+        List<CandidateRow> candidates = List.of(
+                candidate(2L, LocalDate.of(1975, 1, 1)),
+                candidate(3L, LocalDate.of(1995, 6, 1)),
+                candidate(4L, LocalDate.of(1985, 1, 1)));
+
+        List<CandidateRow> survivors = preScorer.preScore(searcher, candidates, 2);
+
+        assertThat(survivors).extracting(CandidateRow::userId).containsExactly(3L, 4L);
+        verify(interestBitsetIndex, never()).countCommon(any(), anyLong());
+    }
+}
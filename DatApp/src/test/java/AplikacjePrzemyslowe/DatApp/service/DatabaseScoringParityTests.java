@@ -0,0 +1,260 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.CandidateRow;
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.mapper.CandidateRowMapper;
+import AplikacjePrzemyslowe.DatApp.dao.mapper.UserRowMapper;
+import AplikacjePrzemyslowe.DatApp.entity.*;
+import AplikacjePrzemyslowe.DatApp.matching.*;
+import AplikacjePrzemyslowe.DatApp.repository.SwipeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.util.unit.DataSize;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DataJpaTest
+@Import({UserJdbcDao.class, UserRowMapper.class, CandidateRowMapper.class})
+@DisplayName("Scoring w bazie - zgodność z CandidateScorer")
+class DatabaseScoringParityTests {
+
+    private static final double WARSAW_LAT = 52.2297;
+    private static final double WARSAW_LON = 21.0122;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserJdbcDao userJdbcDao;
+
+    @Autowired
+    private SwipeRepository swipeRepository;
+
+    private CandidateGenerator candidateGenerator;
+    private CandidateScorer candidateScorer;
+    private ParallelRanker parallelRanker;
+    private Interest travel;
+    private Interest music;
+    private Interest books;
+    private User searcher;
+    private Preference preference;
+    private int sequence;
+
+    @BeforeEach
+    void setUp() {
+        // Ścieżka JVM bez indeksów w pamięci i bez cache - wszystko czytane z tej samej bazy
+        MatchingProperties properties = new MatchingProperties();
+        properties.getPairCache().setMaxEntries(0);
+        properties.getSwiped().setMemoryBudget(DataSize.ofBytes(0));
+        ScoringContextLoader scoringContextLoader = new ScoringContextLoader(userJdbcDao,
+                new InterestBitsetIndex(userJdbcDao), new PairScoreCache(properties, new SimpleMeterRegistry()));
+        // Writer bez kolejki i bez oczekujących swipe'ów - wykluczają tylko tabele swipes i swipes_archive
+        properties.getSwipeIngestion().setEnabled(false);
+        candidateGenerator = new CandidateGenerator(null, swipeRepository, userJdbcDao,
+                new CandidateIndex(userJdbcDao), new GeoGridIndex(userJdbcDao),
+                new SwipedUserCache(swipeRepository, properties), scoringContextLoader,
+                new PopularNearbyIndex(userJdbcDao, properties),
+                new SwipeWriter(null, properties, new SimpleMeterRegistry()));
+        parallelRanker = new ParallelRanker(properties);
+        candidateScorer = new CandidateScorer(scoringContextLoader, parallelRanker,
+                new PairScoreCache(properties, new SimpleMeterRegistry()));
+
+        // Tabele spoza encji JPA (schema.sql) - zapytania wykluczające czytają też zarchiwizowane swipe'y
+        createSwipeArchiveTables();
+
+        travel = entityManager.persist(Interest.builder().name("Travel").category("Lifestyle").build());
+        music = entityManager.persist(Interest.builder().name("Music").category("Art").build());
+        books = entityManager.persist(Interest.builder().name("Books").category("Art").build());
+
+        LocalDate searcherBirthDate = LocalDate.now().minusYears(31).minusDays(40);
+        searcher = persistUser(Gender.MALE, searcherBirthDate, true,
+                WARSAW_LAT, WARSAW_LON, "Searcher bio", true, Set.of(travel, music, books));
+        preference = Preference.builder()
+                .user(searcher)
+                .preferredGender(Gender.FEMALE)
+                .minAge(25)
+                .maxAge(35)
+                .maxDistanceKm(50)
+                .build();
+
+        // Różne wspólne zainteresowania, dystanse (z dala od granic 10km) i różnice wieku
+        persistUser(Gender.FEMALE, searcherBirthDate.plusYears(3).plusDays(1), true,
+                WARSAW_LAT + 0.1, WARSAW_LON, "Bio", true, Set.of(travel, music, books));
+        persistUser(Gender.FEMALE, searcherBirthDate.plusYears(3).minusDays(1), true,
+                WARSAW_LAT + 0.3, WARSAW_LON, "Bio", true, Set.of(music));
+        persistUser(Gender.FEMALE, searcherBirthDate.minusYears(2), true,
+                WARSAW_LAT - 0.42, WARSAW_LON, "  ", true, Set.of(travel, books));
+        persistUser(Gender.FEMALE, searcherBirthDate.plusYears(5), true,
+                null, null, "Bio", false, Set.of(travel));
+        persistUser(Gender.FEMALE, searcherBirthDate.plusDays(200), true,
+                WARSAW_LAT, WARSAW_LON + 0.2, "Bio", true, Set.of());
+
+        // Odfiltrowani w obu trybach: za daleko, nieaktywny, zła płeć, za młody, już oceniony (także w archiwum)
+        persistUser(Gender.FEMALE, searcherBirthDate.plusYears(2), true,
+                WARSAW_LAT + 0.6, WARSAW_LON, "Bio", true, Set.of(travel));
+        persistUser(Gender.FEMALE, searcherBirthDate.plusYears(2), false,
+                WARSAW_LAT, WARSAW_LON, "Bio", true, Set.of(travel));
+        persistUser(Gender.MALE, searcherBirthDate.plusYears(2), true,
+                WARSAW_LAT, WARSAW_LON, "Bio", true, Set.of(travel));
+        persistUser(Gender.FEMALE, LocalDate.now().minusYears(24), true,
+                WARSAW_LAT, WARSAW_LON, "Bio", true, Set.of(travel));
+        User swiped = persistUser(Gender.FEMALE, searcherBirthDate.plusYears(1), true,
+                WARSAW_LAT, WARSAW_LON, "Bio", true, Set.of(travel));
+        entityManager.persist(Swipe.builder().swiper(searcher).swipedUser(swiped).swipeType(SwipeType.PASS).build());
+        // Zarchiwizowane odrzucenie w oknie drugiej szansy - para zajęta, kandydatka dalej wykluczona
+        User archived = persistUser(Gender.FEMALE, searcherBirthDate.plusYears(1), true,
+                WARSAW_LAT, WARSAW_LON, "Bio", true, Set.of(travel));
+        entityManager.flush();
+        persistArchivedSwipe(searcher, archived, SwipeType.PASS);
+
+        // Odfiltrowani w obu trybach przez wzajemność: szukający poza płcią, wiekiem lub dystansem kandydatki
+        persistPreference(persistUser(Gender.FEMALE, searcherBirthDate.plusYears(1), true,
+                WARSAW_LAT, WARSAW_LON, "Bio", true, Set.of(travel)), Gender.FEMALE, 18, 99, 50);
+        persistPreference(persistUser(Gender.FEMALE, searcherBirthDate.plusYears(1), true,
+                WARSAW_LAT, WARSAW_LON, "Bio", true, Set.of(travel)), Gender.MALE, 18, 30, 50);
+        persistPreference(persistUser(Gender.FEMALE, searcherBirthDate.plusYears(1), true,
+                WARSAW_LAT + 0.1, WARSAW_LON, "Bio", true, Set.of(travel)), Gender.MALE, 18, 99, 5);
+        // Szukający mieści się w preferencjach - kandydatka zostaje (szósta w puli)
+        persistPreference(persistUser(Gender.FEMALE, searcherBirthDate.plusYears(1), true,
+                WARSAW_LAT + 0.1, WARSAW_LON, "Bio", true, Set.of(travel)), Gender.MALE, 25, 35, 20);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        parallelRanker.shutdown();
+    }
+
+    @Test
+    @DisplayName("Ta sama pula, score, wspólne zainteresowania i dystans co w CandidateScorer")
+    void databaseScoring_matchesJvmScorer() {
+        List<CandidateRow> generated = candidateGenerator.generate(searcher, preference);
+        List<ScoredCandidate> jvm = candidateScorer.rank(searcher, generated, 100).drainDescending();
+
+        List<UserJdbcDao.ScoredCandidateRow> database = userJdbcDao.findTopScoredCandidates(searcher.getId(),
+                Gender.FEMALE, 25, 35, 50, ScoringContextLoader.DEFAULT_DISTANCE_KM, List.of(), 100);
+
+        assertThat(generated).hasSize(6);
+        assertThat(database).hasSize(6);
+        assertThat(database).allSatisfy(row -> assertThat(row.totalCandidates()).isEqualTo(6));
+
+        Map<Long, ScoredCandidate> jvmById = jvm.stream()
+                .collect(Collectors.toMap(ScoredCandidate::getCandidateId, scored -> scored));
+        assertThat(database).extracting(UserJdbcDao.ScoredCandidateRow::userId)
+                .containsExactlyInAnyOrderElementsOf(jvmById.keySet());
+        for (UserJdbcDao.ScoredCandidateRow row : database) {
+            ScoredCandidate expected = jvmById.get(row.userId());
+            assertThat(row.score()).as("score kandydata %d", row.userId()).isEqualTo(expected.getScore());
+            assertThat(row.commonInterests()).isEqualTo(expected.getCommonInterests());
+            assertThat(row.distanceKm()).isCloseTo(expected.getDistance(), within(0.01));
+        }
+    }
+
+    @Test
+    @DisplayName("LIMIT zwraca top-K w kolejności score, total liczony przed LIMIT")
+    void databaseScoring_returnsTopK() {
+        List<CandidateRow> generated = candidateGenerator.generate(searcher, preference);
+        List<Integer> jvmTopScores = candidateScorer.rank(searcher, generated, 2).drainDescending().stream()
+                .map(ScoredCandidate::getScore)
+                .toList();
+
+        List<UserJdbcDao.ScoredCandidateRow> database = userJdbcDao.findTopScoredCandidates(searcher.getId(),
+                Gender.FEMALE, 25, 35, 50, ScoringContextLoader.DEFAULT_DISTANCE_KM, List.of(), 2);
+
+        assertThat(database).extracting(UserJdbcDao.ScoredCandidateRow::score).containsExactlyElementsOf(jvmTopScores);
+        assertThat(database.get(0).totalCandidates()).isEqualTo(6);
+    }
+
+    // ========== HELPERS ==========
+
+    private User persistUser(Gender gender, LocalDate birthDate, boolean active, Double latitude, Double longitude,
+                             String bio, boolean withPhoto, Set<Interest> interests) {
+        sequence++;
+        User user = entityManager.persist(User.builder()
+                .username("parity" + sequence)
+                .email("parity" + sequence + "@example.com")
+                .password("hashedPassword123")
+                .gender(gender)
+                .birthDate(birthDate)
+                .city("Warsaw")
+                .isActive(active)
+                .build());
+        Profile profile = entityManager.persist(Profile.builder()
+                .user(user)
+                .bio(bio)
+                .latitude(latitude)
+                .longitude(longitude)
+                .interests(new HashSet<>(interests))
+                .build());
+        if (withPhoto) {
+            entityManager.persist(Photo.builder()
+                    .profile(profile)
+                    .photoUrl("https://example.com/" + user.getUsername() + ".jpg")
+                    .isPrimary(true)
+                    .build());
+        }
+        return user;
+    }
+
+    private void createSwipeArchiveTables() {
+        entityManager.getEntityManager().createNativeQuery("""
+                CREATE TABLE IF NOT EXISTS swipes_archive (
+                    swipe_id BIGINT PRIMARY KEY, swiper_id BIGINT NOT NULL, swiped_user_id BIGINT NOT NULL,
+                    swipe_type VARCHAR(20) NOT NULL, swiped_at TIMESTAMP NOT NULL)
+                """).executeUpdate();
+        entityManager.getEntityManager().createNativeQuery("""
+                CREATE TABLE IF NOT EXISTS swipe_pairs (
+                    swiper_id BIGINT NOT NULL, swiped_user_id BIGINT NOT NULL, swipe_id BIGINT NOT NULL,
+                    swipe_type VARCHAR(20) NOT NULL, PRIMARY KEY (swiper_id, swiped_user_id))
+                """).executeUpdate();
+    }
+
+    private void persistArchivedSwipe(User swiper, User swipedUser, SwipeType swipeType) {
+        long swipeId = 1_000_000L + sequence;
+        entityManager.getEntityManager().createNativeQuery("""
+                INSERT INTO swipes_archive (swipe_id, swiper_id, swiped_user_id, swipe_type, swiped_at)
+                VALUES (?1, ?2, ?3, ?4, CURRENT_TIMESTAMP)
+                """)
+                .setParameter(1, swipeId)
+                .setParameter(2, swiper.getId())
+                .setParameter(3, swipedUser.getId())
+                .setParameter(4, swipeType.name())
+                .executeUpdate();
+        entityManager.getEntityManager().createNativeQuery("""
+                INSERT INTO swipe_pairs (swiper_id, swiped_user_id, swipe_id, swipe_type)
+                VALUES (?1, ?2, ?3, ?4)
+                """)
+                .setParameter(1, swiper.getId())
+                .setParameter(2, swipedUser.getId())
+                .setParameter(3, swipeId)
+                .setParameter(4, swipeType.name())
+                .executeUpdate();
+    }
+
+    private void persistPreference(User user, Gender preferredGender, int minAge, int maxAge, int maxDistanceKm) {
+        entityManager.persist(Preference.builder()
+                .user(user)
+                .preferredGender(preferredGender)
+                .minAge(minAge)
+                .maxAge(maxAge)
+                .maxDistanceKm(maxDistanceKm)
+                .build());
+    }
+}
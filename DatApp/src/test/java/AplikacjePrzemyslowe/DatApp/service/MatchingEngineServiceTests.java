@@ -1,25 +1,45 @@
 package AplikacjePrzemyslowe.DatApp.service;
 
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.CandidateRow;
 import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dto.response.CandidatePageResponse;
 import AplikacjePrzemyslowe.DatApp.dto.response.CandidateResponse;
 import AplikacjePrzemyslowe.DatApp.dto.response.InterestResponse;
 import AplikacjePrzemyslowe.DatApp.dto.response.PhotoResponse;
 import AplikacjePrzemyslowe.DatApp.entity.*;
+import AplikacjePrzemyslowe.DatApp.exception.CursorExpiredException;
 import AplikacjePrzemyslowe.DatApp.exception.ResourceNotFoundException;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateCursor;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateDeckRefillEvent;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateDeckStore;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateIndex;
+import AplikacjePrzemyslowe.DatApp.matching.CandidateSnapshotStore;
+import AplikacjePrzemyslowe.DatApp.matching.GeoGridIndex;
+import AplikacjePrzemyslowe.DatApp.matching.InterestBitsetIndex;
+import AplikacjePrzemyslowe.DatApp.matching.PairScoreCache;
+import AplikacjePrzemyslowe.DatApp.matching.ParallelRanker;
+import AplikacjePrzemyslowe.DatApp.matching.PopularNearbyIndex;
+import AplikacjePrzemyslowe.DatApp.matching.ScoringContext;
+import AplikacjePrzemyslowe.DatApp.matching.ScoringContextLoader;
+import AplikacjePrzemyslowe.DatApp.matching.SwipedUserCache;
+import AplikacjePrzemyslowe.DatApp.matching.TopPicksStore;
 import AplikacjePrzemyslowe.DatApp.repository.SwipeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -38,16 +58,38 @@ class MatchingEngineServiceTest {
     @Mock
     private ProfileService profileService;
     @Mock
-    private InterestService interestService;
-    @Mock
     private SwipeRepository swipeRepository;
     @Mock
     private UserJdbcDao userJdbcDao;
     @Mock
+    private CandidateIndex candidateIndex;
+    @Mock
+    private GeoGridIndex geoGridIndex;
+    @Mock
+    private CandidateDeckStore candidateDeckStore;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Spy
+    private ParallelRanker parallelRanker = new ParallelRanker(new MatchingProperties());
+    @Mock
+    private SwipedUserCache swipedUserCache;
+    @Mock
+    private CandidateSnapshotStore candidateSnapshotStore;
+    @Mock
+    private ScoringContextLoader scoringContextLoader;
+    @Mock
+    private PairScoreCache pairScoreCache;
+    @Mock
+    private PopularNearbyIndex popularNearbyIndex;
+    @Mock
+    private TopPicksStore topPicksStore;
+    @Mock
+    private SwipeWriter swipeWriter;
+    @Mock
     private ModelMapper modelMapper;
 
-    @InjectMocks
     private MatchingEngineService matchingEngineService;
+    private MatchingProperties pipelineProperties;
 
     private User testUser;
     private User testCandidate;
@@ -59,6 +101,20 @@ class MatchingEngineServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Etapy pipeline'u na mockach (pula w testach mieści się w pre-score-limit)
+        CandidateGenerator candidateGenerator = new CandidateGenerator(profileService, swipeRepository, userJdbcDao,
+                candidateIndex, geoGridIndex, swipedUserCache, scoringContextLoader, popularNearbyIndex, swipeWriter);
+        CandidatePreScorer candidatePreScorer = new CandidatePreScorer(new MatchingProperties(),
+                new InterestBitsetIndex(userJdbcDao));
+        CandidateScorer candidateScorer = new CandidateScorer(scoringContextLoader, parallelRanker, pairScoreCache);
+        pipelineProperties = new MatchingProperties();
+        MatchingPipeline matchingPipeline = new MatchingPipeline(pipelineProperties, candidateGenerator,
+                candidatePreScorer, candidateScorer, new DatabaseCandidateScorer(userJdbcDao, swipeWriter),
+                new SimpleMeterRegistry());
+        matchingEngineService = new MatchingEngineService(userService, preferenceService, profileService,
+                candidateGenerator, candidateDeckStore, eventPublisher, candidateSnapshotStore,
+                matchingPipeline, candidateScorer, topPicksStore, modelMapper);
+
         // Test user setup
         testUser = User.builder()
                 .id(1L)
@@ -138,6 +194,35 @@ class MatchingEngineServiceTest {
                 .build();
     }
 
+    /**
+     * ScoringContext dla jednego kandydata ze współrzędnymi.
+     */
+    private static ScoringContext context(int commonInterests, double distanceKm, boolean profileComplete) {
+        return context(new int[]{commonInterests}, new double[]{distanceKm},
+                new boolean[]{true}, new boolean[]{profileComplete});
+    }
+
+    /**
+     * ScoringContext bez wyników w PairScoreCache (wszystkie wersje 0).
+     */
+    private static ScoringContext context(int[] commonInterests, double[] distances, boolean[] located,
+                                          boolean[] profileComplete) {
+        int[] cachedScores = new int[distances.length];
+        Arrays.fill(cachedScores, ScoringContext.NO_SCORE);
+        return new ScoringContext(true, commonInterests, distances, located, profileComplete,
+                0L, 0L, new long[distances.length], cachedScores);
+    }
+
+    /**
+     * Wiersze CandidateRow z encji testowych (współrzędne jak w profilach testowych).
+     */
+    private static List<CandidateRow> rows(List<User> users) {
+        return users.stream()
+                .map(user -> new CandidateRow(user.getId(), user.getGender(), user.getBirthDate(), user.getCity(),
+                        52.2297, 21.0122, Boolean.TRUE.equals(user.getIsActive())))
+                .toList();
+    }
+
 
     // ========== getNextCandidate Tests ==========
 
@@ -147,12 +232,11 @@ class MatchingEngineServiceTest {
         // Arrange
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(1L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
 
         // Mockuj modelMapper dla PhotoResponse i InterestResponse
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
@@ -173,15 +257,237 @@ class MatchingEngineServiceTest {
     }
 
 
+    @Test
+    @DisplayName("Powinno znaleźć kandydata przez indeks w pamięci z pominięciem ocenionych")
+    void testGetNextCandidate_FromIndex() {
+        // Arrange - indeks zwraca samego siebie (1), kandydata (2) i już ocenioną osobę (3)
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
+        when(candidateIndex.isReady()).thenReturn(true);
+        when(candidateIndex.findSlices(eq(Gender.FEMALE), eq(25), eq(35), any(LocalDate.class), any()))
+                .thenReturn(List.of(new CandidateIndex.Slice(new long[]{1L, 2L, 3L}, 0, 3)));
+        when(swipedUserCache.isEnabled()).thenReturn(true);
+        when(swipedUserCache.swipedBy(1L)).thenReturn(candidateId -> candidateId == 3L);
+        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRows(List.of(2L))).thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
+        when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
+        when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
+                .thenReturn(new PhotoResponse());
+        when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
+                .thenReturn(new InterestResponse());
+
+        // Act
+        CandidateResponse result = matchingEngineService.getNextCandidate(1L);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(2L, result.getId());
+        verify(userJdbcDao, never()).findCandidateRowsByPreference(anyLong(), any(), anyInt(), anyInt());
+        verify(swipeRepository, never()).findSwipedUserIds(anyLong());
+    }
+
+    @Test
+    @DisplayName("Powinno zawęzić kandydatów z indeksu do promienia z GeoGridIndex")
+    void testGetNextCandidate_FromIndexWithGeoFilter() {
+        // Arrange - w promieniu jest tylko kandydat 2, kandydat 3 jest za daleko
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
+        when(candidateIndex.isReady()).thenReturn(true);
+        when(geoGridIndex.isReady()).thenReturn(true);
+        when(geoGridIndex.findWithinRadius(52.2297, 21.0122, 50))
+                .thenReturn(new GeoGridIndex.Nearby(Set.of(2L), new long[0]));
+        when(candidateIndex.findSlices(eq(Gender.FEMALE), eq(25), eq(35), any(LocalDate.class), any()))
+                .thenReturn(List.of(new CandidateIndex.Slice(new long[]{2L, 3L}, 0, 2)));
+        when(swipeRepository.findSwipedUserIds(1L)).thenReturn(List.of());
+        when(userJdbcDao.findCandidateRows(List.of(2L))).thenReturn(rows(List.of(testCandidate)));
+        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
+        when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
+        when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
+                .thenReturn(new PhotoResponse());
+        when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
+                .thenReturn(new InterestResponse());
+
+        // Act
+        CandidateResponse result = matchingEngineService.getNextCandidate(1L);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(2L, result.getId());
+        verify(userJdbcDao).findCandidateRows(List.of(2L));
+    }
+
+    @Test
+    @DisplayName("Zimny start powinien zapisać ranking kandydatów do talii")
+    void testGetNextCandidate_ColdStartInstallsDeck() {
+        // Arrange
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(candidateDeckStore.startRefill(1L)).thenReturn(7L);
+        when(candidateDeckStore.capacity()).thenReturn(50);
+        when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
+        when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
+        when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
+                .thenReturn(new PhotoResponse());
+        when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
+                .thenReturn(new InterestResponse());
+
+        // Act
+        CandidateResponse result = matchingEngineService.getNextCandidate(1L);
+
+        // Assert
+        assertNotNull(result);
+        assertFalse(result.isDegraded());
+        verify(candidateDeckStore).install(1L, 7L, new long[]{2L});
+    }
+
+    @Test
+    @DisplayName("Zimny start powinien użyć nocnego rankingu bez liczenia pipeline'u")
+    void testGetNextCandidate_ColdStartFromTopPicks() {
+        // Arrange - zapisany ranking: już oceniona osoba (3) i kandydat (2)
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(candidateDeckStore.peek(1L)).thenReturn(OptionalLong.empty(), OptionalLong.of(2L));
+        when(candidateDeckStore.startRefill(1L)).thenReturn(7L);
+        when(topPicksStore.find(1L)).thenReturn(List.of(3L, 2L));
+        when(swipedUserCache.isEnabled()).thenReturn(true);
+        when(swipedUserCache.swipedBy(1L)).thenReturn(candidateId -> candidateId == 3L);
+        when(candidateDeckStore.install(1L, 7L, new long[]{2L})).thenReturn(true);
+        when(candidateDeckStore.startRefillIfLow(1L)).thenReturn(CandidateDeckStore.NO_TICKET);
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
+        when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
+        when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
+                .thenReturn(new PhotoResponse());
+        when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
+                .thenReturn(new InterestResponse());
+
+        // Act
+        CandidateResponse result = matchingEngineService.getNextCandidate(1L);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(2L, result.getId());
+        verify(preferenceService, never()).getPreferenceEntity(anyLong());
+        verify(userJdbcDao, never()).findCandidateRowsByPreference(anyLong(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Zimny start po budżecie czasu zwraca popularnych w okolicy i liczy talię w tle")
+    void testGetNextCandidate_DegradedColdStartSchedulesRefill() {
+        // Arrange - budżet 1 ns mija przed pre-scoringiem
+        pipelineProperties.getPipeline().setTimeBudget(Duration.ofNanos(1));
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(candidateDeckStore.startRefill(1L)).thenReturn(7L);
+        when(candidateDeckStore.capacity()).thenReturn(50);
+        when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(popularNearbyIndex.find("Warsaw", Gender.FEMALE)).thenReturn(new long[]{2L});
+        when(userJdbcDao.findCandidateRows(List.of(2L))).thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
+        when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
+        when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
+                .thenReturn(new PhotoResponse());
+        when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
+                .thenReturn(new InterestResponse());
+
+        // Act
+        CandidateResponse result = matchingEngineService.getNextCandidate(1L);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(2L, result.getId());
+        assertTrue(result.isDegraded());
+        verify(candidateDeckStore, never()).install(anyLong(), anyLong(), any(long[].class));
+        verify(candidateDeckStore, never()).abortRefill(anyLong(), anyLong());
+        verify(eventPublisher).publishEvent(new CandidateDeckRefillEvent(1L, 7L));
+    }
+
+    @Test
+    @DisplayName("Powinno zwrócić kandydata z talii bez przeliczania pipeline'u")
+    void testGetNextCandidate_FromDeck() {
+        // Arrange - w talii jest kandydat 2, talia poniżej low-water mark
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(candidateDeckStore.peek(1L)).thenReturn(OptionalLong.of(2L));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
+        when(candidateDeckStore.startRefillIfLow(1L)).thenReturn(5L);
+        when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
+        when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
+                .thenReturn(new PhotoResponse());
+        when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
+                .thenReturn(new InterestResponse());
+
+        // Act
+        CandidateResponse result = matchingEngineService.getNextCandidate(1L);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(2L, result.getId());
+        verify(eventPublisher).publishEvent(new CandidateDeckRefillEvent(1L, 5L));
+        verify(preferenceService, never()).getPreferenceEntity(anyLong());
+        verify(userJdbcDao, never()).findCandidateRowsByPreference(anyLong(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Powinno pominąć w talii kandydata, który został zdezaktywowany")
+    void testGetNextCandidate_DeckSkipsInactive() {
+        // Arrange - kandydat 3 nieaktywny, następny w talii jest kandydat 2
+        User inactive = User.builder().id(3L).username("inactive").isActive(false).build();
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(candidateDeckStore.peek(1L)).thenReturn(OptionalLong.of(3L), OptionalLong.of(2L));
+        when(userService.getUserEntity(3L)).thenReturn(inactive);
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
+        when(candidateDeckStore.startRefillIfLow(1L)).thenReturn(CandidateDeckStore.NO_TICKET);
+        when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
+        when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
+                .thenReturn(new PhotoResponse());
+        when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
+                .thenReturn(new InterestResponse());
+
+        // Act
+        CandidateResponse result = matchingEngineService.getNextCandidate(1L);
+
+        // Assert
+        assertEquals(2L, result.getId());
+        verify(candidateDeckStore).remove(1L, 3L);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("refillDeck powinno zainstalować ranking dla podanej generacji")
+    void testRefillDeck() {
+        // Arrange
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
+        when(candidateDeckStore.capacity()).thenReturn(50);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
+
+        // Act
+        matchingEngineService.refillDeck(1L, 9L);
+
+        // Assert
+        verify(candidateDeckStore).install(1L, 9L, new long[]{2L});
+    }
+
     @Test
     @DisplayName("Powinno zwrócić null gdy brak kandydatów")
     void testGetNextCandidate_NoCandidates() {
         // Arrange
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(Collections.emptyList()));
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(Collections.emptyList()));
 
         // Act
         CandidateResponse result = matchingEngineService.getNextCandidate(1L);
@@ -191,6 +497,24 @@ class MatchingEngineServiceTest {
         verify(userService).getUserEntity(1L);
     }
 
+    @Test
+    @DisplayName("Powinno pominąć kandydata ze swipe'em czekającym na zapis (ścieżka bez indeksu)")
+    void testGetNextCandidate_SkipsPendingSwipe() {
+        // Arrange - swipe 1 -> 2 jest w kolejce SwipeWriter, więc query go jeszcze nie wyklucza
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(swipeWriter.findPendingSwipedBy(1L)).thenReturn(Set.of(2L));
+
+        // Act
+        CandidateResponse result = matchingEngineService.getNextCandidate(1L);
+
+        // Assert
+        assertNull(result);
+        verify(scoringContextLoader, never()).load(anyLong(), anyList());
+    }
+
     // ========== getCandidates Tests ==========
 
     @Test
@@ -200,12 +524,11 @@ class MatchingEngineServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntities(List.of(2L))).thenReturn(List.of(testCandidate));
         when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(1L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -218,7 +541,7 @@ class MatchingEngineServiceTest {
         assertNotNull(result);
         assertEquals(1, result.getContent().size());
         assertEquals(2L, result.getContent().getFirst().getId());
-        verify(userJdbcDao).findCandidatesByPreference(anyLong(), any(), anyInt(), anyInt(), any());
+        verify(userJdbcDao).findCandidateRowsByPreference(anyLong(), any(), anyInt(), anyInt());
     }
 
     @Test
@@ -228,9 +551,8 @@ class MatchingEngineServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(Collections.emptyList()));
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(Collections.emptyList()));
 
         // Act
         Page<CandidateResponse> result = matchingEngineService.getCandidates(1L, pageable);
@@ -266,14 +588,14 @@ class MatchingEngineServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate, candidate2)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate, candidate2)));
+        when(scoringContextLoader.load(1L, List.of(2L, 3L))).thenReturn(context(
+                new int[]{3, 1}, new double[]{0.0, 0.0},
+                new boolean[]{true, true}, new boolean[]{true, true}));
+        when(userService.getUserEntities(List.of(2L, 3L))).thenReturn(List.of(testCandidate, candidate2));
         when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
         when(profileService.getProfileEntity(3L)).thenReturn(candidate2Profile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(3L);
-        when(interestService.countCommonInterests(1L, 3L)).thenReturn(1L);
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -289,6 +611,149 @@ class MatchingEngineServiceTest {
                 >= result.getContent().get(1).getCompatibilityScore());
     }
 
+    @Test
+    @DisplayName("Powinno zwrócić drugą stronę z totalElements wszystkich kandydatów")
+    void testGetCandidates_SecondPage() {
+        // Arrange - kandydat 2 ma wyższy score (3 wspólne zainteresowania) niż kandydat 3
+        User candidate2 = User.builder()
+                .id(3L)
+                .username("candidate2")
+                .gender(Gender.FEMALE)
+                .birthDate(LocalDate.of(1996, 6, 20))
+                .city("Warsaw")
+                .isActive(true)
+                .build();
+
+        Profile candidate2Profile = Profile.builder()
+                .id(3L)
+                .user(candidate2)
+                .bio("Candidate2 bio")
+                .latitude(52.2297)
+                .longitude(21.0122)
+                .photos(new HashSet<>(Set.of(testPhoto)))
+                .interests(new HashSet<>(Set.of(testInterest)))
+                .build();
+
+        Pageable pageable = PageRequest.of(1, 1);
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(candidate2, testCandidate)));
+        when(scoringContextLoader.load(1L, List.of(3L, 2L))).thenReturn(context(
+                new int[]{1, 3}, new double[]{0.0, 0.0},
+                new boolean[]{true, true}, new boolean[]{true, true}));
+        when(userService.getUserEntities(List.of(3L))).thenReturn(List.of(candidate2));
+        when(profileService.getProfileEntity(3L)).thenReturn(candidate2Profile);
+        when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
+                .thenReturn(new PhotoResponse());
+        when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
+                .thenReturn(new InterestResponse());
+
+        // Act
+        Page<CandidateResponse> result = matchingEngineService.getCandidates(1L, pageable);
+
+        // Assert
+        assertEquals(2, result.getTotalElements());
+        assertEquals(1, result.getContent().size());
+        assertEquals(3L, result.getContent().getFirst().getId());
+    }
+
+    // ========== getCandidatePage Tests ==========
+
+    @Test
+    @DisplayName("Pierwsza strona tworzy snapshot rankingu")
+    void testGetCandidatePage_FirstPageCreatesSnapshot() {
+        // Arrange
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
+        when(candidateSnapshotStore.maxCandidates()).thenReturn(500);
+        when(candidateSnapshotStore.create(eq(1L), eq(1L), any(), any(), any(), any()))
+                .thenAnswer(invocation -> new CandidateSnapshotStore.Snapshot(42L, 1L, 0L, 1L,
+                        invocation.getArgument(2), invocation.getArgument(3),
+                        invocation.getArgument(4), invocation.getArgument(5)));
+        when(userService.getUserEntities(List.of(2L))).thenReturn(List.of(testCandidate));
+        when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
+                .thenReturn(new PhotoResponse());
+        when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
+                .thenReturn(new InterestResponse());
+
+        // Act
+        CandidatePageResponse result = matchingEngineService.getCandidatePage(1L, null, 20);
+
+        // Assert
+        assertEquals(1, result.getContent().size());
+        assertEquals(2L, result.getContent().get(0).getId());
+        assertEquals(1L, result.getTotalElements());
+        assertFalse(result.getTruncated());
+        assertFalse(result.getHasNext());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Strona z kursorem czytana ze snapshotu bez ponownego rankingu")
+    void testGetCandidatePage_FromCursor() {
+        // Arrange - snapshot z dwoma kandydatami, strona po 1
+        CandidateSnapshotStore.Snapshot snapshot = new CandidateSnapshotStore.Snapshot(42L, 1L, 0L, 2L,
+                new long[]{2L, 3L}, new int[]{80, 60}, new int[]{1, 0}, new double[]{0.0, 12.5});
+        when(candidateSnapshotStore.get(42L, 1L)).thenReturn(snapshot);
+        when(userService.getUserEntities(List.of(2L))).thenReturn(List.of(testCandidate));
+        when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
+        when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
+                .thenReturn(new PhotoResponse());
+        when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
+                .thenReturn(new InterestResponse());
+
+        // Act
+        CandidatePageResponse result = matchingEngineService.getCandidatePage(
+                1L, new CandidateCursor(42L, 0).encode(), 1);
+
+        // Assert
+        assertEquals(1, result.getContent().size());
+        assertEquals(80, result.getContent().get(0).getCompatibilityScore());
+        assertTrue(result.getHasNext());
+        assertEquals(new CandidateCursor(42L, 1), CandidateCursor.decode(result.getNextCursor()));
+        verify(preferenceService, never()).getPreferenceEntity(anyLong());
+        verify(userJdbcDao, never()).findCandidateRowsByPreference(anyLong(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Przycięty snapshot - totalElements to rozmiar snapshotu zgodny z hasNext, truncated = true")
+    void testGetCandidatePage_TruncatedSnapshotReportsCappedTotal() {
+        // Arrange - filtry spełniało 700 kandydatów, snapshot ma 2 (max-candidates)
+        CandidateSnapshotStore.Snapshot snapshot = new CandidateSnapshotStore.Snapshot(42L, 1L, 0L, 700L,
+                new long[]{2L, 3L}, new int[]{80, 60}, new int[]{1, 0}, new double[]{0.0, 12.5});
+        when(candidateSnapshotStore.get(42L, 1L)).thenReturn(snapshot);
+        when(userService.getUserEntities(List.of(3L))).thenReturn(List.of());
+
+        // Act - ostatnia strona snapshotu
+        CandidatePageResponse result = matchingEngineService.getCandidatePage(
+                1L, new CandidateCursor(42L, 1).encode(), 1);
+
+        // Assert
+        assertEquals(2L, result.getTotalElements());
+        assertTrue(result.getTruncated());
+        assertFalse(result.getHasNext());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Wygasły kursor i błędne parametry strony")
+    void testGetCandidatePage_InvalidRequests() {
+        String cursor = new CandidateCursor(42L, 20).encode();
+        when(candidateSnapshotStore.get(42L, 1L)).thenReturn(null);
+
+        assertThrows(CursorExpiredException.class,
+                () -> matchingEngineService.getCandidatePage(1L, cursor, 20));
+        assertThrows(IllegalArgumentException.class,
+                () -> matchingEngineService.getCandidatePage(1L, null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> matchingEngineService.getCandidatePage(1L, "not-a-cursor", 20));
+    }
+
     // ========== Scoring Algorithm Tests ==========
 
     @Test
@@ -297,12 +762,11 @@ class MatchingEngineServiceTest {
         // Arrange - 3 wspólne zainteresowania = +30 punktów
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(3L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(3, 0.0, true));
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -324,7 +788,7 @@ class MatchingEngineServiceTest {
                 .id(2L)
                 .user(testCandidate)
                 .bio("Distant bio")
-                .latitude(52.2297 + 0.5) // ~50km dalej
+                .latitude(52.2297 + 0.3) // ~33km dalej (w zasięgu maxDistanceKm = 50)
                 .longitude(21.0122)
                 .photos(new HashSet<>(Set.of(testPhoto)))
                 .interests(new HashSet<>(Set.of(testInterest)))
@@ -332,12 +796,11 @@ class MatchingEngineServiceTest {
 
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L)).thenReturn(distantProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(1L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 33.4, true));
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -346,9 +809,10 @@ class MatchingEngineServiceTest {
         // Act
         CandidateResponse result = matchingEngineService.getNextCandidate(1L);
 
-        // Assert
+        // Assert - 10 (zainteresowania) - 3 (dystans) + 20 (kompletny profil) - 2 (rok różnicy wieku)
         assertNotNull(result);
-        assertTrue(result.getDistanceKm() > 0);
+        assertEquals(33.4, result.getDistanceKm());
+        assertEquals(25, result.getCompatibilityScore());
     }
 
     @Test
@@ -357,12 +821,11 @@ class MatchingEngineServiceTest {
         // Arrange
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(1L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -402,12 +865,11 @@ class MatchingEngineServiceTest {
 
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(olderCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(olderCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L)).thenReturn(olderProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(1L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -423,6 +885,98 @@ class MatchingEngineServiceTest {
     }
     */
 
+    @Test
+    @DisplayName("Powinno wczytać dane do scoringu całej puli jednym ScoringContext")
+    void testScoring_LoadsContextOncePerPool() {
+        // Arrange - pula z indeksów (2 kandydatów), kandydat 3 ma więcej wspólnych zainteresowań
+        User candidate2 = User.builder()
+                .id(3L)
+                .username("candidate2")
+                .gender(Gender.FEMALE)
+                .birthDate(LocalDate.of(1996, 6, 20))
+                .city("Warsaw")
+                .isActive(true)
+                .build();
+
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
+        when(candidateDeckStore.capacity()).thenReturn(50);
+        when(candidateIndex.isReady()).thenReturn(true);
+        when(geoGridIndex.isReady()).thenReturn(true);
+        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(geoGridIndex.findWithinRadius(52.2297, 21.0122, 50))
+                .thenReturn(new GeoGridIndex.Nearby(Set.of(2L, 3L), new long[0]));
+        when(candidateIndex.findSlices(eq(Gender.FEMALE), eq(25), eq(35), any(LocalDate.class), any()))
+                .thenReturn(List.of(new CandidateIndex.Slice(new long[]{2L, 3L}, 0, 2)));
+        when(swipeRepository.findSwipedUserIds(1L)).thenReturn(List.of());
+        when(userJdbcDao.findCandidateRows(List.of(2L, 3L))).thenReturn(rows(List.of(testCandidate, candidate2)));
+        when(scoringContextLoader.load(1L, List.of(2L, 3L))).thenReturn(context(
+                new int[]{1, 3}, new double[]{12.0, 12.0},
+                new boolean[]{true, true}, new boolean[]{true, true}));
+
+        // Act
+        matchingEngineService.refillDeck(1L, 9L);
+
+        // Assert
+        verify(candidateDeckStore).install(1L, 9L, new long[]{3L, 2L});
+        verify(scoringContextLoader, times(1)).load(anyLong(), anyList());
+        verify(profileService, never()).getProfileEntity(2L);
+        verify(profileService, never()).getProfileEntity(3L);
+    }
+
+    @Test
+    @DisplayName("Powinno użyć aktualnego wyniku z PairScoreCache zamiast liczyć score")
+    void testScoring_UsesCachedPairScore() {
+        // Arrange - wynik pary policzony wcześniej dla tych samych wersji profili i preferencji
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
+        when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(new ScoringContext(true, new int[]{4},
+                new double[]{12.5}, new boolean[]{true}, new boolean[]{true}, 3L, 1L, new long[]{5L}, new int[]{77}));
+        when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
+                .thenReturn(new PhotoResponse());
+        when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
+                .thenReturn(new InterestResponse());
+
+        // Act
+        CandidateResponse result = matchingEngineService.getNextCandidate(1L);
+
+        // Assert
+        assertEquals(77, result.getCompatibilityScore());
+        assertEquals(4, result.getCommonInterestsCount());
+        assertEquals(12.5, result.getDistanceKm());
+        verify(pairScoreCache, never()).put(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Powinno zapisać policzony score w PairScoreCache z wersjami z ScoringContext")
+    void testScoring_StoresComputedScoreWithStamp() {
+        // Arrange
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
+        when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(new ScoringContext(true, new int[]{1},
+                new double[]{0.0}, new boolean[]{true}, new boolean[]{true}, 3L, 1L, new long[]{5L},
+                new int[]{ScoringContext.NO_SCORE}));
+        when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
+                .thenReturn(new PhotoResponse());
+        when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
+                .thenReturn(new InterestResponse());
+
+        // Act
+        CandidateResponse result = matchingEngineService.getNextCandidate(1L);
+
+        // Assert
+        verify(pairScoreCache).put(1L, 2L, new PairScoreCache.Entry(result.getCompatibilityScore(), 1, 0.0,
+                new PairScoreCache.Stamp(3L, 1L, 5L)));
+    }
+
     // ========== Distance Calculation Tests ==========
 
     @Test
@@ -431,12 +985,11 @@ class MatchingEngineServiceTest {
         // Arrange - ta sama lokalizacja = 0km
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(0L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(0, 0.0, true));
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -466,12 +1019,12 @@ class MatchingEngineServiceTest {
 
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L)).thenReturn(noCoordinatesProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(1L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(new int[]{1},
+                new double[]{ScoringContextLoader.DEFAULT_DISTANCE_KM}, new boolean[]{false}, new boolean[]{true}));
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -493,12 +1046,11 @@ class MatchingEngineServiceTest {
         // Arrange
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(1L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -528,12 +1080,11 @@ class MatchingEngineServiceTest {
 
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L)).thenReturn(incompleteProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(1L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, false));
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -564,12 +1115,11 @@ class MatchingEngineServiceTest {
 
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L)).thenReturn(noPhotosProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(1L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, false));
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -601,12 +1151,11 @@ class MatchingEngineServiceTest {
 
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate, tooYoung)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate, tooYoung)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(1L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -635,12 +1184,11 @@ class MatchingEngineServiceTest {
 
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate, inactiveCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate, inactiveCandidate)));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L)).thenReturn(candidateProfile);
-        when(interestService.countCommonInterests(1L, 2L)).thenReturn(1L);
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class)))
                 .thenReturn(new PhotoResponse());
         when(modelMapper.map(any(Interest.class), eq(InterestResponse.class)))
@@ -654,6 +1202,25 @@ class MatchingEngineServiceTest {
         assertEquals(2L, result.getId()); // Powinna być zwrócona tylko testCandidate
     }
 
+    @Test
+    @DisplayName("Powinno odrzucić kandydatów spoza maxDistanceKm")
+    void testFindEligibleCandidates_MaxDistanceFilter() {
+        // Arrange - kandydat ~55km dalej, maxDistanceKm = 50
+        when(userService.getUserEntity(1L)).thenReturn(testUser);
+        when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 55.6, true));
+
+        // Act
+        CandidateResponse result = matchingEngineService.getNextCandidate(1L);
+
+        // Assert - odfiltrowany przed scoringiem, bez ładowania profilu
+        assertNull(result);
+        verify(scoringContextLoader, times(1)).load(anyLong(), anyList());
+        verify(profileService, never()).getProfileEntity(anyLong());
+    }
+
     // ========== Exception Handling Tests ==========
 
     @Test
@@ -662,10 +1229,10 @@ class MatchingEngineServiceTest {
         // Arrange
         when(userService.getUserEntity(1L)).thenReturn(testUser);
         when(preferenceService.getPreferenceEntity(1L)).thenReturn(testPreference);
-        when(userJdbcDao.findCandidatesByPreference(
-                1L, Gender.FEMALE, 25, 35, Pageable.unpaged()
-        )).thenReturn(new PageImpl<>(List.of(testCandidate)));
-        when(profileService.getProfileEntity(1L)).thenReturn(testProfile);
+        when(userJdbcDao.findCandidateRowsByPreference(1L, Gender.FEMALE, 25, 35))
+                .thenReturn(rows(List.of(testCandidate)));
+        when(scoringContextLoader.load(1L, List.of(2L))).thenReturn(context(1, 0.0, true));
+        when(userService.getUserEntity(2L)).thenReturn(testCandidate);
         when(profileService.getProfileEntity(2L))
                 .thenThrow(new ResourceNotFoundException("Profile not found"));
 
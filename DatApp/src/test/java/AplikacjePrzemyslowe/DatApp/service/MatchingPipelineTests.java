@@ -0,0 +1,230 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.CandidateRow;
+import AplikacjePrzemyslowe.DatApp.entity.Gender;
+import AplikacjePrzemyslowe.DatApp.entity.Preference;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import AplikacjePrzemyslowe.DatApp.matching.Deadline;
+import AplikacjePrzemyslowe.DatApp.matching.TopKSelector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MatchingPipeline unit tests")
+class MatchingPipelineTests {
+
+    @Mock private CandidateGenerator candidateGenerator;
+    @Mock private CandidatePreScorer candidatePreScorer;
+    @Mock private CandidateScorer candidateScorer;
+    @Mock private DatabaseCandidateScorer databaseCandidateScorer;
+
+    private MatchingProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private MatchingPipeline pipeline;
+    private User searcher;
+    private Preference preference;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MatchingProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = new MatchingPipeline(properties, candidateGenerator, candidatePreScorer, candidateScorer,
+                databaseCandidateScorer, meterRegistry);
+        searcher = User.builder().id(1L).username("u1").build();
+        preference = Preference.builder().id(1L).user(searcher).build();
+    }
+
+    private static CandidateRow candidate(long id) {
+        return new CandidateRow(id, Gender.FEMALE, null, "Warsaw", Double.NaN, Double.NaN, true);
+    }
+
+    private static Deadline expired() {
+        Deadline deadline = Deadline.after(Duration.ofNanos(1));
+        while (!deadline.isExpired()) {
+            Thread.onSpinWait();
+        }
+        return deadline;
+    }
+
+    private double degraded(String reason) {
+        return meterRegistry.get("matching.pipeline.degraded").tag("reason", reason).counter().count();
+    }
+
+    private double candidates(String stage) {
+        return meterRegistry.get("matching.pipeline.candidates").tag("stage", stage).summary().totalAmount();
+    }
+
+    @Test
+    @DisplayName("rank: etapy w kolejności, totalCandidates z generatora, liczniki per etap")
+    void rank_runsStagesAndRecordsMetrics() {
+        List<CandidateRow> generated = List.of(candidate(2L), candidate(3L), candidate(4L));
+        List<CandidateRow> survivors = List.of(candidate(2L), candidate(4L));
+        TopKSelector<ScoredCandidate> selector = new TopKSelector<>(1);
+        selector.offer(50, new ScoredCandidate(2L, 50, 2, 3.0));
+        selector.offer(40, new ScoredCandidate(4L, 40, 1, 8.0));
+        when(candidateGenerator.generate(searcher, preference)).thenReturn(generated);
+        when(candidatePreScorer.preScore(searcher, generated)).thenReturn(survivors);
+        when(candidateScorer.rank(searcher, survivors, 1, Deadline.NONE)).thenReturn(selector);
+
+        MatchingPipeline.Ranking ranking = pipeline.rank(searcher, preference, 1);
+
+        assertThat(ranking.totalCandidates()).isEqualTo(3);
+        assertThat(ranking.degraded()).isFalse();
+        assertThat(ranking.ranked()).extracting(ScoredCandidate::getScore).containsExactly(50);
+        InOrder order = inOrder(candidateGenerator, candidatePreScorer, candidateScorer);
+        order.verify(candidateGenerator).generate(searcher, preference);
+        order.verify(candidatePreScorer).preScore(searcher, generated);
+        order.verify(candidateScorer).rank(searcher, survivors, 1, Deadline.NONE);
+
+        assertThat(candidates(MatchingPipeline.GENERATE)).isEqualTo(3);
+        assertThat(candidates(MatchingPipeline.PRE_SCORE)).isEqualTo(2);
+        assertThat(candidates(MatchingPipeline.SCORE)).isEqualTo(1);
+        assertThat(meterRegistry.get("matching.pipeline.stage").tag("stage", MatchingPipeline.SCORE).timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("rank: pusty generator pomija pre-scoring i scoring")
+    void rank_noCandidates_skipsLaterStages() {
+        when(candidateGenerator.generate(searcher, preference)).thenReturn(List.of());
+
+        MatchingPipeline.Ranking ranking = pipeline.rank(searcher, preference, 10);
+
+        assertThat(ranking.isEmpty()).isTrue();
+        assertThat(ranking.totalCandidates()).isZero();
+        verifyNoInteractions(candidatePreScorer, candidateScorer, databaseCandidateScorer);
+        assertThat(meterRegistry.get("matching.pipeline.stage").tag("stage", MatchingPipeline.PRE_SCORE).timer().count())
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("rank: tryb DATABASE zastępuje etapy JVM scoringiem w bazie")
+    void rank_databaseMode_delegatesToDatabaseScorer() {
+        properties.getScoring().setMode(MatchingProperties.Scoring.Mode.DATABASE);
+        MatchingPipeline.Ranking fromDatabase = new MatchingPipeline.Ranking(7,
+                List.of(new ScoredCandidate(2L, 60, 3, 4.0)));
+        when(databaseCandidateScorer.rank(searcher, preference, 5)).thenReturn(fromDatabase);
+
+        MatchingPipeline.Ranking ranking = pipeline.rank(searcher, preference, 5);
+
+        assertThat(ranking).isSameAs(fromDatabase);
+        verifyNoInteractions(candidateGenerator, candidatePreScorer, candidateScorer);
+        assertThat(candidates(MatchingPipeline.DATABASE)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("rank: termin minął w trakcie scoringu - najlepsi spośród policzonych, degraded")
+    void rank_deadlineDuringScoring_returnsPartialRanking() {
+        List<CandidateRow> generated = List.of(candidate(2L), candidate(3L));
+        Deadline deadline = Deadline.after(Duration.ofMillis(200));
+        TopKSelector<ScoredCandidate> partial = new TopKSelector<>(5);
+        partial.offer(30, new ScoredCandidate(2L, 30, 1, 5.0));
+        when(candidateGenerator.generate(searcher, preference)).thenReturn(generated);
+        when(candidatePreScorer.preScore(searcher, generated)).thenReturn(generated);
+        when(candidateScorer.rank(searcher, generated, 5, deadline)).thenAnswer(invocation -> {
+            // Scoring przerwany po terminie - policzony tylko pierwszy kandydat
+            while (!deadline.isExpired()) {
+                Thread.onSpinWait();
+            }
+            return partial;
+        });
+
+        MatchingPipeline.Ranking ranking = pipeline.rank(searcher, preference, 5, deadline);
+
+        assertThat(ranking.degraded()).isTrue();
+        assertThat(ranking.totalCandidates()).isEqualTo(2);
+        assertThat(ranking.ranked()).extracting(ScoredCandidate::getCandidateId).containsExactly(2L);
+        verify(candidateGenerator, never()).popularNearby(any(), any(), anyInt());
+        assertThat(degraded(MatchingPipeline.PARTIAL)).isEqualTo(1);
+        assertThat(degraded(MatchingPipeline.FALLBACK)).isZero();
+    }
+
+    @Test
+    @DisplayName("rank: termin minął przed scoringiem - popularni w okolicy, degraded")
+    void rank_deadlineBeforeScoring_fallsBackToPopularNearby() {
+        List<CandidateRow> generated = List.of(candidate(2L), candidate(3L), candidate(4L));
+        List<CandidateRow> popular = List.of(candidate(7L), candidate(8L));
+        TopKSelector<ScoredCandidate> selector = new TopKSelector<>(5);
+        selector.offer(10, new ScoredCandidate(7L, 10, 0, 2.0));
+        selector.offer(20, new ScoredCandidate(8L, 20, 1, 1.0));
+        when(candidateGenerator.generate(searcher, preference)).thenReturn(generated);
+        when(candidateGenerator.popularNearby(searcher, preference, 5)).thenReturn(popular);
+        when(candidateScorer.rank(searcher, popular, 5)).thenReturn(selector);
+
+        MatchingPipeline.Ranking ranking = pipeline.rank(searcher, preference, 5, expired());
+
+        assertThat(ranking.degraded()).isTrue();
+        assertThat(ranking.totalCandidates()).isEqualTo(3);
+        assertThat(ranking.ranked()).extracting(ScoredCandidate::getCandidateId).containsExactly(8L, 7L);
+        verifyNoInteractions(candidatePreScorer);
+        assertThat(degraded(MatchingPipeline.FALLBACK)).isEqualTo(1);
+        assertThat(degraded(MatchingPipeline.PARTIAL)).isZero();
+    }
+
+    @Test
+    @DisplayName("rank: z budżetem czasu pełny scoring dostaje budget-score-limit najlepszych wg pre-score, wynik częściowy")
+    void rank_boundedDeadline_capsScoredCandidates() {
+        properties.getPipeline().setBudgetScoreLimit(2);
+        List<CandidateRow> generated = List.of(candidate(2L), candidate(3L), candidate(4L));
+        List<CandidateRow> capped = List.of(candidate(3L), candidate(4L));
+        Deadline deadline = Deadline.after(Duration.ofHours(1));
+        TopKSelector<ScoredCandidate> selector = new TopKSelector<>(5);
+        selector.offer(30, new ScoredCandidate(4L, 30, 1, 5.0));
+        when(candidateGenerator.generate(searcher, preference)).thenReturn(generated);
+        when(candidatePreScorer.preScore(searcher, generated)).thenReturn(generated);
+        when(candidatePreScorer.preScore(searcher, generated, 2)).thenReturn(capped);
+        when(candidateScorer.rank(searcher, capped, 5, deadline)).thenReturn(selector);
+
+        MatchingPipeline.Ranking ranking = pipeline.rank(searcher, preference, 5, deadline);
+
+        assertThat(ranking.degraded()).isTrue();
+        assertThat(ranking.totalCandidates()).isEqualTo(3);
+        assertThat(ranking.ranked()).extracting(ScoredCandidate::getCandidateId).containsExactly(4L);
+        verify(candidateGenerator, never()).popularNearby(any(), any(), anyInt());
+        assertThat(degraded(MatchingPipeline.PARTIAL)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("rank: bez budżetu czasu budget-score-limit nie przycina puli")
+    void rank_unbounded_doesNotCapScoredCandidates() {
+        properties.getPipeline().setBudgetScoreLimit(1);
+        List<CandidateRow> generated = List.of(candidate(2L), candidate(3L));
+        when(candidateGenerator.generate(searcher, preference)).thenReturn(generated);
+        when(candidatePreScorer.preScore(searcher, generated)).thenReturn(generated);
+        when(candidateScorer.rank(searcher, generated, 5, Deadline.NONE)).thenReturn(new TopKSelector<>(5));
+
+        pipeline.rank(searcher, preference, 5);
+
+        verify(candidateScorer).rank(searcher, generated, 5, Deadline.NONE);
+    }
+
+    @Test
+    @DisplayName("rankWithinBudget: zerowy budżet wyłącza limit czasu")
+    void rankWithinBudget_zeroBudget_isUnbounded() {
+        properties.getPipeline().setTimeBudget(Duration.ZERO);
+        List<CandidateRow> generated = List.of(candidate(2L));
+        TopKSelector<ScoredCandidate> selector = new TopKSelector<>(1);
+        selector.offer(50, new ScoredCandidate(2L, 50, 2, 3.0));
+        when(candidateGenerator.generate(searcher, preference)).thenReturn(generated);
+        when(candidatePreScorer.preScore(searcher, generated)).thenReturn(generated);
+        when(candidateScorer.rank(searcher, generated, 1, Deadline.NONE)).thenReturn(selector);
+
+        MatchingPipeline.Ranking ranking = pipeline.rankWithinBudget(searcher, preference, 1);
+
+        assertThat(ranking.degraded()).isFalse();
+        assertThat(ranking.ranked()).hasSize(1);
+    }
+}
@@ -1,5 +1,6 @@
 package AplikacjePrzemyslowe.DatApp.service;
 
+import AplikacjePrzemyslowe.DatApp.dao.MessageJdbcDao;
 import AplikacjePrzemyslowe.DatApp.dto.request.MessageRequest;
 import AplikacjePrzemyslowe.DatApp.dto.response.MessageResponse;
 import AplikacjePrzemyslowe.DatApp.entity.Match;
@@ -36,6 +37,7 @@ class MessageServiceTests {
     @Mock private MessageRepository messageRepository;
     @Mock private MatchRepository matchRepository;
     @Mock private UserRepository userRepository;
+    @Mock private MessageJdbcDao messageJdbcDao;
     @Mock private ModelMapper modelMapper;
 
     @InjectMocks private MessageService messageService;
@@ -170,5 +172,49 @@ class MessageServiceTests {
 
         verify(messageRepository).deleteAll(anyList());
     }
-}
 
+    @Test
+    @DisplayName("prepareMessage: receiver is the other user of the match, nothing saved")
+    void prepareMessage_setsReceiver() {
+        Message message = messageService.prepareMessage(u2, match, "hej");
+
+        assertThat(message.getSender()).isSameAs(u2);
+        assertThat(message.getReceiver()).isSameAs(u1);
+        assertThat(message.getIsRead()).isFalse();
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    @DisplayName("saveMessages: saves the batch with one multi-row insert and assigns generated ids")
+    void saveMessages_insertsBatch() {
+        Message first = messageService.prepareMessage(u1, match, "a");
+        Message second = messageService.prepareMessage(u1, match, "b");
+        when(messageJdbcDao.insertMessages(List.of(
+                new MessageJdbcDao.MessageRow(10L, 1L, 2L, "a", first.getSentAt()),
+                new MessageJdbcDao.MessageRow(10L, 1L, 2L, "b", second.getSentAt()))))
+                .thenReturn(List.of(70L, 71L));
+        when(modelMapper.map(any(Message.class), eq(MessageResponse.class)))
+                .thenAnswer(invocation -> {
+                    Message message = invocation.getArgument(0);
+                    return MessageResponse.builder().id(message.getId()).content(message.getContent()).build();
+                });
+
+        List<MessageResponse> responses = messageService.saveMessages(List.of(first, second));
+
+        assertThat(responses).extracting(MessageResponse::getId).containsExactly(70L, 71L);
+        assertThat(responses).extracting(MessageResponse::getContent).containsExactly("a", "b");
+        assertThat(second.getId()).isEqualTo(71L);
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    @DisplayName("markAsRead (batch): one bulk update restricted to the receiver")
+    void markAsRead_batch() {
+        when(messageJdbcDao.markMessagesAsRead(List.of(5L, 6L), 2L)).thenReturn(2);
+
+        int marked = messageService.markAsRead(2L, List.of(5L, 6L));
+
+        assertThat(marked).isEqualTo(2);
+        verifyNoInteractions(messageRepository);
+    }
+}
@@ -6,6 +6,7 @@ import AplikacjePrzemyslowe.DatApp.entity.Gender;
 import AplikacjePrzemyslowe.DatApp.entity.Preference;
 import AplikacjePrzemyslowe.DatApp.entity.User;
 import AplikacjePrzemyslowe.DatApp.exception.ResourceNotFoundException;
+import AplikacjePrzemyslowe.DatApp.matching.MatchingChangeEvent;
 import AplikacjePrzemyslowe.DatApp.repository.PreferenceRepository;
 import AplikacjePrzemyslowe.DatApp.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,6 +17,7 @@ import org.modelmapper.ModelMapper;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Optional;
 
@@ -29,6 +31,7 @@ class PreferenceServiceTests {
 
     @Mock private PreferenceRepository preferenceRepository;
     @Mock private UserRepository userRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
     @Mock private ModelMapper modelMapper;
 
     @InjectMocks private PreferenceService preferenceService;
@@ -104,6 +107,7 @@ class PreferenceServiceTests {
                         && p.getMaxAge() == 30
                         && p.getMaxDistanceKm() == 25
         ));
+        verify(eventPublisher).publishEvent(new MatchingChangeEvent.PreferencesChanged(1L));
     }
 
     @Test
@@ -119,6 +123,7 @@ class PreferenceServiceTests {
 
         assertThat(resp.getMaxDistance()).isEqualTo(50);
         verify(preferenceRepository).save(argThat(p -> p.getPreferredGender() == Gender.OTHER && p.getMinAge() == 18 && p.getMaxAge() == 99 && p.getMaxDistanceKm() == 50));
+        verify(eventPublisher).publishEvent(new MatchingChangeEvent.PreferencesChanged(1L));
     }
 
     @Test
@@ -7,6 +7,7 @@ import AplikacjePrzemyslowe.DatApp.dto.response.ProfileResponse;
 import AplikacjePrzemyslowe.DatApp.entity.*;
 import AplikacjePrzemyslowe.DatApp.exception.ResourceNotFoundException;
 import AplikacjePrzemyslowe.DatApp.exception.ValidationException;
+import AplikacjePrzemyslowe.DatApp.matching.MatchingChangeEvent;
 import AplikacjePrzemyslowe.DatApp.repository.InterestRepository;
 import AplikacjePrzemyslowe.DatApp.repository.PhotoRepository;
 import AplikacjePrzemyslowe.DatApp.repository.ProfileRepository;
@@ -18,6 +19,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -39,6 +41,8 @@ class ProfileServiceTests {
     @Mock
     private UserService userService;
     @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
     private ModelMapper modelMapper;
 
     @InjectMocks
@@ -218,6 +222,8 @@ class ProfileServiceTests {
         assertNotNull(result);
         verify(profileRepository).save(any(Profile.class));
         verify(interestRepository, never()).findById(anyLong());
+        verify(eventPublisher).publishEvent(new MatchingChangeEvent.ProfileMoved(1L));
+        verify(eventPublisher).publishEvent(any(MatchingChangeEvent.InterestsChanged.class));
     }
 
     // ========== UPDATE OPERATIONS ==========
@@ -239,6 +245,32 @@ class ProfileServiceTests {
         // Assert
         assertNotNull(result);
         verify(profileRepository).save(any(Profile.class));
+        verify(eventPublisher).publishEvent(new MatchingChangeEvent.InterestsChanged(1L, List.of(1L)));
+        // Współrzędne bez zmian - indeksy przestrzenne nie są odświeżane
+        verify(eventPublisher, never()).publishEvent(any(MatchingChangeEvent.ProfileMoved.class));
+    }
+
+    @Test
+    @DisplayName("Powinno opublikować zmianę lokalizacji po zmianie współrzędnych")
+    void testUpdateProfile_LocationChangedPublishesProfileMoved() {
+        // Arrange
+        UpdateProfileRequest moveRequest = UpdateProfileRequest.builder()
+                .latitude(50.0647)
+                .longitude(19.9450)
+                .build();
+
+        when(profileRepository.findByUserId(1L)).thenReturn(Optional.of(testProfile));
+        when(profileRepository.save(any(Profile.class))).thenReturn(testProfile);
+        when(modelMapper.map(testProfile, ProfileResponse.class)).thenReturn(new ProfileResponse());
+        lenient().when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class))).thenReturn(new PhotoResponse());
+        lenient().when(modelMapper.map(any(Interest.class), eq(InterestResponse.class))).thenReturn(new InterestResponse());
+
+        // Act
+        profileService.updateProfile(1L, moveRequest);
+
+        // Assert
+        verify(eventPublisher).publishEvent(new MatchingChangeEvent.ProfileMoved(1L));
+        verify(eventPublisher, never()).publishEvent(any(MatchingChangeEvent.InterestsChanged.class));
     }
 
     @Test
@@ -279,7 +311,7 @@ class ProfileServiceTests {
     @DisplayName("Powinno dodać zdjęcie do profilu")
     void testAddPhoto_Success() {
         // Arrange
-        when(profileRepository.findByUserId(1L)).thenReturn(Optional.of(testProfile));
+        when(profileRepository.findForVersionIncrementByUserId(1L)).thenReturn(Optional.of(testProfile));
         when(photoRepository.save(any(Photo.class))).thenReturn(testPhoto);
         when(modelMapper.map(testPhoto, PhotoResponse.class)).thenReturn(new PhotoResponse());
 
@@ -289,6 +321,7 @@ class ProfileServiceTests {
         // Assert
         assertNotNull(result);
         verify(photoRepository).save(any(Photo.class));
+        verify(profileRepository, never()).findByUserId(any());
     }
 
     @Test
@@ -303,7 +336,7 @@ class ProfileServiceTests {
                 .build();
         testProfile.getPhotos().add(otherPhoto);
 
-        when(profileRepository.findByUserId(1L)).thenReturn(Optional.of(testProfile));
+        when(profileRepository.findForVersionIncrementByUserId(1L)).thenReturn(Optional.of(testProfile));
         when(photoRepository.save(any(Photo.class))).thenReturn(testPhoto);
         when(modelMapper.map(any(Photo.class), eq(PhotoResponse.class))).thenReturn(new PhotoResponse());
 
@@ -319,7 +352,7 @@ class ProfileServiceTests {
     @DisplayName("Powinno dodać zdjęcie z domyślnymi wartościami")
     void testAddPhoto_WithDefaults() {
         // Arrange
-        when(profileRepository.findByUserId(1L)).thenReturn(Optional.of(testProfile));
+        when(profileRepository.findForVersionIncrementByUserId(1L)).thenReturn(Optional.of(testProfile));
         when(photoRepository.save(any(Photo.class))).thenReturn(testPhoto);
         when(modelMapper.map(testPhoto, PhotoResponse.class)).thenReturn(new PhotoResponse());
 
@@ -335,6 +368,7 @@ class ProfileServiceTests {
     @DisplayName("Powinno usunąć zdjęcie z profilu")
     void testRemovePhoto_Success() {
         // Arrange
+        when(profileRepository.findForVersionIncrementByUserId(1L)).thenReturn(Optional.of(testProfile));
         when(photoRepository.findById(1L)).thenReturn(Optional.of(testPhoto));
 
         // Act
@@ -342,6 +376,7 @@ class ProfileServiceTests {
 
         // Assert
         verify(photoRepository).delete(testPhoto);
+        verify(profileRepository).findForVersionIncrementByUserId(1L);
     }
 
     @Test
@@ -352,6 +387,7 @@ class ProfileServiceTests {
         Profile otherProfile = Profile.builder().id(2L).user(otherUser).build();
         Photo otherPhoto = Photo.builder().id(1L).profile(otherProfile).build();
 
+        when(profileRepository.findForVersionIncrementByUserId(1L)).thenReturn(Optional.of(testProfile));
         when(photoRepository.findById(1L)).thenReturn(Optional.of(otherPhoto));
 
         // Act & Assert
@@ -362,6 +398,7 @@ class ProfileServiceTests {
     @DisplayName("Powinno rzucić wyjątek gdy zdjęcie nie istnieje")
     void testRemovePhoto_NotFound() {
         // Arrange
+        when(profileRepository.findForVersionIncrementByUserId(1L)).thenReturn(Optional.of(testProfile));
         when(photoRepository.findById(1L)).thenReturn(Optional.empty());
 
         // Act & Assert
@@ -424,6 +461,7 @@ class ProfileServiceTests {
         // Assert
         assertNotNull(result);
         verify(profileRepository).save(any(Profile.class));
+        verify(eventPublisher).publishEvent(new MatchingChangeEvent.InterestsChanged(1L, List.of(1L)));
     }
 
     @Test
@@ -451,6 +489,7 @@ class ProfileServiceTests {
         // Assert
         assertNotNull(result);
         verify(profileRepository).save(any(Profile.class));
+        verify(eventPublisher).publishEvent(any(MatchingChangeEvent.InterestsChanged.class));
     }
 
     @Test
@@ -477,6 +516,7 @@ class ProfileServiceTests {
 
         // Assert
         verify(profileRepository).save(any(Profile.class));
+        verify(eventPublisher).publishEvent(new MatchingChangeEvent.InterestsChanged(1L, List.of()));
         assertTrue(testProfile.getInterests().isEmpty());
     }
 
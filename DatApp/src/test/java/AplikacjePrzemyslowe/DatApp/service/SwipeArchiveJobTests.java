@@ -0,0 +1,196 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao;
+import AplikacjePrzemyslowe.DatApp.entity.SwipeType;
+import AplikacjePrzemyslowe.DatApp.matching.MatchingChangeEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.BadSqlGrammarException;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SwipeArchiveJob unit tests")
+class SwipeArchiveJobTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 17, 4, 30);
+
+    @Mock private SwipeJdbcDao swipeJdbcDao;
+    @Mock private ApplicationEventPublisher eventPublisher;
+
+    private MatchingProperties properties;
+    private SwipeArchiveJob job;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MatchingProperties();
+        properties.getSwipeArchive().setChunkSize(2);
+        properties.getSwipeArchive().setPartitionsAhead(2);
+        properties.getSwipeArchive().setDislikeSecondChance(Duration.ofDays(180));
+        properties.getSwipeArchive().setPassSecondChance(null);
+        job = new SwipeArchiveJob(properties, swipeJdbcDao, eventPublisher);
+    }
+
+    // ========== ensurePartitions ==========
+
+    @Test
+    @DisplayName("ensurePartitions: pierwsze uruchomienie zakłada bieżący miesiąc i partitions-ahead kolejnych")
+    void ensurePartitions_fromFutureOnly() {
+        when(swipeJdbcDao.findPartitionNames()).thenReturn(List.of("p_future"));
+
+        int added = job.ensurePartitions(LocalDate.of(2026, 11, 20));
+
+        assertThat(added).isEqualTo(3);
+        verify(swipeJdbcDao).addPartitions(List.of(
+                new SwipeJdbcDao.PartitionBound("p202611", LocalDateTime.of(2026, 12, 1, 0, 0)),
+                new SwipeJdbcDao.PartitionBound("p202612", LocalDateTime.of(2027, 1, 1, 0, 0)),
+                new SwipeJdbcDao.PartitionBound("p202701", LocalDateTime.of(2027, 2, 1, 0, 0))));
+    }
+
+    @Test
+    @DisplayName("ensurePartitions: dokłada tylko miesiące za ostatnią istniejącą partycją")
+    void ensurePartitions_continuesAfterLastPartition() {
+        when(swipeJdbcDao.findPartitionNames()).thenReturn(List.of("p202611", "p202612", "p_future"));
+
+        job.ensurePartitions(LocalDate.of(2026, 11, 20));
+
+        verify(swipeJdbcDao).addPartitions(List.of(
+                new SwipeJdbcDao.PartitionBound("p202701", LocalDateTime.of(2027, 2, 1, 0, 0))));
+    }
+
+    @Test
+    @DisplayName("ensurePartitions: tabela bez partycji jest pomijana")
+    void ensurePartitions_skipsUnpartitionedTable() {
+        when(swipeJdbcDao.findPartitionNames()).thenReturn(List.of());
+
+        assertThat(job.ensurePartitions(LocalDate.of(2026, 11, 20))).isZero();
+        verify(swipeJdbcDao, never()).addPartitions(any());
+    }
+
+    @Test
+    @DisplayName("onApplicationReady: błąd odczytu partycji (np. H2) nie przerywa startu")
+    void onApplicationReady_failureIsSwallowed() {
+        when(swipeJdbcDao.findPartitionNames())
+                .thenThrow(new BadSqlGrammarException("partitions", "SELECT", new SQLException("no table")));
+
+        assertThatCode(() -> job.onApplicationReady()).doesNotThrowAnyException();
+    }
+
+    // ========== archive ==========
+
+    @Test
+    @DisplayName("archive: przenosi porcje po archive-after bez zwalniania par i bez zdarzeń")
+    void archive_movesChunksAndKeepsPairsHeld() {
+        LocalDateTime cutoff = NOW.minusDays(30);
+        when(swipeJdbcDao.findArchivableSwipes(SwipeType.DISLIKE, cutoff, 2))
+                .thenReturn(List.of(new SwipeJdbcDao.ArchivableSwipe(10L, 1L), new SwipeJdbcDao.ArchivableSwipe(11L, 1L)))
+                .thenReturn(List.of(new SwipeJdbcDao.ArchivableSwipe(12L, 2L)));
+        when(swipeJdbcDao.archiveSwipes(List.of(10L, 11L), SwipeType.DISLIKE, cutoff)).thenReturn(2);
+        when(swipeJdbcDao.archiveSwipes(List.of(12L), SwipeType.DISLIKE, cutoff)).thenReturn(1);
+
+        int archived = job.archive(NOW);
+
+        assertThat(archived).isEqualTo(3);
+        // PASS bez okna drugiej szansy też trafia do archiwum, ale jego para nigdy nie jest zwalniana
+        verify(swipeJdbcDao).findArchivableSwipes(SwipeType.PASS, cutoff, 2);
+        verify(swipeJdbcDao, never()).releaseArchivedPairs(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("archive: okno drugiej szansy krótsze niż archive-after przyspiesza archiwizację typu")
+    void archive_shorterSecondChanceArchivesEarlier() {
+        properties.getSwipeArchive().setPassSecondChance(Duration.ofDays(7));
+
+        job.archive(NOW);
+
+        verify(swipeJdbcDao).findArchivableSwipes(SwipeType.DISLIKE, NOW.minusDays(30), 2);
+        verify(swipeJdbcDao).findArchivableSwipes(SwipeType.PASS, NOW.minusDays(7), 2);
+    }
+
+    @Test
+    @DisplayName("archive: bez archive-after i bez okna typ nie jest archiwizowany")
+    void archive_withoutAgeSkipsType() {
+        properties.getSwipeArchive().setArchiveAfter(null);
+
+        job.archive(NOW);
+
+        verify(swipeJdbcDao).findArchivableSwipes(SwipeType.DISLIKE, NOW.minusDays(180), 2);
+        verify(swipeJdbcDao, never()).findArchivableSwipes(eq(SwipeType.PASS), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("archive: porcja, której nie udało się usunąć, kończy pętlę")
+    void archive_stopsWhenNothingMoved() {
+        properties.getSwipeArchive().setDislikeSecondChance(null);
+        properties.getSwipeArchive().setPassSecondChance(Duration.ofDays(30));
+        LocalDateTime cutoff = NOW.minusDays(30);
+        when(swipeJdbcDao.findArchivableSwipes(SwipeType.PASS, cutoff, 2))
+                .thenReturn(List.of(new SwipeJdbcDao.ArchivableSwipe(10L, 1L), new SwipeJdbcDao.ArchivableSwipe(11L, 3L)));
+        when(swipeJdbcDao.archiveSwipes(List.of(10L, 11L), SwipeType.PASS, cutoff)).thenReturn(0);
+
+        assertThat(job.archive(NOW)).isZero();
+        verify(swipeJdbcDao, times(1)).findArchivableSwipes(SwipeType.PASS, cutoff, 2);
+    }
+
+    // ========== releaseSecondChances ==========
+
+    @Test
+    @DisplayName("releaseSecondChances: zwalnia pary po oknie drugiej szansy i ogłasza oceniających")
+    void releaseSecondChances_releasesChunksAndRecyclesSwipers() {
+        LocalDateTime cutoff = NOW.minusDays(180);
+        when(swipeJdbcDao.findReleasableSwipes(SwipeType.DISLIKE, cutoff, 2))
+                .thenReturn(List.of(new SwipeJdbcDao.ArchivableSwipe(10L, 1L), new SwipeJdbcDao.ArchivableSwipe(11L, 1L)))
+                .thenReturn(List.of(new SwipeJdbcDao.ArchivableSwipe(12L, 2L)));
+        when(swipeJdbcDao.releaseArchivedPairs(List.of(10L, 11L))).thenReturn(2);
+        when(swipeJdbcDao.releaseArchivedPairs(List.of(12L))).thenReturn(1);
+
+        int released = job.releaseSecondChances(NOW);
+
+        assertThat(released).isEqualTo(3);
+        ArgumentCaptor<MatchingChangeEvent> events = ArgumentCaptor.forClass(MatchingChangeEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues()).containsExactly(
+                new MatchingChangeEvent.SwipesRecycled(1L),
+                new MatchingChangeEvent.SwipesRecycled(2L));
+        verify(swipeJdbcDao, never()).findReleasableSwipes(eq(SwipeType.PASS), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("releaseSecondChances: porcja, której par nie udało się zwolnić, kończy pętlę")
+    void releaseSecondChances_stopsWhenNothingReleased() {
+        LocalDateTime cutoff = NOW.minusDays(180);
+        when(swipeJdbcDao.findReleasableSwipes(SwipeType.DISLIKE, cutoff, 2))
+                .thenReturn(List.of(new SwipeJdbcDao.ArchivableSwipe(10L, 1L), new SwipeJdbcDao.ArchivableSwipe(11L, 3L)));
+        when(swipeJdbcDao.releaseArchivedPairs(List.of(10L, 11L))).thenReturn(0);
+
+        assertThat(job.releaseSecondChances(NOW)).isZero();
+        verify(swipeJdbcDao, times(1)).findReleasableSwipes(SwipeType.DISLIKE, cutoff, 2);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("runScheduled: wyłączone zadanie nie dotyka bazy")
+    void runScheduled_disabled() {
+        properties.getSwipeArchive().setEnabled(false);
+
+        job.runScheduled();
+
+        verifyNoInteractions(swipeJdbcDao, eventPublisher);
+    }
+}
@@ -0,0 +1,39 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SwipeIdAllocator unit tests")
+class SwipeIdAllocatorTests {
+
+    @Mock private SwipeJdbcDao swipeJdbcDao;
+
+    private SwipeIdAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        MatchingProperties properties = new MatchingProperties();
+        properties.getSwipeIngestion().setIdBlockSize(3);
+        allocator = new SwipeIdAllocator(swipeJdbcDao, properties);
+    }
+
+    @Test
+    @DisplayName("next: ID nadawane z puli, baza odpytywana dopiero po jej wyczerpaniu")
+    void next_allocatesBlocks() {
+        when(swipeJdbcDao.allocateSwipeIds(3)).thenReturn(10L, 40L);
+
+        assertThat(new long[]{allocator.next(), allocator.next(), allocator.next(), allocator.next()})
+                .containsExactly(10L, 11L, 12L, 40L);
+        verify(swipeJdbcDao, times(2)).allocateSwipeIds(3);
+    }
+}
@@ -0,0 +1,255 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.MatchJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao.SwipeRow;
+import AplikacjePrzemyslowe.DatApp.dto.request.SwipeRequest;
+import AplikacjePrzemyslowe.DatApp.dto.response.MatchResponse;
+import AplikacjePrzemyslowe.DatApp.dto.response.SwipeResponse;
+import AplikacjePrzemyslowe.DatApp.entity.Match;
+import AplikacjePrzemyslowe.DatApp.entity.SwipeType;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import AplikacjePrzemyslowe.DatApp.matching.PendingLikeIndex;
+import AplikacjePrzemyslowe.DatApp.matching.SwipedUserCache;
+import AplikacjePrzemyslowe.DatApp.repository.MatchRepository;
+import AplikacjePrzemyslowe.DatApp.repository.SwipeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Równoczesne wzajemne polubienia - PendingLikeIndex bez trafień, więc decyduje swipe_pairs.
+ * Tabela swipe_pairs współdzielona jest przez instancje aplikacji (SharedSwipePairs); każda
+ * instancja ma własny SwipeWriter z kolejką, która w trakcie testu nie jest opróżniana,
+ * i własne locki par.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SwipeService contention tests")
+class SwipeServiceContentionTests {
+
+    private static final int PAIRS = 500;
+    private static final int THREADS = 8;
+
+    @Mock private SwipeRepository swipeRepository;
+    @Mock private MatchRepository matchRepository;
+    @Mock private MatchJdbcDao matchJdbcDao;
+    @Mock private UserService userService;
+    @Mock private SwipeJdbcDao swipeJdbcDao;
+    @Mock private SwipeIdAllocator swipeIdAllocator;
+    @Mock private SwipedUserCache swipedUserCache;
+    @Mock private PendingLikeIndex pendingLikeIndex;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private ModelMapper modelMapper;
+
+    private final List<SwipeWriter> swipeWriters = new ArrayList<>();
+    private final SharedSwipePairs swipePairs = new SharedSwipePairs();
+
+    @BeforeEach
+    void setUp() {
+        // lenient - test SwipePairLocks nie nagrywa swipe'ów
+        lenient().when(userService.getUserEntity(anyLong())).thenAnswer(invocation -> User.builder()
+                .id(invocation.getArgument(0))
+                .username("u" + invocation.getArgument(0))
+                .isActive(true)
+                .build());
+        lenient().when(swipeJdbcDao.reservePair(any())).thenAnswer(invocation -> swipePairs.reserve(invocation.getArgument(0)));
+        lenient().when(swipeJdbcDao.lockPairType(anyLong(), anyLong())).thenAnswer(invocation ->
+                swipePairs.lockType(invocation.getArgument(0), invocation.getArgument(1)));
+        lenient().when(modelMapper.map(any(Match.class), eq(MatchResponse.class))).thenAnswer(invocation -> new MatchResponse());
+    }
+
+    @AfterEach
+    void tearDown() {
+        swipeWriters.forEach(SwipeWriter::shutdown);
+    }
+
+    @Test
+    @DisplayName("recordSwipe: równoczesne A -> B i B -> A w jednej instancji dają dokładnie jeden match na parę")
+    void recordSwipe_racingMutualLikesMatchOnce() throws Exception {
+        SwipeService instance = newInstance();
+
+        raceMutualLikes(instance, instance);
+    }
+
+    @Test
+    @DisplayName("recordSwipe: równoczesne A -> B i B -> A w dwóch instancjach dają dokładnie jeden match na parę")
+    void recordSwipe_racingMutualLikesAcrossInstancesMatchOnce() throws Exception {
+        raceMutualLikes(newInstance(), newInstance());
+    }
+
+    @Test
+    @DisplayName("recordSwipe: polubienie czekające w kolejce innej instancji wykrywane przez swipe_pairs")
+    void recordSwipe_likeQueuedOnOtherInstanceMatches() throws Exception {
+        SwipeService first = newInstance();
+        SwipeService second = newInstance();
+        when(matchJdbcDao.upsertMatch(anyLong(), anyLong(), any()))
+                .thenAnswer(invocation -> new MatchJdbcDao.StoredMatch(1L, true, invocation.getArgument(2), null));
+
+        SwipeResponse like = like(new CountDownLatch(0), first, 1L, 2L).call();
+        SwipeResponse likeBack = like(new CountDownLatch(0), second, 2L, 1L).call();
+
+        assertThat(like.getIsMatch()).isFalse();
+        assertThat(likeBack.getIsMatch()).isTrue();
+        assertThat(swipeWriters.get(0).findPending(1L, 2L)).isPresent();
+        assertThat(swipeWriters.get(1).findPending(1L, 2L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("SwipePairLocks: ten sam lock dla obu kierunków pary, rozmiar zaokrąglony do potęgi 2")
+    void pairLocks_symmetricPerPair() {
+        SwipePairLocks locks = new SwipePairLocks(200);
+
+        assertThat(locks.size()).isEqualTo(256);
+        for (long a = 1; a < 100; a++) {
+            for (long b = a + 1; b < 100; b++) {
+                assertThat(locks.lockFor(a, b)).isSameAs(locks.lockFor(b, a));
+            }
+        }
+    }
+
+    // ========== HELPER METHODS ==========
+
+    /**
+     * Instancja aplikacji: własny SwipeWriter i locki par, wspólna baza (mocki DAO).
+     */
+    private SwipeService newInstance() {
+        MatchingProperties properties = new MatchingProperties();
+        properties.getSwipeIngestion().setBatchSize(10 * PAIRS);
+        properties.getSwipeIngestion().setQueueCapacity(10 * PAIRS);
+        properties.getSwipeIngestion().setFlushInterval(Duration.ofSeconds(30));
+        SwipeWriter swipeWriter = new SwipeWriter(swipeJdbcDao, properties, new SimpleMeterRegistry());
+        swipeWriters.add(swipeWriter);
+
+        return new SwipeService(swipeRepository, matchRepository, matchJdbcDao, swipeJdbcDao, userService,
+                swipeWriter, swipeIdAllocator, swipedUserCache, pendingLikeIndex, eventPublisher, modelMapper);
+    }
+
+    private void raceMutualLikes(SwipeService forA, SwipeService forB) throws Exception {
+        AtomicLong matchIds = new AtomicLong();
+        when(matchJdbcDao.upsertMatch(anyLong(), anyLong(), any())).thenAnswer(invocation ->
+                new MatchJdbcDao.StoredMatch(matchIds.incrementAndGet(), true, invocation.getArgument(2), null));
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<SwipeResponse>> swipes = new ArrayList<>();
+        for (long pair = 0; pair < PAIRS; pair++) {
+            long a = 2 * pair + 1;
+            long b = 2 * pair + 2;
+            swipes.add(like(start, forA, a, b));
+            swipes.add(like(start, forB, b, a));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<SwipeResponse>> responses = new ArrayList<>();
+        try {
+            for (Callable<SwipeResponse> swipe : swipes) {
+                responses.add(executor.submit(swipe));
+            }
+            start.countDown();
+
+            for (int pair = 0; pair < PAIRS; pair++) {
+                boolean first = responses.get(2 * pair).get(10, TimeUnit.SECONDS).getIsMatch();
+                boolean second = responses.get(2 * pair + 1).get(10, TimeUnit.SECONDS).getIsMatch();
+                assertThat(first ^ second).as("pair %d", pair).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(matchJdbcDao, times(PAIRS)).upsertMatch(anyLong(), anyLong(), any());
+    }
+
+    /**
+     * LIKE w osobnej "transakcji" - synchronizacje wywoływane jak przy commicie albo rollbacku.
+     */
+    private Callable<SwipeResponse> like(CountDownLatch start, SwipeService swipeService,
+                                         long swiperId, long swipedUserId) {
+        SwipeRequest request = SwipeRequest.builder()
+                .swipedUserId(swipedUserId)
+                .swipeType("LIKE")
+                .build();
+        return () -> {
+            start.await();
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                SwipeResponse response = swipeService.recordSwipe(swiperId, request);
+                List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+                synchronizations.forEach(TransactionSynchronization::afterCommit);
+                synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+                return response;
+            } catch (RuntimeException e) {
+                TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+                throw e;
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        };
+    }
+
+    /**
+     * swipe_pairs współdzielona przez instancje. Pierwszy odczyt albo zapis pary w transakcji
+     * blokuje parę do jej zakończenia - jak blokady wierszy i luk InnoDB; rollback usuwa wstawione krawędzie.
+     */
+    private static final class SharedSwipePairs {
+
+        private final Map<List<Long>, SwipeType> edges = new ConcurrentHashMap<>();
+        private final Map<List<Long>, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+        boolean reserve(SwipeRow swipe) {
+            List<Long> edge = List.of(swipe.swiperId(), swipe.swipedUserId());
+            lockPair(swipe.swiperId(), swipe.swipedUserId(), edge);
+            return edges.putIfAbsent(edge, swipe.swipeType()) == null;
+        }
+
+        Optional<SwipeType> lockType(long swiperId, long swipedUserId) {
+            lockPair(swiperId, swipedUserId, null);
+            return Optional.ofNullable(edges.get(List.of(swiperId, swipedUserId)));
+        }
+
+        private void lockPair(long a, long b, List<Long> inserted) {
+            ReentrantLock lock = locks.computeIfAbsent(List.of(Math.min(a, b), Math.max(a, b)), pair -> new ReentrantLock());
+            if (lock.isHeldByCurrentThread()) {
+                return;
+            }
+            lock.lock();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED && inserted != null) {
+                        edges.remove(inserted);
+                    }
+                    lock.unlock();
+                }
+            });
+        }
+    }
+}
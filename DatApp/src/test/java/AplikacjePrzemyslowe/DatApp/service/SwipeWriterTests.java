@@ -0,0 +1,265 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.SwipeJdbcDao.SwipeRow;
+import AplikacjePrzemyslowe.DatApp.entity.SwipeType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SwipeWriter unit tests")
+class SwipeWriterTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 15, 12, 0);
+
+    @Mock private SwipeJdbcDao swipeJdbcDao;
+    @TempDir private Path tempDir;
+
+    private MatchingProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private SwipeWriter swipeWriter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MatchingProperties();
+        properties.getSwipeIngestion().setRetryBackoff(Duration.ofMillis(1));
+        properties.getSwipeIngestion().setDeadLetterPath(deadLetterPath().toString());
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (swipeWriter != null) {
+            swipeWriter.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("submit: swipe'y z kolejki zapisywane paczką, po zapisie znikają z pending")
+    void submit_flushedAsBatch() {
+        properties.getSwipeIngestion().setFlushInterval(Duration.ofMillis(200));
+        List<List<SwipeRow>> batches = recordBatches();
+        swipeWriter = newWriter();
+
+        submit(swipe(1L, 2L, SwipeType.LIKE));
+        submit(swipe(1L, 3L, SwipeType.DISLIKE));
+        submit(swipe(4L, 1L, SwipeType.LIKE));
+        assertThat(swipeWriter.findPending(4L, 1L)).contains(SwipeType.LIKE);
+
+        swipeWriter.shutdown();
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).extracting(SwipeRow::swipedUserId).containsExactly(2L, 3L, 1L);
+        assertThat(swipeWriter.findPending(4L, 1L)).isEmpty();
+        assertThat(meterRegistry.counter("swipe.ingestion.rows", "result", "flushed").count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("reserve: druga rezerwacja tej samej pary przed zapisem jest odrzucana")
+    void reserve_pendingDuplicateRejected() {
+        properties.getSwipeIngestion().setFlushInterval(Duration.ofMillis(500));
+        swipeWriter = newWriter();
+
+        assertThat(swipeWriter.reserve(swipe(1L, 2L, SwipeType.LIKE))).isTrue();
+        assertThat(swipeWriter.reserve(swipe(1L, 2L, SwipeType.DISLIKE))).isFalse();
+    }
+
+    @Test
+    @DisplayName("findPendingSwipedBy: zwraca ocenionych przez użytkownika, których swipe'y czekają na zapis")
+    void findPendingSwipedBy_returnsReservedPairs() {
+        swipeWriter = newWriter();
+        SwipeRow released = swipe(1L, 4L, SwipeType.PASS);
+
+        swipeWriter.reserve(swipe(1L, 2L, SwipeType.LIKE));
+        swipeWriter.reserve(swipe(1L, 3L, SwipeType.DISLIKE));
+        swipeWriter.reserve(swipe(5L, 1L, SwipeType.LIKE));
+        swipeWriter.reserve(released);
+        swipeWriter.release(released);
+
+        assertThat(swipeWriter.findPendingSwipedBy(1L)).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(swipeWriter.findPendingSwipedBy(2L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("release: zwolniona rezerwacja znika z pending i nie trafia do bazy")
+    void release_removesReservation() {
+        swipeWriter = newWriter();
+        SwipeRow swipe = swipe(1L, 2L, SwipeType.LIKE);
+
+        assertThat(swipeWriter.reserve(swipe)).isTrue();
+        swipeWriter.release(swipe);
+
+        assertThat(swipeWriter.findPending(1L, 2L)).isEmpty();
+        assertThat(swipeWriter.reserve(swipe(1L, 2L, SwipeType.DISLIKE))).isTrue();
+        swipeWriter.shutdown();
+        verifyNoInteractions(swipeJdbcDao);
+    }
+
+    @Test
+    @DisplayName("submit: pełna kolejka - po czasie oczekiwania swipe zapisywany synchronicznie")
+    void submit_fullQueueWritesThrough() throws InterruptedException {
+        properties.getSwipeIngestion().setQueueCapacity(1);
+        properties.getSwipeIngestion().setEnqueueTimeout(Duration.ofMillis(10));
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (Thread.currentThread().getName().equals("swipe-writer")) {
+                writerBlocked.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return 1;
+        }).when(swipeJdbcDao).insertSwipes(any());
+        swipeWriter = newWriter();
+
+        submit(swipe(1L, 2L, SwipeType.LIKE));
+        assertThat(writerBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+        submit(swipe(1L, 3L, SwipeType.LIKE));   // zajmuje jedyne miejsce w kolejce
+        submit(swipe(1L, 4L, SwipeType.LIKE));   // kolejka pełna
+        release.countDown();
+
+        verify(swipeJdbcDao).insertSwipes(List.of(swipe(1L, 4L, SwipeType.LIKE)));
+        assertThat(swipeWriter.findPending(1L, 4L)).isEmpty();
+        assertThat(meterRegistry.counter("swipe.ingestion.rows", "result", "fallback").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("submit: przy wyłączonej kolejce zapis synchroniczny, błąd kieruje swipe do dead-letter")
+    void submit_disabledWritesSynchronously() throws IOException {
+        properties.getSwipeIngestion().setEnabled(false);
+        swipeWriter = newWriter();
+        when(swipeJdbcDao.insertSwipes(any())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThatCode(() -> submit(swipe(1L, 2L, SwipeType.LIKE))).doesNotThrowAnyException();
+        assertThat(swipeWriter.findPending(1L, 2L)).isEmpty();
+        assertThat(SwipeDeadLetterFile.read(deadLetterPath())).containsExactly(swipe(1L, 2L, SwipeType.LIKE));
+        assertThat(meterRegistry.counter("swipe.ingestion.rows", "result", "spilled").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("swipe.ingestion.rows", "result", "dropped").count()).isZero();
+    }
+
+    @Test
+    @DisplayName("flush: odrzucona paczka ponawiana, potem zapis wiersz po wierszu, błędny wiersz do dead-letter")
+    void flush_failedBatchWrittenRowByRow() throws IOException {
+        properties.getSwipeIngestion().setEnabled(false);
+        properties.getSwipeIngestion().setMaxRetries(1);
+        swipeWriter = newWriter();
+        SwipeRow ok = swipe(1L, 2L, SwipeType.LIKE);
+        SwipeRow broken = swipe(1L, 999L, SwipeType.LIKE);
+        doThrow(new DataIntegrityViolationException("fk")).when(swipeJdbcDao).insertSwipes(List.of(ok, broken));
+        doReturn(1).when(swipeJdbcDao).insertSwipes(List.of(ok));
+        doThrow(new DataIntegrityViolationException("fk")).when(swipeJdbcDao).insertSwipes(List.of(broken));
+
+        swipeWriter.flush(new ArrayList<>(List.of(ok, broken)));
+
+        verify(swipeJdbcDao, times(2)).insertSwipes(List.of(ok, broken));
+        assertThat(meterRegistry.counter("swipe.ingestion.rows", "result", "flushed").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("swipe.ingestion.rows", "result", "spilled").count()).isEqualTo(1);
+        assertThat(SwipeDeadLetterFile.read(deadLetterPath())).containsExactly(broken);
+    }
+
+    // ========== DEAD LETTER ==========
+
+    @Test
+    @DisplayName("replayDeadLetters: zapisuje swipe'y z pliku i usuwa plik")
+    void replayDeadLetters_writesAndDeletesFile() throws IOException {
+        swipeWriter = newWriter();
+        List<SwipeRow> swipes = List.of(swipe(1L, 2L, SwipeType.LIKE), swipe(3L, 4L, SwipeType.PASS));
+        SwipeDeadLetterFile.append(deadLetterPath(), swipes);
+        when(swipeJdbcDao.insertSwipes(swipes)).thenReturn(2);
+
+        assertThat(swipeWriter.replayDeadLetters()).isEqualTo(2);
+        assertThat(Files.exists(deadLetterPath())).isFalse();
+        assertThat(meterRegistry.counter("swipe.ingestion.rows", "result", "replayed").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("replayDeadLetters: wiersz łamiący więzy porzucany, po awarii bazy reszta zostaje w pliku")
+    void replayDeadLetters_dropsViolationsAndKeepsRest() throws IOException {
+        swipeWriter = newWriter();
+        SwipeRow ok = swipe(1L, 2L, SwipeType.LIKE);
+        SwipeRow broken = swipe(1L, 999L, SwipeType.LIKE);
+        SwipeRow unlucky = swipe(3L, 4L, SwipeType.DISLIKE);
+        SwipeDeadLetterFile.append(deadLetterPath(), List.of(ok, broken, unlucky));
+        doThrow(new DataIntegrityViolationException("fk")).when(swipeJdbcDao).insertSwipes(List.of(ok, broken, unlucky));
+        doReturn(1).when(swipeJdbcDao).insertSwipes(List.of(ok));
+        doThrow(new DataIntegrityViolationException("fk")).when(swipeJdbcDao).insertSwipes(List.of(broken));
+        doThrow(new DataAccessResourceFailureException("down")).when(swipeJdbcDao).insertSwipes(List.of(unlucky));
+
+        assertThat(swipeWriter.replayDeadLetters()).isEqualTo(1);
+        assertThat(SwipeDeadLetterFile.read(deadLetterPath())).containsExactly(unlucky);
+        assertThat(meterRegistry.counter("swipe.ingestion.rows", "result", "dropped").count()).isEqualTo(1);
+        verify(swipeJdbcDao).releasePairs(List.of(broken));
+    }
+
+    @Test
+    @DisplayName("flush: przy niezapisywalnym pliku dead-letter swipe porzucany, a jego para zwalniana")
+    void flush_unwritableDeadLetterReleasesPairs() throws IOException {
+        Files.createDirectories(deadLetterPath());
+        properties.getSwipeIngestion().setEnabled(false);
+        properties.getSwipeIngestion().setMaxRetries(0);
+        swipeWriter = newWriter();
+        SwipeRow broken = swipe(1L, 999L, SwipeType.LIKE);
+        doThrow(new DataAccessResourceFailureException("down")).when(swipeJdbcDao).insertSwipes(List.of(broken));
+
+        swipeWriter.flush(new ArrayList<>(List.of(broken)));
+
+        verify(swipeJdbcDao).releasePairs(List.of(broken));
+        assertThat(meterRegistry.counter("swipe.ingestion.rows", "result", "dropped").count()).isEqualTo(1);
+        assertThat(swipeWriter.findPending(1L, 999L)).isEmpty();
+    }
+
+    // ========== HELPER METHODS ==========
+
+    private Path deadLetterPath() {
+        return tempDir.resolve("swipe-dead-letters.csv");
+    }
+
+    private SwipeWriter newWriter() {
+        return new SwipeWriter(swipeJdbcDao, properties, meterRegistry);
+    }
+
+    /**
+     * Rezerwacja i przekazanie do zapisu - jak SwipeService po zatwierdzeniu transakcji.
+     */
+    private void submit(SwipeRow swipe) {
+        assertThat(swipeWriter.reserve(swipe)).isTrue();
+        swipeWriter.submit(swipe);
+    }
+
+    private List<List<SwipeRow>> recordBatches() {
+        List<List<SwipeRow>> batches = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<SwipeRow> batch = invocation.getArgument(0);
+            batches.add(List.copyOf(batch));
+            return batch.size();
+        }).when(swipeJdbcDao).insertSwipes(any());
+        return batches;
+    }
+
+    private static SwipeRow swipe(long swiperId, long swipedUserId, SwipeType type) {
+        return new SwipeRow(swiperId * 1_000 + swipedUserId, swiperId, swipedUserId, type, NOW);
+    }
+}
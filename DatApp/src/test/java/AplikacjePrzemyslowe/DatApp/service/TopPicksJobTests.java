@@ -0,0 +1,192 @@
+package AplikacjePrzemyslowe.DatApp.service;
+
+import AplikacjePrzemyslowe.DatApp.config.MatchingProperties;
+import AplikacjePrzemyslowe.DatApp.dao.TopPicksJdbcDao;
+import AplikacjePrzemyslowe.DatApp.dao.UserJdbcDao;
+import AplikacjePrzemyslowe.DatApp.entity.Preference;
+import AplikacjePrzemyslowe.DatApp.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TopPicksJob unit tests")
+class TopPicksJobTests {
+
+    @Mock private UserJdbcDao userJdbcDao;
+    @Mock private TopPicksJdbcDao topPicksJdbcDao;
+    @Mock private UserService userService;
+    @Mock private PreferenceService preferenceService;
+    @Mock private MatchingPipeline matchingPipeline;
+
+    private MatchingProperties properties;
+    private TopPicksJob job;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MatchingProperties();
+        properties.getTopPicks().setWorkers(2);
+        properties.getTopPicks().setChunkSize(2);
+        properties.getTopPicks().setSize(10);
+        job = new TopPicksJob(properties, userJdbcDao, topPicksJdbcDao, userService, preferenceService,
+                matchingPipeline);
+    }
+
+    /**
+     * Użytkownik {@code id}, którego najlepszym kandydatem jest {@code id + 100}.
+     */
+    private void stubRanking(long id) {
+        User user = User.builder().id(id).build();
+        Preference preference = Preference.builder().user(user).build();
+        when(preferenceService.getPreferenceEntity(id)).thenReturn(preference);
+        when(matchingPipeline.rank(user, preference, 10)).thenReturn(new MatchingPipeline.Ranking(1,
+                List.of(new ScoredCandidate(id + 100, 40, 2, 5.0))));
+    }
+
+    private void stubUsers(List<Long> ids) {
+        when(userService.getUserEntities(ids))
+                .thenReturn(ids.stream().map(id -> User.builder().id(id).build()).toList());
+    }
+
+    @Test
+    @DisplayName("run: nowy przebieg - porcje równolegle, zapis batchem, checkpoint po fali")
+    void run_freshRun_writesPicksAndCheckpoints() {
+        when(topPicksJdbcDao.findCheckpoint(TopPicksJob.JOB_NAME)).thenReturn(Optional.empty());
+        when(userJdbcDao.findActiveUserIdsAfter(0L, 2)).thenReturn(List.of(1L, 2L));
+        when(userJdbcDao.findActiveUserIdsAfter(2L, 2)).thenReturn(List.of(3L));
+        when(userJdbcDao.findActiveUserIdsAfter(3L, 2)).thenReturn(List.of());
+        stubUsers(List.of(1L, 2L));
+        stubUsers(List.of(3L));
+        stubRanking(1L);
+        stubRanking(2L);
+        stubRanking(3L);
+
+        long processed = job.run();
+
+        assertThat(processed).isEqualTo(3);
+        ArgumentCaptor<String> runId = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<LocalDateTime> computedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(topPicksJdbcDao).startRun(eq(TopPicksJob.JOB_NAME), runId.capture(), computedAt.capture());
+        verify(topPicksJdbcDao).replaceTopPicks(List.of(1L, 2L), List.of(
+                new TopPicksJdbcDao.TopPickRow(1L, 0, 101L, 40),
+                new TopPicksJdbcDao.TopPickRow(2L, 0, 102L, 40)), computedAt.getValue());
+        verify(topPicksJdbcDao).replaceTopPicks(List.of(3L),
+                List.of(new TopPicksJdbcDao.TopPickRow(3L, 0, 103L, 40)), computedAt.getValue());
+        verify(topPicksJdbcDao).saveCheckpoint(TopPicksJob.JOB_NAME, runId.getValue(), 3L, 3L);
+        verify(topPicksJdbcDao).completeRun(eq(TopPicksJob.JOB_NAME), eq(runId.getValue()), any(LocalDateTime.class));
+        verify(topPicksJdbcDao).deleteTopPicksBefore(computedAt.getValue());
+    }
+
+    @Test
+    @DisplayName("run: przerwany przebieg wznawiany od checkpointu z tym samym znacznikiem")
+    void run_interruptedRun_resumesFromCheckpoint() {
+        LocalDateTime startedAt = LocalDateTime.now().minusHours(1).withNano(0);
+        when(topPicksJdbcDao.findCheckpoint(TopPicksJob.JOB_NAME)).thenReturn(Optional.of(
+                new TopPicksJdbcDao.Checkpoint("run-1", 2L, 2L, startedAt, null)));
+        when(userJdbcDao.findActiveUserIdsAfter(2L, 2)).thenReturn(List.of(3L));
+        when(userJdbcDao.findActiveUserIdsAfter(3L, 2)).thenReturn(List.of());
+        stubUsers(List.of(3L));
+        stubRanking(3L);
+
+        long processed = job.run();
+
+        assertThat(processed).isEqualTo(3);
+        verify(topPicksJdbcDao, never()).startRun(anyString(), anyString(), any());
+        verify(userJdbcDao, never()).findActiveUserIdsAfter(eq(0L), anyInt());
+        verify(topPicksJdbcDao).replaceTopPicks(List.of(3L),
+                List.of(new TopPicksJdbcDao.TopPickRow(3L, 0, 103L, 40)), startedAt);
+        verify(topPicksJdbcDao).saveCheckpoint(TopPicksJob.JOB_NAME, "run-1", 3L, 3L);
+        verify(topPicksJdbcDao).deleteTopPicksBefore(startedAt);
+    }
+
+    @Test
+    @DisplayName("run: zakończony lub zbyt stary przebieg - nowy przebieg od początku")
+    void run_completedRun_startsOver() {
+        LocalDateTime startedAt = LocalDateTime.now().minusHours(2);
+        when(topPicksJdbcDao.findCheckpoint(TopPicksJob.JOB_NAME)).thenReturn(Optional.of(
+                new TopPicksJdbcDao.Checkpoint("run-1", 50L, 50L, startedAt, startedAt.plusMinutes(30))));
+        when(userJdbcDao.findActiveUserIdsAfter(0L, 2)).thenReturn(List.of());
+
+        long processed = job.run();
+
+        assertThat(processed).isZero();
+        verify(topPicksJdbcDao).startRun(eq(TopPicksJob.JOB_NAME), argThat(runId -> !"run-1".equals(runId)),
+                any(LocalDateTime.class));
+        verify(topPicksJdbcDao, never()).saveCheckpoint(anyString(), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("run: błąd zapisu porcji przerywa przebieg bez przesuwania checkpointu")
+    void run_chunkFailure_keepsCheckpoint() {
+        when(topPicksJdbcDao.findCheckpoint(TopPicksJob.JOB_NAME)).thenReturn(Optional.empty());
+        when(userJdbcDao.findActiveUserIdsAfter(0L, 2)).thenReturn(List.of(1L));
+        when(userJdbcDao.findActiveUserIdsAfter(1L, 2)).thenReturn(List.of());
+        stubUsers(List.of(1L));
+        stubRanking(1L);
+        doThrow(new IllegalStateException("db down"))
+                .when(topPicksJdbcDao).replaceTopPicks(anyCollection(), anyList(), any());
+
+        assertThatThrownBy(() -> job.run()).isInstanceOf(IllegalStateException.class);
+
+        verify(topPicksJdbcDao, never()).saveCheckpoint(anyString(), anyString(), anyLong(), anyLong());
+        verify(topPicksJdbcDao, never()).completeRun(anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("hasResumableRun: niezakończony przebieg z okna resume-window jest wznawiany przy starcie")
+    void hasResumableRun_interruptedRun() {
+        when(topPicksJdbcDao.findCheckpoint(TopPicksJob.JOB_NAME)).thenReturn(Optional.of(
+                new TopPicksJdbcDao.Checkpoint("run-1", 2L, 2L, LocalDateTime.now().minusHours(1), null)));
+
+        assertThat(job.hasResumableRun()).isTrue();
+    }
+
+    @Test
+    @DisplayName("hasResumableRun: zakończony albo zbyt stary przebieg nie jest wznawiany")
+    void hasResumableRun_completedOrExpiredRun() {
+        LocalDateTime startedAt = LocalDateTime.now().minusHours(2);
+        when(topPicksJdbcDao.findCheckpoint(TopPicksJob.JOB_NAME))
+                .thenReturn(Optional.of(new TopPicksJdbcDao.Checkpoint("run-1", 50L, 50L, startedAt,
+                        startedAt.plusMinutes(30))))
+                .thenReturn(Optional.of(new TopPicksJdbcDao.Checkpoint("run-2", 50L, 50L,
+                        LocalDateTime.now().minusDays(1), null)))
+                .thenReturn(Optional.empty());
+
+        assertThat(job.hasResumableRun()).isFalse();
+        assertThat(job.hasResumableRun()).isFalse();
+        assertThat(job.hasResumableRun()).isFalse();
+    }
+
+    @Test
+    @DisplayName("hasResumableRun: checkpoint sprzed users epoch pochodzi z poprzedniej bazy")
+    void hasResumableRun_checkpointFromPreviousDatabase() {
+        LocalDateTime startedAt = LocalDateTime.now().minusHours(1).withNano(0);
+        when(topPicksJdbcDao.findCheckpoint(TopPicksJob.JOB_NAME)).thenReturn(Optional.of(
+                new TopPicksJdbcDao.Checkpoint("run-1", 2L, 2L, startedAt, null)));
+        when(userJdbcDao.findUsersEpoch()).thenReturn(startedAt.plusMinutes(10));
+
+        assertThat(job.hasResumableRun()).isFalse();
+    }
+
+    @Test
+    @DisplayName("onApplicationReady: wyłączone zadanie nie dotyka bazy")
+    void onApplicationReady_disabled() {
+        properties.getTopPicks().setEnabled(false);
+
+        job.onApplicationReady();
+
+        verifyNoInteractions(topPicksJdbcDao, userJdbcDao);
+    }
+}
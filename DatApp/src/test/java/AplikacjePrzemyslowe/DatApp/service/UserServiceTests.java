@@ -7,6 +7,7 @@ import AplikacjePrzemyslowe.DatApp.entity.User;
 import AplikacjePrzemyslowe.DatApp.exception.ResourceAlreadyExistsException;
 import AplikacjePrzemyslowe.DatApp.exception.ResourceNotFoundException;
 import AplikacjePrzemyslowe.DatApp.exception.ValidationException;
+import AplikacjePrzemyslowe.DatApp.matching.MatchingChangeEvent;
 import AplikacjePrzemyslowe.DatApp.repository.UserRepository;
 import AplikacjePrzemyslowe.DatApp.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,6 +18,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -41,6 +43,9 @@ class UserServiceTests {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Mock
     private ModelMapper modelMapper;
 
@@ -259,6 +264,7 @@ class UserServiceTests {
 
         assertThat(testUser.getIsActive()).isFalse();
         verify(userRepository).save(testUser);
+        verify(eventPublisher).publishEvent(new MatchingChangeEvent.UserActivationChanged(1L, false));
     }
 
     @Test
@@ -280,6 +286,7 @@ class UserServiceTests {
 
         assertThat(testUser.getIsActive()).isTrue();
         verify(userRepository).save(testUser);
+        verify(eventPublisher).publishEvent(new MatchingChangeEvent.UserActivationChanged(1L, true));
     }
 
     @Test